@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,15 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import org.springframework.cache.support.AbstractValueAdaptingCache;
@@ -29,7 +35,11 @@ import org.springframework.util.Assert;
  * Spring {@link org.springframework.cache.Cache} adapter implementation
  * on top of a Caffeine {@link com.github.benmanes.caffeine.cache.Cache} instance.
  *
- * <p>Requires Caffeine 2.1 or higher.
+ * <p>Alternatively, an adapter may be built on top of a Caffeine {@link AsyncCache}
+ * for non-blocking {@link #retrieve(Object)} and {@link #retrieve(Object, Supplier)}
+ * operations, with regular cache operations going through its synchronous view.
+ *
+ * <p>Requires Caffeine 2.1 or higher, and Caffeine 2.7 or higher for {@code AsyncCache}.
  *
  * @author Ben Manes
  * @author Juergen Hoeller
@@ -42,6 +52,9 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 
 	private final com.github.benmanes.caffeine.cache.Cache<Object, Object> cache;
 
+	@Nullable
+	private final AsyncCache<Object, Object> asyncCache;
+
 
 	/**
 	 * Create a {@link CaffeineCache} instance with the specified name and the
@@ -69,6 +82,25 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		Assert.notNull(cache, "Cache must not be null");
 		this.name = name;
 		this.cache = cache;
+		this.asyncCache = null;
+	}
+
+	/**
+	 * Create a {@link CaffeineCache} instance with the specified name and the
+	 * given internal {@link AsyncCache} to use.
+	 * @param name the name of the cache
+	 * @param cache the backing Caffeine AsyncCache instance
+	 * @param allowNullValues whether to accept and convert {@code null}
+	 * values for this cache
+	 * @since 5.2
+	 */
+	public CaffeineCache(String name, AsyncCache<Object, Object> cache, boolean allowNullValues) {
+		super(allowNullValues);
+		Assert.notNull(name, "Name must not be null");
+		Assert.notNull(cache, "Cache must not be null");
+		this.name = name;
+		this.cache = cache.synchronous();
+		this.asyncCache = cache;
 	}
 
 
@@ -77,11 +109,27 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		return this.name;
 	}
 
+	/**
+	 * Return the internal Caffeine Cache
+	 * (possibly the synchronous view of an {@link AsyncCache}).
+	 */
 	@Override
 	public final com.github.benmanes.caffeine.cache.Cache<Object, Object> getNativeCache() {
 		return this.cache;
 	}
 
+	/**
+	 * Return the internal Caffeine AsyncCache.
+	 * @throws IllegalStateException if no AsyncCache is available
+	 * @since 5.2
+	 * @see #CaffeineCache(String, AsyncCache, boolean)
+	 */
+	public final AsyncCache<Object, Object> getAsyncCache() {
+		Assert.state(this.asyncCache != null,
+				"No Caffeine AsyncCache available: set CaffeineCacheManager.setAsyncCacheMode(true)");
+		return this.asyncCache;
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper get(Object key) {
@@ -99,6 +147,39 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		return (T) fromStoreValue(this.cache.get(key, new LoadFunction(valueLoader)));
 	}
 
+	@Override
+	@Nullable
+	public CompletableFuture<?> retrieve(Object key) {
+		if (this.asyncCache != null) {
+			CompletableFuture<Object> result = this.asyncCache.getIfPresent(key);
+			return (result != null ? result.thenApply(this::fromStoreValue) : null);
+		}
+		Object value = lookup(key);
+		return (value != null ? CompletableFuture.completedFuture(fromStoreValue(value)) : null);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		if (this.asyncCache != null) {
+			return (CompletableFuture<T>) this.asyncCache.get(key,
+					(k, executor) -> valueLoader.get().thenApply(this::toStoreValue)).thenApply(this::fromStoreValue);
+		}
+		Object cached = lookup(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture((T) fromStoreValue(cached));
+		}
+		return valueLoader.get().thenApply(value -> {
+			Object existing = this.cache.asMap().putIfAbsent(key, toStoreValue(value));
+			return (existing != null ? (T) fromStoreValue(existing) : value);
+		});
+	}
+
+	@Override
+	public boolean supportsRetrieve() {
+		return true;
+	}
+
 	@Override
 	@Nullable
 	protected Object lookup(Object key) {
@@ -110,6 +191,21 @@ public class CaffeineCache extends AbstractValueAdaptingCache {
 		this.cache.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, Object> values = this.cache.getAllPresent(keys);
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(values.size());
+		values.forEach((key, value) -> result.put(key, toValueWrapper(value)));
+		return result;
+	}
+
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(entries.size());
+		entries.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.cache.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable final Object value) {
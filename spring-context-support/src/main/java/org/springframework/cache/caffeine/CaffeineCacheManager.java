@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
@@ -45,7 +46,11 @@ import org.springframework.util.ObjectUtils;
  * A {@link CaffeineSpec}-compliant expression value can also be applied
  * via the {@link #setCacheSpecification "cacheSpecification"} bean property.
  *
- * <p>Requires Caffeine 2.1 or higher.
+ * <p>Caches may be backed by a Caffeine {@code AsyncCache} through
+ * {@link #setAsyncCacheMode "asyncCacheMode"}, enabling non-blocking
+ * {@code CompletableFuture}-based retrieval for asynchronous methods.
+ *
+ * <p>Requires Caffeine 2.1 or higher, and Caffeine 2.7 or higher for async mode.
  *
  * @author Ben Manes
  * @author Juergen Hoeller
@@ -66,6 +71,8 @@ public class CaffeineCacheManager implements CacheManager {
 
 	private boolean allowNullValues = true;
 
+	private boolean asyncCacheMode = false;
+
 
 	/**
 	 * Construct a dynamic CaffeineCacheManager,
@@ -169,6 +176,32 @@ public class CaffeineCacheManager implements CacheManager {
 		return this.allowNullValues;
 	}
 
+	/**
+	 * Set the common cache type that this cache manager builds to async.
+	 * This applies to {@link #setCacheNames} as well as on-demand caches.
+	 * <p>Default is "false": building regular Caffeine caches. Switch this flag
+	 * to "true" for building {@link com.github.benmanes.caffeine.cache.AsyncCache}
+	 * instances, serving {@code CompletableFuture}-based retrieval without blocking.
+	 * @since 5.2
+	 * @see Caffeine#buildAsync()
+	 * @see Cache#retrieve(Object, java.util.function.Supplier)
+	 */
+	public void setAsyncCacheMode(boolean asyncCacheMode) {
+		if (this.asyncCacheMode != asyncCacheMode) {
+			this.asyncCacheMode = asyncCacheMode;
+			refreshKnownCaches();
+		}
+	}
+
+	/**
+	 * Return whether this cache manager builds
+	 * {@link com.github.benmanes.caffeine.cache.AsyncCache} instances.
+	 * @since 5.2
+	 */
+	public boolean isAsyncCacheMode() {
+		return this.asyncCacheMode;
+	}
+
 
 	@Override
 	public Collection<String> getCacheNames() {
@@ -197,6 +230,9 @@ public class CaffeineCacheManager implements CacheManager {
 	 * @return the Spring CaffeineCache adapter (or a decorator thereof)
 	 */
 	protected Cache createCaffeineCache(String name) {
+		if (isAsyncCacheMode()) {
+			return new CaffeineCache(name, createAsyncCaffeineCache(name), isAllowNullValues());
+		}
 		return new CaffeineCache(name, createNativeCaffeineCache(name), isAllowNullValues());
 	}
 
@@ -214,6 +250,21 @@ public class CaffeineCacheManager implements CacheManager {
 		}
 	}
 
+	/**
+	 * Create a native Caffeine AsyncCache instance for the specified cache name.
+	 * @param name the name of the cache
+	 * @return the native Caffeine AsyncCache instance
+	 * @since 5.2
+	 */
+	protected AsyncCache<Object, Object> createAsyncCaffeineCache(String name) {
+		if (this.cacheLoader != null) {
+			return this.cacheBuilder.buildAsync(this.cacheLoader);
+		}
+		else {
+			return this.cacheBuilder.buildAsync();
+		}
+	}
+
 	private void doSetCaffeine(Caffeine<Object, Object> cacheBuilder) {
 		if (!ObjectUtils.nullSafeEquals(this.cacheBuilder, cacheBuilder)) {
 			this.cacheBuilder = cacheBuilder;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.concurrent.CompletableFuture;
+
 import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.CaffeineSpec;
@@ -65,6 +67,22 @@ public class CaffeineCacheManagerTests {
 		assertNull(cache1.get("key3"));
 	}
 
+	@Test
+	public void testAsyncMode() throws Exception {
+		CaffeineCacheManager cm = new CaffeineCacheManager("c1");
+		CaffeineCache cache1 = (CaffeineCache) cm.getCache("c1");
+		cm.setAsyncCacheMode(true);
+		assertTrue(cm.isAsyncCacheMode());
+		CaffeineCache cache1x = (CaffeineCache) cm.getCache("c1");
+		assertNotSame(cache1x, cache1);
+		assertNotNull(cache1x.getAsyncCache());
+
+		cache1x.put("key1", "value1");
+		assertEquals("value1", cache1x.retrieve("key1").get());
+		assertEquals("value2", cache1x.retrieve("key2", () -> CompletableFuture.completedFuture("value2")).get());
+		assertEquals("value2", cache1x.get("key2").get());
+	}
+
 	@Test
 	public void testStaticMode() {
 		CaffeineCacheManager cm = new CaffeineCacheManager("c1", "c2");
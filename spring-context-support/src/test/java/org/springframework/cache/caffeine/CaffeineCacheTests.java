@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,9 @@
 
 package org.springframework.cache.caffeine;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.github.benmanes.caffeine.cache.Caffeine;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,4 +80,59 @@ public class CaffeineCacheTests extends AbstractValueAdaptingCacheTests<Caffeine
 		assertEquals(value, cache.get(key).get()); // not changed
 	}
 
+	@Test
+	public void testRetrieve() throws Exception {
+		CaffeineCache cache = getCache();
+		String key = createRandomKey();
+		assertNull(cache.retrieve(key));
+
+		cache.put(key, "value");
+		assertEquals("value", cache.retrieve(key).get());
+		assertEquals("value", cache.retrieve(key, () -> CompletableFuture.completedFuture("other")).get());
+	}
+
+	@Test
+	public void testAsyncCacheRetrieve() throws Exception {
+		CaffeineCache cache = new CaffeineCache(CACHE_NAME, Caffeine.newBuilder().buildAsync(), true);
+		String key = createRandomKey();
+		AtomicInteger loads = new AtomicInteger();
+		assertNull(cache.retrieve(key));
+
+		CompletableFuture<String> pending = new CompletableFuture<>();
+		CompletableFuture<String> result = cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return pending;
+		});
+		CompletableFuture<String> concurrent = cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+		assertFalse(result.isDone());
+		assertFalse(concurrent.isDone());
+		assertNotNull(cache.retrieve(key));
+
+		pending.complete("value");
+		assertEquals("value", result.get());
+		assertEquals("value", concurrent.get());
+		assertEquals(1, loads.get());
+		assertEquals("value", cache.get(key).get());
+		assertSame(cache.getAsyncCache().synchronous(), cache.getNativeCache());
+	}
+
+	@Test
+	public void testAsyncCacheRetrieveNullValue() throws Exception {
+		CaffeineCache cache = new CaffeineCache(CACHE_NAME, Caffeine.newBuilder().buildAsync(), true);
+		String key = createRandomKey();
+
+		assertNull(cache.retrieve(key, () -> CompletableFuture.completedFuture(null)).get());
+		assertNotNull(cache.retrieve(key));
+		assertNull(cache.retrieve(key).get());
+	}
+
+	@Test
+	public void testGetAsyncCacheWithoutAsyncMode() {
+		this.thrown.expect(IllegalStateException.class);
+		getCache().getAsyncCache();
+	}
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.transaction;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TransactionAwareCacheManagerProxy} in front of the
+ * caching interceptor.
+ *
+ * @author agent (agent@local)
+ */
+public class TransactionAwareCacheManagerProxyTests {
+
+	private AnnotationConfigApplicationContext context;
+
+	private CountingCacheManager targetCacheManager;
+
+	private CachedService service;
+
+
+	@Before
+	public void setup() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.targetCacheManager = this.context.getBean(Config.class).targetCacheManager;
+		this.service = this.context.getBean(CachedService.class);
+	}
+
+	@After
+	public void closeContext() {
+		this.context.close();
+	}
+
+
+	@Test
+	public void getCacheDecoratesTargetCache() {
+		CacheManager cacheManager = this.context.getBean(CacheManager.class);
+		Cache cache = cacheManager.getCache("default");
+		assertTrue(cache instanceof TransactionAwareCacheDecorator);
+		assertSame(this.targetCacheManager.getCache("default"),
+				((TransactionAwareCacheDecorator) cache).getTargetCache());
+	}
+
+	@Test
+	public void resolvedCachesReusedForDecoratedCaches() {
+		Object key = new Object();
+		long value = this.service.get(key);
+		assertEquals(value, this.service.get(key));
+		int lookups = this.targetCacheManager.lookups.get();
+
+		// A single check of the memoized cache per invocation, no further resolution
+		assertEquals(value, this.service.get(key));
+		assertEquals(lookups + 1, this.targetCacheManager.lookups.get());
+	}
+
+	@Test
+	public void recreatedTargetCachePickedUp() {
+		Object key = new Object();
+		long value = this.service.get(key);
+		assertEquals(value, this.service.get(key));
+
+		this.targetCacheManager.setAllowNullValues(false);
+		assertNull(this.targetCacheManager.getCache("default").get(key));
+		long value2 = this.service.get(key);
+		assertNotEquals(value, value2);
+		assertEquals(value2, this.targetCacheManager.getCache("default").get(key).get());
+		assertEquals(value2, this.service.get(key));
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config {
+
+		final CountingCacheManager targetCacheManager = new CountingCacheManager();
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new TransactionAwareCacheManagerProxy(this.targetCacheManager);
+		}
+
+		@Bean
+		public CachedService cachedService() {
+			return new CachedService();
+		}
+	}
+
+
+	static class CountingCacheManager extends ConcurrentMapCacheManager {
+
+		final AtomicInteger lookups = new AtomicInteger();
+
+		CountingCacheManager() {
+			super("default");
+		}
+
+		@Override
+		public Cache getCache(String name) {
+			this.lookups.incrementAndGet();
+			return super.getCache(name);
+		}
+	}
+
+
+	static class CachedService {
+
+		private final AtomicLong counter = new AtomicLong();
+
+		@Cacheable("default")
+		public long get(Object key) {
+			return this.counter.getAndIncrement();
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,12 @@
 
 package org.springframework.cache;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import org.springframework.lang.Nullable;
 
@@ -98,6 +103,71 @@ public interface Cache {
 	@Nullable
 	<T> T get(Object key, Callable<T> valueLoader);
 
+	/**
+	 * Return the value to which this cache maps the specified key,
+	 * wrapped in a {@link CompletableFuture}. This operation must not block
+	 * but is allowed to return a completed {@link CompletableFuture} if the
+	 * corresponding value is immediately available.
+	 * <p>A cached {@code null} value leads to a future completing with
+	 * {@code null}, whereas a straight {@code null} being returned means
+	 * that the cache contains no mapping for this key.
+	 * <p>The default implementation throws an {@link UnsupportedOperationException},
+	 * to be overridden by cache implementations which are able to retrieve
+	 * entries in a non-blocking fashion.
+	 * @param key the key whose associated value is to be returned
+	 * @return the value to which this cache maps the specified key, contained
+	 * within a {@link CompletableFuture}, or {@code null} if the cache contains
+	 * no mapping for this key
+	 * @since 5.2
+	 * @see #retrieve(Object, Supplier)
+	 * @see #supportsRetrieve()
+	 */
+	@Nullable
+	default CompletableFuture<?> retrieve(Object key) {
+		throw new UnsupportedOperationException(
+				getClass().getName() + " does not support CompletableFuture-based retrieval");
+	}
+
+	/**
+	 * Return the value to which this cache maps the specified key, obtaining
+	 * that value from {@code valueLoader} if necessary. This method provides
+	 * a simple substitute for the conventional "if cached, return; otherwise
+	 * create, cache and return" pattern, based on {@link CompletableFuture}.
+	 * This operation must not block.
+	 * <p>If the {@code valueLoader} future completes exceptionally, the
+	 * returned future completes exceptionally as well, without caching
+	 * anything for the given key.
+	 * <p>The default implementation throws an {@link UnsupportedOperationException},
+	 * to be overridden by cache implementations which are able to retrieve
+	 * entries in a non-blocking fashion.
+	 * @param key the key whose associated value is to be returned
+	 * @param valueLoader the value loader to call if no mapping is present,
+	 * returning a {@link CompletableFuture} for the value to be cached
+	 * @return the value to which this cache maps the specified key,
+	 * contained within a {@link CompletableFuture}
+	 * @since 5.2
+	 * @see #retrieve(Object)
+	 * @see #supportsRetrieve()
+	 */
+	default <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		throw new UnsupportedOperationException(
+				getClass().getName() + " does not support CompletableFuture-based retrieval");
+	}
+
+	/**
+	 * Determine whether this cache supports {@link #retrieve(Object)} and
+	 * {@link #retrieve(Object, Supplier)}, allowing callers to choose between
+	 * non-blocking and regular access upfront rather than by catching an
+	 * {@link UnsupportedOperationException}.
+	 * <p>The default implementation returns {@code false}. Implementations
+	 * which override the {@code retrieve} methods need to override this
+	 * method as well, returning {@code true}.
+	 * @since 5.2
+	 */
+	default boolean supportsRetrieve() {
+		return false;
+	}
+
 	/**
 	 * Associate the specified value with the specified key in this cache.
 	 * <p>If the cache previously contained a mapping for this key, the old
@@ -107,6 +177,44 @@ public interface Cache {
 	 */
 	void put(Object key, @Nullable Object value);
 
+	/**
+	 * Return the values to which this cache maps the specified keys.
+	 * <p>Only keys with a mapping in this cache are contained in the returned
+	 * map, each with a {@link ValueWrapper} which may also hold a cached
+	 * {@code null} value.
+	 * <p>The default implementation calls {@link #get(Object)} for each key.
+	 * Implementations are encouraged to override this with a bulk lookup,
+	 * in particular for remote cache stores.
+	 * @param keys the keys whose associated values are to be returned
+	 * @return a map from each present key to its value wrapper
+	 * (never {@code null}, but possibly empty)
+	 * @since 5.2
+	 * @see #get(Object)
+	 */
+	default Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper wrapper = get(key);
+			if (wrapper != null) {
+				result.put(key, wrapper);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Associate the specified values with their keys in this cache.
+	 * <p>The default implementation calls {@link #put(Object, Object)} for each
+	 * entry. Implementations are encouraged to override this with a bulk
+	 * operation, in particular for remote cache stores.
+	 * @param entries the key-value pairs to be stored
+	 * @since 5.2
+	 * @see #put(Object, Object)
+	 */
+	default void putAll(Map<?, ?> entries) {
+		entries.forEach(this::put);
+	}
+
 	/**
 	 * Atomically associate the specified value with the specified key in this cache
 	 * if it is not set already.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -179,4 +179,28 @@ public @interface Cacheable {
 	 */
 	boolean sync() default false;
 
+	/**
+	 * Cache the elements of a collection-valued invocation individually, keyed
+	 * by the elements of the method's {@link java.util.Collection} parameter.
+	 * <p>The method is expected to receive the keys (typically identifiers) in
+	 * its first {@code Collection} parameter and to return either a
+	 * {@link java.util.Map} from key to value or a {@link java.util.List} of values
+	 * in the order of the given keys. All keys are looked up in bulk, and the method
+	 * gets invoked for the missing keys only, with the result assembled from cached
+	 * and freshly loaded values. {@link #unless()} is evaluated for each value.
+	 * <p>Batch caching leads to a couple of limitations:
+	 * <ol>
+	 * <li>{@link #key()} and {@link #keyGenerator()} are not supported: the
+	 * collection elements serve as cache keys</li>
+	 * <li>{@link #sync()} is not supported</li>
+	 * <li>No other cache-related operation can be combined</li>
+	 * <li>The caching infrastructure needs to be able to invoke the method with
+	 * replaced arguments, as is the case for proxy-based caching</li>
+	 * </ol>
+	 * @since 5.2
+	 * @see org.springframework.cache.Cache#getAll
+	 * @see org.springframework.cache.Cache#putAll
+	 */
+	boolean batch() default false;
+
 }
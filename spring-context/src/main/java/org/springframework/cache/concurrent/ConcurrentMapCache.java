@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,11 +19,20 @@ package org.springframework.cache.concurrent;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.cache.support.CacheStatistics;
+import org.springframework.cache.support.CacheStatisticsCounter;
+import org.springframework.cache.support.SingleFlightLoader;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -41,6 +50,18 @@ import org.springframework.util.Assert;
  * them with a predefined internal object. This behavior can be changed through the
  * {@link #ConcurrentMapCache(String, ConcurrentMap, boolean)} constructor.
  *
+ * <p>Value loaders passed to {@link #get(Object, Callable)} and {@link #retrieve(Object, Supplier)}
+ * are coalesced per key through a {@link SingleFlightLoader}: concurrent misses for the
+ * same key trigger a single load, without locking the internal map while loading.
+ * Waiting callers can be bounded through {@link #setLoadWaitTimeout}.
+ * Asynchronous {@link #retrieve retrieval} does not block: a loader future is stored
+ * into the map once it completes.
+ *
+ * <p>For a size limit or a time-to-live, use an {@link EvictingConcurrentMap} as store,
+ * e.g. through {@link ConcurrentMapCacheManager#setMaximumSize} and
+ * {@link ConcurrentMapCacheManager#setTimeToLive}. Hit, miss and load statistics
+ * can be recorded through a {@link CacheStatisticsCounter} (see {@link #getStatistics()}).
+ *
  * @author Costin Leau
  * @author Juergen Hoeller
  * @author Stephane Nicoll
@@ -55,6 +76,11 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 	@Nullable
 	private final SerializationDelegate serialization;
 
+	@Nullable
+	private final CacheStatisticsCounter statistics;
+
+	private final SingleFlightLoader loader = new SingleFlightLoader();
+
 
 	/**
 	 * Create a new ConcurrentMapCache with the specified name.
@@ -102,12 +128,35 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 	protected ConcurrentMapCache(String name, ConcurrentMap<Object, Object> store,
 			boolean allowNullValues, @Nullable SerializationDelegate serialization) {
 
+		this(name, store, allowNullValues, serialization, null);
+	}
+
+	/**
+	 * Create a new ConcurrentMapCache with the specified name and the
+	 * given internal {@link ConcurrentMap} to use, recording statistics
+	 * in the given counter (which may be shared with an
+	 * {@link EvictingConcurrentMap} store for recording evictions).
+	 * @param name the name of the cache
+	 * @param store the ConcurrentMap to use as an internal store
+	 * @param allowNullValues whether to allow {@code null} values
+	 * (adapting them to an internal null holder value)
+	 * @param serialization the {@link SerializationDelegate} to use
+	 * to serialize cache entry or {@code null} to store the reference
+	 * @param statistics the counter to record statistics in,
+	 * or {@code null} for not recording statistics
+	 * @since 5.2
+	 */
+	protected ConcurrentMapCache(String name, ConcurrentMap<Object, Object> store,
+			boolean allowNullValues, @Nullable SerializationDelegate serialization,
+			@Nullable CacheStatisticsCounter statistics) {
+
 		super(allowNullValues);
 		Assert.notNull(name, "Name must not be null");
 		Assert.notNull(store, "Store must not be null");
 		this.name = name;
 		this.store = store;
 		this.serialization = serialization;
+		this.statistics = statistics;
 	}
 
 
@@ -121,6 +170,36 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 		return (this.serialization != null);
 	}
 
+	/**
+	 * Specify the maximum time that a caller of {@link #get(Object, Callable)}
+	 * waits for a load of the same key that is in progress in another thread.
+	 * <p>Default is none, waiting for as long as the original load takes.
+	 * @since 5.2
+	 * @see SingleFlightLoader#setWaitTimeout
+	 */
+	public void setLoadWaitTimeout(@Nullable Duration loadWaitTimeout) {
+		this.loader.setWaitTimeout(loadWaitTimeout);
+	}
+
+	/**
+	 * Return the maximum time that a caller waits for a concurrent load, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Duration getLoadWaitTimeout() {
+		return this.loader.getWaitTimeout();
+	}
+
+	/**
+	 * Return a snapshot of the statistics of this cache,
+	 * or {@code null} if this cache does not record statistics.
+	 * @since 5.2
+	 */
+	@Nullable
+	public CacheStatistics getStatistics() {
+		return (this.statistics != null ? this.statistics.snapshot() : null);
+	}
+
 	@Override
 	public final String getName() {
 		return this.name;
@@ -134,21 +213,101 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 	@Override
 	@Nullable
 	protected Object lookup(Object key) {
-		return this.store.get(key);
+		Object storeValue = this.store.get(key);
+		if (this.statistics != null) {
+			if (storeValue != null) {
+				this.statistics.recordHits(1);
+			}
+			else {
+				this.statistics.recordMisses(1);
+			}
+		}
+		return storeValue;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	@Nullable
 	public <T> T get(Object key, Callable<T> valueLoader) {
-		return (T) fromStoreValue(this.store.computeIfAbsent(key, r -> {
-			try {
-				return toStoreValue(valueLoader.call());
+		Object storeValue = lookup(key);
+		if (storeValue == null) {
+			storeValue = this.loader.load(key, () -> {
+				Object existing = this.store.get(key);
+				if (existing != null) {
+					return existing;
+				}
+				Object loaded = toStoreValue(load(valueLoader));
+				existing = this.store.putIfAbsent(key, loaded);
+				return (existing != null ? existing : loaded);
+			});
+		}
+		return (T) fromStoreValue(storeValue);
+	}
+
+	@Override
+	@Nullable
+	public CompletableFuture<?> retrieve(Object key) {
+		Object value = lookup(key);
+		return (value != null ? CompletableFuture.completedFuture(fromStoreValue(value)) : null);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		Object cached = lookup(key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture((T) fromStoreValue(cached));
+		}
+		return this.loader.loadAsync(key, () -> loadAsync(valueLoader).thenApply(value -> {
+			Object existing = this.store.putIfAbsent(key, toStoreValue(value));
+			return (existing != null ? (T) fromStoreValue(existing) : value);
+		}));
+	}
+
+	@Override
+	public boolean supportsRetrieve() {
+		return true;
+	}
+
+	@Nullable
+	private <T> T load(Callable<T> valueLoader) throws Exception {
+		if (this.statistics == null) {
+			return valueLoader.call();
+		}
+		long startTime = System.nanoTime();
+		try {
+			T value = valueLoader.call();
+			this.statistics.recordLoadSuccess(System.nanoTime() - startTime);
+			return value;
+		}
+		catch (Throwable ex) {
+			this.statistics.recordLoadFailure(System.nanoTime() - startTime);
+			throw ex;
+		}
+	}
+
+	private <T> CompletableFuture<T> loadAsync(Supplier<CompletableFuture<T>> valueLoader) {
+		CacheStatisticsCounter statistics = this.statistics;
+		if (statistics == null) {
+			return valueLoader.get();
+		}
+		long startTime = System.nanoTime();
+		CompletableFuture<T> future;
+		try {
+			future = valueLoader.get();
+		}
+		catch (Throwable ex) {
+			statistics.recordLoadFailure(System.nanoTime() - startTime);
+			throw ex;
+		}
+		return future.whenComplete((value, ex) -> {
+			if (ex != null) {
+				statistics.recordLoadFailure(System.nanoTime() - startTime);
 			}
-			catch (Throwable ex) {
-				throw new ValueRetrievalException(key, valueLoader, ex);
+			else {
+				statistics.recordLoadSuccess(System.nanoTime() - startTime);
 			}
-		}));
+		});
 	}
 
 	@Override
@@ -156,6 +315,25 @@ public class ConcurrentMapCache extends AbstractValueAdaptingCache {
 		this.store.put(key, toStoreValue(value));
 	}
 
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			Object value = lookup(key);
+			if (value != null) {
+				result.put(key, toValueWrapper(value));
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		Map<Object, Object> storeValues = new LinkedHashMap<>(entries.size());
+		entries.forEach((key, value) -> storeValues.put(key, toStoreValue(value)));
+		this.store.putAll(storeValues);
+	}
+
 	@Override
 	@Nullable
 	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,11 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -26,8 +28,12 @@ import java.util.concurrent.ConcurrentMap;
 import org.springframework.beans.factory.BeanClassLoaderAware;
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.CacheStatistics;
+import org.springframework.cache.support.CacheStatisticsCounter;
 import org.springframework.core.serializer.support.SerializationDelegate;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
 
 /**
  * {@link CacheManager} implementation that lazily builds {@link ConcurrentMapCache}
@@ -35,9 +41,12 @@ import org.springframework.lang.Nullable;
  * the set of cache names is pre-defined through {@link #setCacheNames}, with no
  * dynamic creation of further cache regions at runtime.
  *
- * <p>Note: This is by no means a sophisticated CacheManager; it comes with no
- * cache configuration options. However, it may be useful for testing or simple
- * caching scenarios. For advanced local caching needs, consider
+ * <p>Note: This is by no means a sophisticated CacheManager; it only comes with
+ * basic cache configuration options: a {@link #setMaximumSize maximum size} and a
+ * {@link #setTimeToLive time-to-live} per cache (both backed by an
+ * {@link EvictingConcurrentMap}), and optional {@link #setRecordStatistics statistics}.
+ * It may be useful for testing or simple caching scenarios. For advanced local
+ * caching needs, consider
  * {@link org.springframework.cache.jcache.JCacheCacheManager},
  * {@link org.springframework.cache.ehcache.EhCacheCacheManager},
  * {@link org.springframework.cache.caffeine.CaffeineCacheManager}.
@@ -59,6 +68,16 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	@Nullable
 	private SerializationDelegate serialization;
 
+	private int maximumSize = -1;
+
+	@Nullable
+	private Duration timeToLive;
+
+	private boolean recordStatistics = false;
+
+	@Nullable
+	private Duration loadWaitTimeout;
+
 
 	/**
 	 * Construct a dynamic ConcurrentMapCacheManager,
@@ -146,6 +165,112 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 		return this.storeByValue;
 	}
 
+	/**
+	 * Specify the maximum number of entries for each cache in this cache manager.
+	 * Beyond that size, entries get evicted according to a segmented LRU policy.
+	 * <p>Default is "-1", not limiting the number of entries.
+	 * <p>Note: A change of the maximum size will reset all existing caches,
+	 * if any, to reconfigure them with the new size limit.
+	 * @since 5.2
+	 * @see EvictingConcurrentMap
+	 */
+	public void setMaximumSize(int maximumSize) {
+		Assert.isTrue(maximumSize >= -1, "Maximum size must be -1 (unlimited) or a non-negative value");
+		if (maximumSize != this.maximumSize) {
+			this.maximumSize = maximumSize;
+			// Need to recreate all Cache instances with the new size limit...
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the maximum number of entries for each cache,
+	 * or {@code -1} if the caches are unbounded.
+	 * @since 5.2
+	 */
+	public int getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Specify the time-to-live for entries in all caches of this cache manager,
+	 * counting from the time an entry has been written.
+	 * <p>Default is none, keeping entries until they are evicted explicitly
+	 * (or because of the {@link #setMaximumSize maximum size}).
+	 * <p>Note: A change of the time-to-live will reset all existing caches,
+	 * if any, to reconfigure them with the new expiration settings.
+	 * @since 5.2
+	 * @see EvictingConcurrentMap
+	 */
+	public void setTimeToLive(@Nullable Duration timeToLive) {
+		if (!ObjectUtils.nullSafeEquals(timeToLive, this.timeToLive)) {
+			this.timeToLive = timeToLive;
+			// Need to recreate all Cache instances with the new expiration settings...
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return the time-to-live for entries in all caches, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		return this.timeToLive;
+	}
+
+	/**
+	 * Specify whether to record hit, miss, load and eviction statistics
+	 * for all caches in this cache manager.
+	 * <p>Default is "false".
+	 * <p>Note: A change of the statistics setting will reset all existing caches,
+	 * if any, to reconfigure them with the new statistics setting.
+	 * @since 5.2
+	 * @see #getCacheStatistics()
+	 * @see ConcurrentMapCache#getStatistics()
+	 */
+	public void setRecordStatistics(boolean recordStatistics) {
+		if (recordStatistics != this.recordStatistics) {
+			this.recordStatistics = recordStatistics;
+			// Need to recreate all Cache instances with the new statistics setting...
+			recreateCaches();
+		}
+	}
+
+	/**
+	 * Return whether this cache manager records statistics for all of its caches.
+	 * @since 5.2
+	 */
+	public boolean isRecordStatistics() {
+		return this.recordStatistics;
+	}
+
+	/**
+	 * Specify the maximum time that a caller waits for a load of the same key
+	 * that is in progress in another thread, applying to all caches in this
+	 * cache manager (e.g. for {@code @Cacheable(sync=true)}).
+	 * <p>Default is none, waiting for as long as the original load takes.
+	 * @since 5.2
+	 * @see ConcurrentMapCache#setLoadWaitTimeout
+	 */
+	public void setLoadWaitTimeout(@Nullable Duration loadWaitTimeout) {
+		this.loadWaitTimeout = loadWaitTimeout;
+		for (Cache cache : this.cacheMap.values()) {
+			if (cache instanceof ConcurrentMapCache) {
+				((ConcurrentMapCache) cache).setLoadWaitTimeout(loadWaitTimeout);
+			}
+		}
+	}
+
+	/**
+	 * Return the maximum time that a caller waits for a concurrent load, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Duration getLoadWaitTimeout() {
+		return this.loadWaitTimeout;
+	}
+
 	@Override
 	public void setBeanClassLoader(ClassLoader classLoader) {
 		this.serialization = new SerializationDelegate(classLoader);
@@ -177,6 +302,25 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 		return cache;
 	}
 
+	/**
+	 * Return a snapshot of the statistics of all caches in this cache manager,
+	 * keyed by cache name. Empty unless {@link #setRecordStatistics statistics}
+	 * are recorded.
+	 * @since 5.2
+	 */
+	public Map<String, CacheStatistics> getCacheStatistics() {
+		Map<String, CacheStatistics> result = new LinkedHashMap<>(this.cacheMap.size());
+		this.cacheMap.forEach((name, cache) -> {
+			if (cache instanceof ConcurrentMapCache) {
+				CacheStatistics statistics = ((ConcurrentMapCache) cache).getStatistics();
+				if (statistics != null) {
+					result.put(name, statistics);
+				}
+			}
+		});
+		return result;
+	}
+
 	private void recreateCaches() {
 		for (Map.Entry<String, Cache> entry : this.cacheMap.entrySet()) {
 			entry.setValue(createConcurrentMapCache(entry.getKey()));
@@ -190,9 +334,14 @@ public class ConcurrentMapCacheManager implements CacheManager, BeanClassLoaderA
 	 */
 	protected Cache createConcurrentMapCache(String name) {
 		SerializationDelegate actualSerialization = (isStoreByValue() ? this.serialization : null);
-		return new ConcurrentMapCache(name, new ConcurrentHashMap<>(256),
-				isAllowNullValues(), actualSerialization);
-
+		CacheStatisticsCounter statistics = (isRecordStatistics() ? new CacheStatisticsCounter() : null);
+		ConcurrentMap<Object, Object> store = (this.maximumSize >= 0 || this.timeToLive != null ?
+				new EvictingConcurrentMap<>(this.maximumSize, this.timeToLive, statistics) :
+				new ConcurrentHashMap<>(256));
+		ConcurrentMapCache cache =
+				new ConcurrentMapCache(name, store, isAllowNullValues(), actualSerialization, statistics);
+		cache.setLoadWaitTimeout(this.loadWaitTimeout);
+		return cache;
 	}
 
 }
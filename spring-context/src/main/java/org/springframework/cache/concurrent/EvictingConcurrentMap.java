@@ -0,0 +1,574 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.cache.support.CacheStatisticsCounter;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * {@link ConcurrentMap} implementation with an optional maximum size and an
+ * optional time-to-live for its entries, designed as a store for
+ * {@link ConcurrentMapCache}.
+ *
+ * <p>Reads are lock-free: a lookup marks the entry as recently used and lazily
+ * discards it if it has expired. Once the maximum size is exceeded, a writing
+ * thread evicts entries according to a segmented LRU policy, approximated
+ * through reference bits in the style of the CLOCK algorithm: new entries enter
+ * a probation segment, entries accessed again while on probation get promoted
+ * to a protected segment (holding up to 80% of the maximum size), and eviction
+ * candidates are taken from the probation segment, giving entries demoted from
+ * the protected segment a second chance. A single burst of one-time keys can
+ * therefore not flush frequently used entries out of the map. Eviction is
+ * performed under a lock which concurrent writers do not wait for, so the map
+ * may temporarily exceed its maximum size under heavy concurrent writes.
+ *
+ * <p>Expired entries are removed when accessed and through a periodic purge
+ * which is triggered by writes; see {@link #cleanUp()} for a manual purge.
+ *
+ * <p>This map does not allow {@code null} keys or values.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @see ConcurrentMapCacheManager#setMaximumSize
+ * @see ConcurrentMapCacheManager#setTimeToLive
+ */
+public class EvictingConcurrentMap<K, V> extends AbstractMap<K, V> implements ConcurrentMap<K, V> {
+
+	private static final float PROTECTED_RATIO = 0.8f;
+
+	private final ConcurrentHashMap<K, Node<K, V>> map = new ConcurrentHashMap<>(256);
+
+	private final int maximumSize;
+
+	private final int protectedMaximumSize;
+
+	private final long timeToLive;
+
+	@Nullable
+	private final CacheStatisticsCounter statistics;
+
+	private final ConcurrentLinkedQueue<Node<K, V>> probation = new ConcurrentLinkedQueue<>();
+
+	private final AtomicInteger probationCount = new AtomicInteger();
+
+	private final Deque<Node<K, V>> protectedSegment = new ArrayDeque<>();
+
+	private int protectedCount;
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+	private volatile long nextPurgeTime;
+
+	@Nullable
+	private Set<Map.Entry<K, V>> entrySet;
+
+
+	/**
+	 * Create a new EvictingConcurrentMap.
+	 * @param maximumSize the maximum number of entries, or {@code -1} for no limit
+	 * @param timeToLive the time-to-live for each entry after it has been written,
+	 * or {@code null} for entries which do not expire
+	 */
+	public EvictingConcurrentMap(int maximumSize, @Nullable Duration timeToLive) {
+		this(maximumSize, timeToLive, null);
+	}
+
+	/**
+	 * Create a new EvictingConcurrentMap, recording evictions and expirations
+	 * in the given statistics counter.
+	 * @param maximumSize the maximum number of entries, or {@code -1} for no limit
+	 * @param timeToLive the time-to-live for each entry after it has been written,
+	 * or {@code null} for entries which do not expire
+	 * @param statistics the counter to record evictions in, if any
+	 */
+	public EvictingConcurrentMap(int maximumSize, @Nullable Duration timeToLive,
+			@Nullable CacheStatisticsCounter statistics) {
+
+		Assert.isTrue(maximumSize >= -1, "Maximum size must be -1 (unbounded) or a non-negative value");
+		Assert.isTrue(timeToLive == null || (!timeToLive.isNegative() && !timeToLive.isZero()),
+				"Time-to-live must be positive");
+		this.maximumSize = maximumSize;
+		this.protectedMaximumSize = (int) (maximumSize * PROTECTED_RATIO);
+		this.timeToLive = (timeToLive != null ? timeToLive.toNanos() : 0);
+		this.statistics = statistics;
+		if (this.timeToLive > 0) {
+			this.nextPurgeTime = System.nanoTime() + this.timeToLive;
+		}
+	}
+
+
+	/**
+	 * Return the maximum number of entries, or {@code -1} if unbounded.
+	 */
+	public int getMaximumSize() {
+		return this.maximumSize;
+	}
+
+	/**
+	 * Return the time-to-live for each entry, or {@code null} if entries do not expire.
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		return (this.timeToLive > 0 ? Duration.ofNanos(this.timeToLive) : null);
+	}
+
+	@Override
+	@Nullable
+	public V get(Object key) {
+		Node<K, V> node = this.map.get(key);
+		if (node == null) {
+			return null;
+		}
+		if (isExpired(node)) {
+			expire(node);
+			return null;
+		}
+		node.markUsed();
+		return node.value;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return (get(key) != null);
+	}
+
+	@Override
+	@Nullable
+	public V put(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		Node<K, V> previous = this.map.put(key, node);
+		afterWrite(node);
+		return liveValue(previous);
+	}
+
+	@Override
+	@Nullable
+	public V putIfAbsent(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		while (true) {
+			Node<K, V> existing = this.map.putIfAbsent(key, node);
+			if (existing == null) {
+				afterWrite(node);
+				return null;
+			}
+			if (!isExpired(existing)) {
+				existing.markUsed();
+				return existing.value;
+			}
+			if (this.map.replace(key, existing, node)) {
+				recordEviction();
+				afterWrite(node);
+				return null;
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public V replace(K key, V value) {
+		Node<K, V> node = createNode(key, value);
+		while (true) {
+			Node<K, V> existing = this.map.get(key);
+			if (existing == null) {
+				return null;
+			}
+			if (isExpired(existing)) {
+				expire(existing);
+				return null;
+			}
+			if (this.map.replace(key, existing, node)) {
+				afterWrite(node);
+				return existing.value;
+			}
+		}
+	}
+
+	@Override
+	public boolean replace(K key, V oldValue, V newValue) {
+		Assert.notNull(oldValue, "Old value must not be null");
+		Node<K, V> node = createNode(key, newValue);
+		while (true) {
+			Node<K, V> existing = this.map.get(key);
+			if (existing == null) {
+				return false;
+			}
+			if (isExpired(existing)) {
+				expire(existing);
+				return false;
+			}
+			if (!existing.value.equals(oldValue)) {
+				return false;
+			}
+			if (this.map.replace(key, existing, node)) {
+				afterWrite(node);
+				return true;
+			}
+		}
+	}
+
+	@Override
+	@Nullable
+	public V remove(Object key) {
+		return liveValue(this.map.remove(key));
+	}
+
+	@Override
+	public boolean remove(Object key, @Nullable Object value) {
+		while (true) {
+			Node<K, V> existing = this.map.get(key);
+			if (existing == null || value == null) {
+				return false;
+			}
+			if (isExpired(existing)) {
+				expire(existing);
+				return false;
+			}
+			if (!existing.value.equals(value)) {
+				return false;
+			}
+			if (this.map.remove(key, existing)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Return the number of entries in this map, which may include expired
+	 * entries that have not been purged yet.
+	 */
+	@Override
+	public int size() {
+		return this.map.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.map.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			this.map.clear();
+			this.probation.clear();
+			this.probationCount.set(0);
+			this.protectedSegment.clear();
+			this.protectedCount = 0;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		Set<Map.Entry<K, V>> entrySet = this.entrySet;
+		if (entrySet == null) {
+			entrySet = new EntrySet();
+			this.entrySet = entrySet;
+		}
+		return entrySet;
+	}
+
+	/**
+	 * Remove all expired entries and evict entries beyond the maximum size,
+	 * waiting for a concurrent maintenance run to complete if necessary.
+	 * <p>This happens automatically as the map is being written to; calling
+	 * this method explicitly is only necessary for timely removal of expired
+	 * entries from a map which is not written to anymore.
+	 */
+	public void cleanUp() {
+		this.evictionLock.lock();
+		try {
+			runMaintenance(true);
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+
+	private Node<K, V> createNode(K key, V value) {
+		Assert.notNull(key, "Key must not be null");
+		Assert.notNull(value, "Value must not be null");
+		return new Node<>(key, value, (this.timeToLive > 0 ? System.nanoTime() + this.timeToLive : 0));
+	}
+
+	private boolean isExpired(Node<K, V> node) {
+		return (this.timeToLive > 0 && System.nanoTime() - node.expirationTime >= 0);
+	}
+
+	private void expire(Node<K, V> node) {
+		if (this.map.remove(node.key, node)) {
+			recordEviction();
+		}
+	}
+
+	@Nullable
+	private V liveValue(@Nullable Node<K, V> node) {
+		return (node != null && !isExpired(node) ? node.value : null);
+	}
+
+	private boolean isLive(Node<K, V> node) {
+		return (this.map.get(node.key) == node);
+	}
+
+	private void recordEviction() {
+		if (this.statistics != null) {
+			this.statistics.recordEviction();
+		}
+	}
+
+	private void afterWrite(Node<K, V> node) {
+		boolean maintenanceRequired = false;
+		if (this.maximumSize >= 0) {
+			this.probation.add(node);
+			int queued = this.probationCount.incrementAndGet() + this.protectedCount;
+			int size = this.map.size();
+			// Evict beyond maximum size, or drop nodes for entries replaced in the meantime
+			maintenanceRequired = (size > this.maximumSize || queued > 2 * size + 64);
+		}
+		if (this.timeToLive > 0 && System.nanoTime() - this.nextPurgeTime >= 0) {
+			maintenanceRequired = true;
+		}
+		if (maintenanceRequired && this.evictionLock.tryLock()) {
+			try {
+				runMaintenance(false);
+			}
+			finally {
+				this.evictionLock.unlock();
+			}
+		}
+	}
+
+	private void runMaintenance(boolean force) {
+		if (this.timeToLive > 0) {
+			long now = System.nanoTime();
+			if (force || now - this.nextPurgeTime >= 0) {
+				this.nextPurgeTime = now + this.timeToLive / 2;
+				purgeExpiredEntries();
+			}
+		}
+		if (this.maximumSize >= 0) {
+			evictEntries();
+			if (this.probationCount.get() + this.protectedCount > 2 * this.map.size() + 64) {
+				dropStaleNodes();
+			}
+		}
+	}
+
+	private void purgeExpiredEntries() {
+		for (Node<K, V> node : this.map.values()) {
+			if (isExpired(node)) {
+				expire(node);
+			}
+		}
+	}
+
+	private void evictEntries() {
+		int budget = 2 * (this.probationCount.get() + this.protectedCount) + 2;
+		while (this.map.size() > this.maximumSize && budget-- > 0) {
+			Node<K, V> node = this.probation.poll();
+			if (node == null) {
+				// All probation entries promoted: demote the least recently used protected entry
+				if (!demoteProtectedEntry()) {
+					break;
+				}
+				continue;
+			}
+			this.probationCount.decrementAndGet();
+			if (!isLive(node)) {
+				// Removed or replaced in the meantime
+				continue;
+			}
+			if (node.used && !isExpired(node) && this.protectedMaximumSize > 0) {
+				node.used = false;
+				this.protectedSegment.addLast(node);
+				this.protectedCount++;
+				if (this.protectedCount > this.protectedMaximumSize) {
+					demoteProtectedEntry();
+				}
+				continue;
+			}
+			if (this.map.remove(node.key, node)) {
+				recordEviction();
+			}
+		}
+	}
+
+	private boolean demoteProtectedEntry() {
+		int secondChances = this.protectedCount;
+		while (true) {
+			Node<K, V> node = this.protectedSegment.pollFirst();
+			if (node == null) {
+				return false;
+			}
+			this.protectedCount--;
+			if (!isLive(node)) {
+				continue;
+			}
+			if (node.used && secondChances-- > 0) {
+				// Accessed again since its promotion: keep it protected for another round
+				node.used = false;
+				this.protectedSegment.addLast(node);
+				this.protectedCount++;
+				continue;
+			}
+			this.probation.add(node);
+			this.probationCount.incrementAndGet();
+			return true;
+		}
+	}
+
+	private void dropStaleNodes() {
+		for (Iterator<Node<K, V>> it = this.probation.iterator(); it.hasNext();) {
+			if (!isLive(it.next())) {
+				it.remove();
+				this.probationCount.decrementAndGet();
+			}
+		}
+		this.protectedSegment.removeIf(node -> !isLive(node));
+		this.protectedCount = this.protectedSegment.size();
+	}
+
+
+	private static final class Node<K, V> {
+
+		final K key;
+
+		final V value;
+
+		final long expirationTime;
+
+		volatile boolean used;
+
+		Node(K key, V value, long expirationTime) {
+			this.key = key;
+			this.value = value;
+			this.expirationTime = expirationTime;
+		}
+
+		void markUsed() {
+			// Avoid a volatile write for entries which are already marked
+			if (!this.used) {
+				this.used = true;
+			}
+		}
+	}
+
+
+	private final class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+
+		@Override
+		public Iterator<Map.Entry<K, V>> iterator() {
+			return new EntryIterator();
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			Object value = (entry.getKey() != null ? get(entry.getKey()) : null);
+			return (value != null && ObjectUtils.nullSafeEquals(value, entry.getValue()));
+		}
+
+		@Override
+		public boolean remove(Object o) {
+			if (!(o instanceof Map.Entry)) {
+				return false;
+			}
+			Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+			return (entry.getKey() != null && EvictingConcurrentMap.this.remove(entry.getKey(), entry.getValue()));
+		}
+
+		@Override
+		public int size() {
+			return EvictingConcurrentMap.this.size();
+		}
+
+		@Override
+		public void clear() {
+			EvictingConcurrentMap.this.clear();
+		}
+	}
+
+
+	private final class EntryIterator implements Iterator<Map.Entry<K, V>> {
+
+		private final Iterator<Node<K, V>> delegate = EvictingConcurrentMap.this.map.values().iterator();
+
+		@Nullable
+		private Node<K, V> next;
+
+		@Nullable
+		private Node<K, V> last;
+
+		@Override
+		public boolean hasNext() {
+			while (this.next == null && this.delegate.hasNext()) {
+				Node<K, V> node = this.delegate.next();
+				if (!isExpired(node)) {
+					this.next = node;
+				}
+			}
+			return (this.next != null);
+		}
+
+		@Override
+		public Map.Entry<K, V> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Node<K, V> node = this.next;
+			Assert.state(node != null, "No next node");
+			this.next = null;
+			this.last = node;
+			return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+		}
+
+		@Override
+		public void remove() {
+			Node<K, V> node = this.last;
+			Assert.state(node != null, "No entry to remove");
+			EvictingConcurrentMap.this.map.remove(node.key, node);
+			this.last = null;
+		}
+	}
+
+}
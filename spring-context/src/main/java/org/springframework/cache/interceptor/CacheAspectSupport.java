@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,15 +21,24 @@ import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.aop.framework.AopProxyUtils;
 import org.springframework.aop.support.AopUtils;
@@ -44,13 +53,15 @@ import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
 import org.springframework.context.expression.AnnotatedElementKey;
 import org.springframework.core.BridgeMethodResolver;
+import org.springframework.core.CollectionFactory;
+import org.springframework.core.MethodClassKey;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.expression.EvaluationContext;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 import org.springframework.util.function.SingletonSupplier;
@@ -69,6 +80,27 @@ import org.springframework.util.function.SupplierUtils;
  * used for determining caching operations, a {@link KeyGenerator} will build the
  * cache keys, and a {@link CacheResolver} will resolve the actual cache(s) to use.
  *
+ * <p>Methods returning a {@link CompletableFuture} or a reactive type such as a
+ * Reactor {@code Mono} or {@code Flux} get their resolved values cached rather
+ * than the future or publisher handles, based on {@link Cache#retrieve(Object)}
+ * and {@link Cache#retrieve(Object, Supplier)} for non-blocking cache access.
+ * Caches which do not support {@code retrieve} are accessed through regular
+ * {@link Cache#get(Object)} and {@link Cache#put} calls instead, without the
+ * synchronization that {@code @Cacheable(sync=true)} implies otherwise.
+ * A multi-value publisher is cached as a {@code List} of its elements: on a
+ * cache miss, the elements are collected before the first one is emitted, so
+ * this is not suitable for infinite or very large streams.
+ *
+ * <p>A {@code @Cacheable} operation marked as {@link CacheableOperation#isBatch() batch}
+ * caches the elements of a collection-valued invocation individually, based on
+ * {@link Cache#getAll} and {@link Cache#putAll}, invoking the method for missing keys only.
+ *
+ * <p>The cache operations of a method are resolved once per method and target class,
+ * together with their key generators, cache resolvers and flags. Caches resolved
+ * through a {@link #isStaticCacheResolver static cache resolver} are reused as well,
+ * as long as the resolver's {@link CacheManager} still returns the same instances,
+ * so that a cache hit does not need to go through cache resolution again.
+ *
  * <p>Note: A cache aspect is serializable but does not perform any actual caching
  * after deserialization.
  *
@@ -83,10 +115,25 @@ import org.springframework.util.function.SupplierUtils;
 public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		implements BeanFactoryAware, InitializingBean, SmartInitializingSingleton {
 
+	/**
+	 * Reactor present on the classpath?
+	 */
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Mono", CacheAspectSupport.class.getClassLoader());
+
+
 	protected final Log logger = LogFactory.getLog(getClass());
 
 	private final Map<CacheOperationCacheKey, CacheOperationMetadata> metadataCache = new ConcurrentHashMap<>(1024);
 
+	private final Map<MethodClassKey, CacheMethodMetadata> methodMetadataCache = new ConcurrentHashMap<>(1024);
+
+	private final AsyncResultHandler futureResultHandler = new FutureResultHandler();
+
+	@Nullable
+	private final ReactiveAdapterRegistry reactiveAdapterRegistry =
+			(reactorPresent ? ReactiveAdapterRegistry.getSharedInstance() : null);
+
 	private final CacheOperationExpressionEvaluator evaluator = new CacheOperationExpressionEvaluator();
 
 	@Nullable
@@ -301,11 +348,66 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			}
 			metadata = new CacheOperationMetadata(operation, method, targetClass,
 					operationKeyGenerator, operationCacheResolver);
+			if (StringUtils.hasText(operation.getKey())) {
+				metadata.compiledKey = this.evaluator.compileKey(operation.getKey(), metadata.targetMethod);
+			}
+			metadata.staticCacheResolution = isStaticCacheResolver(operationCacheResolver);
 			this.metadataCache.put(cacheKey, metadata);
 		}
 		return metadata;
 	}
 
+	/**
+	 * Determine whether the given {@link CacheResolver} always resolves the same
+	 * caches for a given operation, so that the resolved caches can be reused
+	 * for subsequent invocations.
+	 * <p>The default implementation returns {@code true} for a plain
+	 * {@link SimpleCacheResolver} and {@link NamedCacheResolver}, which resolve
+	 * caches by name. For any {@link AbstractCacheResolver}, reused caches are
+	 * checked against its {@link CacheManager} on every invocation, so that caches
+	 * recreated by the cache manager (e.g. after a configuration change) are
+	 * resolved again. Can be overridden in subclasses, e.g. for custom resolvers
+	 * with static resolution as well: caches resolved by other resolvers are
+	 * reused without such a check.
+	 * @param cacheResolver the resolver to check
+	 * @return whether resolved caches can be reused
+	 * @since 5.2
+	 */
+	protected boolean isStaticCacheResolver(CacheResolver cacheResolver) {
+		Class<?> resolverClass = cacheResolver.getClass();
+		return (resolverClass == SimpleCacheResolver.class || resolverClass == NamedCacheResolver.class);
+	}
+
+	/**
+	 * Return the metadata for all cache operations of the given method,
+	 * resolving it on first invocation of the method on the given target class.
+	 * @return the metadata, or {@code null} if the method has no cache operations
+	 */
+	@Nullable
+	private CacheMethodMetadata getCacheMethodMetadata(Method method, Class<?> targetClass) {
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		CacheMethodMetadata methodMetadata = this.methodMetadataCache.get(cacheKey);
+		if (methodMetadata == null) {
+			CacheOperationSource cacheOperationSource = getCacheOperationSource();
+			if (cacheOperationSource == null) {
+				return null;
+			}
+			Collection<CacheOperation> operations = cacheOperationSource.getCacheOperations(method, targetClass);
+			if (CollectionUtils.isEmpty(operations)) {
+				methodMetadata = CacheMethodMetadata.NO_OPERATIONS;
+			}
+			else {
+				List<CacheOperationMetadata> operationMetadata = new ArrayList<>(operations.size());
+				for (CacheOperation operation : operations) {
+					operationMetadata.add(getCacheOperationMetadata(operation, method, targetClass));
+				}
+				methodMetadata = new CacheMethodMetadata(operationMetadata, method, getAsyncResultHandler(method));
+			}
+			this.methodMetadataCache.put(cacheKey, methodMetadata);
+		}
+		return (methodMetadata != CacheMethodMetadata.NO_OPERATIONS ? methodMetadata : null);
+	}
+
 	/**
 	 * Return a bean with the specified name and type. Used to resolve services that
 	 * are referenced by name in a {@link CacheOperation}.
@@ -330,6 +432,7 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	 */
 	protected void clearMetadataCache() {
 		this.metadataCache.clear();
+		this.methodMetadataCache.clear();
 		this.evaluator.clear();
 	}
 
@@ -338,13 +441,9 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		// Check whether aspect is enabled (to cope with cases where the AJ is pulled in automatically)
 		if (this.initialized) {
 			Class<?> targetClass = getTargetClass(target);
-			CacheOperationSource cacheOperationSource = getCacheOperationSource();
-			if (cacheOperationSource != null) {
-				Collection<CacheOperation> operations = cacheOperationSource.getCacheOperations(method, targetClass);
-				if (!CollectionUtils.isEmpty(operations)) {
-					return execute(invoker, method,
-							new CacheOperationContexts(operations, method, args, target, targetClass));
-				}
+			CacheMethodMetadata methodMetadata = getCacheMethodMetadata(method, targetClass);
+			if (methodMetadata != null) {
+				return execute(invoker, method, args, new CacheOperationContexts(methodMetadata, args, target));
 			}
 		}
 
@@ -370,13 +469,33 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 	@Nullable
-	private Object execute(final CacheOperationInvoker invoker, Method method, CacheOperationContexts contexts) {
+	private Object execute(final CacheOperationInvoker invoker, Method method, Object[] args,
+			CacheOperationContexts contexts) {
+
+		// Special handling of per-element caching for collection-valued invocations
+		if (contexts.isBatch()) {
+			return executeBatch(invoker, method, args, contexts);
+		}
+
+		AsyncResultHandler asyncHandler = contexts.getAsyncResultHandler();
+
 		// Special handling of synchronized invocation
 		if (contexts.isSynchronized()) {
 			CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
+			if (context.getCaches().size() > 1) {
+				throw new IllegalStateException(
+						"@Cacheable(sync=true) only allows a single cache on '" + context.getOperation() + "'");
+			}
 			if (isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
 				Object key = generateKey(context, CacheOperationExpressionEvaluator.NO_RESULT);
 				Cache cache = context.getCaches().iterator().next();
+				if (asyncHandler != null) {
+					if (cache.supportsRetrieve()) {
+						return asyncHandler.retrieve(cache, key, invoker);
+					}
+					// No non-blocking retrieval: regular lookup and put, without synchronization
+					return executeAsync(invoker, asyncHandler, contexts);
+				}
 				try {
 					return wrapCacheValue(method, cache.get(key, () -> unwrapReturnValue(invokeOperation(invoker))));
 				}
@@ -397,11 +516,15 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		processCacheEvicts(contexts.get(CacheEvictOperation.class), true,
 				CacheOperationExpressionEvaluator.NO_RESULT);
 
+		if (asyncHandler != null) {
+			return executeAsync(invoker, asyncHandler, contexts);
+		}
+
 		// Check if we have a cached item matching the conditions
 		Cache.ValueWrapper cacheHit = findCachedItem(contexts.get(CacheableOperation.class));
 
 		// Collect puts from any @Cacheable miss, if no cached item is found
-		List<CachePutRequest> cachePutRequests = new LinkedList<>();
+		List<CachePutRequest> cachePutRequests = new ArrayList<>();
 		if (cacheHit == null) {
 			collectPutRequests(contexts.get(CacheableOperation.class),
 					CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
@@ -435,6 +558,162 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return returnValue;
 	}
 
+	@Nullable
+	private Object executeBatch(
+			CacheOperationInvoker invoker, Method method, Object[] args, CacheOperationContexts contexts) {
+
+		CacheOperationContext context = contexts.get(CacheableOperation.class).iterator().next();
+		int keysIndex = contexts.getBatchParameterIndex();
+		Collection<?> keys = (Collection<?>) args[keysIndex];
+		if (keys == null || !isConditionPassing(context, CacheOperationExpressionEvaluator.NO_RESULT)) {
+			// No caching required, only call the underlying method
+			return invokeOperation(invoker);
+		}
+
+		// Look up all requested keys in bulk, cache by cache
+		Map<Object, Object> values = new HashMap<>(keys.size());
+		Set<Object> missingKeys = new LinkedHashSet<>(keys);
+		for (Cache cache : context.getCaches()) {
+			if (missingKeys.isEmpty()) {
+				break;
+			}
+			Map<Object, Cache.ValueWrapper> cached = doGetAll(cache, missingKeys);
+			for (Map.Entry<Object, Cache.ValueWrapper> entry : cached.entrySet()) {
+				values.put(entry.getKey(), entry.getValue().get());
+				missingKeys.remove(entry.getKey());
+			}
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace("Found " + values.size() + " of " + (values.size() + missingKeys.size()) +
+					" keys in cache(s) " + context.getCacheNames() + " for operation " + context.metadata.operation);
+		}
+
+		// Invoke the method for the missing keys only
+		if (!missingKeys.isEmpty()) {
+			Collection<Object> batchKeys =
+					CollectionFactory.createCollection(method.getParameterTypes()[keysIndex], missingKeys.size());
+			batchKeys.addAll(missingKeys);
+			Object[] batchArgs = args.clone();
+			batchArgs[keysIndex] = batchKeys;
+			Map<Object, Object> loadedValues =
+					resolveBatchValues(invokeOperation(() -> invoker.invoke(batchArgs)), batchKeys, method);
+
+			Map<Object, Object> cachePuts = new LinkedHashMap<>(loadedValues.size());
+			loadedValues.forEach((key, value) -> {
+				if (context.canPutToCache(value)) {
+					cachePuts.put(key, value);
+				}
+			});
+			if (!cachePuts.isEmpty()) {
+				for (Cache cache : context.getCaches()) {
+					doPutAll(cache, cachePuts);
+				}
+			}
+			values.putAll(loadedValues);
+		}
+
+		// Assemble the result in the order of the requested keys
+		if (Map.class.isAssignableFrom(method.getReturnType())) {
+			Map<Object, Object> result = new LinkedHashMap<>(values.size());
+			for (Object key : keys) {
+				if (values.containsKey(key)) {
+					result.put(key, values.get(key));
+				}
+			}
+			return result;
+		}
+		else {
+			List<Object> result = new ArrayList<>(keys.size());
+			for (Object key : keys) {
+				result.add(values.get(key));
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * Map the result of a batch invocation to the given keys: either as a
+	 * {@code Map} from key to value or as values in the order of the keys.
+	 */
+	private Map<Object, Object> resolveBatchValues(@Nullable Object result, Collection<Object> keys, Method method) {
+		Map<Object, Object> values = new HashMap<>(keys.size());
+		if (result instanceof Map) {
+			Map<?, ?> map = (Map<?, ?>) result;
+			for (Object key : keys) {
+				if (map.containsKey(key)) {
+					values.put(key, map.get(key));
+				}
+			}
+		}
+		else if (result instanceof Collection) {
+			Collection<?> collection = (Collection<?>) result;
+			if (collection.size() != keys.size()) {
+				throw new IllegalStateException("Batch operation on '" + method + "' returned " +
+						collection.size() + " values for " + keys.size() + " keys");
+			}
+			Iterator<?> it = collection.iterator();
+			for (Object key : keys) {
+				values.put(key, it.next());
+			}
+		}
+		return values;
+	}
+
+	@Nullable
+	private Object executeAsync(
+			CacheOperationInvoker invoker, AsyncResultHandler asyncHandler, CacheOperationContexts contexts) {
+
+		// Check if we have a cached item matching the conditions
+		CompletableFuture<?> cacheHit = findCachedFuture(contexts.get(CacheableOperation.class));
+
+		// Collect puts from any @Cacheable miss, if no cached item is found
+		List<CachePutRequest> cachePutRequests = new ArrayList<>();
+		if (cacheHit == null) {
+			collectPutRequests(contexts.get(CacheableOperation.class),
+					CacheOperationExpressionEvaluator.NO_RESULT, cachePutRequests);
+		}
+
+		if (cacheHit != null && !hasCachePut(contexts)) {
+			// If there are no put requests, just use the cache hit
+			return asyncHandler.fromCachedValue(cacheHit);
+		}
+
+		// Invoke the method if we don't have a cache hit
+		Object returnValue = invokeOperation(invoker);
+		if (returnValue == null) {
+			return null;
+		}
+
+		// Apply puts and late evictions once the actual value has been resolved
+		return asyncHandler.onResolvedValue(returnValue, cacheValue -> {
+			collectPutRequests(contexts.get(CachePutOperation.class), cacheValue, cachePutRequests);
+			for (CachePutRequest cachePutRequest : cachePutRequests) {
+				cachePutRequest.apply(cacheValue);
+			}
+			processCacheEvicts(contexts.get(CacheEvictOperation.class), false, cacheValue);
+		});
+	}
+
+	/**
+	 * Determine the handler for an asynchronous return type of the given method,
+	 * if any: {@link CompletableFuture} or a single/multi-value reactive type.
+	 */
+	@Nullable
+	private AsyncResultHandler getAsyncResultHandler(Method method) {
+		Class<?> returnType = method.getReturnType();
+		if (CompletionStage.class.isAssignableFrom(returnType) &&
+				returnType.isAssignableFrom(CompletableFuture.class)) {
+			return this.futureResultHandler;
+		}
+		if (this.reactiveAdapterRegistry != null) {
+			ReactiveAdapter adapter = this.reactiveAdapterRegistry.getAdapter(returnType);
+			if (adapter != null && !adapter.isNoValue()) {
+				return new ReactiveResultHandler(adapter);
+			}
+		}
+		return null;
+	}
+
 	@Nullable
 	private Object wrapCacheValue(Method method, @Nullable Object cacheValue) {
 		if (method.getReturnType() == Optional.class &&
@@ -452,11 +731,11 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	private boolean hasCachePut(CacheOperationContexts contexts) {
 		// Evaluate the conditions *without* the result object because we don't have it yet...
 		Collection<CacheOperationContext> cachePutContexts = contexts.get(CachePutOperation.class);
-		Collection<CacheOperationContext> excluded = new ArrayList<>();
+		int excluded = 0;
 		for (CacheOperationContext context : cachePutContexts) {
 			try {
 				if (!context.isConditionPassing(CacheOperationExpressionEvaluator.RESULT_UNAVAILABLE)) {
-					excluded.add(context);
+					excluded++;
 				}
 			}
 			catch (VariableNotAvailableException ex) {
@@ -464,7 +743,7 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			}
 		}
 		// Check if all puts have been excluded by condition
-		return (cachePutContexts.size() != excluded.size());
+		return (cachePutContexts.size() != excluded);
 	}
 
 	private void processCacheEvicts(
@@ -530,6 +809,36 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		return null;
 	}
 
+	/**
+	 * Find a cached item only for {@link CacheableOperation} that passes the condition,
+	 * retrieving it in a non-blocking fashion.
+	 * @param contexts the cacheable operations
+	 * @return a {@link CompletableFuture} for the cached item,
+	 * or {@code null} if none is found
+	 */
+	@Nullable
+	private CompletableFuture<?> findCachedFuture(Collection<CacheOperationContext> contexts) {
+		Object result = CacheOperationExpressionEvaluator.NO_RESULT;
+		for (CacheOperationContext context : contexts) {
+			if (isConditionPassing(context, result)) {
+				Object key = generateKey(context, result);
+				for (Cache cache : context.getCaches()) {
+					CompletableFuture<?> cached = doRetrieve(cache, key);
+					if (cached != null) {
+						if (logger.isTraceEnabled()) {
+							logger.trace("Cache entry for key '" + key + "' found in cache '" + cache.getName() + "'");
+						}
+						return cached;
+					}
+				}
+				if (logger.isTraceEnabled()) {
+					logger.trace("No cache entry for key '" + key + "' in cache(s) " + context.getCacheNames());
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Collect the {@link CachePutRequest} for all {@link CacheOperation} using
 	 * the specified result item.
@@ -586,56 +895,145 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 	private class CacheOperationContexts {
 
-		private final MultiValueMap<Class<? extends CacheOperation>, CacheOperationContext> contexts;
+		private final CacheMethodMetadata methodMetadata;
+
+		private final Collection<CacheOperationContext> cacheableContexts;
 
-		private final boolean sync;
+		private final Collection<CacheOperationContext> cachePutContexts;
 
-		public CacheOperationContexts(Collection<? extends CacheOperation> operations, Method method,
-				Object[] args, Object target, Class<?> targetClass) {
+		private final Collection<CacheOperationContext> cacheEvictContexts;
+
+		public CacheOperationContexts(CacheMethodMetadata methodMetadata, Object[] args, Object target) {
+			this.methodMetadata = methodMetadata;
+			this.cacheableContexts = createContexts(methodMetadata.cacheableOperations, args, target);
+			this.cachePutContexts = createContexts(methodMetadata.cachePutOperations, args, target);
+			this.cacheEvictContexts = createContexts(methodMetadata.cacheEvictOperations, args, target);
+		}
 
-			this.contexts = new LinkedMultiValueMap<>(operations.size());
-			for (CacheOperation op : operations) {
-				this.contexts.add(op.getClass(), getOperationContext(op, method, args, target, targetClass));
+		private Collection<CacheOperationContext> createContexts(
+				CacheOperationMetadata[] metadata, Object[] args, Object target) {
+
+			if (metadata.length == 0) {
+				return Collections.emptyList();
+			}
+			if (metadata.length == 1) {
+				return Collections.singletonList(new CacheOperationContext(metadata[0], args, target));
+			}
+			List<CacheOperationContext> contexts = new ArrayList<>(metadata.length);
+			for (CacheOperationMetadata operationMetadata : metadata) {
+				contexts.add(new CacheOperationContext(operationMetadata, args, target));
 			}
-			this.sync = determineSyncFlag(method);
+			return contexts;
 		}
 
 		public Collection<CacheOperationContext> get(Class<? extends CacheOperation> operationClass) {
-			Collection<CacheOperationContext> result = this.contexts.get(operationClass);
-			return (result != null ? result : Collections.emptyList());
+			if (operationClass == CacheableOperation.class) {
+				return this.cacheableContexts;
+			}
+			else if (operationClass == CachePutOperation.class) {
+				return this.cachePutContexts;
+			}
+			else if (operationClass == CacheEvictOperation.class) {
+				return this.cacheEvictContexts;
+			}
+			return Collections.emptyList();
 		}
 
 		public boolean isSynchronized() {
-			return this.sync;
+			return this.methodMetadata.sync;
 		}
 
-		private boolean determineSyncFlag(Method method) {
-			List<CacheOperationContext> cacheOperationContexts = this.contexts.get(CacheableOperation.class);
-			if (cacheOperationContexts == null) {  // no @Cacheable operation at all
-				return false;
+		public boolean isBatch() {
+			return (this.methodMetadata.batchParameterIndex >= 0);
+		}
+
+		public int getBatchParameterIndex() {
+			return this.methodMetadata.batchParameterIndex;
+		}
+
+		@Nullable
+		public AsyncResultHandler getAsyncResultHandler() {
+			return this.methodMetadata.asyncResultHandler;
+		}
+	}
+
+
+	/**
+	 * Metadata of all cache operations on a method, resolved and validated
+	 * once per method and target class.
+	 */
+	private static final class CacheMethodMetadata {
+
+		static final CacheMethodMetadata NO_OPERATIONS = new CacheMethodMetadata();
+
+		final CacheOperationMetadata[] cacheableOperations;
+
+		final CacheOperationMetadata[] cachePutOperations;
+
+		final CacheOperationMetadata[] cacheEvictOperations;
+
+		final boolean sync;
+
+		final int batchParameterIndex;
+
+		@Nullable
+		final AsyncResultHandler asyncResultHandler;
+
+		private CacheMethodMetadata() {
+			this.cacheableOperations = new CacheOperationMetadata[0];
+			this.cachePutOperations = this.cacheableOperations;
+			this.cacheEvictOperations = this.cacheableOperations;
+			this.sync = false;
+			this.batchParameterIndex = -1;
+			this.asyncResultHandler = null;
+		}
+
+		CacheMethodMetadata(List<CacheOperationMetadata> operations, Method method,
+				@Nullable AsyncResultHandler asyncResultHandler) {
+
+			Set<Class<?>> operationTypes = new LinkedHashSet<>(4);
+			List<CacheOperationMetadata> cacheable = new ArrayList<>(operations.size());
+			List<CacheOperationMetadata> cachePut = new ArrayList<>(operations.size());
+			List<CacheOperationMetadata> cacheEvict = new ArrayList<>(operations.size());
+			for (CacheOperationMetadata metadata : operations) {
+				Class<?> operationType = metadata.operation.getClass();
+				operationTypes.add(operationType);
+				if (operationType == CacheableOperation.class) {
+					cacheable.add(metadata);
+				}
+				else if (operationType == CachePutOperation.class) {
+					cachePut.add(metadata);
+				}
+				else if (operationType == CacheEvictOperation.class) {
+					cacheEvict.add(metadata);
+				}
 			}
+			this.cacheableOperations = cacheable.toArray(new CacheOperationMetadata[0]);
+			this.cachePutOperations = cachePut.toArray(new CacheOperationMetadata[0]);
+			this.cacheEvictOperations = cacheEvict.toArray(new CacheOperationMetadata[0]);
+			this.sync = determineSyncFlag(method, operationTypes.size());
+			this.batchParameterIndex = determineBatchParameterIndex(method, operationTypes.size());
+			this.asyncResultHandler = asyncResultHandler;
+		}
+
+		private boolean determineSyncFlag(Method method, int operationTypeCount) {
 			boolean syncEnabled = false;
-			for (CacheOperationContext cacheOperationContext : cacheOperationContexts) {
-				if (((CacheableOperation) cacheOperationContext.getOperation()).isSync()) {
+			for (CacheOperationMetadata metadata : this.cacheableOperations) {
+				if (((CacheableOperation) metadata.operation).isSync()) {
 					syncEnabled = true;
 					break;
 				}
 			}
 			if (syncEnabled) {
-				if (this.contexts.size() > 1) {
+				if (operationTypeCount > 1) {
 					throw new IllegalStateException(
 							"@Cacheable(sync=true) cannot be combined with other cache operations on '" + method + "'");
 				}
-				if (cacheOperationContexts.size() > 1) {
+				if (this.cacheableOperations.length > 1) {
 					throw new IllegalStateException(
 							"Only one @Cacheable(sync=true) entry is allowed on '" + method + "'");
 				}
-				CacheOperationContext cacheOperationContext = cacheOperationContexts.iterator().next();
-				CacheableOperation operation = (CacheableOperation) cacheOperationContext.getOperation();
-				if (cacheOperationContext.getCaches().size() > 1) {
-					throw new IllegalStateException(
-							"@Cacheable(sync=true) only allows a single cache on '" + operation + "'");
-				}
+				CacheableOperation operation = (CacheableOperation) this.cacheableOperations[0].operation;
 				if (StringUtils.hasText(operation.getUnless())) {
 					throw new IllegalStateException(
 							"@Cacheable(sync=true) does not support unless attribute on '" + operation + "'");
@@ -644,6 +1042,44 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			}
 			return false;
 		}
+
+		private int determineBatchParameterIndex(Method method, int operationTypeCount) {
+			CacheableOperation batchOperation = null;
+			for (CacheOperationMetadata metadata : this.cacheableOperations) {
+				if (((CacheableOperation) metadata.operation).isBatch()) {
+					batchOperation = (CacheableOperation) metadata.operation;
+					break;
+				}
+			}
+			if (batchOperation == null) {
+				return -1;
+			}
+			if (operationTypeCount > 1 || this.cacheableOperations.length > 1) {
+				throw new IllegalStateException(
+						"@Cacheable(batch=true) cannot be combined with other cache operations on '" + method + "'");
+			}
+			if (batchOperation.isSync()) {
+				throw new IllegalStateException(
+						"@Cacheable(batch=true) cannot be combined with sync=true on '" + batchOperation + "'");
+			}
+			if (StringUtils.hasText(batchOperation.getKey()) || StringUtils.hasText(batchOperation.getKeyGenerator())) {
+				throw new IllegalStateException(
+						"@Cacheable(batch=true) does not support a custom key or key generator on '" + batchOperation + "'");
+			}
+			Class<?> returnType = method.getReturnType();
+			if (!returnType.isAssignableFrom(LinkedHashMap.class) && !returnType.isAssignableFrom(ArrayList.class)) {
+				throw new IllegalStateException(
+						"@Cacheable(batch=true) requires a Map or List return type on '" + method + "'");
+			}
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			for (int i = 0; i < parameterTypes.length; i++) {
+				if (Collection.class.isAssignableFrom(parameterTypes[i])) {
+					return i;
+				}
+			}
+			throw new IllegalStateException(
+					"@Cacheable(batch=true) requires a Collection parameter on '" + method + "'");
+		}
 	}
 
 
@@ -667,6 +1103,14 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 		private final CacheResolver cacheResolver;
 
+		@Nullable
+		private CompiledKeyExpression compiledKey;
+
+		private boolean staticCacheResolution;
+
+		@Nullable
+		private volatile List<Cache> resolvedCaches;
+
 		public CacheOperationMetadata(CacheOperation operation, Method method, Class<?> targetClass,
 				KeyGenerator keyGenerator, CacheResolver cacheResolver) {
 
@@ -695,7 +1139,8 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 
 		private final Collection<? extends Cache> caches;
 
-		private final Collection<String> cacheNames;
+		@Nullable
+		private Collection<String> cacheNames;
 
 		@Nullable
 		private Boolean conditionPassing;
@@ -704,8 +1149,7 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 			this.metadata = metadata;
 			this.args = extractArgs(metadata.method, args);
 			this.target = target;
-			this.caches = CacheAspectSupport.this.getCaches(this, metadata.cacheResolver);
-			this.cacheNames = createCacheNames(this.caches);
+			this.caches = resolveCaches(metadata);
 		}
 
 		@Override
@@ -774,6 +1218,13 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		@Nullable
 		protected Object generateKey(@Nullable Object result) {
 			if (StringUtils.hasText(this.metadata.operation.getKey())) {
+				if (this.metadata.compiledKey != null) {
+					// Simple key expression: evaluate directly against the arguments if possible
+					Object key = this.metadata.compiledKey.getValue(this.args);
+					if (key != CompiledKeyExpression.NOT_APPLICABLE) {
+						return key;
+					}
+				}
 				EvaluationContext evaluationContext = createEvaluationContext(result);
 				return evaluator.key(this.metadata.operation.getKey(), this.metadata.methodKey, evaluationContext);
 			}
@@ -790,7 +1241,48 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 		}
 
 		protected Collection<String> getCacheNames() {
-			return this.cacheNames;
+			Collection<String> cacheNames = this.cacheNames;
+			if (cacheNames == null) {
+				cacheNames = createCacheNames(this.caches);
+				this.cacheNames = cacheNames;
+			}
+			return cacheNames;
+		}
+
+		private Collection<? extends Cache> resolveCaches(CacheOperationMetadata metadata) {
+			List<Cache> resolvedCaches = metadata.resolvedCaches;
+			if (resolvedCaches != null && isCurrent(resolvedCaches, metadata.cacheResolver)) {
+				return resolvedCaches;
+			}
+			Collection<? extends Cache> caches = CacheAspectSupport.this.getCaches(this, metadata.cacheResolver);
+			if (metadata.staticCacheResolution) {
+				resolvedCaches = Collections.unmodifiableList(new ArrayList<>(caches));
+				metadata.resolvedCaches = resolvedCaches;
+				return resolvedCaches;
+			}
+			return caches;
+		}
+
+		/**
+		 * Check whether the given previously resolved caches are still the ones
+		 * that the {@link CacheManager} of the given resolver returns.
+		 * <p>Caches are compared by their native cache if the cache manager returns
+		 * a different {@link Cache} instance, since decorating cache managers such as
+		 * {@code TransactionAwareCacheManagerProxy} create a new decorator on each
+		 * call, around the same target cache.
+		 */
+		private boolean isCurrent(List<Cache> caches, CacheResolver cacheResolver) {
+			if (cacheResolver instanceof AbstractCacheResolver) {
+				CacheManager cacheManager = ((AbstractCacheResolver) cacheResolver).getCacheManager();
+				for (Cache cache : caches) {
+					Cache current = cacheManager.getCache(cache.getName());
+					if (current != cache &&
+							(current == null || current.getNativeCache() != cache.getNativeCache())) {
+						return false;
+					}
+				}
+			}
+			return true;
 		}
 
 		private Collection<String> createCacheNames(Collection<? extends Cache> caches) {
@@ -824,6 +1316,124 @@ public abstract class CacheAspectSupport extends AbstractCacheInvoker
 	}
 
 
+	/**
+	 * Strategy for an asynchronous return type, caching the resolved value
+	 * instead of the future or publisher handle returned by the method.
+	 */
+	private abstract class AsyncResultHandler {
+
+		/**
+		 * Adapt a cache hit to the return type of the method.
+		 */
+		public abstract Object fromCachedValue(CompletableFuture<?> cachedValue);
+
+		/**
+		 * Decorate the given return value so that the specified callback
+		 * receives the actual value once it has been resolved.
+		 */
+		public abstract Object onResolvedValue(Object returnValue, Consumer<Object> valueCallback);
+
+		/**
+		 * Retrieve the value for the given key, invoking the method on a miss
+		 * (for {@code @Cacheable(sync=true)} semantics).
+		 */
+		public abstract Object retrieve(Cache cache, Object key, CacheOperationInvoker invoker);
+	}
+
+
+	/**
+	 * Handler for methods returning a {@link CompletableFuture} (or declaring
+	 * {@link CompletionStage} as their return type).
+	 */
+	private class FutureResultHandler extends AsyncResultHandler {
+
+		@Override
+		public Object fromCachedValue(CompletableFuture<?> cachedValue) {
+			return cachedValue;
+		}
+
+		@Override
+		public Object onResolvedValue(Object returnValue, Consumer<Object> valueCallback) {
+			return ((CompletionStage<?>) returnValue).thenApply(value -> {
+				valueCallback.accept(value);
+				return value;
+			});
+		}
+
+		@Override
+		public Object retrieve(Cache cache, Object key, CacheOperationInvoker invoker) {
+			return cache.retrieve(key, () -> {
+				CompletionStage<?> result = (CompletionStage<?>) invokeOperation(invoker);
+				return (result != null ? result.toCompletableFuture() : CompletableFuture.completedFuture(null));
+			});
+		}
+	}
+
+
+	/**
+	 * Handler for methods returning a reactive type, caching the element of a
+	 * single-value publisher or the collected elements of a multi-value publisher.
+	 * The latter are emitted to the subscriber once the publisher has completed.
+	 * Only loaded when Reactor is present on the classpath.
+	 */
+	private class ReactiveResultHandler extends AsyncResultHandler {
+
+		private final ReactiveAdapter adapter;
+
+		public ReactiveResultHandler(ReactiveAdapter adapter) {
+			this.adapter = adapter;
+		}
+
+		@Override
+		public Object fromCachedValue(CompletableFuture<?> cachedValue) {
+			return fromFuture(cachedValue);
+		}
+
+		@Override
+		public Object onResolvedValue(Object returnValue, Consumer<Object> valueCallback) {
+			if (this.adapter.isMultiValue()) {
+				return this.adapter.fromPublisher(Flux.from(this.adapter.toPublisher(returnValue))
+						.collectList().doOnSuccess(valueCallback).flatMapMany(Flux::fromIterable));
+			}
+			else {
+				return this.adapter.fromPublisher(
+						Mono.from(this.adapter.toPublisher(returnValue)).doOnSuccess(valueCallback));
+			}
+		}
+
+		@Override
+		public Object retrieve(Cache cache, Object key, CacheOperationInvoker invoker) {
+			// Defer cache access and method invocation until subscription
+			return fromMono(Mono.fromFuture(() -> cache.<Object>retrieve(key, () -> {
+				Object result = invokeOperation(invoker);
+				if (result == null) {
+					return CompletableFuture.completedFuture(null);
+				}
+				else if (this.adapter.isMultiValue()) {
+					return Flux.from(this.adapter.toPublisher(result)).collectList().cast(Object.class).toFuture();
+				}
+				else {
+					return Mono.from(this.adapter.<Object>toPublisher(result)).toFuture();
+				}
+			})));
+		}
+
+		private Object fromFuture(CompletableFuture<?> future) {
+			return fromMono(Mono.fromFuture(future));
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object fromMono(Mono<?> value) {
+			if (this.adapter.isMultiValue()) {
+				return this.adapter.fromPublisher(value.flatMapMany(list -> Flux.fromIterable((Iterable<Object>) list)));
+			}
+			else {
+				return this.adapter.fromPublisher(value);
+			}
+		}
+	}
+
+
 	private static final class CacheOperationCacheKey implements Comparable<CacheOperationCacheKey> {
 
 		private final CacheOperation cacheOperation;
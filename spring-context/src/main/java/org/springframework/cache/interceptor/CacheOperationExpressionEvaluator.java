@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -99,6 +99,20 @@ class CacheOperationExpressionEvaluator extends CachedExpressionEvaluator {
 		return evaluationContext;
 	}
 
+	/**
+	 * Compile the given key expression for direct evaluation against the
+	 * arguments of the given method, if it is simple enough to not require SpEL.
+	 * @param keyExpression the key expression
+	 * @param method the method whose arguments the expression refers to
+	 * @return the compiled expression, or {@code null} if not supported
+	 * @since 5.2
+	 * @see CompiledKeyExpression
+	 */
+	@Nullable
+	CompiledKeyExpression compileKey(String keyExpression, Method method) {
+		return CompiledKeyExpression.compile(keyExpression, method, getParameterNameDiscoverer());
+	}
+
 	@Nullable
 	public Object key(String keyExpression, AnnotatedElementKey methodKey, EvaluationContext evalContext) {
 		return getExpression(this.keyCache, methodKey, keyExpression).getValue(evalContext);
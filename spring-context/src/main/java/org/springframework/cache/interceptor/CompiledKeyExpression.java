@@ -0,0 +1,379 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Direct evaluation of simple cache key expressions against the method arguments,
+ * avoiding the creation of an evaluation context and the SpEL interpretation
+ * for each invocation.
+ *
+ * <p>Supports parameter references ({@code #id}, {@code #p0}, {@code #a0}),
+ * property paths on them ({@code #a0.tenant.id}), string literals and string
+ * concatenation through {@code +} ({@code 'user:' + #a0.tenant + #a1}). Any
+ * other expression does not {@link #compile compile}. At runtime, cases whose
+ * SpEL semantics are not reproduced exactly (numeric addition, conversion of
+ * arbitrary objects to strings, properties on {@code null} or not exposed
+ * through a public getter) return {@link #NOT_APPLICABLE}, with the caller
+ * expected to fall back to regular SpEL evaluation. An exception thrown by a
+ * getter is propagated as is, rather than invoking the getter again through SpEL.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see CacheOperationExpressionEvaluator#compileKey
+ */
+final class CompiledKeyExpression {
+
+	/**
+	 * Indicate that the expression cannot be evaluated directly for the
+	 * given arguments, so it needs to be evaluated through SpEL.
+	 */
+	static final Object NOT_APPLICABLE = new Object();
+
+
+	private final Term[] terms;
+
+
+	private CompiledKeyExpression(Term[] terms) {
+		this.terms = terms;
+	}
+
+
+	/**
+	 * Evaluate the expression against the given method arguments.
+	 * @param args the method arguments
+	 * @return the key (possibly {@code null}), or {@link #NOT_APPLICABLE}
+	 */
+	@Nullable
+	Object getValue(Object[] args) {
+		Object value = this.terms[0].getValue(args);
+		for (int i = 1; i < this.terms.length && value != NOT_APPLICABLE; i++) {
+			value = concat(value, this.terms[i].getValue(args));
+		}
+		return value;
+	}
+
+	@Nullable
+	private static Object concat(@Nullable Object left, @Nullable Object right) {
+		if (left == NOT_APPLICABLE || right == NOT_APPLICABLE) {
+			return NOT_APPLICABLE;
+		}
+		if (left instanceof String && isPlainString(right)) {
+			return left + String.valueOf(right);
+		}
+		if (right instanceof String && isPlainString(left)) {
+			return String.valueOf(left) + right;
+		}
+		return NOT_APPLICABLE;
+	}
+
+	/**
+	 * Whether SpEL's conversion of the given operand to a String
+	 * is equivalent to {@link String#valueOf(Object)}.
+	 */
+	private static boolean isPlainString(@Nullable Object value) {
+		return (value == null || value instanceof String || value instanceof Boolean ||
+				value instanceof Character || (value instanceof Number &&
+				ClassUtils.isPrimitiveWrapper(value.getClass())));
+	}
+
+
+	/**
+	 * Compile the given key expression for the given method.
+	 * @param expression the key expression
+	 * @param method the method whose arguments the expression refers to
+	 * @param parameterNameDiscoverer the discoverer for parameter names
+	 * @return the compiled expression, or {@code null} if the expression
+	 * is not supported for direct evaluation
+	 */
+	@Nullable
+	static CompiledKeyExpression compile(String expression, Method method,
+			ParameterNameDiscoverer parameterNameDiscoverer) {
+
+		if (method.isVarArgs()) {
+			return null;
+		}
+		String[] paramNames = parameterNameDiscoverer.getParameterNames(method);
+		if (paramNames != null) {
+			for (String paramName : paramNames) {
+				if (paramName == null || isIndexVariable(paramName) ||
+						CacheOperationExpressionEvaluator.RESULT_VARIABLE.equals(paramName)) {
+					// Ambiguous variable names: let SpEL resolve them
+					return null;
+				}
+			}
+		}
+		List<Term> terms = new ArrayList<>();
+		int pos = 0;
+		int length = expression.length();
+		while (true) {
+			pos = skipWhitespace(expression, pos);
+			if (pos == length) {
+				return null;
+			}
+			int end;
+			char c = expression.charAt(pos);
+			if (c == '\'') {
+				end = expression.indexOf('\'', pos + 1);
+				if (end == -1 || (end + 1 < length && expression.charAt(end + 1) == '\'')) {
+					// Unterminated or with escaped quote
+					return null;
+				}
+				terms.add(new LiteralTerm(expression.substring(pos + 1, end)));
+				end++;
+			}
+			else if (c == '#') {
+				end = pos + 1;
+				List<String> path = new ArrayList<>();
+				while (true) {
+					int identifierEnd = scanIdentifier(expression, end);
+					if (identifierEnd == end) {
+						return null;
+					}
+					path.add(expression.substring(end, identifierEnd));
+					end = identifierEnd;
+					if (end < length && expression.charAt(end) == '.') {
+						end++;
+					}
+					else {
+						break;
+					}
+				}
+				int index = resolveParameterIndex(path.get(0), method, paramNames);
+				if (index == -1) {
+					return null;
+				}
+				terms.add(new ParameterTerm(index, path.subList(1, path.size()).toArray(new String[0])));
+			}
+			else {
+				return null;
+			}
+			pos = skipWhitespace(expression, end);
+			if (pos == length) {
+				break;
+			}
+			if (expression.charAt(pos) != '+') {
+				return null;
+			}
+			pos++;
+		}
+		return new CompiledKeyExpression(terms.toArray(new Term[0]));
+	}
+
+	private static boolean isIndexVariable(String name) {
+		if (name.length() < 2 || (name.charAt(0) != 'a' && name.charAt(0) != 'p')) {
+			return false;
+		}
+		for (int i = 1; i < name.length(); i++) {
+			if (!Character.isDigit(name.charAt(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int resolveParameterIndex(String variable, Method method, @Nullable String[] paramNames) {
+		if ("root".equals(variable) || "this".equals(variable)) {
+			// Special SpEL references, not variables
+			return -1;
+		}
+		int paramCount = method.getParameterCount();
+		if (isIndexVariable(variable)) {
+			try {
+				int index = Integer.parseInt(variable.substring(1));
+				return (index < paramCount ? index : -1);
+			}
+			catch (NumberFormatException ex) {
+				return -1;
+			}
+		}
+		if (paramNames != null) {
+			for (int i = 0; i < paramNames.length; i++) {
+				if (variable.equals(paramNames[i])) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static int skipWhitespace(String expression, int pos) {
+		while (pos < expression.length() && Character.isWhitespace(expression.charAt(pos))) {
+			pos++;
+		}
+		return pos;
+	}
+
+	private static int scanIdentifier(String expression, int pos) {
+		if (pos == expression.length() || !Character.isJavaIdentifierStart(expression.charAt(pos))) {
+			return pos;
+		}
+		int end = pos + 1;
+		while (end < expression.length() && Character.isJavaIdentifierPart(expression.charAt(end))) {
+			end++;
+		}
+		return end;
+	}
+
+
+	private interface Term {
+
+		@Nullable
+		Object getValue(Object[] args);
+	}
+
+
+	private static final class LiteralTerm implements Term {
+
+		private final String value;
+
+		LiteralTerm(String value) {
+			this.value = value;
+		}
+
+		@Override
+		public Object getValue(Object[] args) {
+			return this.value;
+		}
+	}
+
+
+	private static final class ParameterTerm implements Term {
+
+		private final int index;
+
+		private final PropertyStep[] path;
+
+		ParameterTerm(int index, String[] path) {
+			this.index = index;
+			this.path = new PropertyStep[path.length];
+			for (int i = 0; i < path.length; i++) {
+				this.path[i] = new PropertyStep(path[i]);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Object getValue(Object[] args) {
+			Object value = (this.index < args.length ? args[this.index] : null);
+			for (PropertyStep step : this.path) {
+				if (value == null) {
+					// SpEL raises an exception for property access on null
+					return NOT_APPLICABLE;
+				}
+				value = step.getValue(value);
+				if (value == NOT_APPLICABLE) {
+					break;
+				}
+			}
+			return value;
+		}
+	}
+
+
+	/**
+	 * Property access through a public getter, following SpEL's getter naming
+	 * rules, with the getter cached per target class.
+	 */
+	private static final class PropertyStep {
+
+		private final String[] getterNames;
+
+		private final String[] booleanGetterNames;
+
+		private final Map<Class<?>, Getter> getterCache = new ConcurrentReferenceHashMap<>(4);
+
+		PropertyStep(String propertyName) {
+			String suffix = (propertyName.length() > 1 && Character.isUpperCase(propertyName.charAt(1)) ?
+					propertyName : StringUtils.capitalize(propertyName));
+			String[] suffixes = (Character.isUpperCase(suffix.charAt(0)) ? new String[] {suffix} :
+					new String[] {suffix, StringUtils.capitalize(suffix)});
+			this.getterNames = new String[suffixes.length];
+			this.booleanGetterNames = new String[suffixes.length];
+			for (int i = 0; i < suffixes.length; i++) {
+				this.getterNames[i] = "get" + suffixes[i];
+				this.booleanGetterNames[i] = "is" + suffixes[i];
+			}
+		}
+
+		@Nullable
+		Object getValue(Object target) {
+			Getter getter = this.getterCache.computeIfAbsent(target.getClass(),
+					targetClass -> new Getter(findGetter(targetClass)));
+			if (getter.method == null) {
+				return NOT_APPLICABLE;
+			}
+			// Propagate any exception from the getter: invoking it again through SpEL
+			// would repeat its side effects
+			return ReflectionUtils.invokeMethod(getter.method, target);
+		}
+
+		@Nullable
+		private Method findGetter(Class<?> targetClass) {
+			if (targetClass.isArray() || Class.class == targetClass) {
+				return null;
+			}
+			for (String name : this.getterNames) {
+				Method method = ClassUtils.getMethodIfAvailable(targetClass, name);
+				if (isGetter(method)) {
+					return method;
+				}
+			}
+			for (String name : this.booleanGetterNames) {
+				Method method = ClassUtils.getMethodIfAvailable(targetClass, name);
+				if (isGetter(method) &&
+						(method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+					return method;
+				}
+			}
+			return null;
+		}
+
+		private static boolean isGetter(@Nullable Method method) {
+			if (method == null || Modifier.isStatic(method.getModifiers()) ||
+					!Modifier.isPublic(method.getModifiers()) || method.getReturnType() == void.class) {
+				return false;
+			}
+			ReflectionUtils.makeAccessible(method);
+			return true;
+		}
+	}
+
+
+	private static final class Getter {
+
+		@Nullable
+		final Method method;
+
+		Getter(@Nullable Method method) {
+			this.method = method;
+		}
+	}
+
+}
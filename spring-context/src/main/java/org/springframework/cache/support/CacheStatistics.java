@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Immutable snapshot of the statistics of a {@link org.springframework.cache.Cache},
+ * as collected by a {@link CacheStatisticsCounter}.
+ *
+ * <p>All counts are cumulative since the creation of the cache; use
+ * {@link #minus(CacheStatistics)} for the statistics of a specific interval.
+ *
+ * <p>Load counts only cover values loaded through the cache itself, i.e. via
+ * {@link org.springframework.cache.Cache#get(Object, java.util.concurrent.Callable)}
+ * (as used for {@code @Cacheable(sync=true)}) and
+ * {@link org.springframework.cache.Cache#retrieve(Object, java.util.function.Supplier)}.
+ * A regular {@code @Cacheable} miss invokes the method outside of the cache
+ * and puts its result afterwards: it is recorded as a miss but not as a load.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see CacheStatisticsCounter#snapshot()
+ */
+public final class CacheStatistics {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long loadSuccessCount;
+
+	private final long loadFailureCount;
+
+	private final long totalLoadTime;
+
+	private final long evictionCount;
+
+
+	/**
+	 * Create a new CacheStatistics instance.
+	 * @param hitCount the number of lookups which found a cached value
+	 * @param missCount the number of lookups which did not find a cached value
+	 * @param loadSuccessCount the number of values loaded successfully
+	 * @param loadFailureCount the number of value loads which failed
+	 * @param totalLoadTime the total time spent loading values, in nanoseconds
+	 * @param evictionCount the number of entries removed due to size or expiration
+	 */
+	public CacheStatistics(long hitCount, long missCount, long loadSuccessCount,
+			long loadFailureCount, long totalLoadTime, long evictionCount) {
+
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.loadSuccessCount = loadSuccessCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTime = totalLoadTime;
+		this.evictionCount = evictionCount;
+	}
+
+
+	/**
+	 * Return the number of lookups which found a cached value.
+	 */
+	public long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of lookups which did not find a cached value.
+	 */
+	public long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Return the total number of lookups, i.e. hits plus misses.
+	 */
+	public long getRequestCount() {
+		return this.hitCount + this.missCount;
+	}
+
+	/**
+	 * Return the ratio of lookups which found a cached value,
+	 * or {@code 1.0} if no lookups have been performed yet.
+	 */
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		return (requestCount == 0 ? 1.0 : (double) this.hitCount / requestCount);
+	}
+
+	/**
+	 * Return the ratio of lookups which did not find a cached value,
+	 * or {@code 0.0} if no lookups have been performed yet.
+	 */
+	public double getMissRate() {
+		long requestCount = getRequestCount();
+		return (requestCount == 0 ? 0.0 : (double) this.missCount / requestCount);
+	}
+
+	/**
+	 * Return the number of values loaded successfully.
+	 */
+	public long getLoadSuccessCount() {
+		return this.loadSuccessCount;
+	}
+
+	/**
+	 * Return the number of value loads which failed with an exception.
+	 */
+	public long getLoadFailureCount() {
+		return this.loadFailureCount;
+	}
+
+	/**
+	 * Return the total number of value loads, successful or not.
+	 */
+	public long getLoadCount() {
+		return this.loadSuccessCount + this.loadFailureCount;
+	}
+
+	/**
+	 * Return the total time spent loading values, in nanoseconds.
+	 */
+	public long getTotalLoadTime() {
+		return this.totalLoadTime;
+	}
+
+	/**
+	 * Return the average time spent loading a value, in nanoseconds,
+	 * or {@code 0.0} if no values have been loaded yet.
+	 */
+	public double getAverageLoadPenalty() {
+		long loadCount = getLoadCount();
+		return (loadCount == 0 ? 0.0 : (double) this.totalLoadTime / loadCount);
+	}
+
+	/**
+	 * Return the number of entries removed from the cache because of a
+	 * size limit or an expired time-to-live, not counting explicit evictions.
+	 */
+	public long getEvictionCount() {
+		return this.evictionCount;
+	}
+
+	/**
+	 * Return the sum of this snapshot and the given snapshot,
+	 * e.g. for aggregating the statistics of several caches.
+	 */
+	public CacheStatistics plus(CacheStatistics other) {
+		return new CacheStatistics(this.hitCount + other.hitCount, this.missCount + other.missCount,
+				this.loadSuccessCount + other.loadSuccessCount, this.loadFailureCount + other.loadFailureCount,
+				this.totalLoadTime + other.totalLoadTime, this.evictionCount + other.evictionCount);
+	}
+
+	/**
+	 * Return the difference between this snapshot and the given earlier snapshot,
+	 * i.e. the statistics for the interval between them. Negative values are
+	 * rounded up to zero.
+	 */
+	public CacheStatistics minus(CacheStatistics other) {
+		return new CacheStatistics(Math.max(0, this.hitCount - other.hitCount),
+				Math.max(0, this.missCount - other.missCount),
+				Math.max(0, this.loadSuccessCount - other.loadSuccessCount),
+				Math.max(0, this.loadFailureCount - other.loadFailureCount),
+				Math.max(0, this.totalLoadTime - other.totalLoadTime),
+				Math.max(0, this.evictionCount - other.evictionCount));
+	}
+
+
+	@Override
+	public boolean equals(@Nullable Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CacheStatistics)) {
+			return false;
+		}
+		CacheStatistics otherStats = (CacheStatistics) other;
+		return (this.hitCount == otherStats.hitCount && this.missCount == otherStats.missCount &&
+				this.loadSuccessCount == otherStats.loadSuccessCount &&
+				this.loadFailureCount == otherStats.loadFailureCount &&
+				this.totalLoadTime == otherStats.totalLoadTime && this.evictionCount == otherStats.evictionCount);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = Long.hashCode(this.hitCount);
+		result = 31 * result + Long.hashCode(this.missCount);
+		result = 31 * result + Long.hashCode(this.loadSuccessCount);
+		result = 31 * result + Long.hashCode(this.loadFailureCount);
+		result = 31 * result + Long.hashCode(this.totalLoadTime);
+		result = 31 * result + Long.hashCode(this.evictionCount);
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics: hits=" + this.hitCount + ", misses=" + this.missCount +
+				", loadSuccesses=" + this.loadSuccessCount + ", loadFailures=" + this.loadFailureCount +
+				", totalLoadTime=" + this.totalLoadTime + "ns, evictions=" + this.evictionCount;
+	}
+
+}
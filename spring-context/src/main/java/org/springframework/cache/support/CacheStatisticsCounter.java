@@ -0,0 +1,99 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe accumulator for the statistics of a cache, designed for
+ * recording on hot paths without contention between concurrent callers.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see CacheStatistics
+ */
+public class CacheStatisticsCounter {
+
+	private final LongAdder hitCount = new LongAdder();
+
+	private final LongAdder missCount = new LongAdder();
+
+	private final LongAdder loadSuccessCount = new LongAdder();
+
+	private final LongAdder loadFailureCount = new LongAdder();
+
+	private final LongAdder totalLoadTime = new LongAdder();
+
+	private final LongAdder evictionCount = new LongAdder();
+
+
+	/**
+	 * Record the given number of lookups which found a cached value.
+	 */
+	public void recordHits(int count) {
+		this.hitCount.add(count);
+	}
+
+	/**
+	 * Record the given number of lookups which did not find a cached value.
+	 */
+	public void recordMisses(int count) {
+		this.missCount.add(count);
+	}
+
+	/**
+	 * Record the successful load of a value.
+	 * @param loadTime the time spent loading, in nanoseconds
+	 */
+	public void recordLoadSuccess(long loadTime) {
+		this.loadSuccessCount.increment();
+		this.totalLoadTime.add(loadTime);
+	}
+
+	/**
+	 * Record a failed attempt to load a value.
+	 * @param loadTime the time spent before the load failed, in nanoseconds
+	 */
+	public void recordLoadFailure(long loadTime) {
+		this.loadFailureCount.increment();
+		this.totalLoadTime.add(loadTime);
+	}
+
+	/**
+	 * Record the removal of an entry because of a size limit or an expired
+	 * time-to-live.
+	 */
+	public void recordEviction() {
+		this.evictionCount.increment();
+	}
+
+	/**
+	 * Return a snapshot of the statistics recorded so far. Recordings which
+	 * happen concurrently may or may not be reflected in the snapshot.
+	 */
+	public CacheStatistics snapshot() {
+		return new CacheStatistics(this.hitCount.sum(), this.missCount.sum(),
+				this.loadSuccessCount.sum(), this.loadFailureCount.sum(),
+				this.totalLoadTime.sum(), this.evictionCount.sum());
+	}
+
+	@Override
+	public String toString() {
+		return snapshot().toString();
+	}
+
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Coalesces concurrent loads of the same key into a single invocation
+ * of the value loader ("single flight"): the first caller for a given key
+ * performs the load while any concurrent callers for the same key wait
+ * for the outcome of that load, receiving the same value or exception.
+ *
+ * <p>In contrast to {@link ConcurrentHashMap#computeIfAbsent}, the value
+ * loader does not run within a lock on the underlying map: concurrent loads
+ * of different keys never block each other, and a loader may itself trigger
+ * loads of other keys. A recursive load of the same key in the same thread
+ * is rejected with an {@link IllegalStateException} instead of deadlocking.
+ *
+ * <p>Keys are only tracked while a load is in progress; this class does not
+ * hold on to loaded values. The {@link #get(Collection, Object, Callable)}
+ * variants combine single-flight loading with lookups in and population of
+ * one or more {@link Cache} instances, so a single loader instance can be
+ * shared across several caches and cache operations.
+ *
+ * <p>Note that the caching annotations do not use these multi-cache variants:
+ * {@code @Cacheable(sync=true)} remains restricted to a single cache and no
+ * other cache operations, delegating to {@link Cache#get(Object, Callable)}.
+ * They are meant for programmatic use in front of several caches.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see Cache#get(Object, Callable)
+ */
+public class SingleFlightLoader {
+
+	private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<>(64);
+
+	@Nullable
+	private Duration waitTimeout;
+
+
+	/**
+	 * Specify the maximum time that a caller waits for a load of the same key
+	 * that is in progress in another thread. A caller that runs into the
+	 * timeout receives a {@link Cache.ValueRetrievalException} with a
+	 * {@link TimeoutException} as its cause, while the original load proceeds.
+	 * <p>Default is none, waiting for as long as the original load takes.
+	 * Asynchronous callers may apply a timeout to the returned future themselves.
+	 */
+	public void setWaitTimeout(@Nullable Duration waitTimeout) {
+		Assert.isTrue(waitTimeout == null || !waitTimeout.isNegative(), "Wait timeout must not be negative");
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * Return the maximum time that a caller waits for a concurrent load, if any.
+	 */
+	@Nullable
+	public Duration getWaitTimeout() {
+		return this.waitTimeout;
+	}
+
+	/**
+	 * Return the number of loads currently in progress.
+	 */
+	public int getInFlightCount() {
+		return this.flights.size();
+	}
+
+
+	/**
+	 * Load the value for the given key, joining a load of the same key that
+	 * is already in progress.
+	 * @param key the key to coalesce loads for
+	 * @param valueLoader the value loader to invoke if no load is in progress
+	 * @return the loaded value (may be {@code null})
+	 * @throws Cache.ValueRetrievalException if the loader (in this or another
+	 * thread) failed, or if the wait timeout has been exceeded
+	 * @throws IllegalStateException in case of a recursive load of the same key
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T load(Object key, Callable<T> valueLoader) {
+		Flight flight = new Flight(Thread.currentThread());
+		Flight existing = this.flights.putIfAbsent(key, flight);
+		if (existing != null) {
+			return (T) awaitFlight(existing, key, valueLoader);
+		}
+		try {
+			T value = valueLoader.call();
+			flight.future.complete(value);
+			return value;
+		}
+		catch (Throwable ex) {
+			flight.future.completeExceptionally(ex);
+			throw new Cache.ValueRetrievalException(key, valueLoader, ex);
+		}
+		finally {
+			this.flights.remove(key, flight);
+		}
+	}
+
+	/**
+	 * Load the value for the given key asynchronously, joining a load of the
+	 * same key that is already in progress.
+	 * <p>Each caller receives its own future, so cancelling the returned
+	 * future does not affect the shared load or any other caller.
+	 * @param key the key to coalesce loads for
+	 * @param valueLoader the value loader to invoke if no load is in progress
+	 * @return a future for the loaded value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> loadAsync(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		Flight flight = new Flight(null);
+		Flight existing = this.flights.putIfAbsent(key, flight);
+		if (existing != null) {
+			return existing.future.thenApply(value -> (T) value);
+		}
+		try {
+			valueLoader.get().whenComplete((value, ex) -> {
+				if (ex != null) {
+					flight.future.completeExceptionally(
+							ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex);
+				}
+				else {
+					flight.future.complete(value);
+				}
+				this.flights.remove(key, flight);
+			});
+		}
+		catch (Throwable ex) {
+			flight.future.completeExceptionally(ex);
+			this.flights.remove(key, flight);
+		}
+		return flight.future.thenApply(value -> (T) value);
+	}
+
+	/**
+	 * Return the value for the given key from the given cache, loading it
+	 * through a coalesced invocation of the given loader in case of a miss.
+	 * @param cache the cache to look up and populate
+	 * @param key the cache key
+	 * @param valueLoader the value loader to invoke in case of a miss
+	 * @return the cached or loaded value (may be {@code null})
+	 * @see #get(Collection, Object, Callable)
+	 */
+	@Nullable
+	public <T> T get(Cache cache, Object key, Callable<T> valueLoader) {
+		return get(Collections.singletonList(cache), key, valueLoader);
+	}
+
+	/**
+	 * Return the value for the given key from the first of the given caches
+	 * that contains it, loading it through a coalesced invocation of the given
+	 * loader if none of them does. A loaded value is put into all given caches.
+	 * <p>Loads are coalesced per combination of cache names and key.
+	 * @param caches the caches to look up and populate, in lookup order
+	 * @param key the cache key
+	 * @param valueLoader the value loader to invoke in case of a miss
+	 * @return the cached or loaded value (may be {@code null})
+	 * @throws Cache.ValueRetrievalException if the loader failed,
+	 * or if the wait timeout has been exceeded
+	 */
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Collection<? extends Cache> caches, Object key, Callable<T> valueLoader) {
+		Assert.notEmpty(caches, "At least one Cache is required");
+		Cache.ValueWrapper cached = findInCaches(caches, key);
+		if (cached != null) {
+			return (T) cached.get();
+		}
+		return load(new FlightKey(caches, key), () -> {
+			// Re-check: a concurrent load may have completed in the meantime.
+			Cache.ValueWrapper wrapper = findInCaches(caches, key);
+			if (wrapper != null) {
+				return (T) wrapper.get();
+			}
+			T value = valueLoader.call();
+			for (Cache cache : caches) {
+				cache.put(key, value);
+			}
+			return value;
+		});
+	}
+
+	/**
+	 * Return the value for the given key from the first of the given caches
+	 * that contains it, loading it through a coalesced invocation of the given
+	 * asynchronous loader if none of them does. A value resolved by the loader
+	 * is put into all given caches.
+	 * @param caches the caches to look up and populate, in lookup order
+	 * @param key the cache key
+	 * @param valueLoader the value loader to invoke in case of a miss
+	 * @return a future for the cached or loaded value
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> retrieve(
+			Collection<? extends Cache> caches, Object key, Supplier<CompletableFuture<T>> valueLoader) {
+
+		Assert.notEmpty(caches, "At least one Cache is required");
+		Cache.ValueWrapper cached = findInCaches(caches, key);
+		if (cached != null) {
+			return CompletableFuture.completedFuture((T) cached.get());
+		}
+		return loadAsync(new FlightKey(caches, key), () -> {
+			Cache.ValueWrapper wrapper = findInCaches(caches, key);
+			if (wrapper != null) {
+				return CompletableFuture.completedFuture((T) wrapper.get());
+			}
+			return valueLoader.get().thenApply(value -> {
+				for (Cache cache : caches) {
+					cache.put(key, value);
+				}
+				return value;
+			});
+		});
+	}
+
+
+	@Nullable
+	private Object awaitFlight(Flight flight, Object key, Callable<?> valueLoader) {
+		if (flight.owner == Thread.currentThread()) {
+			throw new IllegalStateException("Recursive load of key '" + key + "' within its own value loader");
+		}
+		try {
+			Duration timeout = this.waitTimeout;
+			if (timeout != null) {
+				return flight.future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+			}
+			return flight.future.get();
+		}
+		catch (ExecutionException ex) {
+			throw new Cache.ValueRetrievalException(key, valueLoader, ex.getCause());
+		}
+		catch (TimeoutException ex) {
+			throw new Cache.ValueRetrievalException(key, valueLoader, ex);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new Cache.ValueRetrievalException(key, valueLoader, ex);
+		}
+	}
+
+	@Nullable
+	private static Cache.ValueWrapper findInCaches(Collection<? extends Cache> caches, Object key) {
+		for (Cache cache : caches) {
+			Cache.ValueWrapper wrapper = cache.get(key);
+			if (wrapper != null) {
+				return wrapper;
+			}
+		}
+		return null;
+	}
+
+
+	/**
+	 * A load in progress, along with the thread performing it (if synchronous).
+	 */
+	private static final class Flight {
+
+		@Nullable
+		final Thread owner;
+
+		final CompletableFuture<Object> future = new CompletableFuture<>();
+
+		Flight(@Nullable Thread owner) {
+			this.owner = owner;
+		}
+	}
+
+
+	/**
+	 * Key for a load that targets a specific set of caches.
+	 */
+	private static final class FlightKey {
+
+		private final List<String> cacheNames;
+
+		private final Object key;
+
+		FlightKey(Collection<? extends Cache> caches, Object key) {
+			List<String> cacheNames = new ArrayList<>(caches.size());
+			for (Cache cache : caches) {
+				cacheNames.add(cache.getName());
+			}
+			this.cacheNames = cacheNames;
+			this.key = key;
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof FlightKey)) {
+				return false;
+			}
+			FlightKey otherKey = (FlightKey) other;
+			return (this.cacheNames.equals(otherKey.cacheNames) && ObjectUtils.nullSafeEquals(this.key, otherKey.key));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.cacheNames.hashCode() * 29 + ObjectUtils.nullSafeHashCode(this.key);
+		}
+
+		@Override
+		public String toString() {
+			return this.cacheNames + ":" + this.key;
+		}
+	}
+
+}
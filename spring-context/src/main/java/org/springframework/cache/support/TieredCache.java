@@ -0,0 +1,524 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+import org.springframework.cache.Cache;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Two-level {@link Cache} implementation, serving lookups from a local cache
+ * (L1, e.g. a {@code ConcurrentMapCache} or {@code CaffeineCache}) in front of
+ * a remote cache (L2, e.g. a Redis or JCache-backed cache).
+ *
+ * <p>Values found in the remote cache or loaded through a value loader get
+ * copied into the local cache, optionally with a {@link #TieredCache(Cache, Cache, Duration)
+ * time-to-live} after which the local copy is discarded and the value gets
+ * looked up in the remote cache again. Writes, evictions and clearing go
+ * through to both tiers, remote first. Changes on other nodes are not
+ * observed by the local cache until its time-to-live expires, unless the
+ * application propagates them through {@link #evictLocal} and {@link #clearLocal}.
+ *
+ * <p>Local copies of remote or loaded values are added through the local cache's
+ * {@link Cache#putIfAbsent putIfAbsent}, and discarded again if a write or eviction
+ * of the same key went through this cache in the meantime, so that a concurrent
+ * change is never overwritten by a stale copy.
+ *
+ * <p>{@link #retrieve(Object, Supplier) Non-blocking retrieval} is supported even
+ * if the remote cache does not {@link Cache#supportsRetrieve() support} it: the
+ * remote cache gets accessed through regular lookups and writes then, performed
+ * on a {@link #TieredCache(Cache, Cache, Duration, Executor) remote executor}
+ * if specified.
+ *
+ * <p>Hit, miss and load statistics are recorded per tier: see
+ * {@link #getLocalStatistics()} and {@link #getRemoteStatistics()}.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see TieredCacheManager
+ */
+public class TieredCache implements Cache {
+
+	private static final int GENERATION_STRIPES = 64;
+
+	private final Cache localCache;
+
+	private final Cache remoteCache;
+
+	private final long localTimeToLive;
+
+	@Nullable
+	private final Executor remoteExecutor;
+
+	/** Per-stripe counters of writes and evictions, for detecting stale local copies. */
+	private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+	private final CacheStatisticsCounter localStatistics = new CacheStatisticsCounter();
+
+	private final CacheStatisticsCounter remoteStatistics = new CacheStatisticsCounter();
+
+
+	/**
+	 * Create a new TieredCache for the given local and remote cache,
+	 * keeping local copies until they are evicted by the local cache itself.
+	 * @param localCache the local cache (L1)
+	 * @param remoteCache the remote cache (L2)
+	 */
+	public TieredCache(Cache localCache, Cache remoteCache) {
+		this(localCache, remoteCache, null);
+	}
+
+	/**
+	 * Create a new TieredCache for the given local and remote cache.
+	 * @param localCache the local cache (L1)
+	 * @param remoteCache the remote cache (L2)
+	 * @param localTimeToLive the time-to-live for local copies of values,
+	 * or {@code null} to keep them until they are evicted by the local cache itself
+	 */
+	public TieredCache(Cache localCache, Cache remoteCache, @Nullable Duration localTimeToLive) {
+		this(localCache, remoteCache, localTimeToLive, null);
+	}
+
+	/**
+	 * Create a new TieredCache for the given local and remote cache.
+	 * @param localCache the local cache (L1)
+	 * @param remoteCache the remote cache (L2)
+	 * @param localTimeToLive the time-to-live for local copies of values,
+	 * or {@code null} to keep them until they are evicted by the local cache itself
+	 * @param remoteExecutor the executor to access the remote cache with from
+	 * {@link #retrieve(Object, Supplier)} if the remote cache does not support
+	 * {@code retrieve} itself, or {@code null} to access it in the calling thread
+	 */
+	public TieredCache(Cache localCache, Cache remoteCache, @Nullable Duration localTimeToLive,
+			@Nullable Executor remoteExecutor) {
+
+		Assert.notNull(localCache, "Local Cache must not be null");
+		Assert.notNull(remoteCache, "Remote Cache must not be null");
+		Assert.isTrue(localTimeToLive == null || (!localTimeToLive.isNegative() && !localTimeToLive.isZero()),
+				"Local time-to-live must be positive");
+		this.localCache = localCache;
+		this.remoteCache = remoteCache;
+		this.localTimeToLive = (localTimeToLive != null ? localTimeToLive.toNanos() : 0);
+		this.remoteExecutor = remoteExecutor;
+	}
+
+
+	/**
+	 * Return the local cache (L1).
+	 */
+	public final Cache getLocalCache() {
+		return this.localCache;
+	}
+
+	/**
+	 * Return the remote cache (L2).
+	 */
+	public final Cache getRemoteCache() {
+		return this.remoteCache;
+	}
+
+	/**
+	 * Return a snapshot of the statistics for the local cache. Evictions only
+	 * include local copies discarded because of the local time-to-live.
+	 */
+	public CacheStatistics getLocalStatistics() {
+		return this.localStatistics.snapshot();
+	}
+
+	/**
+	 * Return a snapshot of the statistics for the remote cache, including
+	 * the values loaded on a miss in both tiers.
+	 */
+	public CacheStatistics getRemoteStatistics() {
+		return this.remoteStatistics.snapshot();
+	}
+
+	@Override
+	public String getName() {
+		return this.remoteCache.getName();
+	}
+
+	@Override
+	public Object getNativeCache() {
+		return this.remoteCache.getNativeCache();
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper get(Object key) {
+		ValueWrapper wrapper = getLocal(key);
+		if (wrapper != null) {
+			return wrapper;
+		}
+		return getRemote(key, getGeneration(key));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, @Nullable Class<T> type) {
+		ValueWrapper wrapper = get(key);
+		Object value = (wrapper != null ? wrapper.get() : null);
+		if (value != null && type != null && !type.isInstance(value)) {
+			throw new IllegalStateException(
+					"Cached value is not of required type [" + type.getName() + "]: " + value);
+		}
+		return (T) value;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	@Nullable
+	public <T> T get(Object key, Callable<T> valueLoader) {
+		ValueWrapper wrapper = getLocal(key);
+		if (wrapper != null) {
+			return (T) wrapper.get();
+		}
+		long generation = getGeneration(key);
+		AtomicBoolean loaded = new AtomicBoolean();
+		T value = this.remoteCache.get(key, () -> {
+			loaded.set(true);
+			long startTime = System.nanoTime();
+			try {
+				T result = valueLoader.call();
+				this.remoteStatistics.recordLoadSuccess(System.nanoTime() - startTime);
+				return result;
+			}
+			catch (Throwable ex) {
+				this.remoteStatistics.recordLoadFailure(System.nanoTime() - startTime);
+				throw ex;
+			}
+		});
+		recordRemoteLookup(!loaded.get());
+		backfillLocal(key, value, generation);
+		return value;
+	}
+
+	@Override
+	@Nullable
+	public CompletableFuture<?> retrieve(Object key) {
+		ValueWrapper wrapper = getLocal(key);
+		if (wrapper != null) {
+			return CompletableFuture.completedFuture(wrapper.get());
+		}
+		long generation = getGeneration(key);
+		if (!this.remoteCache.supportsRetrieve()) {
+			wrapper = getRemote(key, generation);
+			return (wrapper != null ? CompletableFuture.completedFuture(wrapper.get()) : null);
+		}
+		CompletableFuture<?> result = this.remoteCache.retrieve(key);
+		recordRemoteLookup(result != null);
+		return (result != null ? result.thenApply(value -> {
+			backfillLocal(key, value, generation);
+			return value;
+		}) : null);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+		ValueWrapper wrapper = getLocal(key);
+		if (wrapper != null) {
+			return CompletableFuture.completedFuture((T) wrapper.get());
+		}
+		long generation = getGeneration(key);
+		if (!this.remoteCache.supportsRetrieve()) {
+			return retrieveRemote(key, valueLoader, generation);
+		}
+		AtomicBoolean loaded = new AtomicBoolean();
+		CompletableFuture<T> result = this.remoteCache.retrieve(key, () -> {
+			loaded.set(true);
+			long startTime = System.nanoTime();
+			return valueLoader.get().whenComplete((value, ex) -> {
+				if (ex != null) {
+					this.remoteStatistics.recordLoadFailure(System.nanoTime() - startTime);
+				}
+				else {
+					this.remoteStatistics.recordLoadSuccess(System.nanoTime() - startTime);
+				}
+			});
+		});
+		recordRemoteLookup(!loaded.get());
+		return result.thenApply(value -> {
+			backfillLocal(key, value, generation);
+			return value;
+		});
+	}
+
+	@Override
+	public boolean supportsRetrieve() {
+		return true;
+	}
+
+	@Override
+	public Map<Object, ValueWrapper> getAll(Collection<?> keys) {
+		Map<Object, ValueWrapper> localResult = new LinkedHashMap<>(keys.size());
+		List<Object> remoteKeys = new ArrayList<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper wrapper = getLocal(key);
+			if (wrapper != null) {
+				localResult.put(key, wrapper);
+			}
+			else {
+				remoteKeys.add(key);
+			}
+		}
+		if (remoteKeys.isEmpty()) {
+			return localResult;
+		}
+		long[] generations = new long[remoteKeys.size()];
+		for (int i = 0; i < generations.length; i++) {
+			generations[i] = getGeneration(remoteKeys.get(i));
+		}
+		Map<Object, ValueWrapper> remoteResult = this.remoteCache.getAll(remoteKeys);
+		this.remoteStatistics.recordHits(remoteResult.size());
+		this.remoteStatistics.recordMisses(remoteKeys.size() - remoteResult.size());
+		for (int i = 0; i < generations.length; i++) {
+			Object key = remoteKeys.get(i);
+			ValueWrapper wrapper = remoteResult.get(key);
+			if (wrapper != null) {
+				backfillLocal(key, wrapper.get(), generations[i]);
+			}
+		}
+		if (localResult.isEmpty()) {
+			return remoteResult;
+		}
+		Map<Object, ValueWrapper> result = new LinkedHashMap<>(keys.size());
+		for (Object key : keys) {
+			ValueWrapper wrapper = localResult.get(key);
+			if (wrapper == null) {
+				wrapper = remoteResult.get(key);
+			}
+			if (wrapper != null) {
+				result.put(key, wrapper);
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void put(Object key, @Nullable Object value) {
+		this.remoteCache.put(key, value);
+		incrementGeneration(key);
+		putLocal(key, value);
+	}
+
+	@Override
+	public void putAll(Map<?, ?> entries) {
+		this.remoteCache.putAll(entries);
+		entries.forEach((key, value) -> {
+			incrementGeneration(key);
+			putLocal(key, value);
+		});
+	}
+
+	@Override
+	@Nullable
+	public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+		ValueWrapper existing = this.remoteCache.putIfAbsent(key, value);
+		incrementGeneration(key);
+		putLocal(key, (existing != null ? existing.get() : value));
+		return existing;
+	}
+
+	@Override
+	public void evict(Object key) {
+		this.remoteCache.evict(key);
+		evictLocal(key);
+	}
+
+	@Override
+	public void clear() {
+		this.remoteCache.clear();
+		clearLocal();
+	}
+
+	/**
+	 * Evict the local copy for the given key only, e.g. in reaction to an
+	 * invalidation message for an entry changed on another node.
+	 * @param key the key whose local copy is to be removed
+	 */
+	public void evictLocal(Object key) {
+		incrementGeneration(key);
+		this.localCache.evict(key);
+	}
+
+	/**
+	 * Remove all local copies, e.g. in reaction to an invalidation message
+	 * for a remote cache cleared on another node.
+	 */
+	public void clearLocal() {
+		for (int i = 0; i < GENERATION_STRIPES; i++) {
+			this.generations.incrementAndGet(i);
+		}
+		this.localCache.clear();
+	}
+
+
+	@Nullable
+	private ValueWrapper getLocal(Object key) {
+		ValueWrapper wrapper = this.localCache.get(key);
+		if (wrapper != null && this.localTimeToLive > 0) {
+			Object value = wrapper.get();
+			if (value instanceof ExpiringValue) {
+				ExpiringValue expiringValue = (ExpiringValue) value;
+				if (System.nanoTime() - expiringValue.expirationTime >= 0) {
+					this.localCache.evict(key);
+					this.localStatistics.recordEviction();
+					wrapper = null;
+				}
+				else {
+					wrapper = new SimpleValueWrapper(expiringValue.value);
+				}
+			}
+		}
+		if (wrapper != null) {
+			this.localStatistics.recordHits(1);
+		}
+		else {
+			this.localStatistics.recordMisses(1);
+		}
+		return wrapper;
+	}
+
+	@Nullable
+	private ValueWrapper getRemote(Object key, long generation) {
+		ValueWrapper wrapper = this.remoteCache.get(key);
+		if (wrapper != null) {
+			this.remoteStatistics.recordHits(1);
+			backfillLocal(key, wrapper.get(), generation);
+		}
+		else {
+			this.remoteStatistics.recordMisses(1);
+		}
+		return wrapper;
+	}
+
+	/**
+	 * Retrieve the value for the given key from a remote cache which does not
+	 * support {@code retrieve}, through a regular lookup and, on a miss, a
+	 * {@code putIfAbsent} of the loaded value. Both go through the remote executor.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> retrieveRemote(
+			Object key, Supplier<CompletableFuture<T>> valueLoader, long generation) {
+
+		return supplyRemote(() -> getRemote(key, generation)).thenCompose(wrapper -> {
+			if (wrapper != null) {
+				return CompletableFuture.completedFuture((T) wrapper.get());
+			}
+			long startTime = System.nanoTime();
+			return valueLoader.get().whenComplete((value, ex) -> {
+				if (ex != null) {
+					this.remoteStatistics.recordLoadFailure(System.nanoTime() - startTime);
+				}
+				else {
+					this.remoteStatistics.recordLoadSuccess(System.nanoTime() - startTime);
+				}
+			}).thenCompose(value -> supplyRemote(() -> {
+				ValueWrapper existing = this.remoteCache.putIfAbsent(key, value);
+				T result = (existing != null ? (T) existing.get() : value);
+				backfillLocal(key, result, generation);
+				return result;
+			}));
+		});
+	}
+
+	private <T> CompletableFuture<T> supplyRemote(Supplier<T> supplier) {
+		if (this.remoteExecutor != null) {
+			return CompletableFuture.supplyAsync(supplier, this.remoteExecutor);
+		}
+		return CompletableFuture.completedFuture(supplier.get());
+	}
+
+	private void putLocal(Object key, @Nullable Object value) {
+		this.localCache.put(key, toLocalValue(value));
+	}
+
+	/**
+	 * Add a local copy of a value obtained from the remote cache or a value loader,
+	 * unless a local copy exists already. A write or eviction of the same key since
+	 * the given generation may have raced with this copy, so it gets discarded then.
+	 */
+	private void backfillLocal(Object key, @Nullable Object value, long generation) {
+		this.localCache.putIfAbsent(key, toLocalValue(value));
+		if (getGeneration(key) != generation) {
+			this.localCache.evict(key);
+		}
+	}
+
+	@Nullable
+	private Object toLocalValue(@Nullable Object value) {
+		return (this.localTimeToLive > 0 ? new ExpiringValue(value, System.nanoTime() + this.localTimeToLive) : value);
+	}
+
+	private long getGeneration(Object key) {
+		return this.generations.get(generationStripe(key));
+	}
+
+	private void incrementGeneration(Object key) {
+		this.generations.incrementAndGet(generationStripe(key));
+	}
+
+	private static int generationStripe(Object key) {
+		int hash = ObjectUtils.nullSafeHashCode(key);
+		return (hash ^ (hash >>> 16)) & (GENERATION_STRIPES - 1);
+	}
+
+	private void recordRemoteLookup(boolean hit) {
+		if (hit) {
+			this.remoteStatistics.recordHits(1);
+		}
+		else {
+			this.remoteStatistics.recordMisses(1);
+		}
+	}
+
+
+	/**
+	 * Local copy of a value with an expiration time.
+	 */
+	@SuppressWarnings("serial")
+	private static final class ExpiringValue implements Serializable {
+
+		@Nullable
+		private final Object value;
+
+		private final long expirationTime;
+
+		ExpiringValue(@Nullable Object value, long expirationTime) {
+			this.value = value;
+			this.expirationTime = expirationTime;
+		}
+	}
+
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link CacheManager} implementation which layers the caches of a local
+ * {@link CacheManager} (L1) in front of the caches of a remote {@link CacheManager}
+ * (L2), exposing a {@link TieredCache} for each cache name known to both.
+ *
+ * <p>In contrast to {@link CompositeCacheManager}, which picks the first cache
+ * found among its delegates, both tiers are consulted here: lookups are served
+ * locally whenever possible, avoiding a remote round trip, while writes and
+ * evictions go through to both tiers.
+ *
+ * <p>Caches which the local cache manager does not provide are exposed without
+ * a local tier, i.e. as the plain remote cache.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see TieredCache
+ */
+public class TieredCacheManager implements CacheManager {
+
+	private final CacheManager localCacheManager;
+
+	private final CacheManager remoteCacheManager;
+
+	@Nullable
+	private Duration localTimeToLive;
+
+	@Nullable
+	private Executor remoteExecutor;
+
+	private final ConcurrentMap<String, TieredCache> cacheMap = new ConcurrentHashMap<>(16);
+
+
+	/**
+	 * Create a new TieredCacheManager for the given cache managers.
+	 * @param localCacheManager the cache manager for local caches (L1),
+	 * e.g. a {@code ConcurrentMapCacheManager} or {@code CaffeineCacheManager}
+	 * @param remoteCacheManager the cache manager for remote caches (L2)
+	 */
+	public TieredCacheManager(CacheManager localCacheManager, CacheManager remoteCacheManager) {
+		Assert.notNull(localCacheManager, "Local CacheManager must not be null");
+		Assert.notNull(remoteCacheManager, "Remote CacheManager must not be null");
+		this.localCacheManager = localCacheManager;
+		this.remoteCacheManager = remoteCacheManager;
+	}
+
+
+	/**
+	 * Specify the time-to-live for local copies of remote values, after which
+	 * they get looked up in the remote cache again.
+	 * <p>Default is none, keeping local copies until they are evicted by the
+	 * local cache itself, according to its own size and expiration settings.
+	 * <p>Note: A change of the time-to-live only applies to tiered caches
+	 * which have not been created yet.
+	 * @see TieredCache#TieredCache(Cache, Cache, Duration)
+	 */
+	public void setLocalTimeToLive(@Nullable Duration localTimeToLive) {
+		this.localTimeToLive = localTimeToLive;
+	}
+
+	/**
+	 * Return the time-to-live for local copies of remote values, if any.
+	 */
+	@Nullable
+	public Duration getLocalTimeToLive() {
+		return this.localTimeToLive;
+	}
+
+	/**
+	 * Specify the executor to access remote caches with from non-blocking
+	 * {@link Cache#retrieve(Object, java.util.function.Supplier) retrieve} calls,
+	 * for remote caches which do not support {@code retrieve} themselves.
+	 * <p>Default is none, accessing such remote caches in the calling thread.
+	 * <p>Note: A change of the executor only applies to tiered caches
+	 * which have not been created yet.
+	 * @see TieredCache#TieredCache(Cache, Cache, Duration, Executor)
+	 */
+	public void setRemoteExecutor(@Nullable Executor remoteExecutor) {
+		this.remoteExecutor = remoteExecutor;
+	}
+
+	/**
+	 * Return the executor to access remote caches with, if any.
+	 */
+	@Nullable
+	public Executor getRemoteExecutor() {
+		return this.remoteExecutor;
+	}
+
+
+	@Override
+	@Nullable
+	public Cache getCache(String name) {
+		Cache remoteCache = this.remoteCacheManager.getCache(name);
+		if (remoteCache == null) {
+			return null;
+		}
+		Cache localCache = this.localCacheManager.getCache(name);
+		if (localCache == null) {
+			return remoteCache;
+		}
+		TieredCache cache = this.cacheMap.get(name);
+		if (cache != null && cache.getRemoteCache() == remoteCache && cache.getLocalCache() == localCache) {
+			return cache;
+		}
+		synchronized (this.cacheMap) {
+			cache = this.cacheMap.get(name);
+			if (cache == null || cache.getRemoteCache() != remoteCache || cache.getLocalCache() != localCache) {
+				// Initial creation, or one of the target caches has been recreated...
+				cache = createTieredCache(localCache, remoteCache);
+				this.cacheMap.put(name, cache);
+			}
+		}
+		return cache;
+	}
+
+	@Override
+	public Collection<String> getCacheNames() {
+		return this.remoteCacheManager.getCacheNames();
+	}
+
+	/**
+	 * Return a snapshot of the local tier statistics of all tiered caches
+	 * obtained from this cache manager so far, keyed by cache name.
+	 * @see TieredCache#getLocalStatistics()
+	 */
+	public Map<String, CacheStatistics> getLocalCacheStatistics() {
+		Map<String, CacheStatistics> result = new LinkedHashMap<>(this.cacheMap.size());
+		this.cacheMap.forEach((name, cache) -> result.put(name, cache.getLocalStatistics()));
+		return result;
+	}
+
+	/**
+	 * Return a snapshot of the remote tier statistics of all tiered caches
+	 * obtained from this cache manager so far, keyed by cache name.
+	 * @see TieredCache#getRemoteStatistics()
+	 */
+	public Map<String, CacheStatistics> getRemoteCacheStatistics() {
+		Map<String, CacheStatistics> result = new LinkedHashMap<>(this.cacheMap.size());
+		this.cacheMap.forEach((name, cache) -> result.put(name, cache.getRemoteStatistics()));
+		return result;
+	}
+
+	/**
+	 * Create a new TieredCache for the given local and remote cache.
+	 * @param localCache the local cache (L1)
+	 * @param remoteCache the remote cache (L2)
+	 * @return the TieredCache (or a subclass thereof)
+	 */
+	protected TieredCache createTieredCache(Cache localCache, Cache remoteCache) {
+		return new TieredCache(localCache, remoteCache, this.localTimeToLive, this.remoteExecutor);
+	}
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Variant of {@link ThreadPoolTaskExecutor} which grows its thread pool up to the
+ * {@link #setMaxPoolSize "maxPoolSize"} before queueing any tasks, in contrast to
+ * the standard {@link java.util.concurrent.ThreadPoolExecutor} behavior of only
+ * creating threads beyond the core pool size once the queue is full.
+ *
+ * <p>Tasks are handed to an idle thread if available; otherwise a new thread
+ * is created until the max pool size has been reached, and only then are tasks
+ * queued, up to the specified {@link #setQueueCapacity "queueCapacity"}. This is
+ * well suited for I/O-bound workloads where tasks spend most of their time waiting,
+ * as long as a reasonable max pool size is specified: the default of
+ * {@code Integer.MAX_VALUE} effectively leads to one thread per concurrent task.
+ * Threads beyond the core pool size terminate after the keep-alive time.
+ *
+ * <p>The configured {@link #setRejectedExecutionHandler RejectedExecutionHandler}
+ * is only called once the pool is at its max size and the queue is full,
+ * or after shutdown.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see #setCorePoolSize
+ * @see #setMaxPoolSize
+ * @see #setQueueCapacity
+ */
+@SuppressWarnings("serial")
+public class EagerThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
+
+	@Nullable
+	private EagerTaskQueue taskQueue;
+
+
+	@Override
+	protected ExecutorService initializeExecutor(
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		return super.initializeExecutor(threadFactory, (task, executor) -> {
+			// No thread could be added: queue the task if possible.
+			EagerTaskQueue queue = this.taskQueue;
+			if (executor.isShutdown() || queue == null || !queue.force(task)) {
+				rejectedExecutionHandler.rejectedExecution(task, executor);
+			}
+		});
+	}
+
+	/**
+	 * Create the BlockingQueue to use for the ThreadPoolExecutor,
+	 * only accepting tasks while there are idle threads waiting for them.
+	 * <p>A non-positive capacity leads to a SynchronousQueue as usual,
+	 * which does not queue any tasks in the first place.
+	 * @param queueCapacity the specified queue capacity
+	 * @return the BlockingQueue instance
+	 */
+	@Override
+	protected BlockingQueue<Runnable> createQueue(int queueCapacity) {
+		if (queueCapacity > 0) {
+			EagerTaskQueue queue = new EagerTaskQueue(queueCapacity);
+			this.taskQueue = queue;
+			return queue;
+		}
+		else {
+			return super.createQueue(queueCapacity);
+		}
+	}
+
+
+	/**
+	 * Task queue which declines a task unless an idle thread is waiting
+	 * for it, making the ThreadPoolExecutor create a new thread instead.
+	 * Declined tasks are queued via {@link #force} once no thread can be added.
+	 */
+	private static class EagerTaskQueue extends LinkedBlockingQueue<Runnable> {
+
+		private final AtomicInteger idleThreads = new AtomicInteger();
+
+		public EagerTaskQueue(int capacity) {
+			super(capacity);
+		}
+
+		@Override
+		public boolean offer(Runnable task) {
+			return (size() < this.idleThreads.get() && super.offer(task));
+		}
+
+		public boolean force(Runnable task) {
+			return super.offer(task);
+		}
+
+		@Override
+		public Runnable take() throws InterruptedException {
+			this.idleThreads.incrementAndGet();
+			try {
+				return super.take();
+			}
+			finally {
+				this.idleThreads.decrementAndGet();
+			}
+		}
+
+		@Override
+		@Nullable
+		public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+			this.idleThreads.incrementAndGet();
+			try {
+				return super.poll(timeout, unit);
+			}
+			finally {
+				this.idleThreads.decrementAndGet();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.SchedulingTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+/**
+ * JavaBean that allows for configuring a work-stealing {@link ForkJoinPool}
+ * in bean style (through its "parallelism" and "asyncMode" properties) and
+ * exposing it as a Spring {@link org.springframework.core.task.TaskExecutor}.
+ *
+ * <p>In contrast to {@link ThreadPoolTaskExecutor}, there is no shared task queue:
+ * each worker thread has its own queue and steals tasks from other workers once
+ * its own queue is empty, which reduces contention for large numbers of short-lived
+ * tasks. By default, the pool operates in "asyncMode", i.e. with FIFO scheduling
+ * of tasks which are never joined, as is typical for event-style tasks.
+ *
+ * <p>Worker threads are named and configured according to the
+ * {@link #setThreadNamePrefix "threadNamePrefix"}, {@link #setThreadPriority
+ * "threadPriority"} and {@link #setDaemon "daemon"} settings inherited from
+ * {@link CustomizableThreadFactory}. Since a {@code ForkJoinPool} requires its own
+ * kind of worker threads, a custom {@link #setThreadFactory ThreadFactory} and
+ * {@link #setRejectedExecutionHandler RejectedExecutionHandler} are not applied;
+ * tasks are only rejected after shutdown.
+ *
+ * <p>For exposing a preconfigured {@code ForkJoinPool} instance as a bean instead,
+ * consider {@link ForkJoinPoolFactoryBean}, possibly wrapped with a
+ * {@link ConcurrentTaskExecutor} adapter.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see java.util.concurrent.ForkJoinPool
+ * @see ForkJoinPoolFactoryBean
+ * @see ThreadPoolTaskExecutor
+ */
+@SuppressWarnings("serial")
+public class ForkJoinPoolTaskExecutor extends ExecutorConfigurationSupport
+		implements AsyncListenableTaskExecutor, SchedulingTaskExecutor {
+
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+
+	private boolean asyncMode = true;
+
+	@Nullable
+	private TaskDecorator taskDecorator;
+
+	@Nullable
+	private ForkJoinPool forkJoinPool;
+
+
+	/**
+	 * Specify the parallelism level, i.e. the targeted number of active threads.
+	 * Default is {@link Runtime#availableProcessors()}.
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Return the configured parallelism level.
+	 */
+	public int getParallelism() {
+		return this.parallelism;
+	}
+
+	/**
+	 * Specify whether to establish a local first-in-first-out scheduling mode
+	 * for tasks that are never joined.
+	 * <p>Default is "true", which is appropriate for tasks submitted through the
+	 * {@code TaskExecutor} interface. Switch this to "false" for the traditional
+	 * last-in-first-out processing of recursively forked tasks.
+	 * @see ForkJoinPool#getAsyncMode()
+	 */
+	public void setAsyncMode(boolean asyncMode) {
+		this.asyncMode = asyncMode;
+	}
+
+	/**
+	 * Specify a custom {@link TaskDecorator} to be applied to any {@link Runnable}
+	 * about to be executed.
+	 * <p>Note that such a decorator is not necessarily being applied to the
+	 * user-supplied {@code Runnable}/{@code Callable} but rather to the actual
+	 * execution callback (which may be a wrapper around the user-supplied task).
+	 * <p>The primary use case is to set some execution context around the task's
+	 * invocation, or to provide some monitoring/statistics for task execution.
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+
+	@Override
+	protected ExecutorService initializeExecutor(
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		ForkJoinPool pool = new TaskForkJoinPool(this.parallelism, this::newWorkerThread, this.asyncMode);
+		this.forkJoinPool = pool;
+		return pool;
+	}
+
+	/**
+	 * Create a new worker thread for the given pool, applying the
+	 * thread name prefix, priority and daemon flag of this executor.
+	 * @param pool the pool to create the worker thread for
+	 * @return the new worker thread
+	 */
+	protected ForkJoinWorkerThread newWorkerThread(ForkJoinPool pool) {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+		thread.setName(nextThreadName());
+		thread.setPriority(getThreadPriority());
+		thread.setDaemon(isDaemon());
+		return thread;
+	}
+
+	/**
+	 * Return the underlying ForkJoinPool for native access.
+	 * @return the underlying ForkJoinPool (never {@code null})
+	 * @throws IllegalStateException if the ForkJoinPoolTaskExecutor hasn't been initialized yet
+	 */
+	public ForkJoinPool getForkJoinPool() throws IllegalStateException {
+		Assert.state(this.forkJoinPool != null, "ForkJoinPoolTaskExecutor not initialized");
+		return this.forkJoinPool;
+	}
+
+	/**
+	 * Return the current number of worker threads.
+	 * @see java.util.concurrent.ForkJoinPool#getPoolSize()
+	 */
+	public int getPoolSize() {
+		if (this.forkJoinPool == null) {
+			// Not initialized yet: assume no threads.
+			return 0;
+		}
+		return this.forkJoinPool.getPoolSize();
+	}
+
+	/**
+	 * Return the number of threads which are currently executing or stealing tasks.
+	 * @see java.util.concurrent.ForkJoinPool#getActiveThreadCount()
+	 */
+	public int getActiveCount() {
+		if (this.forkJoinPool == null) {
+			// Not initialized yet: assume no active threads.
+			return 0;
+		}
+		return this.forkJoinPool.getActiveThreadCount();
+	}
+
+
+	@Override
+	public void execute(Runnable task) {
+		ForkJoinPool pool = getForkJoinPool();
+		Runnable decorated = (this.taskDecorator != null ? this.taskDecorator.decorate(task) : task);
+		try {
+			pool.execute(new TaskAction(task, decorated));
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Executor [" + pool + "] did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public void execute(Runnable task, long startTimeout) {
+		execute(task);
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		FutureTask<Object> future = new FutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		ListenableFutureTask<Object> future = new ListenableFutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		ListenableFutureTask<T> future = new ListenableFutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+
+	/**
+	 * ForkJoinPool which exposes the tasks that never commenced execution
+	 * on {@link #shutdownNow()}, for cancelling their user-level Future handles.
+	 */
+	private static class TaskForkJoinPool extends ForkJoinPool {
+
+		public TaskForkJoinPool(int parallelism, ForkJoinWorkerThreadFactory factory, boolean asyncMode) {
+			super(parallelism, factory, null, asyncMode);
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			shutdown();
+			List<ForkJoinTask<?>> drainedTasks = new ArrayList<>();
+			drainTasksTo(drainedTasks);
+			super.shutdownNow();
+			List<Runnable> remainingTasks = new ArrayList<>(drainedTasks.size());
+			for (ForkJoinTask<?> drainedTask : drainedTasks) {
+				if (drainedTask instanceof TaskAction) {
+					remainingTasks.add(((TaskAction) drainedTask).task);
+				}
+			}
+			return remainingTasks;
+		}
+	}
+
+
+	/**
+	 * ForkJoinTask adapter for a (possibly decorated) user-level task.
+	 * Exceptions are passed to the worker thread's uncaught exception handler,
+	 * as with any other executor thread.
+	 */
+	private static class TaskAction extends ForkJoinTask<Void> {
+
+		final Runnable task;
+
+		private final Runnable decorated;
+
+		public TaskAction(Runnable task, Runnable decorated) {
+			this.task = task;
+			this.decorated = decorated;
+		}
+
+		@Override
+		@Nullable
+		public Void getRawResult() {
+			return null;
+		}
+
+		@Override
+		protected void setRawResult(@Nullable Void value) {
+		}
+
+		@Override
+		protected boolean exec() {
+			try {
+				this.decorated.run();
+			}
+			catch (Throwable ex) {
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, ex);
+			}
+			return true;
+		}
+	}
+
+}
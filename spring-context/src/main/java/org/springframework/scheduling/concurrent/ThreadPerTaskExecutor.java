@@ -0,0 +1,473 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.SchedulingTaskExecutor;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+/**
+ * {@link org.springframework.core.task.TaskExecutor} implementation that starts
+ * a new thread for each task, with support for lightweight virtual threads on
+ * JVMs which provide them (JDK 21+), through the {@link #setVirtualThreads
+ * "virtualThreads"} flag.
+ *
+ * <p>In contrast to {@link org.springframework.core.task.SimpleAsyncTaskExecutor},
+ * a {@link #setConcurrencyLimit "concurrencyLimit"} does not block the submitting
+ * thread: tasks beyond the limit are queued, and their threads only get started
+ * once running tasks completed. Queued tasks are cancelled on immediate shutdown,
+ * as with a thread pool; the executor participates in the common lifecycle
+ * handling of {@link ExecutorConfigurationSupport}.
+ *
+ * <p>Since the queue of tasks waiting for the concurrency limit is unbounded, a
+ * {@link #setRejectedExecutionHandler RejectedExecutionHandler} is not applied;
+ * tasks are only rejected after shutdown.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see #setVirtualThreads
+ * @see #setConcurrencyLimit
+ * @see org.springframework.core.task.SimpleAsyncTaskExecutor
+ */
+@SuppressWarnings("serial")
+public class ThreadPerTaskExecutor extends ExecutorConfigurationSupport
+		implements AsyncListenableTaskExecutor, SchedulingTaskExecutor {
+
+	private boolean virtualThreads = false;
+
+	private int concurrencyLimit = -1;
+
+	@Nullable
+	private TaskDecorator taskDecorator;
+
+	@Nullable
+	private ThreadPerTaskExecutorService executorService;
+
+
+	/**
+	 * Specify whether to run tasks on virtual threads if supported by the JVM.
+	 * <p>Default is "false", creating platform threads through the configured
+	 * {@link #setThreadFactory ThreadFactory}. If switched to "true" on a JVM
+	 * without virtual thread support, platform threads will be used as well.
+	 * Virtual threads are named according to the
+	 * {@link #setThreadNamePrefix "threadNamePrefix"} but ignore the other
+	 * thread settings.
+	 * @see #isVirtualThreadsSupported()
+	 */
+	public void setVirtualThreads(boolean virtualThreads) {
+		this.virtualThreads = virtualThreads;
+	}
+
+	/**
+	 * Set the maximum number of tasks allowed to run concurrently.
+	 * <p>Default is -1, not imposing any concurrency limit. Further tasks are
+	 * queued until a running task completes, without occupying a thread.
+	 */
+	public void setConcurrencyLimit(int concurrencyLimit) {
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	/**
+	 * Return the maximum number of tasks allowed to run concurrently.
+	 */
+	public int getConcurrencyLimit() {
+		return this.concurrencyLimit;
+	}
+
+	/**
+	 * Specify a custom {@link TaskDecorator} to be applied to any {@link Runnable}
+	 * about to be executed.
+	 * <p>Note that such a decorator is not necessarily being applied to the
+	 * user-supplied {@code Runnable}/{@code Callable} but rather to the actual
+	 * execution callback (which may be a wrapper around the user-supplied task).
+	 * <p>The primary use case is to set some execution context around the task's
+	 * invocation, or to provide some monitoring/statistics for task execution.
+	 */
+	public void setTaskDecorator(TaskDecorator taskDecorator) {
+		this.taskDecorator = taskDecorator;
+	}
+
+
+	@Override
+	protected ExecutorService initializeExecutor(
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		ThreadFactory factoryToUse = threadFactory;
+		if (this.virtualThreads) {
+			ThreadFactory virtualThreadFactory = createVirtualThreadFactory(getThreadNamePrefix());
+			if (virtualThreadFactory != null) {
+				factoryToUse = virtualThreadFactory;
+			}
+			else if (logger.isInfoEnabled()) {
+				logger.info("Virtual threads not supported on this JVM - using platform threads instead");
+			}
+		}
+		ThreadPerTaskExecutorService executorService =
+				new ThreadPerTaskExecutorService(factoryToUse, this.taskDecorator, this.concurrencyLimit);
+		this.executorService = executorService;
+		return executorService;
+	}
+
+	/**
+	 * Return the underlying ExecutorService for native access.
+	 * @return the underlying ExecutorService (never {@code null})
+	 * @throws IllegalStateException if the ThreadPerTaskExecutor hasn't been initialized yet
+	 */
+	public ExecutorService getExecutorService() throws IllegalStateException {
+		Assert.state(this.executorService != null, "ThreadPerTaskExecutor not initialized");
+		return this.executorService;
+	}
+
+	/**
+	 * Return the number of currently running tasks.
+	 */
+	public int getActiveCount() {
+		if (this.executorService == null) {
+			// Not initialized yet: assume no active threads.
+			return 0;
+		}
+		return this.executorService.getActiveCount();
+	}
+
+
+	@Override
+	public void execute(Runnable task) {
+		ExecutorService executor = getExecutorService();
+		try {
+			executor.execute(task);
+		}
+		catch (RejectedExecutionException ex) {
+			throw new TaskRejectedException("Executor [" + executor + "] did not accept task: " + task, ex);
+		}
+	}
+
+	@Override
+	public void execute(Runnable task, long startTimeout) {
+		execute(task);
+	}
+
+	@Override
+	public Future<?> submit(Runnable task) {
+		FutureTask<Object> future = new FutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> Future<T> submit(Callable<T> task) {
+		FutureTask<T> future = new FutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public ListenableFuture<?> submitListenable(Runnable task) {
+		ListenableFutureTask<Object> future = new ListenableFutureTask<>(task, null);
+		execute(future);
+		return future;
+	}
+
+	@Override
+	public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+		ListenableFutureTask<T> future = new ListenableFutureTask<>(task);
+		execute(future);
+		return future;
+	}
+
+
+	/**
+	 * Determine whether the current JVM supports virtual threads.
+	 * @see #setVirtualThreads
+	 */
+	public static boolean isVirtualThreadsSupported() {
+		return (createVirtualThreadFactory("") != null);
+	}
+
+	@Nullable
+	private static ThreadFactory createVirtualThreadFactory(String threadNamePrefix) {
+		try {
+			Method ofVirtual = Thread.class.getMethod("ofVirtual");
+			Class<?> builderClass = ClassUtils.forName("java.lang.Thread$Builder", null);
+			Object builder = ofVirtual.invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, threadNamePrefix, 1L);
+			return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+		}
+		catch (Throwable ex) {
+			// Not on JDK 21+ (or virtual threads not enabled)
+			return null;
+		}
+	}
+
+
+	/**
+	 * ExecutorService which starts a new thread for each task,
+	 * optionally limiting the number of concurrently running tasks.
+	 */
+	private static class ThreadPerTaskExecutorService extends AbstractExecutorService {
+
+		private final ThreadFactory threadFactory;
+
+		@Nullable
+		private final TaskDecorator taskDecorator;
+
+		@Nullable
+		private final Semaphore permits;
+
+		private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
+
+		private final Queue<Worker> pendingWorkers = new ConcurrentLinkedQueue<>();
+
+		private final Object terminationMonitor = new Object();
+
+		private volatile boolean shutdown;
+
+		public ThreadPerTaskExecutorService(
+				ThreadFactory threadFactory, @Nullable TaskDecorator taskDecorator, int concurrencyLimit) {
+
+			this.threadFactory = threadFactory;
+			this.taskDecorator = taskDecorator;
+			this.permits = (concurrencyLimit > 0 ? new Semaphore(concurrencyLimit) : null);
+		}
+
+		@Override
+		public void execute(Runnable task) {
+			if (this.shutdown) {
+				throw new RejectedExecutionException("Executor has been shut down");
+			}
+			Runnable decorated = (this.taskDecorator != null ? this.taskDecorator.decorate(task) : task);
+			Worker worker = new Worker(task, decorated);
+			Thread thread = this.threadFactory.newThread(worker);
+			if (thread == null) {
+				throw new RejectedExecutionException("ThreadFactory did not create a thread for task: " + task);
+			}
+			worker.thread = thread;
+			this.workers.add(worker);
+			if (this.shutdown) {
+				// Concurrent shutdown: make sure that the task does not start anymore
+				worker.cancel();
+				this.workers.remove(worker);
+				tryTerminate();
+				throw new RejectedExecutionException("Executor has been shut down");
+			}
+			if (this.permits != null) {
+				this.pendingWorkers.add(worker);
+				startPendingWorkers();
+				if (this.shutdown) {
+					// Concurrent shutdownNow may have missed the queued worker
+					discardCancelledWorkers();
+				}
+			}
+			else {
+				thread.start();
+			}
+		}
+
+		/**
+		 * Start queued workers for as long as permits are available.
+		 * Called after queueing a worker and after a worker released its permit,
+		 * so that no worker remains queued while a permit is free.
+		 */
+		private void startPendingWorkers() {
+			Semaphore permits = this.permits;
+			while (permits != null && !this.pendingWorkers.isEmpty() && permits.tryAcquire()) {
+				Worker worker = this.pendingWorkers.poll();
+				if (worker == null) {
+					permits.release();
+				}
+				else if (worker.isCancelled()) {
+					permits.release();
+					this.workers.remove(worker);
+					tryTerminate();
+				}
+				else {
+					worker.start();
+				}
+			}
+		}
+
+		private void discardCancelledWorkers() {
+			this.pendingWorkers.removeIf(worker -> {
+				if (worker.isCancelled()) {
+					this.workers.remove(worker);
+					return true;
+				}
+				return false;
+			});
+			tryTerminate();
+		}
+
+		public int getActiveCount() {
+			int activeCount = 0;
+			for (Worker worker : this.workers) {
+				if (worker.isRunning()) {
+					activeCount++;
+				}
+			}
+			return activeCount;
+		}
+
+		@Override
+		public void shutdown() {
+			this.shutdown = true;
+			tryTerminate();
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			this.shutdown = true;
+			List<Runnable> remainingTasks = new ArrayList<>();
+			for (Worker worker : this.workers) {
+				if (worker.cancel()) {
+					remainingTasks.add(worker.task);
+				}
+			}
+			// Interrupt only after cancelling all waiting tasks, since interrupted
+			// tasks may complete and start queued workers right away
+			for (Worker worker : this.workers) {
+				worker.interrupt();
+			}
+			discardCancelledWorkers();
+			return remainingTasks;
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return this.shutdown;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return (this.shutdown && this.workers.isEmpty());
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			synchronized (this.terminationMonitor) {
+				while (!isTerminated()) {
+					long remaining = deadline - System.nanoTime();
+					if (remaining <= 0) {
+						return false;
+					}
+					TimeUnit.NANOSECONDS.timedWait(this.terminationMonitor, remaining);
+				}
+				return true;
+			}
+		}
+
+		private void tryTerminate() {
+			if (isTerminated()) {
+				synchronized (this.terminationMonitor) {
+					this.terminationMonitor.notifyAll();
+				}
+			}
+		}
+
+
+		private class Worker implements Runnable {
+
+			private static final int WAITING = 0;
+
+			private static final int RUNNING = 1;
+
+			private static final int CANCELLED = 2;
+
+			final Runnable task;
+
+			private final Runnable decorated;
+
+			private final AtomicInteger state = new AtomicInteger(WAITING);
+
+			@Nullable
+			volatile Thread thread;
+
+			public Worker(Runnable task, Runnable decorated) {
+				this.task = task;
+				this.decorated = decorated;
+			}
+
+			@Override
+			public void run() {
+				try {
+					if (this.state.compareAndSet(WAITING, RUNNING)) {
+						this.decorated.run();
+					}
+				}
+				finally {
+					ThreadPerTaskExecutorService.this.workers.remove(this);
+					Semaphore permits = ThreadPerTaskExecutorService.this.permits;
+					if (permits != null) {
+						permits.release();
+						startPendingWorkers();
+					}
+					tryTerminate();
+				}
+			}
+
+			public void start() {
+				Thread thread = this.thread;
+				Assert.state(thread != null, "No thread");
+				thread.start();
+			}
+
+			public boolean isRunning() {
+				return (this.state.get() == RUNNING);
+			}
+
+			public boolean isCancelled() {
+				return (this.state.get() == CANCELLED);
+			}
+
+			public boolean cancel() {
+				return this.state.compareAndSet(WAITING, CANCELLED);
+			}
+
+			public void interrupt() {
+				Thread thread = this.thread;
+				if (thread != null) {
+					thread.interrupt();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,504 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ScheduledExecutorService} based on a hierarchical timing wheel,
+ * with constant-time scheduling and cancellation of delayed tasks.
+ *
+ * <p>A single ticker thread advances the wheel at the configured tick duration
+ * and hands expired tasks to a separate pool of execution threads. The wheel has
+ * four levels of 256 buckets each, covering 2^32 ticks; tasks in higher levels
+ * cascade down to finer-grained levels as their deadline approaches, and tasks
+ * beyond the range of the wheel are re-evaluated on each turn of the top level.
+ * Task deadlines are therefore rounded up to the next tick.
+ *
+ * <p>Newly scheduled and cancelled tasks are handed to the ticker thread through
+ * lock-free queues, so callers never contend on a shared lock; cancelled tasks
+ * are removed from the wheel on the next tick.
+ *
+ * <p>On shutdown, delayed tasks which have not expired yet are cancelled
+ * rather than executed, and periodic tasks are not rescheduled anymore.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see TimingWheelTaskScheduler
+ */
+class TimingWheelScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+	private static final int WHEEL_BITS = 8;
+
+	private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	private static final int LEVELS = 4;
+
+	private static final long MAX_TICKS = (1L << (WHEEL_BITS * LEVELS)) - 1;
+
+	private static final long MAX_DELAY_NANOS = Long.MAX_VALUE >> 2;
+
+
+	private final long tickNanos;
+
+	private final ThreadPoolExecutor executionPool;
+
+	private final Thread tickerThread;
+
+	private final long startTime = System.nanoTime();
+
+	private final Bucket[][] wheel = new Bucket[LEVELS][WHEEL_SIZE];
+
+	private final Queue<WheelTask<?>> pendingTasks = new ConcurrentLinkedQueue<>();
+
+	private final Queue<WheelTask<?>> cancelledTasks = new ConcurrentLinkedQueue<>();
+
+	// Only accessed by the ticker thread
+	private long currentTick;
+
+	private volatile boolean shutdown;
+
+
+	/**
+	 * Create a new TimingWheelScheduledExecutor and start its ticker thread.
+	 * @param tickDuration the duration of a tick of the wheel
+	 * @param unit the time unit of the tick duration
+	 * @param poolSize the number of threads executing expired tasks
+	 * @param threadFactory the ThreadFactory for the ticker thread and the execution threads
+	 * @param rejectedExecutionHandler the RejectedExecutionHandler for the execution pool
+	 */
+	public TimingWheelScheduledExecutor(long tickDuration, TimeUnit unit, int poolSize,
+			ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		Assert.isTrue(tickDuration > 0, "Tick duration must be positive");
+		this.tickNanos = unit.toNanos(tickDuration);
+		for (Bucket[] buckets : this.wheel) {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new Bucket();
+			}
+		}
+		this.executionPool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<>(), threadFactory, rejectedExecutionHandler);
+		this.executionPool.prestartAllCoreThreads();
+		this.tickerThread = threadFactory.newThread(this::runTicker);
+		Assert.state(this.tickerThread != null, "ThreadFactory did not create a ticker thread");
+		this.tickerThread.start();
+	}
+
+
+	/**
+	 * Set the number of threads executing expired tasks.
+	 */
+	public void setPoolSize(int poolSize) {
+		if (poolSize > this.executionPool.getMaximumPoolSize()) {
+			this.executionPool.setMaximumPoolSize(poolSize);
+			this.executionPool.setCorePoolSize(poolSize);
+		}
+		else {
+			this.executionPool.setCorePoolSize(poolSize);
+			this.executionPool.setMaximumPoolSize(poolSize);
+		}
+	}
+
+	/**
+	 * Return the current number of execution threads.
+	 */
+	public int getPoolSize() {
+		return this.executionPool.getPoolSize();
+	}
+
+	/**
+	 * Return the number of execution threads which are currently running tasks.
+	 */
+	public int getActiveCount() {
+		return this.executionPool.getActiveCount();
+	}
+
+
+	@Override
+	public void execute(Runnable command) {
+		if (this.shutdown) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		this.executionPool.execute(command);
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		return schedule(new WheelTask<Void>(command, null, triggerTime(delay, unit), 0));
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+		Assert.notNull(callable, "Callable must not be null");
+		return schedule(new WheelTask<>(callable, triggerTime(delay, unit)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		if (period <= 0) {
+			throw new IllegalArgumentException("Period must be positive");
+		}
+		return schedule(new WheelTask<Void>(command, null, triggerTime(initialDelay, unit), unit.toNanos(period)));
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+		Assert.notNull(command, "Runnable must not be null");
+		if (delay <= 0) {
+			throw new IllegalArgumentException("Delay must be positive");
+		}
+		return schedule(new WheelTask<Void>(command, null, triggerTime(initialDelay, unit), -unit.toNanos(delay)));
+	}
+
+	private long triggerTime(long delay, TimeUnit unit) {
+		return System.nanoTime() + Math.min(Math.max(unit.toNanos(delay), 0), MAX_DELAY_NANOS);
+	}
+
+	private <V> WheelTask<V> schedule(WheelTask<V> task) {
+		if (this.shutdown) {
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+		if (task.getDelay(TimeUnit.NANOSECONDS) <= 0) {
+			this.executionPool.execute(task);
+		}
+		else {
+			enqueue(task);
+		}
+		return task;
+	}
+
+	private void enqueue(WheelTask<?> task) {
+		task.deadlineTick = (task.deadline - this.startTime + this.tickNanos - 1) / this.tickNanos;
+		this.pendingTasks.add(task);
+		if (this.shutdown && this.pendingTasks.remove(task)) {
+			// Concurrent shutdown: the ticker thread may not see the task anymore
+			task.cancel(false);
+			throw new RejectedExecutionException("Executor has been shut down");
+		}
+	}
+
+
+	@Override
+	public void shutdown() {
+		this.shutdown = true;
+		LockSupport.unpark(this.tickerThread);
+		this.executionPool.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		this.shutdown = true;
+		LockSupport.unpark(this.tickerThread);
+		return this.executionPool.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return (this.shutdown && !this.tickerThread.isAlive() && this.executionPool.isTerminated());
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		long remaining = deadline - System.nanoTime();
+		if (remaining > 0) {
+			TimeUnit.NANOSECONDS.timedJoin(this.tickerThread, remaining);
+		}
+		remaining = deadline - System.nanoTime();
+		return (!this.tickerThread.isAlive() && this.executionPool.awaitTermination(remaining, TimeUnit.NANOSECONDS));
+	}
+
+
+	private void runTicker() {
+		while (!this.shutdown) {
+			long nextTickTime = this.startTime + (this.currentTick + 1) * this.tickNanos;
+			long sleepNanos = nextTickTime - System.nanoTime();
+			if (sleepNanos > 0) {
+				LockSupport.parkNanos(this, sleepNanos);
+			}
+			else {
+				tick();
+			}
+		}
+		cancelRemainingTasks();
+	}
+
+	private void tick() {
+		this.currentTick++;
+		cascade();
+		transferPendingTasks();
+		removeCancelledTasks();
+		Bucket bucket = this.wheel[0][(int) (this.currentTick & WHEEL_MASK)];
+		WheelTask<?> task;
+		while ((task = bucket.poll()) != null) {
+			if (!task.isCancelled()) {
+				insert(task);
+			}
+		}
+	}
+
+	/**
+	 * Move the tasks of higher-level buckets which are due within the next
+	 * turn of the next lower level down to that level.
+	 */
+	private void cascade() {
+		for (int level = 1; level < LEVELS; level++) {
+			int shift = WHEEL_BITS * level;
+			if ((this.currentTick & ((1L << shift) - 1)) != 0) {
+				break;
+			}
+			Bucket bucket = this.wheel[level][(int) ((this.currentTick >>> shift) & WHEEL_MASK)];
+			WheelTask<?> task;
+			while ((task = bucket.poll()) != null) {
+				if (!task.isCancelled()) {
+					insert(task);
+				}
+			}
+		}
+	}
+
+	private void transferPendingTasks() {
+		WheelTask<?> task;
+		while ((task = this.pendingTasks.poll()) != null) {
+			if (!task.isCancelled()) {
+				insert(task);
+			}
+		}
+	}
+
+	private void removeCancelledTasks() {
+		WheelTask<?> task;
+		while ((task = this.cancelledTasks.poll()) != null) {
+			Bucket bucket = task.bucket;
+			if (bucket != null) {
+				bucket.remove(task);
+			}
+		}
+	}
+
+	/**
+	 * Insert the given task into the bucket for its deadline,
+	 * or execute it right away if already expired.
+	 */
+	private void insert(WheelTask<?> task) {
+		long tick = task.deadlineTick;
+		long ticks = tick - this.currentTick;
+		if (ticks <= 0) {
+			try {
+				this.executionPool.execute(task);
+			}
+			catch (RejectedExecutionException ex) {
+				task.cancel(false);
+			}
+			return;
+		}
+		if (ticks > MAX_TICKS) {
+			// Beyond the range of the wheel: re-evaluate on the last bucket of the top level
+			ticks = MAX_TICKS;
+			tick = this.currentTick + MAX_TICKS;
+		}
+		int level = (63 - Long.numberOfLeadingZeros(ticks)) / WHEEL_BITS;
+		this.wheel[level][(int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK)].add(task);
+	}
+
+	private void cancelRemainingTasks() {
+		for (Bucket[] buckets : this.wheel) {
+			for (Bucket bucket : buckets) {
+				WheelTask<?> task;
+				while ((task = bucket.poll()) != null) {
+					task.cancel(false);
+				}
+			}
+		}
+		WheelTask<?> task;
+		while ((task = this.pendingTasks.poll()) != null) {
+			task.cancel(false);
+		}
+		this.cancelledTasks.clear();
+	}
+
+
+	/**
+	 * Doubly-linked list of the tasks in a bucket of the wheel,
+	 * only accessed by the ticker thread.
+	 */
+	private static class Bucket {
+
+		@Nullable
+		private WheelTask<?> head;
+
+		@Nullable
+		private WheelTask<?> tail;
+
+		public void add(WheelTask<?> task) {
+			task.bucket = this;
+			task.prev = this.tail;
+			task.next = null;
+			if (this.tail != null) {
+				this.tail.next = task;
+			}
+			else {
+				this.head = task;
+			}
+			this.tail = task;
+		}
+
+		public void remove(WheelTask<?> task) {
+			if (task.prev != null) {
+				task.prev.next = task.next;
+			}
+			else {
+				this.head = task.next;
+			}
+			if (task.next != null) {
+				task.next.prev = task.prev;
+			}
+			else {
+				this.tail = task.prev;
+			}
+			task.bucket = null;
+			task.prev = null;
+			task.next = null;
+		}
+
+		@Nullable
+		public WheelTask<?> poll() {
+			WheelTask<?> task = this.head;
+			if (task != null) {
+				remove(task);
+			}
+			return task;
+		}
+	}
+
+
+	/**
+	 * Delayed or periodic task in the wheel.
+	 */
+	private class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+		// Positive for fixed-rate, negative for fixed-delay, 0 for one-time execution
+		private final long period;
+
+		private volatile long deadline;
+
+		// The following fields are only accessed by the ticker thread,
+		// or before handing the task to the ticker thread
+
+		private long deadlineTick;
+
+		@Nullable
+		private Bucket bucket;
+
+		@Nullable
+		private WheelTask<?> prev;
+
+		@Nullable
+		private WheelTask<?> next;
+
+		public WheelTask(Runnable runnable, @Nullable V result, long deadline, long period) {
+			super(runnable, result);
+			this.deadline = deadline;
+			this.period = period;
+		}
+
+		public WheelTask(Callable<V> callable, long deadline) {
+			super(callable);
+			this.deadline = deadline;
+			this.period = 0;
+		}
+
+		@Override
+		public boolean isPeriodic() {
+			return (this.period != 0);
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			if (this == other) {
+				return 0;
+			}
+			long diff = getDelay(TimeUnit.NANOSECONDS) - other.getDelay(TimeUnit.NANOSECONDS);
+			return (diff == 0 ? 0 : ((diff < 0) ? -1 : 1));
+		}
+
+		@Override
+		public void run() {
+			if (!isPeriodic()) {
+				super.run();
+			}
+			else if (runAndReset()) {
+				this.deadline = (this.period > 0 ? this.deadline + this.period : System.nanoTime() - this.period);
+				if (isShutdown()) {
+					cancel(false);
+				}
+				else {
+					try {
+						enqueue(this);
+					}
+					catch (RejectedExecutionException ex) {
+						// Concurrent shutdown: already cancelled
+					}
+				}
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				TimingWheelScheduledExecutor.this.cancelledTasks.add(this);
+			}
+			return cancelled;
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Variant of {@link ThreadPoolTaskScheduler} based on a hierarchical timing wheel
+ * instead of a {@link java.util.concurrent.ScheduledThreadPoolExecutor}, with
+ * constant-time scheduling and cancellation of delayed tasks. This scales to
+ * millions of pending tasks which are typically cancelled before they expire,
+ * such as session timeouts or heartbeats.
+ *
+ * <p>A dedicated ticker thread advances the wheel every
+ * {@link #setTickDuration "tickDuration"}, handing expired tasks to a separate
+ * pool of {@link #setPoolSize "poolSize"} execution threads. Task execution times
+ * are rounded up to the next tick, so the tick duration effectively determines
+ * the timing precision. {@link org.springframework.scheduling.Trigger}-based
+ * tasks are supported as with {@link ThreadPoolTaskScheduler}.
+ *
+ * <p>Cancelled tasks are always removed from the wheel, independent of the
+ * {@link #setRemoveOnCancelPolicy "removeOnCancelPolicy"} setting. On shutdown,
+ * delayed tasks which have not expired yet are cancelled rather than executed.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see #setTickDuration
+ * @see #setPoolSize
+ * @see ThreadPoolTaskScheduler
+ */
+@SuppressWarnings("serial")
+public class TimingWheelTaskScheduler extends ThreadPoolTaskScheduler {
+
+	private long tickDuration = 10;
+
+	@Nullable
+	private TimingWheelScheduledExecutor timingWheelExecutor;
+
+
+	/**
+	 * Set the duration of a tick of the timing wheel, in milliseconds.
+	 * Default is 10.
+	 * <p>Lower values increase the timing precision at the expense of more
+	 * frequent wake-ups of the ticker thread.
+	 */
+	public void setTickDuration(long tickDuration) {
+		Assert.isTrue(tickDuration > 0, "'tickDuration' must be 1 or higher");
+		this.tickDuration = tickDuration;
+	}
+
+	/**
+	 * Return the duration of a tick of the timing wheel, in milliseconds.
+	 */
+	public long getTickDuration() {
+		return this.tickDuration;
+	}
+
+	/**
+	 * Set the number of threads executing expired tasks.
+	 * Default is 1.
+	 * <p><b>This setting can be modified at runtime, for example through JMX.</b>
+	 */
+	@Override
+	public void setPoolSize(int poolSize) {
+		super.setPoolSize(poolSize);
+		if (this.timingWheelExecutor != null) {
+			this.timingWheelExecutor.setPoolSize(poolSize);
+		}
+	}
+
+
+	/**
+	 * Create a new timing wheel based {@link ScheduledExecutorService} instance.
+	 * @param poolSize the specified number of execution threads
+	 * @param threadFactory the ThreadFactory to use for the ticker thread and the execution threads
+	 * @param rejectedExecutionHandler the RejectedExecutionHandler to use for the execution threads
+	 * @return a new ScheduledExecutorService instance
+	 */
+	@Override
+	protected ScheduledExecutorService createExecutor(
+			int poolSize, ThreadFactory threadFactory, RejectedExecutionHandler rejectedExecutionHandler) {
+
+		TimingWheelScheduledExecutor executor = new TimingWheelScheduledExecutor(
+				this.tickDuration, TimeUnit.MILLISECONDS, poolSize, threadFactory, rejectedExecutionHandler);
+		this.timingWheelExecutor = executor;
+		return executor;
+	}
+
+	/**
+	 * Return the current number of execution threads.
+	 */
+	@Override
+	public int getPoolSize() {
+		if (this.timingWheelExecutor == null) {
+			return super.getPoolSize();
+		}
+		return this.timingWheelExecutor.getPoolSize();
+	}
+
+	/**
+	 * Return the number of execution threads which are currently running tasks.
+	 */
+	@Override
+	public int getActiveCount() {
+		if (this.timingWheelExecutor == null) {
+			return super.getActiveCount();
+		}
+		return this.timingWheelExecutor.getActiveCount();
+	}
+
+	/**
+	 * Cancelled tasks are always removed from the timing wheel.
+	 */
+	@Override
+	public boolean isRemoveOnCancelPolicy() {
+		return true;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,10 @@
 
 package org.springframework.cache;
 
+import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -92,6 +95,28 @@ public abstract class AbstractCacheTests<T extends Cache> {
 		assertEquals(value, cache.get(key).get()); // not changed
 	}
 
+	@Test
+	public void testCachePutAllAndGetAll() throws Exception {
+		T cache = getCache();
+
+		String key1 = createRandomKey();
+		String key2 = createRandomKey();
+		String key3 = createRandomKey();
+		assertTrue(cache.getAll(Arrays.asList(key1, key2, key3)).isEmpty());
+
+		Map<Object, Object> entries = new LinkedHashMap<>();
+		entries.put(key1, "george");
+		entries.put(key2, null);
+		cache.putAll(entries);
+
+		Map<Object, Cache.ValueWrapper> result = cache.getAll(Arrays.asList(key1, key2, key3));
+		assertEquals(2, result.size());
+		assertEquals("george", result.get(key1).get());
+		assertNull(result.get(key2).get());
+		assertFalse(result.containsKey(key3));
+		assertEquals("george", cache.get(key1).get());
+	}
+
 	@Test
 	public void testCacheRemove() throws Exception {
 		T cache = getCache();
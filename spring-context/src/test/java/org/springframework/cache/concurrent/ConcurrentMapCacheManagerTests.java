@@ -16,10 +16,15 @@
 
 package org.springframework.cache.concurrent;
 
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.junit.Test;
 
 import org.springframework.cache.Cache;
 import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.CacheStatistics;
 
 import static org.junit.Assert.*;
 
@@ -131,4 +136,66 @@ public class ConcurrentMapCacheManagerTests {
 		assertNull(cache1x.get("key"));
 	}
 
+	@Test
+	public void testMaximumSizeAndTimeToLive() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager("c1");
+		assertTrue(((ConcurrentMapCache) cm.getCache("c1")).getNativeCache() instanceof ConcurrentHashMap);
+
+		cm.setMaximumSize(5);
+		cm.setTimeToLive(Duration.ofMinutes(10));
+		assertEquals(5, cm.getMaximumSize());
+		assertEquals(Duration.ofMinutes(10), cm.getTimeToLive());
+		ConcurrentMapCache cache1 = (ConcurrentMapCache) cm.getCache("c1");
+		assertTrue(cache1.getNativeCache() instanceof EvictingConcurrentMap);
+		EvictingConcurrentMap<?, ?> store = (EvictingConcurrentMap<?, ?>) cache1.getNativeCache();
+		assertEquals(5, store.getMaximumSize());
+		assertEquals(Duration.ofMinutes(10), store.getTimeToLive());
+
+		for (int i = 0; i < 10; i++) {
+			cache1.put(i, "v" + i);
+		}
+		assertEquals(5, store.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testInvalidMaximumSize() {
+		new ConcurrentMapCacheManager().setMaximumSize(-2);
+	}
+
+	@Test
+	public void testRecordStatistics() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager();
+		cm.getCache("c0");
+		assertTrue(cm.getCacheStatistics().isEmpty());
+
+		cm.setRecordStatistics(true);
+		cm.setMaximumSize(1);
+		Cache cache1 = cm.getCache("c1");
+		cache1.put("k1", "v1");
+		cache1.get("k1");
+		cache1.get("k2");
+		cache1.put("k2", "v2");
+
+		Map<String, CacheStatistics> statistics = cm.getCacheStatistics();
+		assertEquals(2, statistics.size());
+		assertEquals(0, statistics.get("c0").getRequestCount());
+		CacheStatistics statistics1 = statistics.get("c1");
+		assertEquals(1, statistics1.getHitCount());
+		assertEquals(1, statistics1.getMissCount());
+		assertEquals(1, statistics1.getEvictionCount());
+	}
+
+	@Test
+	public void testLoadWaitTimeout() {
+		ConcurrentMapCacheManager cm = new ConcurrentMapCacheManager();
+		assertNull(((ConcurrentMapCache) cm.getCache("c1")).getLoadWaitTimeout());
+
+		cm.setLoadWaitTimeout(Duration.ofSeconds(5));
+		assertEquals(Duration.ofSeconds(5), ((ConcurrentMapCache) cm.getCache("c1")).getLoadWaitTimeout());
+		assertEquals(Duration.ofSeconds(5), ((ConcurrentMapCache) cm.getCache("c2")).getLoadWaitTimeout());
+
+		cm.setMaximumSize(10);
+		assertEquals(Duration.ofSeconds(5), ((ConcurrentMapCache) cm.getCache("c1")).getLoadWaitTimeout());
+	}
+
 }
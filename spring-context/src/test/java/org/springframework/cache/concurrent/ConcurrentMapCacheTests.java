@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,13 +19,19 @@ package org.springframework.cache.concurrent;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import org.springframework.cache.AbstractValueAdaptingCacheTests;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.CacheStatistics;
+import org.springframework.cache.support.CacheStatisticsCounter;
 import org.springframework.core.serializer.support.SerializationDelegate;
 
 import static org.junit.Assert.*;
@@ -93,6 +99,92 @@ public class ConcurrentMapCacheTests
 		assertEquals("one", entry.get(0));
 	}
 
+	@Test
+	public void testRetrieve() throws Exception {
+		String key = createRandomKey();
+		assertNull(this.cache.retrieve(key));
+
+		this.cache.put(key, "value");
+		assertEquals("value", this.cache.retrieve(key).get());
+
+		this.cache.put(key, null);
+		CompletableFuture<?> nullValue = this.cache.retrieve(key);
+		assertNotNull(nullValue);
+		assertNull(nullValue.get());
+	}
+
+	@Test
+	public void testRetrieveWithLoader() throws Exception {
+		String key = createRandomKey();
+		AtomicInteger loads = new AtomicInteger();
+
+		CompletableFuture<String> pending = new CompletableFuture<>();
+		CompletableFuture<String> result = this.cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return pending;
+		});
+		assertFalse(result.isDone());
+		assertNull(this.cache.get(key));
+
+		pending.complete("value");
+		assertEquals("value", result.get());
+		assertEquals("value", this.cache.get(key).get());
+		assertEquals("value", this.cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		}).get());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testRetrieveWithConcurrentLoaders() throws Exception {
+		String key = createRandomKey();
+		AtomicInteger loads = new AtomicInteger();
+
+		CompletableFuture<String> pending = new CompletableFuture<>();
+		CompletableFuture<String> first = this.cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return pending;
+		});
+		CompletableFuture<String> second = this.cache.retrieve(key, () -> {
+			loads.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+
+		pending.complete("value");
+		assertEquals("value", first.get());
+		assertEquals("value", second.get());
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	public void testGetCallableWithNestedLoads() {
+		// Nested loads of other keys must not fail, in contrast to ConcurrentHashMap.computeIfAbsent
+		for (int i = 0; i < 64; i++) {
+			String outer = "outer" + i;
+			String value = this.cache.get(outer, () -> "outer-" + this.cache.get("inner" + outer, () -> "inner"));
+			assertEquals("outer-inner", value);
+			assertEquals("inner", this.cache.get("inner" + outer).get());
+		}
+	}
+
+	@Test
+	public void testRetrieveWithFailingLoader() throws Exception {
+		String key = createRandomKey();
+		CompletableFuture<String> failed = new CompletableFuture<>();
+		failed.completeExceptionally(new IllegalStateException("load failure"));
+
+		CompletableFuture<String> result = this.cache.retrieve(key, () -> failed);
+		try {
+			result.get();
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		assertNull(this.cache.get(key));
+	}
+
 	@Test
 	public void testNonSerializableContent() {
 		ConcurrentMapCache serializeCache = createCacheWithStoreByValue();
@@ -115,6 +207,52 @@ public class ConcurrentMapCacheTests
 		serializeCache.get(key);
 	}
 
+	@Test
+	public void testStatistics() throws Exception {
+		assertNull(this.cache.getStatistics());
+		ConcurrentMapCache cache = new ConcurrentMapCache(CACHE_NAME, this.nativeCache, true,
+				null, new CacheStatisticsCounter());
+
+		assertNull(cache.get("k1"));
+		cache.put("k1", "v1");
+		assertEquals("v1", cache.get("k1", String.class));
+		assertEquals("v2", cache.get("k2", () -> "v2"));
+		assertEquals("v2", cache.get("k2", () -> "v2x"));
+		try {
+			cache.get("k3", () -> {
+				throw new IllegalStateException("Expected");
+			});
+			fail("Should have thrown ValueRetrievalException");
+		}
+		catch (Cache.ValueRetrievalException ex) {
+			// expected
+		}
+		assertEquals("v4", cache.retrieve("k4", () -> CompletableFuture.completedFuture("v4")).get());
+		assertEquals(2, cache.getAll(Arrays.asList("k1", "k2", "k5")).size());
+
+		CacheStatistics statistics = cache.getStatistics();
+		assertNotNull(statistics);
+		assertEquals(4, statistics.getHitCount());
+		assertEquals(5, statistics.getMissCount());
+		assertEquals(2, statistics.getLoadSuccessCount());
+		assertEquals(1, statistics.getLoadFailureCount());
+		assertEquals(4.0 / 9, statistics.getHitRate(), 0.001);
+		assertTrue(statistics.getTotalLoadTime() >= 0);
+		assertEquals(0, statistics.getEvictionCount());
+	}
+
+	@Test
+	public void testStatisticsWithEvictingStore() {
+		CacheStatisticsCounter statistics = new CacheStatisticsCounter();
+		ConcurrentMapCache cache = new ConcurrentMapCache(CACHE_NAME,
+				new EvictingConcurrentMap<>(10, null, statistics), true, null, statistics);
+		for (int i = 0; i < 20; i++) {
+			cache.put(i, i);
+		}
+		assertEquals(10, cache.getNativeCache().size());
+		assertEquals(10, cache.getStatistics().getEvictionCount());
+	}
+
 
 	private ConcurrentMapCache createCacheWithStoreByValue() {
 		return new ConcurrentMapCache(CACHE_NAME, this.nativeCache, true,
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.concurrent;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.cache.support.CacheStatisticsCounter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link EvictingConcurrentMap}.
+ *
+ * @author agent (agent@local)
+ */
+public class EvictingConcurrentMapTests {
+
+	@Test
+	public void unboundedWithoutTimeToLive() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(-1, null);
+		for (int i = 0; i < 1000; i++) {
+			map.put("k" + i, "v" + i);
+		}
+		assertEquals(1000, map.size());
+		assertEquals("v500", map.get("k500"));
+		assertNull(map.getTimeToLive());
+		assertEquals(-1, map.getMaximumSize());
+	}
+
+	@Test
+	public void mapOperations() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(10, Duration.ofMinutes(1));
+		assertNull(map.put("k1", "v1"));
+		assertEquals("v1", map.put("k1", "v1x"));
+		assertEquals("v1x", map.putIfAbsent("k1", "v1y"));
+		assertNull(map.putIfAbsent("k2", "v2"));
+		assertTrue(map.containsKey("k2"));
+		assertFalse(map.containsKey("k3"));
+		assertNull(map.replace("k3", "v3"));
+		assertEquals("v2", map.replace("k2", "v2x"));
+		assertFalse(map.replace("k2", "v2", "v2y"));
+		assertTrue(map.replace("k2", "v2x", "v2y"));
+		assertFalse(map.remove("k2", "v2x"));
+		assertTrue(map.remove("k2", "v2y"));
+		assertEquals("v1x", map.remove("k1"));
+		assertTrue(map.isEmpty());
+
+		map.put("a", "1");
+		map.put("b", "2");
+		Map<String, String> expected = new HashMap<>();
+		expected.put("a", "1");
+		expected.put("b", "2");
+		assertEquals(expected, map);
+		assertEquals(expected, new HashMap<>(map));
+		assertEquals("1", map.computeIfAbsent("a", key -> "x"));
+		assertEquals("3", map.computeIfAbsent("c", key -> "3"));
+		map.clear();
+		assertEquals(0, map.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullValueRejected() {
+		new EvictingConcurrentMap<String, String>(10, null).put("k", null);
+	}
+
+	@Test
+	public void maximumSizeEnforced() {
+		CacheStatisticsCounter statistics = new CacheStatisticsCounter();
+		EvictingConcurrentMap<Integer, Integer> map = new EvictingConcurrentMap<>(100, null, statistics);
+		for (int i = 0; i < 1000; i++) {
+			map.put(i, i);
+			assertTrue(map.size() <= 100);
+		}
+		assertEquals(100, map.size());
+		assertEquals(900, statistics.snapshot().getEvictionCount());
+	}
+
+	@Test
+	public void zeroMaximumSize() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(0, null);
+		map.put("k", "v");
+		assertEquals(0, map.size());
+		assertNull(map.get("k"));
+	}
+
+	@Test
+	public void frequentlyUsedEntriesSurviveScan() {
+		EvictingConcurrentMap<Integer, Integer> map = new EvictingConcurrentMap<>(100, null);
+		for (int i = 0; i < 50; i++) {
+			map.put(i, i);
+		}
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {
+				assertEquals(Integer.valueOf(i), map.get(i));
+			}
+			// Scan through one-time keys, twice the capacity
+			for (int i = 0; i < 200; i++) {
+				int key = 1000 + round * 1000 + i;
+				map.put(key, key);
+			}
+		}
+		for (int i = 0; i < 50; i++) {
+			assertTrue("Hot entry " + i + " evicted", map.containsKey(i));
+		}
+		assertEquals(100, map.size());
+	}
+
+	@Test
+	public void leastRecentlyUsedEntryEvictedFirst() {
+		EvictingConcurrentMap<String, String> map = new EvictingConcurrentMap<>(2, null);
+		map.put("a", "1");
+		map.put("b", "2");
+		map.get("a");
+		map.put("c", "3");
+		assertEquals(2, map.size());
+		assertTrue(map.containsKey("a"));
+		assertFalse(map.containsKey("b"));
+		assertTrue(map.containsKey("c"));
+	}
+
+	@Test
+	public void entriesExpire() throws Exception {
+		CacheStatisticsCounter statistics = new CacheStatisticsCounter();
+		EvictingConcurrentMap<String, String> map =
+				new EvictingConcurrentMap<>(-1, Duration.ofMillis(50), statistics);
+		map.put("k1", "v1");
+		map.put("k2", "v2");
+		assertEquals("v1", map.get("k1"));
+		Thread.sleep(100);
+		assertNull(map.get("k1"));
+		assertFalse(map.containsKey("k1"));
+		assertFalse(map.entrySet().iterator().hasNext());
+		assertNull(map.putIfAbsent("k2", "v2x"));
+		assertEquals("v2x", map.get("k2"));
+		assertEquals(2, statistics.snapshot().getEvictionCount());
+	}
+
+	@Test
+	public void cleanUpPurgesExpiredEntries() throws Exception {
+		EvictingConcurrentMap<Integer, Integer> map = new EvictingConcurrentMap<>(-1, Duration.ofMillis(50));
+		for (int i = 0; i < 100; i++) {
+			map.put(i, i);
+		}
+		Thread.sleep(100);
+		assertEquals(100, map.size());
+		map.cleanUp();
+		assertEquals(0, map.size());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidTimeToLive() {
+		new EvictingConcurrentMap<String, String>(10, Duration.ZERO);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void invalidMaximumSize() {
+		new EvictingConcurrentMap<String, String>(-2, null);
+	}
+
+	@Test
+	public void concurrentWritesStayBounded() throws Exception {
+		EvictingConcurrentMap<Integer, Integer> map = new EvictingConcurrentMap<>(500, null);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch latch = new CountDownLatch(threads);
+		for (int t = 0; t < threads; t++) {
+			int offset = t * 100000;
+			executor.execute(() -> {
+				try {
+					for (int i = 0; i < 20000; i++) {
+						map.put(offset + i, i);
+						map.get(offset + i / 2);
+					}
+				}
+				finally {
+					latch.countDown();
+				}
+			});
+		}
+		assertTrue(latch.await(30, TimeUnit.SECONDS));
+		executor.shutdown();
+		map.cleanUp();
+		assertEquals(500, map.size());
+	}
+
+}
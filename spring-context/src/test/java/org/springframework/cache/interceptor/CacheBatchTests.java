@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.CacheTestUtils;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for per-element caching through {@link Cacheable#batch()}.
+ *
+ * @author agent (agent@local)
+ */
+public class CacheBatchTests {
+
+	@Rule
+	public final ExpectedException thrown = ExpectedException.none();
+
+	private ConfigurableApplicationContext context;
+
+	private BatchService service;
+
+	private Cache cache;
+
+
+	@Before
+	public void setUp() {
+		this.context = new AnnotationConfigApplicationContext(Config.class);
+		this.service = this.context.getBean(BatchService.class);
+		this.cache = this.context.getBean(CacheManager.class).getCache("testCache");
+	}
+
+	@After
+	public void closeContext() {
+		if (this.context != null) {
+			this.context.close();
+		}
+	}
+
+
+	@Test
+	public void mapResultLoadsMissingKeysOnly() {
+		this.cache.put(2L, "cached-2");
+
+		Map<Long, String> result = this.service.findAsMap(Arrays.asList(1L, 2L, 3L));
+		assertEquals(Arrays.asList(1L, 2L, 3L), new ArrayList<>(result.keySet()));
+		assertEquals("cached-2", result.get(2L));
+		assertEquals("value-1", result.get(1L));
+		assertEquals(Collections.singletonList(Arrays.asList(1L, 3L)), this.service.getRequestedKeys());
+
+		assertEquals("value-1", this.cache.get(1L).get());
+		assertEquals("value-3", this.cache.get(3L).get());
+	}
+
+	@Test
+	public void fullCacheHitDoesNotInvokeMethod() {
+		this.service.findAsMap(Arrays.asList(1L, 2L));
+		Map<Long, String> result = this.service.findAsMap(Arrays.asList(2L, 1L));
+
+		assertEquals(Arrays.asList(2L, 1L), new ArrayList<>(result.keySet()));
+		assertEquals(1, this.service.getRequestedKeys().size());
+	}
+
+	@Test
+	public void absentMapEntriesAreNotCached() {
+		Map<Long, String> result = this.service.findAsMap(Arrays.asList(1L, -1L));
+
+		assertEquals(1, result.size());
+		assertNull(this.cache.get(-1L));
+		this.service.findAsMap(Collections.singletonList(-1L));
+		assertEquals(2, this.service.getRequestedKeys().size());
+	}
+
+	@Test
+	public void listResultInKeyOrder() {
+		this.cache.put(2L, "cached-2");
+
+		List<String> result = this.service.findAsList(new ArrayList<>(Arrays.asList(3L, 2L, 1L)));
+		assertEquals(Arrays.asList("value-3", "cached-2", "value-1"), result);
+		assertEquals(Collections.singletonList(Arrays.asList(3L, 1L)), this.service.getRequestedKeys());
+	}
+
+	@Test
+	public void setParameterAndUnless() {
+		Map<Long, String> result = this.service.findWithUnless(new LinkedHashSet<>(Arrays.asList(1L, 100L)));
+
+		assertEquals(2, result.size());
+		assertEquals("value-1", this.cache.get(1L).get());
+		assertNull(this.cache.get(100L));
+		assertTrue(this.service.getRequestedKeys().get(0) instanceof Set);
+	}
+
+	@Test
+	public void listResultWithWrongSize() {
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("returned 1 values for 2 keys");
+		this.service.findWithWrongSize(Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void batchWithAnotherOperation() {
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("@Cacheable(batch=true) cannot be combined with other cache operations");
+		this.service.batchWithAnotherOperation(Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void batchWithCustomKey() {
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("@Cacheable(batch=true) does not support a custom key");
+		this.service.batchWithCustomKey(Arrays.asList(1L, 2L));
+	}
+
+	@Test
+	public void batchWithoutCollectionParameter() {
+		this.thrown.expect(IllegalStateException.class);
+		this.thrown.expectMessage("@Cacheable(batch=true) requires a Collection parameter");
+		this.service.batchWithoutCollectionParameter(1L);
+	}
+
+
+	static class BatchService {
+
+		private final List<Collection<Long>> requestedKeys = new ArrayList<>();
+
+		public List<Collection<Long>> getRequestedKeys() {
+			return this.requestedKeys;
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<Long, String> findAsMap(List<Long> ids) {
+			this.requestedKeys.add(ids);
+			Map<Long, String> result = new LinkedHashMap<>();
+			for (Long id : ids) {
+				if (id >= 0) {
+					result.put(id, "value-" + id);
+				}
+			}
+			return result;
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public List<String> findAsList(List<Long> ids) {
+			this.requestedKeys.add(ids);
+			List<String> result = new ArrayList<>();
+			for (Long id : ids) {
+				result.add("value-" + id);
+			}
+			return result;
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true, unless = "#result.length() > 7")
+		public Map<Long, String> findWithUnless(Set<Long> ids) {
+			this.requestedKeys.add(ids);
+			Map<Long, String> result = new LinkedHashMap<>();
+			for (Long id : ids) {
+				result.put(id, "value-" + id);
+			}
+			return result;
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public List<String> findWithWrongSize(List<Long> ids) {
+			return Collections.singletonList("value");
+		}
+
+		@Caching(cacheable = @Cacheable(cacheNames = "testCache", batch = true),
+				evict = @CacheEvict(cacheNames = "anotherTestCache", allEntries = true))
+		public Map<Long, String> batchWithAnotherOperation(List<Long> ids) {
+			return Collections.emptyMap();
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true, key = "#ids")
+		public Map<Long, String> batchWithCustomKey(List<Long> ids) {
+			return Collections.emptyMap();
+		}
+
+		@Cacheable(cacheNames = "testCache", batch = true)
+		public Map<Long, String> batchWithoutCollectionParameter(Long id) {
+			return Collections.emptyMap();
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config extends CachingConfigurerSupport {
+
+		@Override
+		@Bean
+		public CacheManager cacheManager() {
+			return CacheTestUtils.createSimpleCacheManager("testCache", "anotherTestCache");
+		}
+
+		@Bean
+		public BatchService batchService() {
+			return new BatchService();
+		}
+	}
+
+}
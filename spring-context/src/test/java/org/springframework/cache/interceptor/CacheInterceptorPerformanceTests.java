@@ -0,0 +1,174 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.cache.annotation.AnnotationCacheOperationSource;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Measures the per-call overhead of {@link CacheInterceptor} for cache hits,
+ * comparing simple key expressions (evaluated directly against the arguments)
+ * with key expressions which need to be evaluated through SpEL, as well as
+ * the bytes allocated per cache hit.
+ *
+ * @author agent (agent@local)
+ */
+public class CacheInterceptorPerformanceTests {
+
+	private static final int ITERATIONS = 500000;
+
+	private KeyedService proxy;
+
+
+	@Before
+	public void setup() {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		CacheInterceptor interceptor = new CacheInterceptor();
+		interceptor.setCacheOperationSources(new AnnotationCacheOperationSource());
+		interceptor.setCacheManager(new ConcurrentMapCacheManager());
+		interceptor.afterPropertiesSet();
+		interceptor.afterSingletonsInstantiated();
+
+		ProxyFactory proxyFactory = new ProxyFactory(new KeyedService());
+		proxyFactory.addAdvice(interceptor);
+		this.proxy = (KeyedService) proxyFactory.getProxy();
+	}
+
+
+	@Test
+	public void simpleKeyFasterThanSpelKey() {
+		Tenant tenant = new Tenant("acme");
+		StopWatch sw = new StopWatch();
+		for (int round = 0; round < 2; round++) {
+			// First round for warm-up, second round for measuring
+			sw = new StopWatch();
+			sw.start("direct");
+			for (int i = 0; i < ITERATIONS; i++) {
+				this.proxy.plain(tenant, "id");
+			}
+			sw.stop();
+			sw.start("simple key");
+			for (int i = 0; i < ITERATIONS; i++) {
+				assertEquals("acme:id", this.proxy.simpleKey(tenant, "id"));
+			}
+			sw.stop();
+			sw.start("SpEL key");
+			for (int i = 0; i < ITERATIONS; i++) {
+				assertEquals("acme:id", this.proxy.spelKey(tenant, "id"));
+			}
+			sw.stop();
+		}
+		System.out.println(sw.prettyPrint());
+		long simple = sw.getTaskInfo()[1].getTimeMillis();
+		long spel = sw.getTaskInfo()[2].getTimeMillis();
+		assertTrue("Simple key evaluation (" + simple + " ms) not faster than SpEL (" + spel + " ms)",
+				simple < spel);
+	}
+
+
+	@Test
+	public void cacheHitAllocation() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		assumeTrue(threadBean instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		long threadId = Thread.currentThread().getId();
+		Tenant tenant = new Tenant("acme");
+		this.proxy.defaultKey("id");
+		this.proxy.simpleKey(tenant, "id");
+
+		long bytesPerDirectCall = 0;
+		long bytesPerCacheHit = 0;
+		long bytesPerSimpleKeyHit = 0;
+		for (int round = 0; round < 2; round++) {
+			// First round for warm-up, second round for measuring
+			long start = allocationBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < ITERATIONS; i++) {
+				this.proxy.plain(tenant, "id");
+			}
+			long afterDirect = allocationBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < ITERATIONS; i++) {
+				this.proxy.defaultKey("id");
+			}
+			long afterCacheHits = allocationBean.getThreadAllocatedBytes(threadId);
+			for (int i = 0; i < ITERATIONS; i++) {
+				this.proxy.simpleKey(tenant, "id");
+			}
+			long afterSimpleKeyHits = allocationBean.getThreadAllocatedBytes(threadId);
+			bytesPerDirectCall = (afterDirect - start) / ITERATIONS;
+			bytesPerCacheHit = (afterCacheHits - afterDirect) / ITERATIONS;
+			bytesPerSimpleKeyHit = (afterSimpleKeyHits - afterCacheHits) / ITERATIONS;
+		}
+		System.out.println("Allocated bytes per call: proxied method without caching: " + bytesPerDirectCall +
+				", cache hit with default key: " + bytesPerCacheHit +
+				", cache hit with simple key expression: " + bytesPerSimpleKeyHit);
+		assertTrue("Cache hit allocates " + bytesPerCacheHit + " bytes per call",
+				bytesPerCacheHit < 3 * bytesPerDirectCall);
+	}
+
+
+	public static class KeyedService {
+
+		public String plain(Tenant tenant, String id) {
+			return tenant.getName() + ":" + id;
+		}
+
+		@Cacheable("default")
+		public String defaultKey(String id) {
+			return id;
+		}
+
+		@Cacheable(cacheNames = "simple", key = "#tenant.name + ':' + #id")
+		public String simpleKey(Tenant tenant, String id) {
+			return tenant.getName() + ":" + id;
+		}
+
+		@Cacheable(cacheNames = "spel", key = "#tenant.name.concat(':').concat(#id)")
+		public String spelKey(Tenant tenant, String id) {
+			return tenant.getName() + ":" + id;
+		}
+	}
+
+
+	public static class Tenant {
+
+		private final String name;
+
+		public Tenant(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
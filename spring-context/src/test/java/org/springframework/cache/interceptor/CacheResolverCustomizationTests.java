@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.springframework.cache.annotation.CacheConfig;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.AnnotationConfigApplicationContext;
 import org.springframework.context.annotation.Bean;
@@ -54,6 +55,8 @@ public class CacheResolverCustomizationTests {
 
 	private CacheManager anotherCacheManager;
 
+	private ConcurrentMapCacheManager recreatingCacheManager;
+
 	private SimpleService simpleService;
 
 
@@ -62,6 +65,7 @@ public class CacheResolverCustomizationTests {
 		ApplicationContext context = new AnnotationConfigApplicationContext(Config.class);
 		this.cacheManager = context.getBean("cacheManager", CacheManager.class);
 		this.anotherCacheManager = context.getBean("anotherCacheManager", CacheManager.class);
+		this.recreatingCacheManager = context.getBean("recreatingCacheManager", ConcurrentMapCacheManager.class);
 		this.simpleService = context.getBean(SimpleService.class);
 	}
 
@@ -99,6 +103,22 @@ public class CacheResolverCustomizationTests {
 		assertCacheHit(key, value, cache);
 	}
 
+	@Test
+	public void cacheManagerRecreatingCaches() {
+		Object key = new Object();
+		Object value = this.simpleService.getWithRecreatingCacheManager(key);
+		assertCacheHit(key, value, this.recreatingCacheManager.getCache("default"));
+
+		this.recreatingCacheManager.setAllowNullValues(false);
+		Cache cache = this.recreatingCacheManager.getCache("default");
+		assertCacheMiss(key, cache);
+
+		Object value2 = this.simpleService.getWithRecreatingCacheManager(key);
+		assertNotEquals(value, value2);
+		assertCacheHit(key, value2, cache);
+		assertEquals(value2, this.simpleService.getWithRecreatingCacheManager(key));
+	}
+
 	@Test
 	public void runtimeResolution() {
 		Cache defaultCache = this.cacheManager.getCache("default");
@@ -167,6 +187,11 @@ public class CacheResolverCustomizationTests {
 			return CacheTestUtils.createSimpleCacheManager("default", "primary", "secondary");
 		}
 
+		@Bean
+		public ConcurrentMapCacheManager recreatingCacheManager() {
+			return new ConcurrentMapCacheManager("default");
+		}
+
 		@Bean
 		public CacheResolver primaryCacheResolver() {
 			return new NamedCacheResolver(cacheManager(), "primary");
@@ -222,6 +247,11 @@ public class CacheResolverCustomizationTests {
 			return this.counter.getAndIncrement();
 		}
 
+		@Cacheable(cacheManager = "recreatingCacheManager")
+		public Object getWithRecreatingCacheManager(Object key) {
+			return this.counter.getAndIncrement();
+		}
+
 		@Cacheable(cacheResolver = "runtimeCacheResolver", key = "#p0")
 		public Object getWithRuntimeCacheResolution(Object key, String cacheName) {
 			return this.counter.getAndIncrement();
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.context.expression.AnnotatedElementKey;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.spel.SpelEvaluationException;
+import org.springframework.util.ReflectionUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompiledKeyExpression}, verifying that direct evaluation
+ * matches the SpEL evaluation of the same key expressions.
+ *
+ * @author agent (agent@local)
+ */
+public class CompiledKeyExpressionTests {
+
+	private final CacheOperationExpressionEvaluator evaluator = new CacheOperationExpressionEvaluator();
+
+	private final Method findMethod =
+			ReflectionUtils.findMethod(KeyedService.class, "find", String.class, Tenant.class, int.class);
+
+
+	@Test
+	public void parameterReferences() {
+		Tenant tenant = new Tenant("acme", null);
+		assertSameAsSpel("#id", "id1", tenant, 5);
+		assertSameAsSpel("#p0", "id1", tenant, 5);
+		assertSameAsSpel("#a1", "id1", tenant, 5);
+		assertSameAsSpel(" #count ", "id1", tenant, 5);
+		assertSameAsSpel("#id", null, tenant, 5);
+	}
+
+	@Test
+	public void propertyPaths() {
+		Tenant tenant = new Tenant("acme", new Tenant("parent", null));
+		assertSameAsSpel("#tenant.name", "id1", tenant, 5);
+		assertSameAsSpel("#a1.parent.name", "id1", tenant, 5);
+		assertSameAsSpel("#tenant.active", "id1", tenant, 5);
+		assertSameAsSpel("#tenant.parent.parent", "id1", tenant, 5);
+	}
+
+	@Test
+	public void concatenation() {
+		Tenant tenant = new Tenant("acme", null);
+		assertSameAsSpel("#a1.name + #a0", "id1", tenant, 5);
+		assertSameAsSpel("'user:' + #id", "id1", tenant, 5);
+		assertSameAsSpel("'user:' + #id + ':' + #count", "id1", tenant, 5);
+		assertSameAsSpel("#id + #count", "id1", tenant, 5);
+		assertSameAsSpel("#id + #tenant.active", "id1", tenant, 5);
+		assertSameAsSpel("#id + #tenant.parent", "id1", tenant, 5);
+		assertSameAsSpel("'user:' + #id", null, tenant, 5);
+	}
+
+	@Test
+	public void fallbackToSpelAtRuntime() {
+		Tenant tenant = new Tenant("acme", null);
+		assertNotApplicable("#count + #count", "id1", tenant, 5);
+		assertNotApplicable("#id + #tenant", "id1", tenant, 5);
+		assertNotApplicable("#tenant.parent.name", "id1", tenant, 5);
+		assertNotApplicable("#tenant.unknown", "id1", tenant, 5);
+		assertNotApplicable("#tenant.name", "id1", null, 5);
+		assertNotApplicable("#id.bytes.length", "id1", tenant, 5);
+	}
+
+	@Test
+	public void unsupportedExpressions() {
+		assertNotCompiled("#root.args[0]");
+		assertNotCompiled("#this");
+		assertNotCompiled("#tenant?.name");
+		assertNotCompiled("#tenant.getName()");
+		assertNotCompiled("#id + 1");
+		assertNotCompiled("#id.length() > 2 ? #id : 'x'");
+		assertNotCompiled("'it''s' + #id");
+		assertNotCompiled("\"user\" + #id");
+		assertNotCompiled("methodName");
+		assertNotCompiled("#unknown");
+		assertNotCompiled("#p3");
+		assertNotCompiled("#id +");
+		assertNotCompiled("");
+	}
+
+	@Test
+	public void ambiguousVariablesNotCompiled() {
+		Method method = ReflectionUtils.findMethod(KeyedService.class, "withResult", String.class);
+		assertNull(this.evaluator.compileKey("#result", method));
+		assertNull(this.evaluator.compileKey("#p0", method));
+		method = ReflectionUtils.findMethod(KeyedService.class, "varargs", String[].class);
+		assertNull(this.evaluator.compileKey("#p0", method));
+	}
+
+	@Test
+	public void getterCachedPerTargetClass() {
+		CompiledKeyExpression expression = this.evaluator.compileKey("#tenant.name", this.findMethod);
+		assertNotNull(expression);
+		assertEquals("acme", expression.getValue(new Object[] {"id1", new Tenant("acme", null), 5}));
+		assertEquals("special", expression.getValue(new Object[] {"id1", new SpecialTenant("special"), 5}));
+		assertEquals("other", expression.getValue(new Object[] {"id1", new Tenant("other", null), 5}));
+	}
+
+	@Test
+	public void getterExceptionPropagated() {
+		CompiledKeyExpression expression = this.evaluator.compileKey("#tenant.name", this.findMethod);
+		assertNotNull(expression);
+		FailingTenant tenant = new FailingTenant();
+		try {
+			expression.getValue(new Object[] {"id1", tenant, 5});
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("no name", ex.getMessage());
+		}
+		assertEquals(1, tenant.invocations);
+	}
+
+
+	private void assertSameAsSpel(String expression, Object... args) {
+		CompiledKeyExpression compiled = this.evaluator.compileKey(expression, this.findMethod);
+		assertNotNull("Expression not compiled: " + expression, compiled);
+		Object value = compiled.getValue(args);
+		assertNotSame("Expression not applicable: " + expression, CompiledKeyExpression.NOT_APPLICABLE, value);
+		assertEquals(expression, evaluateWithSpel(expression, args), value);
+	}
+
+	private void assertNotApplicable(String expression, Object... args) {
+		CompiledKeyExpression compiled = this.evaluator.compileKey(expression, this.findMethod);
+		assertNotNull("Expression not compiled: " + expression, compiled);
+		assertSame(expression, CompiledKeyExpression.NOT_APPLICABLE, compiled.getValue(args));
+		try {
+			// SpEL itself either provides the value or reports the failure
+			evaluateWithSpel(expression, args);
+		}
+		catch (SpelEvaluationException ex) {
+			// expected for property access on null and for unknown properties
+		}
+	}
+
+	private void assertNotCompiled(String expression) {
+		assertNull(expression, this.evaluator.compileKey(expression, this.findMethod));
+	}
+
+	private Object evaluateWithSpel(String expression, Object[] args) {
+		KeyedService target = new KeyedService();
+		EvaluationContext context = this.evaluator.createEvaluationContext(
+				Collections.singleton(new ConcurrentMapCache("test")), this.findMethod, args, target,
+				KeyedService.class, this.findMethod, CacheOperationExpressionEvaluator.NO_RESULT, null);
+		return this.evaluator.key(expression, new AnnotatedElementKey(this.findMethod, KeyedService.class), context);
+	}
+
+
+	public static class KeyedService {
+
+		public void find(String id, Tenant tenant, int count) {
+		}
+
+		public void withResult(String result) {
+		}
+
+		public void varargs(String... ids) {
+		}
+	}
+
+
+	public static class Tenant {
+
+		private final String name;
+
+		private final Tenant parent;
+
+		public Tenant(String name, Tenant parent) {
+			this.name = name;
+			this.parent = parent;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public Tenant getParent() {
+			return this.parent;
+		}
+
+		public boolean isActive() {
+			return true;
+		}
+	}
+
+
+	public static class SpecialTenant extends Tenant {
+
+		public SpecialTenant(String name) {
+			super(name, null);
+		}
+	}
+
+
+	public static class FailingTenant extends Tenant {
+
+		int invocations;
+
+		public FailingTenant() {
+			super(null, null);
+		}
+
+		@Override
+		public String getName() {
+			this.invocations++;
+			throw new IllegalStateException("no name");
+		}
+	}
+
+}
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.interceptor;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.lang.Nullable;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for caching the resolved values of {@link CompletableFuture}
+ * and Reactor return types.
+ *
+ * @author agent (agent@local)
+ */
+public class ReactiveCachingTests {
+
+	private ConfigurableApplicationContext context;
+
+	private AsyncService service;
+
+	private CacheManager cacheManager;
+
+
+	@Before
+	public void setup() {
+		setup(Config.class);
+	}
+
+	private void setup(Class<?> config) {
+		this.context = new AnnotationConfigApplicationContext(config);
+		this.service = this.context.getBean(AsyncService.class);
+		this.cacheManager = this.context.getBean(CacheManager.class);
+	}
+
+	@After
+	public void closeContext() {
+		this.context.close();
+	}
+
+
+	@Test
+	public void cacheFutureValue() throws Exception {
+		CompletableFuture<Long> first = this.service.findFuture("key");
+		assertEquals(Long.valueOf(0), first.get());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+
+		CompletableFuture<Long> second = this.service.findFuture("key");
+		assertEquals(Long.valueOf(0), second.get());
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheFutureValueAfterCompletion() throws Exception {
+		CompletableFuture<Long> pending = new CompletableFuture<>();
+		this.service.setPending(pending);
+		CompletableFuture<Long> first = this.service.findPendingFuture("key");
+		assertNull(this.cacheManager.getCache("first").get("key"));
+
+		pending.complete(42L);
+		assertEquals(Long.valueOf(42), first.get());
+		assertEquals(Long.valueOf(42), this.cacheManager.getCache("first").get("key").get());
+		assertEquals(Long.valueOf(42), this.service.findPendingFuture("key").get());
+	}
+
+	@Test
+	public void doNotCacheFailedFuture() throws Exception {
+		CompletableFuture<Long> pending = new CompletableFuture<>();
+		this.service.setPending(pending);
+		CompletableFuture<Long> first = this.service.findPendingFuture("key");
+		pending.completeExceptionally(new IllegalStateException());
+
+		assertTrue(first.isCompletedExceptionally());
+		assertNull(this.cacheManager.getCache("first").get("key"));
+	}
+
+	@Test
+	public void cacheFutureValueSynchronized() throws Exception {
+		assertEquals(Long.valueOf(0), this.service.findFutureSync("key").get());
+		assertEquals(Long.valueOf(0), this.service.findFutureSync("key").get());
+		assertEquals(1, this.service.getInvocations());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+	}
+
+	@Test
+	public void cacheMonoValue() {
+		assertEquals(Long.valueOf(0), this.service.findMono("key").block());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+		assertEquals(Long.valueOf(0), this.service.findMono("key").block());
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheMonoValueSynchronized() {
+		assertEquals(Long.valueOf(0), this.service.findMonoSync("key").block());
+		assertEquals(Long.valueOf(0), this.service.findMonoSync("key").block());
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheMonoValueSynchronizedOnSubscription() {
+		Mono<Long> first = this.service.findMonoSync("key");
+		assertEquals(0, this.service.getInvocations());
+		assertNull(this.cacheManager.getCache("first").get("key"));
+
+		assertEquals(Long.valueOf(0), first.block());
+		assertEquals(1, this.service.getInvocations());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+	}
+
+	@Test
+	public void cacheFluxElements() {
+		assertEquals(Arrays.asList(0L, 1L), this.service.findFlux("key").collectList().block());
+		assertEquals(Arrays.asList(0L, 1L), this.cacheManager.getCache("first").get("key").get());
+		assertEquals(Arrays.asList(0L, 1L), this.service.findFlux("key").collectList().block());
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheFluxElementsSynchronized() {
+		assertEquals(Arrays.asList(0L, 1L), this.service.findFluxSync("key").collectList().block());
+		assertEquals(Arrays.asList(0L, 1L), this.service.findFluxSync("key").collectList().block());
+		assertEquals(1, this.service.getInvocations());
+	}
+
+	@Test
+	public void cacheValuesWithoutRetrieveSupport() throws Exception {
+		this.context.close();
+		setup(NonRetrievingConfig.class);
+
+		assertEquals(Long.valueOf(0), this.service.findFuture("key").get());
+		assertEquals(Long.valueOf(0), this.service.findFuture("key").get());
+		assertEquals(Long.valueOf(1), this.service.findMono("other").block());
+		assertEquals(Long.valueOf(1), this.service.findMono("other").block());
+		assertEquals(Arrays.asList(2L, 3L), this.service.findFlux("flux").collectList().block());
+		assertEquals(Arrays.asList(2L, 3L), this.service.findFlux("flux").collectList().block());
+		assertEquals(3, this.service.getInvocations());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+	}
+
+	@Test
+	public void cacheValuesSynchronizedWithoutRetrieveSupport() throws Exception {
+		this.context.close();
+		setup(NonRetrievingConfig.class);
+
+		assertEquals(Long.valueOf(0), this.service.findFutureSync("key").get());
+		assertEquals(Long.valueOf(0), this.service.findFutureSync("key").get());
+		assertEquals(Long.valueOf(1), this.service.findMonoSync("other").block());
+		assertEquals(Long.valueOf(1), this.service.findMonoSync("other").block());
+		assertEquals(Arrays.asList(2L, 3L), this.service.findFluxSync("flux").collectList().block());
+		assertEquals(Arrays.asList(2L, 3L), this.service.findFluxSync("flux").collectList().block());
+		assertEquals(3, this.service.getInvocations());
+	}
+
+	@Test
+	public void putAndEvictAfterResolution() throws Exception {
+		assertEquals(Long.valueOf(0), this.service.update("key").block());
+		assertEquals(Long.valueOf(0), this.cacheManager.getCache("first").get("key").get());
+
+		this.cacheManager.getCache("second").put("key", "value");
+		assertEquals(Long.valueOf(1), this.service.updateAndEvict("key").get());
+		assertNull(this.cacheManager.getCache("second").get("key"));
+	}
+
+
+	static class AsyncService {
+
+		private final AtomicLong invocations = new AtomicLong();
+
+		private CompletableFuture<Long> pending;
+
+		public long getInvocations() {
+			return this.invocations.get();
+		}
+
+		public void setPending(CompletableFuture<Long> pending) {
+			this.pending = pending;
+		}
+
+		@Cacheable("first")
+		public CompletableFuture<Long> findFuture(Object arg) {
+			return CompletableFuture.completedFuture(this.invocations.getAndIncrement());
+		}
+
+		@Cacheable("first")
+		public CompletableFuture<Long> findPendingFuture(Object arg) {
+			this.invocations.incrementAndGet();
+			return this.pending;
+		}
+
+		@Cacheable(cacheNames = "first", sync = true)
+		public CompletableFuture<Long> findFutureSync(Object arg) {
+			return CompletableFuture.completedFuture(this.invocations.getAndIncrement());
+		}
+
+		@Cacheable("first")
+		public Mono<Long> findMono(Object arg) {
+			return Mono.fromSupplier(this.invocations::getAndIncrement);
+		}
+
+		@Cacheable(cacheNames = "first", sync = true)
+		public Mono<Long> findMonoSync(Object arg) {
+			return Mono.fromSupplier(this.invocations::getAndIncrement);
+		}
+
+		@Cacheable("first")
+		public Flux<Long> findFlux(Object arg) {
+			List<Long> values = Arrays.asList(this.invocations.getAndIncrement(), this.invocations.get());
+			return Flux.fromIterable(values);
+		}
+
+		@Cacheable(cacheNames = "first", sync = true)
+		public Flux<Long> findFluxSync(Object arg) {
+			List<Long> values = Arrays.asList(this.invocations.getAndIncrement(), this.invocations.get());
+			return Flux.fromIterable(values);
+		}
+
+		@CachePut("first")
+		public Mono<Long> update(Object arg) {
+			return Mono.fromSupplier(this.invocations::getAndIncrement);
+		}
+
+		@CacheEvict("second")
+		public CompletableFuture<Long> updateAndEvict(Object arg) {
+			return CompletableFuture.completedFuture(this.invocations.getAndIncrement());
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class Config {
+
+		@Bean
+		public CacheManager cacheManager() {
+			return new ConcurrentMapCacheManager("first", "second");
+		}
+
+		@Bean
+		public AsyncService asyncService() {
+			return new AsyncService();
+		}
+	}
+
+
+	@Configuration
+	@EnableCaching
+	static class NonRetrievingConfig {
+
+		@Bean
+		public CacheManager cacheManager() {
+			SimpleCacheManager cacheManager = new SimpleCacheManager();
+			cacheManager.setCaches(Arrays.asList(new NonRetrievingCache("first"), new NonRetrievingCache("second")));
+			return cacheManager;
+		}
+
+		@Bean
+		public AsyncService asyncService() {
+			return new AsyncService();
+		}
+	}
+
+
+	/**
+	 * A {@link Cache} which does not support the {@code retrieve} variants,
+	 * like many third-party cache implementations. Fails on any attempt to
+	 * call them regardless, since callers are expected to check
+	 * {@link Cache#supportsRetrieve()} upfront.
+	 */
+	static class NonRetrievingCache implements Cache {
+
+		private final ConcurrentMapCache delegate;
+
+		NonRetrievingCache(String name) {
+			this.delegate = new ConcurrentMapCache(name);
+		}
+
+		@Override
+		public String getName() {
+			return this.delegate.getName();
+		}
+
+		@Override
+		public Object getNativeCache() {
+			return this.delegate.getNativeCache();
+		}
+
+		@Override
+		@Nullable
+		public ValueWrapper get(Object key) {
+			return this.delegate.get(key);
+		}
+
+		@Override
+		@Nullable
+		public <T> T get(Object key, @Nullable Class<T> type) {
+			return this.delegate.get(key, type);
+		}
+
+		@Override
+		@Nullable
+		public <T> T get(Object key, Callable<T> valueLoader) {
+			return this.delegate.get(key, valueLoader);
+		}
+
+		@Override
+		public CompletableFuture<?> retrieve(Object key) {
+			throw new AssertionError("retrieve called on a cache not supporting it");
+		}
+
+		@Override
+		public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+			throw new AssertionError("retrieve called on a cache not supporting it");
+		}
+
+		@Override
+		public void put(Object key, @Nullable Object value) {
+			this.delegate.put(key, value);
+		}
+
+		@Override
+		@Nullable
+		public ValueWrapper putIfAbsent(Object key, @Nullable Object value) {
+			return this.delegate.putIfAbsent(key, value);
+		}
+
+		@Override
+		public void evict(Object key) {
+			this.delegate.evict(key);
+		}
+
+		@Override
+		public void clear() {
+			this.delegate.clear();
+		}
+	}
+
+}
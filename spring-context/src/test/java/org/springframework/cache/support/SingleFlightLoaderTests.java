@@ -0,0 +1,257 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link SingleFlightLoader}.
+ *
+ * @author agent (agent@local)
+ */
+public class SingleFlightLoaderTests {
+
+	private final SingleFlightLoader loader = new SingleFlightLoader();
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+
+	@After
+	public void shutdown() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void concurrentLoadsAreCoalesced() throws Exception {
+		AtomicInteger invocations = new AtomicInteger();
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first = this.executor.submit(() -> this.loader.load("key", () -> {
+			loading.countDown();
+			release.await();
+			return "value-" + invocations.incrementAndGet();
+		}));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		Future<String> second = this.executor.submit(() -> this.loader.load("key", () -> "value-" + invocations.incrementAndGet()));
+		Future<String> third = this.executor.submit(() -> this.loader.load("key", () -> "value-" + invocations.incrementAndGet()));
+		awaitInFlightWaiters();
+		release.countDown();
+
+		assertEquals("value-1", first.get(5, TimeUnit.SECONDS));
+		assertEquals("value-1", second.get(5, TimeUnit.SECONDS));
+		assertEquals("value-1", third.get(5, TimeUnit.SECONDS));
+		assertEquals(1, invocations.get());
+		assertEquals(0, this.loader.getInFlightCount());
+
+		assertEquals("value-2", this.loader.load("key", () -> "value-" + invocations.incrementAndGet()));
+	}
+
+	@Test
+	public void differentKeysDoNotBlockEachOther() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		Future<String> blocked = this.executor.submit(() -> this.loader.load("key1", () -> {
+			release.await();
+			return "value1";
+		}));
+
+		assertEquals("value2", this.executor.submit(() -> this.loader.load("key2", () -> "value2")).get(5, TimeUnit.SECONDS));
+		release.countDown();
+		assertEquals("value1", blocked.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void failureIsPropagatedToWaiters() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<Object> first = this.executor.submit(() -> this.loader.load("key", () -> {
+			loading.countDown();
+			release.await();
+			throw new IllegalStateException("Expected exception");
+		}));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+		Future<Object> second = this.executor.submit(() -> this.loader.load("key", () -> "value"));
+		awaitInFlightWaiters();
+		release.countDown();
+
+		assertRetrievalFailure(first, IllegalStateException.class);
+		assertRetrievalFailure(second, IllegalStateException.class);
+	}
+
+	@Test
+	public void waitTimeout() throws Exception {
+		this.loader.setWaitTimeout(Duration.ofMillis(50));
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		Future<String> first = this.executor.submit(() -> this.loader.load("key", () -> {
+			loading.countDown();
+			release.await();
+			return "value";
+		}));
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		try {
+			this.loader.load("key", () -> "other");
+			fail("Should have thrown ValueRetrievalException");
+		}
+		catch (Cache.ValueRetrievalException ex) {
+			assertTrue(ex.getCause() instanceof TimeoutException);
+		}
+		release.countDown();
+		assertEquals("value", first.get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void nestedLoadOfOtherKey() {
+		String value = this.loader.load("outer", () -> "outer-" + this.loader.load("inner", () -> "inner"));
+		assertEquals("outer-inner", value);
+	}
+
+	@Test
+	public void recursiveLoadOfSameKey() {
+		try {
+			this.loader.load("key", () -> this.loader.load("key", () -> "value"));
+			fail("Should have thrown ValueRetrievalException");
+		}
+		catch (Cache.ValueRetrievalException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(0, this.loader.getInFlightCount());
+	}
+
+	@Test
+	public void getPopulatesAllCaches() {
+		Cache cache1 = new ConcurrentMapCache("cache1");
+		Cache cache2 = new ConcurrentMapCache("cache2");
+		List<Cache> caches = Arrays.asList(cache1, cache2);
+		AtomicInteger invocations = new AtomicInteger();
+
+		assertEquals("value", this.loader.get(caches, "key", () -> {
+			invocations.incrementAndGet();
+			return "value";
+		}));
+		assertEquals("value", cache1.get("key").get());
+		assertEquals("value", cache2.get("key").get());
+
+		cache1.evict("key");
+		assertEquals("value", this.loader.get(caches, "key", () -> {
+			invocations.incrementAndGet();
+			return "other";
+		}));
+		assertEquals(1, invocations.get());
+	}
+
+	@Test
+	public void getWithNullValue() {
+		Cache cache = new ConcurrentMapCache("cache");
+		assertNull(this.loader.get(cache, "key", () -> null));
+		assertNotNull(cache.get("key"));
+		assertNull(this.loader.get(cache, "key", () -> "value"));
+	}
+
+	@Test
+	public void loadAsyncIsCoalesced() throws Exception {
+		AtomicInteger invocations = new AtomicInteger();
+		CompletableFuture<String> source = new CompletableFuture<>();
+
+		CompletableFuture<String> first = this.loader.loadAsync("key", () -> {
+			invocations.incrementAndGet();
+			return source;
+		});
+		CompletableFuture<String> second = this.loader.loadAsync("key", () -> {
+			invocations.incrementAndGet();
+			return CompletableFuture.completedFuture("other");
+		});
+		assertFalse(first.isDone());
+		assertFalse(second.isDone());
+
+		second.cancel(true);
+		source.complete("value");
+		assertEquals("value", first.get(5, TimeUnit.SECONDS));
+		assertEquals(1, invocations.get());
+		assertEquals(0, this.loader.getInFlightCount());
+	}
+
+	@Test
+	public void loadAsyncWithFailure() throws Exception {
+		CompletableFuture<String> result = this.loader.loadAsync("key", () -> {
+			throw new IllegalStateException("Expected exception");
+		});
+		try {
+			result.get(5, TimeUnit.SECONDS);
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		assertEquals(0, this.loader.getInFlightCount());
+	}
+
+	@Test
+	public void retrievePopulatesAllCaches() throws Exception {
+		Cache cache1 = new ConcurrentMapCache("cache1");
+		Cache cache2 = new ConcurrentMapCache("cache2");
+		List<Cache> caches = Arrays.asList(cache1, cache2);
+
+		CompletableFuture<String> result =
+				this.loader.retrieve(caches, "key", () -> CompletableFuture.completedFuture("value"));
+		assertEquals("value", result.get(5, TimeUnit.SECONDS));
+		assertEquals("value", cache1.get("key").get());
+		assertEquals("value", cache2.get("key").get());
+	}
+
+
+	private void awaitInFlightWaiters() throws InterruptedException {
+		// Give the waiting threads a chance to join the flight in progress
+		Thread.sleep(100);
+	}
+
+	private void assertRetrievalFailure(Future<?> future, Class<? extends Throwable> expectedCause) throws Exception {
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Should have thrown ExecutionException");
+		}
+		catch (ExecutionException ex) {
+			assertTrue(ex.getCause() instanceof Cache.ValueRetrievalException);
+			assertTrue(expectedCause.isInstance(ex.getCause().getCause()));
+		}
+	}
+
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.cache.support;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.Cache.ValueWrapper;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TieredCache} and {@link TieredCacheManager}.
+ *
+ * @author agent (agent@local)
+ */
+public class TieredCacheTests {
+
+	private ConcurrentMapCache localCache;
+
+	private ConcurrentMapCache remoteCache;
+
+	private TieredCache cache;
+
+
+	@Before
+	public void setup() {
+		this.localCache = new ConcurrentMapCache("local");
+		this.remoteCache = new ConcurrentMapCache("remote");
+		this.cache = new TieredCache(this.localCache, this.remoteCache);
+	}
+
+
+	@Test
+	public void remoteValueCopiedToLocalCache() {
+		this.remoteCache.put("k", "v");
+		assertEquals("v", this.cache.get("k").get());
+		assertEquals("v", this.localCache.get("k").get());
+		assertEquals("v", this.cache.get("k", String.class));
+		assertNull(this.cache.get("other"));
+
+		CacheStatistics local = this.cache.getLocalStatistics();
+		assertEquals(1, local.getHitCount());
+		assertEquals(2, local.getMissCount());
+		CacheStatistics remote = this.cache.getRemoteStatistics();
+		assertEquals(1, remote.getHitCount());
+		assertEquals(1, remote.getMissCount());
+	}
+
+	@Test
+	public void localHitAvoidsRemoteLookup() {
+		this.cache.put("k", "v");
+		this.remoteCache.put("k", "changed");
+		assertEquals("v", this.cache.get("k").get());
+		assertEquals(0, this.cache.getRemoteStatistics().getRequestCount());
+
+		this.cache.evictLocal("k");
+		assertEquals("changed", this.cache.get("k").get());
+	}
+
+	@Test
+	public void nullValue() {
+		this.cache.put("k", null);
+		assertNull(this.cache.get("k").get());
+		assertNull(this.remoteCache.get("k").get());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void wrongType() {
+		this.cache.put("k", "v");
+		this.cache.get("k", Integer.class);
+	}
+
+	@Test
+	public void valueLoader() {
+		assertEquals("v", this.cache.get("k", () -> "v"));
+		assertEquals("v", this.remoteCache.get("k").get());
+		assertEquals("v", this.localCache.get("k").get());
+		assertEquals("v", this.cache.get("k", () -> "v2"));
+
+		this.localCache.clear();
+		assertEquals("v", this.cache.get("k", () -> "v3"));
+
+		CacheStatistics remote = this.cache.getRemoteStatistics();
+		assertEquals(1, remote.getHitCount());
+		assertEquals(1, remote.getMissCount());
+		assertEquals(1, remote.getLoadSuccessCount());
+	}
+
+	@Test
+	public void valueLoaderFailure() {
+		try {
+			this.cache.get("k", () -> {
+				throw new IllegalStateException("Expected");
+			});
+			fail("Should have thrown ValueRetrievalException");
+		}
+		catch (Cache.ValueRetrievalException ex) {
+			assertTrue(ex.getCause() instanceof IllegalStateException);
+		}
+		assertNull(this.remoteCache.get("k"));
+		assertNull(this.localCache.get("k"));
+		assertEquals(1, this.cache.getRemoteStatistics().getLoadFailureCount());
+	}
+
+	@Test
+	public void retrieve() throws Exception {
+		assertNull(this.cache.retrieve("k"));
+		assertEquals("v", this.cache.retrieve("k", () -> CompletableFuture.completedFuture("v")).get());
+		assertEquals("v", this.remoteCache.get("k").get());
+		assertEquals("v", this.localCache.get("k").get());
+
+		this.localCache.clear();
+		assertEquals("v", this.cache.retrieve("k").get());
+		assertEquals("v", this.localCache.get("k").get());
+		assertEquals("v", this.cache.retrieve("k", () -> CompletableFuture.completedFuture("v2")).get());
+	}
+
+	@Test
+	public void remoteValueDoesNotOverwriteConcurrentWrite() {
+		this.cache = new TieredCache(this.localCache, concurrentlyChangingRemoteCache(() -> this.cache.put("k", "new")));
+		assertEquals("old", this.cache.get("k").get());
+		ValueWrapper local = this.localCache.get("k");
+		assertTrue(local == null || "new".equals(local.get()));
+		assertEquals("new", this.cache.get("k").get());
+		assertEquals("new", this.localCache.get("k").get());
+	}
+
+	@Test
+	public void remoteValueDiscardedOnConcurrentEviction() {
+		this.cache = new TieredCache(this.localCache, concurrentlyChangingRemoteCache(() -> this.cache.evict("k")));
+		assertEquals("old", this.cache.get("k").get());
+		assertNull(this.localCache.get("k"));
+		assertNull(this.cache.get("k"));
+	}
+
+	@Test
+	public void bulkOperations() {
+		this.localCache.put("a", "1");
+		this.remoteCache.put("b", "2");
+		Map<Object, Cache.ValueWrapper> result = this.cache.getAll(Arrays.asList("a", "b", "c"));
+		assertEquals(Arrays.asList("a", "b"), Arrays.asList(result.keySet().toArray()));
+		assertEquals("2", this.localCache.get("b").get());
+		assertEquals(1, this.cache.getRemoteStatistics().getHitCount());
+		assertEquals(1, this.cache.getRemoteStatistics().getMissCount());
+
+		this.cache.putAll(Collections.singletonMap("d", "4"));
+		assertEquals("4", this.remoteCache.get("d").get());
+		assertEquals("4", this.localCache.get("d").get());
+	}
+
+	@Test
+	public void putIfAbsent() {
+		this.remoteCache.put("k", "v");
+		assertEquals("v", this.cache.putIfAbsent("k", "v2").get());
+		assertEquals("v", this.localCache.get("k").get());
+		assertNull(this.cache.putIfAbsent("k2", "v2"));
+		assertEquals("v2", this.localCache.get("k2").get());
+	}
+
+	@Test
+	public void evictAndClearPropagate() {
+		this.cache.put("k1", "v1");
+		this.cache.put("k2", "v2");
+		this.cache.evict("k1");
+		assertNull(this.localCache.get("k1"));
+		assertNull(this.remoteCache.get("k1"));
+		this.cache.clear();
+		assertNull(this.localCache.get("k2"));
+		assertNull(this.remoteCache.get("k2"));
+
+		this.cache.put("k3", "v3");
+		this.cache.clearLocal();
+		assertNull(this.localCache.get("k3"));
+		assertEquals("v3", this.remoteCache.get("k3").get());
+	}
+
+	@Test
+	public void localTimeToLive() throws Exception {
+		TieredCache cache = new TieredCache(this.localCache, this.remoteCache, Duration.ofMillis(50));
+		cache.put("k", "v");
+		assertEquals("v", cache.get("k").get());
+		assertEquals("v", cache.get("k", () -> "v2"));
+		this.remoteCache.put("k", "changed");
+		assertEquals("v", cache.get("k").get());
+		Thread.sleep(100);
+		assertEquals("changed", cache.get("k").get());
+		assertEquals(1, cache.getLocalStatistics().getEvictionCount());
+		assertEquals(3, cache.getLocalStatistics().getHitCount());
+		assertEquals(1, cache.getRemoteStatistics().getHitCount());
+	}
+
+	@Test
+	public void retrieveFromRemoteCacheWithoutRetrieveSupport() throws Exception {
+		AtomicInteger executions = new AtomicInteger();
+		Executor executor = task -> {
+			executions.incrementAndGet();
+			task.run();
+		};
+		Cache remoteCache = new ConcurrentMapCache("remote") {
+			@Override
+			public CompletableFuture<?> retrieve(Object key) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+				throw new UnsupportedOperationException();
+			}
+			@Override
+			public boolean supportsRetrieve() {
+				return false;
+			}
+		};
+		TieredCache cache = new TieredCache(this.localCache, remoteCache, null, executor);
+		assertTrue(cache.supportsRetrieve());
+
+		assertNull(cache.retrieve("k"));
+		assertEquals("v", cache.retrieve("k", () -> CompletableFuture.completedFuture("v")).get());
+		assertEquals("v", remoteCache.get("k").get());
+		assertEquals("v", this.localCache.get("k").get());
+		assertEquals(2, executions.get());
+		assertEquals("v", cache.retrieve("k").get());
+		assertEquals("v", cache.retrieve("k", () -> CompletableFuture.completedFuture("v2")).get());
+
+		assertEquals(2, cache.getLocalStatistics().getHitCount());
+		assertEquals(2, cache.getLocalStatistics().getMissCount());
+		assertEquals(0, cache.getRemoteStatistics().getHitCount());
+		assertEquals(2, cache.getRemoteStatistics().getMissCount());
+		assertEquals(1, cache.getRemoteStatistics().getLoadSuccessCount());
+	}
+
+	@Test
+	public void cacheManager() {
+		ConcurrentMapCacheManager localCacheManager = new ConcurrentMapCacheManager();
+		ConcurrentMapCacheManager remoteCacheManager = new ConcurrentMapCacheManager("c1", "c2");
+		TieredCacheManager cacheManager = new TieredCacheManager(localCacheManager, remoteCacheManager);
+		cacheManager.setLocalTimeToLive(Duration.ofMinutes(1));
+
+		assertEquals(remoteCacheManager.getCacheNames(), cacheManager.getCacheNames());
+		assertNull(cacheManager.getCache("c3"));
+		Cache cache1 = cacheManager.getCache("c1");
+		assertTrue(cache1 instanceof TieredCache);
+		assertSame(cache1, cacheManager.getCache("c1"));
+		assertSame(remoteCacheManager.getCache("c1"), ((TieredCache) cache1).getRemoteCache());
+		assertSame(localCacheManager.getCache("c1"), ((TieredCache) cache1).getLocalCache());
+
+		cache1.put("k", "v");
+		assertEquals("v", cache1.get("k").get());
+		assertEquals(1, cacheManager.getLocalCacheStatistics().get("c1").getHitCount());
+		assertEquals(0, cacheManager.getRemoteCacheStatistics().get("c1").getRequestCount());
+
+		// Recreated local caches are picked up
+		localCacheManager.setAllowNullValues(false);
+		Cache cache1x = cacheManager.getCache("c1");
+		assertNotSame(cache1, cache1x);
+		assertEquals("v", cache1x.get("k").get());
+	}
+
+	@Test
+	public void cacheManagerWithoutLocalCache() {
+		ConcurrentMapCacheManager remoteCacheManager = new ConcurrentMapCacheManager("c1");
+		TieredCacheManager cacheManager =
+				new TieredCacheManager(new ConcurrentMapCacheManager("c2"), remoteCacheManager);
+		assertSame(remoteCacheManager.getCache("c1"), cacheManager.getCache("c1"));
+		assertTrue(cacheManager.getLocalCacheStatistics().isEmpty());
+	}
+
+
+	/**
+	 * Create a remote cache that returns "old" for the first lookup of "k",
+	 * running the given change of the tiered cache in the middle of that lookup.
+	 */
+	private Cache concurrentlyChangingRemoteCache(Runnable change) {
+		return new ConcurrentMapCache("remote") {
+			private boolean changed;
+			@Override
+			public ValueWrapper get(Object key) {
+				if (this.changed) {
+					return super.get(key);
+				}
+				this.changed = true;
+				change.run();
+				return new SimpleValueWrapper("old");
+			}
+		};
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class EagerThreadPoolTaskExecutorTests extends AbstractSchedulingTaskExecutorTests {
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		EagerThreadPoolTaskExecutor executor = new EagerThreadPoolTaskExecutor();
+		executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		executor.setMaxPoolSize(1);
+		executor.afterPropertiesSet();
+		return executor;
+	}
+
+
+	@Test
+	public void growBeforeQueueing() throws Exception {
+		EagerThreadPoolTaskExecutor executor = new EagerThreadPoolTaskExecutor();
+		executor.setMaxPoolSize(3);
+		executor.setQueueCapacity(1);
+		executor.afterPropertiesSet();
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(4);
+		Runnable task = () -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			done.countDown();
+		};
+		try {
+			for (int i = 0; i < 3; i++) {
+				executor.execute(task);
+			}
+			assertEquals(3, executor.getPoolSize());
+			assertEquals(0, executor.getThreadPoolExecutor().getQueue().size());
+
+			executor.execute(task);
+			assertEquals(3, executor.getPoolSize());
+			assertEquals(1, executor.getThreadPoolExecutor().getQueue().size());
+
+			try {
+				executor.execute(task);
+				fail("Should have thrown TaskRejectedException");
+			}
+			catch (TaskRejectedException ex) {
+				// expected: pool at max size and queue full
+			}
+
+			release.countDown();
+			assertTrue(done.await(1000, TimeUnit.MILLISECONDS));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
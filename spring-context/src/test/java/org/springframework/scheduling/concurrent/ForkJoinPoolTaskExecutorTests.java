@@ -0,0 +1,65 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class ForkJoinPoolTaskExecutorTests extends AbstractSchedulingTaskExecutorTests {
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		executor.setParallelism(1);
+		executor.afterPropertiesSet();
+		return executor;
+	}
+
+
+	@Test
+	public void taskDecorator() throws Exception {
+		AtomicInteger decorations = new AtomicInteger();
+		ForkJoinPoolTaskExecutor executor = new ForkJoinPoolTaskExecutor();
+		executor.setTaskDecorator(runnable -> {
+			decorations.incrementAndGet();
+			return runnable;
+		});
+		executor.afterPropertiesSet();
+		try {
+			Future<String> future = executor.submit(() -> "result");
+			assertEquals("result", future.get(1000, TimeUnit.MILLISECONDS));
+			assertEquals(1, decorations.get());
+			assertTrue(executor.getForkJoinPool().getAsyncMode());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.awaitility.Awaitility;
+import org.junit.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class ThreadPerTaskExecutorTests extends AbstractSchedulingTaskExecutorTests {
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor();
+		executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		executor.setConcurrencyLimit(1);
+		executor.afterPropertiesSet();
+		return executor;
+	}
+
+
+	@Test
+	public void concurrencyLimit() throws Exception {
+		AtomicInteger startedThreads = new AtomicInteger();
+		ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor();
+		executor.setThreadFactory(runnable -> new Thread(() -> {
+			startedThreads.incrementAndGet();
+			runnable.run();
+		}));
+		executor.setConcurrencyLimit(2);
+		executor.afterPropertiesSet();
+		CountDownLatch release = new CountDownLatch(1);
+		Runnable task = () -> {
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		};
+		try {
+			Future<?> future1 = executor.submit(task);
+			Future<?> future2 = executor.submit(task);
+			Future<?> future3 = executor.submit(task);
+			Awaitility.await()
+					.atMost(1, TimeUnit.SECONDS)
+					.pollInterval(10, TimeUnit.MILLISECONDS)
+					.until(() -> executor.getActiveCount() == 2);
+			// The third task is queued without a thread until a permit frees up
+			assertEquals(2, startedThreads.get());
+
+			release.countDown();
+			future1.get(1000, TimeUnit.MILLISECONDS);
+			future2.get(1000, TimeUnit.MILLISECONDS);
+			future3.get(1000, TimeUnit.MILLISECONDS);
+			assertEquals(3, startedThreads.get());
+		}
+		finally {
+			executor.shutdown();
+		}
+		assertTrue(executor.getExecutorService().awaitTermination(1000, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void shutdownNowCancelsQueuedTasks() throws Exception {
+		ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor();
+		executor.setConcurrencyLimit(1);
+		executor.afterPropertiesSet();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		executor.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		Runnable queuedTask = () -> fail("Queued task should not run");
+		executor.execute(queuedTask);
+		assertTrue(started.await(1000, TimeUnit.MILLISECONDS));
+
+		List<Runnable> remainingTasks = executor.getExecutorService().shutdownNow();
+		assertEquals(Collections.singletonList(queuedTask), remainingTasks);
+		assertTrue(executor.getExecutorService().awaitTermination(1000, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void virtualThreads() throws Exception {
+		ThreadPerTaskExecutor executor = new ThreadPerTaskExecutor();
+		executor.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		executor.setVirtualThreads(true);
+		executor.afterPropertiesSet();
+		try {
+			Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+			assertTrue(future.get(1000, TimeUnit.MILLISECONDS).startsWith(THREAD_NAME_PREFIX));
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.scheduling.concurrent;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.awaitility.Awaitility;
+import org.junit.Test;
+
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.scheduling.support.PeriodicTrigger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class TimingWheelTaskSchedulerTests extends AbstractSchedulingTaskExecutorTests {
+
+	private final TimingWheelTaskScheduler scheduler = new TimingWheelTaskScheduler();
+
+
+	@Override
+	protected AsyncListenableTaskExecutor buildExecutor() {
+		scheduler.setThreadNamePrefix(THREAD_NAME_PREFIX);
+		scheduler.setTickDuration(1);
+		scheduler.afterPropertiesSet();
+		return scheduler;
+	}
+
+
+	@Test
+	public void scheduleDelayedTask() throws Exception {
+		long start = System.nanoTime();
+		ScheduledFuture<?> future = scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 50));
+		future.get(1000, TimeUnit.MILLISECONDS);
+		assertTrue(future.isDone());
+		assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 45);
+	}
+
+	@Test
+	public void scheduleDelayedTasksAcrossWheelLevels() throws Exception {
+		List<Long> executionOrder = new ArrayList<>();
+		CountDownLatch latch = new CountDownLatch(3);
+		long now = System.currentTimeMillis();
+		for (long delay : new long[] {600, 20, 300}) {
+			scheduler.schedule(() -> {
+				synchronized (executionOrder) {
+					executionOrder.add(delay);
+				}
+				latch.countDown();
+			}, new Date(now + delay));
+		}
+		assertTrue(latch.await(2000, TimeUnit.MILLISECONDS));
+		assertEquals(20L, executionOrder.get(0).longValue());
+		assertEquals(300L, executionOrder.get(1).longValue());
+		assertEquals(600L, executionOrder.get(2).longValue());
+	}
+
+	@Test
+	public void cancelDelayedTasks() {
+		AtomicInteger runCount = new AtomicInteger();
+		Date startTime = new Date(System.currentTimeMillis() + 500);
+		List<ScheduledFuture<?>> futures = new ArrayList<>();
+		for (int i = 0; i < 10000; i++) {
+			futures.add(scheduler.schedule(runCount::incrementAndGet, startTime));
+		}
+		for (ScheduledFuture<?> future : futures) {
+			assertTrue(future.cancel(false));
+			assertTrue(future.isCancelled());
+		}
+		Awaitility.await()
+				.pollDelay(600, TimeUnit.MILLISECONDS)
+				.atMost(1, TimeUnit.SECONDS)
+				.until(() -> true);
+		assertEquals(0, runCount.get());
+	}
+
+	@Test
+	public void scheduleAtFixedRate() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(latch::countDown, 10);
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		future.cancel(false);
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void scheduleTriggerTask() throws Exception {
+		CountDownLatch latch = new CountDownLatch(3);
+		PeriodicTrigger trigger = new PeriodicTrigger(10);
+		ScheduledFuture<?> future = scheduler.schedule(latch::countDown, trigger);
+		assertNotNull(future);
+		assertTrue(latch.await(1000, TimeUnit.MILLISECONDS));
+		future.cancel(false);
+		assertTrue(future.isCancelled());
+	}
+
+	@Test
+	public void shutdownCancelsDelayedTasks() throws Exception {
+		ScheduledFuture<?> future = scheduler.schedule(() -> {}, new Date(System.currentTimeMillis() + 3600000));
+		scheduler.shutdown();
+		Awaitility.await()
+				.atMost(1, TimeUnit.SECONDS)
+				.pollInterval(10, TimeUnit.MILLISECONDS)
+				.until(future::isCancelled);
+		assertTrue(scheduler.getScheduledExecutor().awaitTermination(1000, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void poolSize() throws Exception {
+		CountDownLatch release = new CountDownLatch(1);
+		scheduler.setPoolSize(4);
+		for (int i = 0; i < 4; i++) {
+			scheduler.execute(() -> {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			});
+		}
+		assertEquals(4, scheduler.getPoolSize());
+		release.countDown();
+		assertTrue(scheduler.isRemoveOnCancelPolicy());
+	}
+
+}
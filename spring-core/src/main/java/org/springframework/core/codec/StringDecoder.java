@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,19 +21,21 @@ import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.stream.Collectors;
 
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.LimitedDataBufferList;
 import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.lang.Nullable;
@@ -47,6 +49,9 @@ import org.springframework.util.MimeTypeUtils;
  * This is to make sure that multibyte characters are decoded properly, and do not cross buffer
  * boundaries. The default delimiters ({@code \n}, {@code \r\n})can be customized.
  *
+ * <p>Data that is not yet terminated by a delimiter is buffered, up to the
+ * {@link #setMaxInMemorySize maxInMemorySize} limit per line.
+ *
  * <p>Partially inspired by Netty's {@code DelimiterBasedFrameDecoder}.
  *
  * @author Sebastien Deleuze
@@ -58,8 +63,6 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
-	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
-
 	/** The default charset to use, i.e. "UTF-8". */
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -71,7 +74,7 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 	private final boolean stripDelimiter;
 
-	private final ConcurrentMap<Charset, List<byte[]>> delimitersCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Charset, byte[][]> delimitersCache = new ConcurrentHashMap<>();
 
 
 	private StringDecoder(List<String> delimiters, boolean stripDelimiter, MimeType... mimeTypes) {
@@ -91,112 +94,109 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	public Flux<String> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		List<byte[]> delimiterBytes = getDelimiterBytes(mimeType);
-
-		Flux<DataBuffer> inputFlux = Flux.from(inputStream)
-				.flatMapIterable(dataBuffer -> splitOnDelimiter(dataBuffer, delimiterBytes))
-				.bufferUntil(StringDecoder::isEndFrame)
-				.map(StringDecoder::joinUntilEndFrame)
-				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+		byte[][] delimiterBytes = getDelimiterBytes(mimeType);
+
+		Flux<DataBuffer> inputFlux = Flux.defer(() -> {
+			DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(delimiterBytes);
+			LimitedDataBufferList chunks = new LimitedDataBufferList(getMaxInMemorySize());
+			return Flux.from(inputStream)
+					.flatMapIterable(buffer -> splitOnDelimiter(buffer, matcher, chunks))
+					.concatWith(Mono.defer(() -> (chunks.isEmpty() ?
+							Mono.<DataBuffer>empty() : Mono.just(joinAndClear(chunks)))))
+					.doFinally(signalType -> chunks.releaseAndClear())
+					.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+		});
 
 		return super.decode(inputFlux, elementType, mimeType, hints);
 	}
 
-	private List<byte[]> getDelimiterBytes(@Nullable MimeType mimeType) {
+	private byte[][] getDelimiterBytes(@Nullable MimeType mimeType) {
 		return this.delimitersCache.computeIfAbsent(getCharset(mimeType),
 				charset -> this.delimiters.stream()
 						.map(s -> s.getBytes(charset))
-						.collect(Collectors.toList()));
+						.toArray(byte[][]::new));
 	}
 
 	/**
 	 * Split the given data buffer on delimiter boundaries.
-	 * The returned Flux contains an {@link #END_FRAME} buffer after each delimiter.
+	 * <p>The given matcher keeps the state of partially matched delimiters
+	 * across buffers, so every byte is scanned exactly once. Bytes that are
+	 * not yet followed by a delimiter are kept in the given list of chunks,
+	 * which is subject to the {@link #getMaxInMemorySize()} limit, until a
+	 * subsequent delimiter completes the frame.
+	 * @return the complete frames found in the given buffer, if any
 	 */
-	private List<DataBuffer> splitOnDelimiter(DataBuffer dataBuffer, List<byte[]> delimiterBytes) {
-		List<DataBuffer> frames = new ArrayList<>();
-		do {
-			int length = Integer.MAX_VALUE;
-			byte[] matchingDelimiter = null;
-			for (byte[] delimiter : delimiterBytes) {
-				int index = indexOf(dataBuffer, delimiter);
-				if (index >= 0 && index < length) {
-					length = index;
-					matchingDelimiter = delimiter;
-				}
-			}
-			DataBuffer frame;
-			int readPosition = dataBuffer.readPosition();
-			if (matchingDelimiter != null) {
-				if (this.stripDelimiter) {
-					frame = dataBuffer.slice(readPosition, length);
-				}
-				else {
-					frame = dataBuffer.slice(readPosition, length + matchingDelimiter.length);
-				}
-				dataBuffer.readPosition(readPosition + length + matchingDelimiter.length);
-
-				frames.add(DataBufferUtils.retain(frame));
-				frames.add(END_FRAME);
-			}
-			else {
-				frame = dataBuffer.slice(readPosition, dataBuffer.readableByteCount());
-				dataBuffer.readPosition(readPosition + dataBuffer.readableByteCount());
-				frames.add(DataBufferUtils.retain(frame));
-			}
-		}
-		while (dataBuffer.readableByteCount() > 0);
-
-		DataBufferUtils.release(dataBuffer);
-		return frames;
-	}
-
-	/**
-	 * Find the given delimiter in the given data buffer.
-	 * @return the index of the delimiter, or -1 if not found.
-	 */
-	private static int indexOf(DataBuffer dataBuffer, byte[] delimiter) {
-		for (int i = dataBuffer.readPosition(); i < dataBuffer.writePosition(); i++) {
-			int dataBufferPos = i;
-			int delimiterPos = 0;
-			while (delimiterPos < delimiter.length) {
-				if (dataBuffer.getByte(dataBufferPos) != delimiter[delimiterPos]) {
+	private List<DataBuffer> splitOnDelimiter(
+			DataBuffer dataBuffer, DataBufferUtils.Matcher matcher, LimitedDataBufferList chunks) {
+
+		List<DataBuffer> frames = null;
+		try {
+			do {
+				int endIndex = matcher.match(dataBuffer);
+				int readPosition = dataBuffer.readPosition();
+				if (endIndex == -1) {
+					int length = dataBuffer.readableByteCount();
+					addChunk(chunks, DataBufferUtils.retain(dataBuffer.slice(readPosition, length)));
 					break;
 				}
+				int length = endIndex - readPosition + 1;
+				DataBuffer frame;
+				if (chunks.isEmpty()) {
+					// The delimiter is entirely contained in this buffer
+					if (this.stripDelimiter) {
+						length -= matcher.delimiterLength();
+					}
+					addChunk(chunks, DataBufferUtils.retain(dataBuffer.slice(readPosition, length)));
+					frame = joinAndClear(chunks);
+				}
 				else {
-					dataBufferPos++;
-					if (dataBufferPos == dataBuffer.writePosition() &&
-							delimiterPos != delimiter.length - 1) {
-						return -1;
+					// The delimiter may start in one of the buffered chunks
+					addChunk(chunks, DataBufferUtils.retain(dataBuffer.slice(readPosition, length)));
+					frame = joinAndClear(chunks);
+					if (this.stripDelimiter) {
+						frame.writePosition(frame.writePosition() - matcher.delimiterLength());
 					}
 				}
-				delimiterPos++;
+				frames = (frames != null ? frames : new ArrayList<>());
+				frames.add(frame);
+				dataBuffer.readPosition(endIndex + 1);
 			}
-			if (delimiterPos == delimiter.length) {
-				return i - dataBuffer.readPosition();
+			while (dataBuffer.readableByteCount() > 0);
+		}
+		catch (DataBufferLimitException ex) {
+			if (frames != null) {
+				frames.forEach(DataBufferUtils::release);
 			}
+			throw ex;
+		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
 		}
-		return -1;
+		return (frames != null ? frames : Collections.emptyList());
 	}
 
 	/**
-	 * Check whether the given buffer is {@link #END_FRAME}.
+	 * Add the given chunk, releasing it (along with all previously buffered
+	 * chunks) if the max in-memory size is exceeded.
 	 */
-	private static boolean isEndFrame(DataBuffer dataBuffer) {
-		return dataBuffer == END_FRAME;
+	private static void addChunk(LimitedDataBufferList chunks, DataBuffer chunk) {
+		try {
+			chunks.add(chunk);
+		}
+		catch (DataBufferLimitException ex) {
+			DataBufferUtils.release(chunk);
+			chunks.releaseAndClear();
+			throw ex;
+		}
 	}
 
 	/**
-	 * Join the given list of buffers into a single buffer.
+	 * Join the buffered chunks into a single buffer, and clear the list.
 	 */
-	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
-		if (!dataBuffers.isEmpty()) {
-			int lastIdx = dataBuffers.size() - 1;
-			if (isEndFrame(dataBuffers.get(lastIdx))) {
-				dataBuffers.remove(lastIdx);
-			}
-		}
-		return dataBuffers.get(0).factory().join(dataBuffers);
+	private static DataBuffer joinAndClear(LimitedDataBufferList chunks) {
+		DataBuffer result = (chunks.size() == 1 ? chunks.get(0) : chunks.get(0).factory().join(chunks));
+		chunks.clear();
+		return result;
 	}
 
 	@Override
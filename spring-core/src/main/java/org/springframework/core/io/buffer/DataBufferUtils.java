@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,7 @@ import java.nio.channels.CompletionHandler;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.concurrent.Callable;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
@@ -432,14 +433,115 @@ public abstract class DataBufferUtils {
 	 * @since 5.0.3
 	 */
 	public static Mono<DataBuffer> join(Publisher<DataBuffer> dataBuffers) {
+		return join(dataBuffers, -1);
+	}
+
+	/**
+	 * Variant of {@link #join(Publisher)} that behaves the same way up until
+	 * the specified max number of bytes to buffer. Once the limit is exceeded,
+	 * {@link DataBufferLimitException} is raised.
+	 * <p>All accumulated buffers are {@linkplain #release(DataBuffer) released}
+	 * when the limit is exceeded, as well as on error or cancel signals.
+	 * @param dataBuffers the data buffers that are to be composed
+	 * @param maxByteCount the max number of bytes to buffer, or -1 for unlimited
+	 * @return a buffer with the aggregated content, or an error signal with
+	 * {@link DataBufferLimitException} if {@code maxByteCount} is exceeded
+	 * @since 5.2
+	 */
+	public static Mono<DataBuffer> join(Publisher<DataBuffer> dataBuffers, int maxByteCount) {
 		Assert.notNull(dataBuffers, "'dataBuffers' must not be null");
 
 		return Flux.from(dataBuffers)
-				.collectList()
+				.collect(() -> new LimitedDataBufferList(maxByteCount), DataBufferUtils::addToLimitedList)
 				.filter(list -> !list.isEmpty())
 				.map(list -> list.get(0).factory().join(list))
+				.doOnDiscard(LimitedDataBufferList.class, LimitedDataBufferList::releaseAndClear)
 				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+	}
+
+	private static void addToLimitedList(LimitedDataBufferList list, DataBuffer dataBuffer) {
+		try {
+			list.add(dataBuffer);
+		}
+		catch (DataBufferLimitException ex) {
+			release(dataBuffer);
+			list.releaseAndClear();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Return a {@link Matcher} for the given delimiter.
+	 * The matcher can be used to find the delimiters in a stream of data buffers.
+	 * @param delimiter the delimiter bytes to find
+	 * @return the matcher
+	 * @since 5.2
+	 */
+	public static Matcher matcher(byte[] delimiter) {
+		Assert.isTrue(delimiter.length > 0, "Delimiter must not be empty");
+		return new KnuthMorrisPrattMatcher(delimiter);
+	}
+
+	/**
+	 * Return a {@link Matcher} for the given delimiters.
+	 * The matcher can be used to find the delimiters in a stream of data buffers.
+	 * When several delimiters end at the same position, the longest one wins,
+	 * e.g. {@code \r\n} rather than {@code \n}.
+	 * @param delimiters the delimiters bytes to find
+	 * @return the matcher
+	 * @since 5.2
+	 */
+	public static Matcher matcher(byte[]... delimiters) {
+		Assert.isTrue(delimiters.length > 0, "Delimiters must not be empty");
+		return (delimiters.length == 1 ? matcher(delimiters[0]) : new CompositeMatcher(delimiters));
+	}
+
+
+	/**
+	 * Defines an object that matches a data buffer against a delimiter.
+	 * A matcher is stateful: a partial match at the end of one buffer is
+	 * continued with the next buffer passed in, so delimiters that span
+	 * buffer boundaries are found without rescanning or copying bytes.
+	 * Matchers are not thread-safe and should be used for one stream at a time.
+	 * @since 5.2
+	 * @see #matcher(byte[])
+	 * @see #matcher(byte[]...)
+	 */
+	public interface Matcher {
+
+		/**
+		 * Find the first matching delimiter and return the index of the last
+		 * byte of the delimiter, or {@code -1} if not found.
+		 * <p>The search starts at the {@linkplain DataBuffer#readPosition()
+		 * read position} of the given buffer, which is not modified.
+		 */
+		int match(DataBuffer dataBuffer);
+
+		/**
+		 * Match the given byte, taking into account any previously matched bytes.
+		 * @return {@code true} if the given byte completes a delimiter;
+		 * {@code false} otherwise
+		 */
+		boolean match(byte b);
+
+		/**
+		 * Return the delimiter from the last match.
+		 */
+		byte[] delimiter();
+
+		/**
+		 * Return the length of the delimiter from the last match.
+		 * <p>The default implementation returns the length of
+		 * {@link #delimiter()}; built-in matchers avoid copying the delimiter.
+		 */
+		default int delimiterLength() {
+			return delimiter().length;
+		}
 
+		/**
+		 * Reset the state of this matcher.
+		 */
+		void reset();
 	}
 
 
@@ -676,4 +778,142 @@ public abstract class DataBufferUtils {
 		}
 	}
 
+
+	/**
+	 * Base class for a {@link Matcher} that matches one byte at a time.
+	 */
+	private abstract static class AbstractMatcher implements Matcher {
+
+		@Override
+		public int match(DataBuffer dataBuffer) {
+			for (int pos = dataBuffer.readPosition(); pos < dataBuffer.writePosition(); pos++) {
+				if (match(dataBuffer.getByte(pos))) {
+					return pos;
+				}
+			}
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Implementation of {@link Matcher} that uses the Knuth-Morris-Pratt algorithm.
+	 * @see <a href="https://www.nayuki.io/page/knuth-morris-pratt-string-matching">Knuth-Morris-Pratt string matching</a>
+	 */
+	private static class KnuthMorrisPrattMatcher extends AbstractMatcher {
+
+		private final byte[] delimiter;
+
+		private final int[] table;
+
+		private int matches = 0;
+
+		public KnuthMorrisPrattMatcher(byte[] delimiter) {
+			this.delimiter = Arrays.copyOf(delimiter, delimiter.length);
+			this.table = longestSuffixPrefixTable(delimiter);
+		}
+
+		private static int[] longestSuffixPrefixTable(byte[] delimiter) {
+			int[] result = new int[delimiter.length];
+			result[0] = 0;
+			for (int i = 1; i < delimiter.length; i++) {
+				int j = result[i - 1];
+				while (j > 0 && delimiter[i] != delimiter[j]) {
+					j = result[j - 1];
+				}
+				if (delimiter[i] == delimiter[j]) {
+					j++;
+				}
+				result[i] = j;
+			}
+			return result;
+		}
+
+		@Override
+		public boolean match(byte b) {
+			while (this.matches > 0 && b != this.delimiter[this.matches]) {
+				this.matches = this.table[this.matches - 1];
+			}
+			if (b == this.delimiter[this.matches]) {
+				this.matches++;
+				if (this.matches == this.delimiter.length) {
+					reset();
+					return true;
+				}
+			}
+			return false;
+		}
+
+		@Override
+		public byte[] delimiter() {
+			return Arrays.copyOf(this.delimiter, this.delimiter.length);
+		}
+
+		@Override
+		public int delimiterLength() {
+			return this.delimiter.length;
+		}
+
+		@Override
+		public void reset() {
+			this.matches = 0;
+		}
+	}
+
+
+	/**
+	 * Implementation of {@link Matcher} that wraps several other matchers,
+	 * preferring the longest delimiter when several match at the same byte.
+	 */
+	private static class CompositeMatcher extends AbstractMatcher {
+
+		private final KnuthMorrisPrattMatcher[] matchers;
+
+		@Nullable
+		private KnuthMorrisPrattMatcher lastMatch;
+
+		CompositeMatcher(byte[][] delimiters) {
+			this.matchers = new KnuthMorrisPrattMatcher[delimiters.length];
+			for (int i = 0; i < delimiters.length; i++) {
+				Assert.isTrue(delimiters[i].length > 0, "Delimiter must not be empty");
+				this.matchers[i] = new KnuthMorrisPrattMatcher(delimiters[i]);
+			}
+		}
+
+		@Override
+		public boolean match(byte b) {
+			KnuthMorrisPrattMatcher match = null;
+			for (KnuthMorrisPrattMatcher matcher : this.matchers) {
+				if (matcher.match(b) && (match == null || matcher.delimiterLength() > match.delimiterLength())) {
+					match = matcher;
+				}
+			}
+			if (match != null) {
+				reset();
+				this.lastMatch = match;
+				return true;
+			}
+			return false;
+		}
+
+		@Override
+		public byte[] delimiter() {
+			Assert.state(this.lastMatch != null, "No matched delimiter");
+			return this.lastMatch.delimiter();
+		}
+
+		@Override
+		public int delimiterLength() {
+			Assert.state(this.lastMatch != null, "No matched delimiter");
+			return this.lastMatch.delimiterLength();
+		}
+
+		@Override
+		public void reset() {
+			for (KnuthMorrisPrattMatcher matcher : this.matchers) {
+				matcher.reset();
+			}
+		}
+	}
+
 }
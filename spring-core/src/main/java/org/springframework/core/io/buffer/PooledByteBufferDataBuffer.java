@@ -0,0 +1,259 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.function.IntPredicate;
+
+import org.springframework.util.Assert;
+
+/**
+ * Implementation of the {@code PooledDataBuffer} interface that decorates a
+ * {@link DefaultDataBuffer} with a reference count shared with its slices.
+ * Constructed with {@link PooledDataBufferFactory}.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+final class PooledByteBufferDataBuffer implements PooledDataBuffer {
+
+	private final DefaultDataBuffer delegate;
+
+	private final PooledDataBufferFactory dataBufferFactory;
+
+	private final PooledDataBufferFactory.Allocation allocation;
+
+
+	PooledByteBufferDataBuffer(DefaultDataBuffer delegate, PooledDataBufferFactory dataBufferFactory,
+			PooledDataBufferFactory.Allocation allocation) {
+
+		Assert.notNull(delegate, "DefaultDataBuffer must not be null");
+		Assert.notNull(dataBufferFactory, "PooledDataBufferFactory must not be null");
+		this.delegate = delegate;
+		this.dataBufferFactory = dataBufferFactory;
+		this.allocation = allocation;
+	}
+
+
+	@Override
+	public PooledDataBufferFactory factory() {
+		return this.dataBufferFactory;
+	}
+
+	@Override
+	public int indexOf(IntPredicate predicate, int fromIndex) {
+		return this.delegate.indexOf(predicate, fromIndex);
+	}
+
+	@Override
+	public int lastIndexOf(IntPredicate predicate, int fromIndex) {
+		return this.delegate.lastIndexOf(predicate, fromIndex);
+	}
+
+	@Override
+	public int readableByteCount() {
+		return this.delegate.readableByteCount();
+	}
+
+	@Override
+	public int writableByteCount() {
+		return this.delegate.writableByteCount();
+	}
+
+	@Override
+	public int capacity() {
+		return this.delegate.capacity();
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer capacity(int capacity) {
+		this.delegate.capacity(capacity);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer ensureCapacity(int capacity) {
+		this.delegate.ensureCapacity(capacity);
+		return this;
+	}
+
+	@Override
+	public int readPosition() {
+		return this.delegate.readPosition();
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer readPosition(int readPosition) {
+		this.delegate.readPosition(readPosition);
+		return this;
+	}
+
+	@Override
+	public int writePosition() {
+		return this.delegate.writePosition();
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer writePosition(int writePosition) {
+		this.delegate.writePosition(writePosition);
+		return this;
+	}
+
+	@Override
+	public byte getByte(int index) {
+		return this.delegate.getByte(index);
+	}
+
+	@Override
+	public byte read() {
+		return this.delegate.read();
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer read(byte[] destination) {
+		this.delegate.read(destination);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer read(byte[] destination, int offset, int length) {
+		this.delegate.read(destination, offset, length);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(byte b) {
+		this.delegate.write(b);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(byte[] source) {
+		this.delegate.write(source);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(byte[] source, int offset, int length) {
+		this.delegate.write(source, offset, length);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(DataBuffer... buffers) {
+		this.delegate.write(buffers);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(ByteBuffer... buffers) {
+		this.delegate.write(buffers);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer write(CharSequence charSequence, Charset charset) {
+		this.delegate.write(charSequence, charset);
+		return this;
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer slice(int index, int length) {
+		return new PooledByteBufferDataBuffer(this.delegate.slice(index, length),
+				this.dataBufferFactory, this.allocation);
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer() {
+		return this.delegate.asByteBuffer();
+	}
+
+	@Override
+	public ByteBuffer asByteBuffer(int index, int length) {
+		return this.delegate.asByteBuffer(index, length);
+	}
+
+	@Override
+	public InputStream asInputStream() {
+		return this.delegate.asInputStream();
+	}
+
+	@Override
+	public InputStream asInputStream(boolean releaseOnClose) {
+		if (!releaseOnClose) {
+			return this.delegate.asInputStream();
+		}
+		return new FilterInputStream(this.delegate.asInputStream()) {
+			private boolean closed;
+			@Override
+			public void close() throws IOException {
+				if (!this.closed) {
+					this.closed = true;
+					release();
+				}
+			}
+		};
+	}
+
+	@Override
+	public OutputStream asOutputStream() {
+		return this.delegate.asOutputStream();
+	}
+
+	@Override
+	public boolean isAllocated() {
+		return this.allocation.isAllocated();
+	}
+
+	@Override
+	public PooledByteBufferDataBuffer retain() {
+		this.allocation.retain();
+		return this;
+	}
+
+	@Override
+	public boolean release() {
+		if (this.allocation.release()) {
+			this.dataBufferFactory.deallocate(this.allocation);
+			return true;
+		}
+		return false;
+	}
+
+
+	@Override
+	public boolean equals(Object other) {
+		return (this == other || (other instanceof PooledByteBufferDataBuffer &&
+				this.delegate.equals(((PooledByteBufferDataBuffer) other).delegate)));
+	}
+
+	@Override
+	public int hashCode() {
+		return this.delegate.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return this.delegate.toString();
+	}
+
+}
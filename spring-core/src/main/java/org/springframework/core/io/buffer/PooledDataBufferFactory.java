@@ -0,0 +1,382 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link DataBufferFactory} that hands out reference counted
+ * {@link PooledDataBuffer PooledDataBuffers} and recycles their memory once
+ * released. This is an alternative to {@link NettyDataBufferFactory} for
+ * runtimes without Netty, e.g. the Servlet and Undertow server adapters.
+ *
+ * <p>Memory is pooled in size classes that are powers of two, starting at
+ * {@link DefaultDataBufferFactory#DEFAULT_INITIAL_CAPACITY} up to the maximum
+ * pooled capacity. Larger requests are allocated without pooling, as are
+ * buffers that grow beyond their initial capacity. Slices share the reference
+ * count of the buffer they were created from, so memory is only reused after
+ * the last {@link DataBufferUtils#release release}. As with Netty, buffers
+ * must therefore not be accessed once released.
+ *
+ * <p>When {@link #setLeakDetection leak detection} is enabled, the stack
+ * trace of every allocation is recorded, and buffers that are garbage
+ * collected without having been released are logged as errors.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class PooledDataBufferFactory implements DataBufferFactory {
+
+	/**
+	 * The default maximum capacity of pooled buffers.
+	 */
+	public static final int DEFAULT_MAX_POOLED_CAPACITY = 64 * 1024;
+
+	/**
+	 * The default maximum number of idle buffers kept per size class.
+	 */
+	public static final int DEFAULT_MAX_POOL_SIZE = 64;
+
+	private static final int MIN_CAPACITY_SHIFT = 8;
+
+	private static final Log logger = LogFactory.getLog(PooledDataBufferFactory.class);
+
+
+	private final boolean preferDirect;
+
+	private final int defaultInitialCapacity;
+
+	private final int maxPooledCapacity;
+
+	private final int maxPoolSize;
+
+	private final SizeClass[] sizeClasses;
+
+	private final DefaultDataBufferFactory delegateFactory;
+
+	private final AtomicInteger allocatedCount = new AtomicInteger();
+
+	private final ReferenceQueue<Allocation> leakQueue = new ReferenceQueue<>();
+
+	private final Set<LeakTracker> leakTrackers = ConcurrentHashMap.newKeySet();
+
+	private volatile boolean leakDetection;
+
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory} with default settings.
+	 */
+	public PooledDataBufferFactory() {
+		this(false);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}, indicating whether direct
+	 * buffers should be pooled.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 */
+	public PooledDataBufferFactory(boolean preferDirect) {
+		this(preferDirect, DefaultDataBufferFactory.DEFAULT_INITIAL_CAPACITY,
+				DEFAULT_MAX_POOLED_CAPACITY, DEFAULT_MAX_POOL_SIZE);
+	}
+
+	/**
+	 * Create a new {@code PooledDataBufferFactory}.
+	 * @param preferDirect {@code true} if direct buffers are to be preferred;
+	 * {@code false} otherwise
+	 * @param defaultInitialCapacity the capacity to use for {@link #allocateBuffer()}
+	 * @param maxPooledCapacity the largest capacity for which memory is pooled
+	 * @param maxPoolSize the maximum number of idle buffers kept per size class
+	 */
+	public PooledDataBufferFactory(boolean preferDirect, int defaultInitialCapacity,
+			int maxPooledCapacity, int maxPoolSize) {
+
+		Assert.isTrue(defaultInitialCapacity > 0, "'defaultInitialCapacity' should be larger than 0");
+		Assert.isTrue(maxPooledCapacity > 0, "'maxPooledCapacity' should be larger than 0");
+		Assert.isTrue(maxPoolSize >= 0, "'maxPoolSize' should not be negative");
+		this.preferDirect = preferDirect;
+		this.defaultInitialCapacity = defaultInitialCapacity;
+		this.maxPooledCapacity = maxPooledCapacity;
+		this.maxPoolSize = maxPoolSize;
+		this.sizeClasses = new SizeClass[sizeClassIndex(maxPooledCapacity) + 1];
+		for (int i = 0; i < this.sizeClasses.length; i++) {
+			this.sizeClasses[i] = new SizeClass(1 << (i + MIN_CAPACITY_SHIFT));
+		}
+		this.delegateFactory = new DefaultDataBufferFactory(preferDirect, defaultInitialCapacity);
+	}
+
+
+	/**
+	 * Whether to record the stack trace of every allocation, and to log buffers
+	 * that are garbage collected without having been released.
+	 * <p>This is expensive and meant for development and tests. By default
+	 * this is set to {@code false}.
+	 */
+	public void setLeakDetection(boolean leakDetection) {
+		this.leakDetection = leakDetection;
+	}
+
+	/**
+	 * Whether leak detection is enabled.
+	 */
+	public boolean isLeakDetection() {
+		return this.leakDetection;
+	}
+
+	/**
+	 * Return the number of buffers allocated through this factory that have
+	 * not been released yet.
+	 */
+	public int getAllocatedBufferCount() {
+		return this.allocatedCount.get();
+	}
+
+	/**
+	 * Return the number of idle buffers currently held in the pool.
+	 */
+	public int getPooledBufferCount() {
+		int count = 0;
+		for (SizeClass sizeClass : this.sizeClasses) {
+			count += sizeClass.size.get();
+		}
+		return count;
+	}
+
+
+	@Override
+	public DataBuffer allocateBuffer() {
+		return allocateBuffer(this.defaultInitialCapacity);
+	}
+
+	@Override
+	public DataBuffer allocateBuffer(int initialCapacity) {
+		Assert.isTrue(initialCapacity >= 0, "'initialCapacity' should not be negative");
+		if (this.leakDetection) {
+			reportLeaks();
+		}
+
+		SizeClass sizeClass = (initialCapacity <= this.maxPooledCapacity ?
+				this.sizeClasses[sizeClassIndex(initialCapacity)] : null);
+		ByteBuffer memory = (sizeClass != null ? sizeClass.poll() : null);
+		if (memory == null) {
+			memory = allocate(sizeClass != null ? sizeClass.capacity : initialCapacity);
+		}
+		memory.clear();
+		memory.limit(initialCapacity);
+
+		Allocation allocation = new Allocation(memory, sizeClass);
+		if (this.leakDetection) {
+			LeakTracker tracker = new LeakTracker(allocation, this.leakQueue);
+			this.leakTrackers.add(tracker);
+			allocation.tracker = tracker;
+		}
+		this.allocatedCount.incrementAndGet();
+
+		DefaultDataBuffer delegate = DefaultDataBuffer.fromEmptyByteBuffer(this.delegateFactory, memory);
+		return new PooledByteBufferDataBuffer(delegate, this, allocation);
+	}
+
+	@Override
+	public DataBuffer wrap(ByteBuffer byteBuffer) {
+		DefaultDataBuffer delegate = this.delegateFactory.wrap(byteBuffer);
+		return new PooledByteBufferDataBuffer(delegate, this, new Allocation(null, null));
+	}
+
+	@Override
+	public DataBuffer wrap(byte[] bytes) {
+		DefaultDataBuffer delegate = this.delegateFactory.wrap(bytes);
+		return new PooledByteBufferDataBuffer(delegate, this, new Allocation(null, null));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>This implementation creates a single buffer to contain the data in
+	 * {@code dataBuffers}, and releases the given buffers.
+	 */
+	@Override
+	public DataBuffer join(List<? extends DataBuffer> dataBuffers) {
+		Assert.notEmpty(dataBuffers, "DataBuffer List must not be empty");
+		int capacity = dataBuffers.stream().mapToInt(DataBuffer::readableByteCount).sum();
+		DataBuffer result = allocateBuffer(capacity);
+		dataBuffers.forEach(result::write);
+		dataBuffers.forEach(DataBufferUtils::release);
+		return result;
+	}
+
+	private ByteBuffer allocate(int capacity) {
+		return (this.preferDirect ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity));
+	}
+
+	/**
+	 * Called when the reference count of the given allocation drops to zero.
+	 */
+	void deallocate(Allocation allocation) {
+		LeakTracker tracker = allocation.tracker;
+		if (tracker != null) {
+			this.leakTrackers.remove(tracker);
+			tracker.clear();
+		}
+		if (allocation.memory != null) {
+			this.allocatedCount.decrementAndGet();
+			if (allocation.sizeClass != null) {
+				allocation.sizeClass.offer(allocation.memory);
+			}
+		}
+	}
+
+	private void reportLeaks() {
+		LeakTracker tracker;
+		while ((tracker = (LeakTracker) this.leakQueue.poll()) != null) {
+			if (this.leakTrackers.remove(tracker)) {
+				logger.error("DataBuffer was garbage collected without having been released. " +
+						"Use DataBufferUtils.release(DataBuffer) to avoid memory leaks.", tracker.allocationTrace);
+			}
+		}
+	}
+
+	private static int sizeClassIndex(int capacity) {
+		int shift = 32 - Integer.numberOfLeadingZeros(Math.max(capacity - 1, 0));
+		return Math.max(shift - MIN_CAPACITY_SHIFT, 0);
+	}
+
+
+	@Override
+	public String toString() {
+		return "PooledDataBufferFactory (preferDirect=" + this.preferDirect +
+				", maxPooledCapacity=" + this.maxPooledCapacity + ")";
+	}
+
+
+	/**
+	 * Idle buffers of the same capacity.
+	 */
+	private final class SizeClass {
+
+		private final int capacity;
+
+		private final Queue<ByteBuffer> queue = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger size = new AtomicInteger();
+
+		SizeClass(int capacity) {
+			this.capacity = capacity;
+		}
+
+		@Nullable
+		ByteBuffer poll() {
+			ByteBuffer memory = this.queue.poll();
+			if (memory != null) {
+				this.size.decrementAndGet();
+			}
+			return memory;
+		}
+
+		void offer(ByteBuffer memory) {
+			if (this.size.incrementAndGet() <= maxPoolSize) {
+				this.queue.offer(memory);
+			}
+			else {
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+
+	/**
+	 * Reference count and memory shared by a buffer and its slices.
+	 */
+	static final class Allocation {
+
+		private final AtomicInteger refCount = new AtomicInteger(1);
+
+		@Nullable
+		private final ByteBuffer memory;
+
+		@Nullable
+		private final SizeClass sizeClass;
+
+		@Nullable
+		private LeakTracker tracker;
+
+		Allocation(@Nullable ByteBuffer memory, @Nullable SizeClass sizeClass) {
+			this.memory = memory;
+			this.sizeClass = sizeClass;
+		}
+
+		boolean isAllocated() {
+			return this.refCount.get() > 0;
+		}
+
+		void retain() {
+			for (;;) {
+				int count = this.refCount.get();
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (this.refCount.compareAndSet(count, count + 1)) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Decrement the reference count.
+		 * @return {@code true} if the count dropped to zero
+		 */
+		boolean release() {
+			for (;;) {
+				int count = this.refCount.get();
+				if (count <= 0) {
+					throw new IllegalStateException("DataBuffer has already been released");
+				}
+				if (this.refCount.compareAndSet(count, count - 1)) {
+					return (count == 1);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Phantom reference to an {@link Allocation} that is enqueued if the
+	 * allocation is garbage collected without having been released.
+	 */
+	private static final class LeakTracker extends PhantomReference<Allocation> {
+
+		private final Throwable allocationTrace = new Throwable("Allocated at");
+
+		LeakTracker(Allocation allocation, ReferenceQueue<Allocation> queue) {
+			super(allocation, queue);
+		}
+	}
+
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Simple concurrent cache of bounded size, approximating a Least Recently Used
+ * eviction policy through a "second chance" (CLOCK) algorithm.
+ *
+ * <p>This implementation is backed by a {@code ConcurrentHashMap} for storing
+ * the cached values and a {@code ConcurrentLinkedQueue} for ordering the keys.
+ * Cache hits never acquire a lock: they merely mark the entry as recently used.
+ * Eviction happens on insertion once the size limit is exceeded, skipping (and
+ * requeuing) recently used entries; only one thread performs eviction at a time
+ * while others proceed without waiting, so the cache may temporarily exceed its
+ * size limit under heavy concurrent insertion.
+ *
+ * <p>Values are generated outside of any lock: concurrent lookups for the same
+ * absent key may invoke the generator more than once, with the first stored
+ * value being returned to all callers thereafter. The generator is therefore
+ * expected to be side-effect free, e.g. a parsing function.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @param <K> the type of the key used for cache retrieval
+ * @param <V> the type of the cached values
+ */
+public class ConcurrentLruCache<K, V> {
+
+	private final int sizeLimit;
+
+	@Nullable
+	private final Function<K, V> generator;
+
+	private final ConcurrentHashMap<K, Entry<V>> cache;
+
+	private final ConcurrentLinkedQueue<K> queue = new ConcurrentLinkedQueue<>();
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+
+
+	/**
+	 * Create a new cache instance with the given limit, for use with
+	 * {@link #get(Object, Function)}.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 */
+	public ConcurrentLruCache(int sizeLimit) {
+		this(sizeLimit, null);
+	}
+
+	/**
+	 * Create a new cache instance with the given limit and generator function.
+	 * @param sizeLimit the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value)
+	 * @param generator a function to generate a new value for a given key
+	 */
+	public ConcurrentLruCache(int sizeLimit, @Nullable Function<K, V> generator) {
+		Assert.isTrue(sizeLimit >= 0, "Cache size limit must not be negative");
+		this.sizeLimit = sizeLimit;
+		this.generator = generator;
+		this.cache = new ConcurrentHashMap<>(Math.min(sizeLimit, 256) * 4 / 3 + 1);
+	}
+
+
+	/**
+	 * Retrieve an entry from the cache, potentially triggering generation
+	 * of the value through the generator function given at construction time.
+	 * @param key the key to retrieve the entry for
+	 * @return the cached or newly generated value
+	 */
+	public V get(K key) {
+		Assert.state(this.generator != null, "No generator function specified");
+		return get(key, this.generator);
+	}
+
+	/**
+	 * Retrieve an entry from the cache, potentially triggering generation
+	 * of the value through the given generator function.
+	 * @param key the key to retrieve the entry for
+	 * @param generator a function to generate a new value for the given key
+	 * @return the cached or newly generated value
+	 */
+	public V get(K key, Function<? super K, ? extends V> generator) {
+		if (this.sizeLimit == 0) {
+			return generator.apply(key);
+		}
+		Entry<V> entry = this.cache.get(key);
+		if (entry != null) {
+			entry.markUsed();
+			return entry.value;
+		}
+		V value = generator.apply(key);
+		Entry<V> existing = this.cache.putIfAbsent(key, new Entry<>(value));
+		if (existing != null) {
+			existing.markUsed();
+			return existing.value;
+		}
+		this.queue.add(key);
+		if (this.cache.size() > this.sizeLimit) {
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * Determine whether the given key is present in this cache.
+	 * @param key the key to check for
+	 * @return {@code true} if the key is present,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean contains(K key) {
+		return this.cache.containsKey(key);
+	}
+
+	/**
+	 * Immediately remove the given key and any associated value.
+	 * <p>Meant for occasional invalidation: this locks out eviction and scans
+	 * the usage queue, in contrast to the lock-free lookups.
+	 * @param key the key to evict the entry for
+	 * @return {@code true} if the key was present before,
+	 * {@code false} if there was no matching key
+	 */
+	public boolean remove(K key) {
+		this.evictionLock.lock();
+		try {
+			if (this.cache.remove(key) != null) {
+				// Removes the oldest queue node for the key: a concurrent re-insertion
+				// queues its node behind it, and eviction cannot requeue it meanwhile
+				this.queue.remove(key);
+				return true;
+			}
+			return false;
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Immediately remove all entries from this cache.
+	 */
+	public void clear() {
+		this.evictionLock.lock();
+		try {
+			// Queue first: a concurrent insertion must not end up without a queue node
+			this.queue.clear();
+			this.cache.clear();
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Return the current size of the cache.
+	 * @see #sizeLimit()
+	 */
+	public int size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * Return the maximum number of entries in the cache
+	 * (0 indicates no caching, always generating a new value).
+	 * @see #size()
+	 */
+	public int sizeLimit() {
+		return this.sizeLimit;
+	}
+
+
+	private void evict() {
+		if (!this.evictionLock.tryLock()) {
+			// Another thread is evicting already
+			return;
+		}
+		try {
+			// Every queued entry gets at most one second chance per eviction run
+			int budget = 2 * this.cache.size();
+			while (this.cache.size() > this.sizeLimit && budget-- > 0) {
+				K key = this.queue.poll();
+				if (key == null) {
+					break;
+				}
+				Entry<V> entry = this.cache.get(key);
+				if (entry == null) {
+					// Removed explicitly in the meantime
+					continue;
+				}
+				if (entry.used) {
+					entry.used = false;
+					this.queue.add(key);
+				}
+				else {
+					this.cache.remove(key, entry);
+				}
+			}
+		}
+		finally {
+			this.evictionLock.unlock();
+		}
+	}
+
+
+	private static final class Entry<V> {
+
+		final V value;
+
+		volatile boolean used;
+
+		Entry(V value) {
+			this.value = value;
+		}
+
+		void markUsed() {
+			// Avoid a volatile write (and cache line invalidation) on repeated hits
+			if (!this.used) {
+				this.used = true;
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -30,9 +30,14 @@ import reactor.test.StepVerifier;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.lang.Nullable;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
 import org.springframework.util.MimeType;
 import org.springframework.util.MimeTypeUtils;
+import org.springframework.util.StopWatch;
 
 import static java.nio.charset.StandardCharsets.*;
 import static org.junit.Assert.*;
@@ -174,6 +179,66 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decodeDelimiterAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("\n"),
+				stringBuffer("ghi"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectNext("def")
+				.expectNext("ghi")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeDelimiterAcrossBuffersIncludeDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(StringDecoder.DEFAULT_DELIMITERS, false);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("\n"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc\r\n")
+				.expectNext("def\r\n")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeNewLineWithLimit() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\n"),
+				stringBuffer("defg\n"),
+				stringBuffer("hi"),
+				stringBuffer("jklmn\n"));
+
+		this.decoder.setMaxInMemorySize(5);
+
+		StepVerifier.create(this.decoder.decode(input, TYPE, null, Collections.emptyMap()))
+				.expectNext("abc", "defg")
+				.verifyError(DataBufferLimitException.class);
+	}
+
+	@Test
+	public void decodeToMonoWithLimit() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("foo"),
+				stringBuffer("bar"),
+				stringBuffer("baz"));
+
+		this.decoder.setMaxInMemorySize(8);
+
+		StepVerifier.create(this.decoder.decodeToMono(input, TYPE, null, Collections.emptyMap()))
+				.verifyError(DataBufferLimitException.class);
+	}
+
 	@Test
 	public void decodeEmptyFlux() {
 		Flux<DataBuffer> input = Flux.empty();
@@ -218,6 +283,45 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decode1KChunksIsFastEnough() {
+		testDecodePerformance(1024);
+	}
+
+	@Test
+	public void decode64KChunksIsFastEnough() {
+		testDecodePerformance(64 * 1024);
+	}
+
+	private void testDecodePerformance(int chunkSize) {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		StringBuilder builder = new StringBuilder();
+		for (int i = 0; i < 200_000; i++) {
+			builder.append("{\"id\":").append(i).append(",\"name\":\"event\"}\n");
+		}
+		byte[] bytes = builder.toString().getBytes(UTF_8);
+		DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+
+		StopWatch stopWatch = new StopWatch();
+		stopWatch.start();
+		for (int i = 0; i < 10; i++) {
+			Flux<DataBuffer> input = Flux.range(0, (bytes.length + chunkSize - 1) / chunkSize)
+					.map(index -> {
+						int offset = index * chunkSize;
+						int length = Math.min(chunkSize, bytes.length - offset);
+						DataBuffer buffer = factory.allocateBuffer(length);
+						buffer.write(bytes, offset, length);
+						return buffer;
+					});
+			Long count = this.decoder.decode(input, TYPE, null, Collections.emptyMap()).count().block();
+			assertEquals(Long.valueOf(200_000), count);
+		}
+		stopWatch.stop();
+		assertTrue("Decoding with " + chunkSize + " byte chunks took too long: " + stopWatch.getTotalTimeMillis(),
+				stopWatch.getTotalTimeMillis() < 10000);
+	}
+
 	private DataBuffer stringBuffer(String value) {
 		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
 		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
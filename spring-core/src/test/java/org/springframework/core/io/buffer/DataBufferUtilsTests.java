@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -708,6 +708,32 @@ public class DataBufferUtilsTests extends AbstractDataBufferAllocatingTestCase {
 				.verifyComplete();
 	}
 
+	@Test
+	public void joinWithLimit() {
+		DataBuffer foo = stringBuffer("foo");
+		DataBuffer bar = stringBuffer("bar");
+		DataBuffer baz = stringBuffer("baz");
+		Flux<DataBuffer> flux = Flux.just(foo, bar, baz);
+		Mono<DataBuffer> result = DataBufferUtils.join(flux, 8);
+
+		StepVerifier.create(result)
+				.verifyError(DataBufferLimitException.class);
+	}
+
+	@Test
+	public void joinWithinLimit() {
+		Flux<DataBuffer> flux = Flux.just(stringBuffer("foo"), stringBuffer("bar"));
+		Mono<DataBuffer> result = DataBufferUtils.join(flux, 6);
+
+		StepVerifier.create(result)
+				.consumeNextWith(dataBuffer -> {
+					assertEquals("foobar",
+							DataBufferTestUtils.dumpString(dataBuffer, StandardCharsets.UTF_8));
+					release(dataBuffer);
+				})
+				.verifyComplete();
+	}
+
 	@Test
 	public void joinErrors() {
 		DataBuffer foo = stringBuffer("foo");
@@ -734,6 +760,51 @@ public class DataBufferUtilsTests extends AbstractDataBufferAllocatingTestCase {
 				.verify();
 	}
 
+	@Test
+	public void matcher() {
+		DataBuffer foo = stringBuffer("foo");
+		DataBuffer bar = stringBuffer("bar");
+
+		byte[] delims = "ooba".getBytes(StandardCharsets.UTF_8);
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(delims);
+		int result = matcher.match(foo);
+		assertEquals(-1, result);
+		result = matcher.match(bar);
+		assertEquals(1, result);
+
+		release(foo, bar);
+	}
+
+	@Test
+	public void matcherPartialPrefix() {
+		DataBuffer buffer = stringBuffer("aaab");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher("aab".getBytes(StandardCharsets.UTF_8));
+		assertEquals(3, matcher.match(buffer));
 
+		release(buffer);
+	}
+
+	@Test
+	public void matcherMultipleDelimiters() {
+		DataBuffer foo = stringBuffer("foo\r");
+		DataBuffer bar = stringBuffer("\nbar\nbaz");
+
+		DataBufferUtils.Matcher matcher = DataBufferUtils.matcher(
+				"\n".getBytes(StandardCharsets.UTF_8), "\r\n".getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(-1, matcher.match(foo));
+		assertEquals(0, matcher.match(bar));
+		assertArrayEquals("\r\n".getBytes(StandardCharsets.UTF_8), matcher.delimiter());
+
+		bar.readPosition(1);
+		assertEquals(4, matcher.match(bar));
+		assertArrayEquals("\n".getBytes(StandardCharsets.UTF_8), matcher.delimiter());
+
+		bar.readPosition(5);
+		assertEquals(-1, matcher.match(bar));
+
+		release(foo, bar);
+	}
 
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.io.buffer;
+
+import org.junit.Test;
+
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PooledDataBufferFactory}.
+ *
+ * @author agent (agent@local)
+ */
+public class PooledDataBufferFactoryTests {
+
+	private final PooledDataBufferFactory factory = new PooledDataBufferFactory(false, 256, 1024, 2);
+
+
+	@Test
+	public void allocateAndRelease() {
+		DataBuffer buffer = this.factory.allocateBuffer(300);
+		assertEquals(300, buffer.capacity());
+		assertEquals(1, this.factory.getAllocatedBufferCount());
+		assertEquals(0, this.factory.getPooledBufferCount());
+
+		assertTrue(DataBufferUtils.release(buffer));
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+		assertEquals(1, this.factory.getPooledBufferCount());
+
+		buffer = this.factory.allocateBuffer(512);
+		assertEquals(0, this.factory.getPooledBufferCount());
+		DataBufferUtils.release(buffer);
+	}
+
+	@Test
+	public void recycledBufferIsEmpty() {
+		DataBuffer buffer = this.factory.allocateBuffer(4);
+		buffer.write(new byte[] {'a', 'b', 'c', 'd'});
+		DataBufferUtils.release(buffer);
+
+		buffer = this.factory.allocateBuffer(4);
+		assertEquals(0, buffer.readableByteCount());
+		assertEquals(4, buffer.writableByteCount());
+		DataBufferUtils.release(buffer);
+	}
+
+	@Test
+	public void sliceSharesReferenceCount() {
+		DataBuffer buffer = this.factory.allocateBuffer(4);
+		buffer.write(new byte[] {'a', 'b', 'c', 'd'});
+		DataBuffer slice = DataBufferUtils.retain(buffer.slice(1, 2));
+
+		assertFalse(DataBufferUtils.release(buffer));
+		assertEquals(1, this.factory.getAllocatedBufferCount());
+		assertEquals('b', slice.read());
+
+		assertTrue(DataBufferUtils.release(slice));
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+		assertEquals(1, this.factory.getPooledBufferCount());
+	}
+
+	@Test
+	public void largeBufferIsNotPooled() {
+		DataBuffer buffer = this.factory.allocateBuffer(2048);
+		assertEquals(1, this.factory.getAllocatedBufferCount());
+
+		DataBufferUtils.release(buffer);
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+		assertEquals(0, this.factory.getPooledBufferCount());
+	}
+
+	@Test
+	public void poolSizeIsBounded() {
+		DataBuffer buffer1 = this.factory.allocateBuffer(10);
+		DataBuffer buffer2 = this.factory.allocateBuffer(10);
+		DataBuffer buffer3 = this.factory.allocateBuffer(10);
+		DataBufferUtils.release(buffer1);
+		DataBufferUtils.release(buffer2);
+		DataBufferUtils.release(buffer3);
+
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+		assertEquals(2, this.factory.getPooledBufferCount());
+	}
+
+	@Test
+	public void wrappedBufferIsNotCounted() {
+		DataBuffer buffer = this.factory.wrap(new byte[] {'a'});
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+		assertTrue(DataBufferUtils.release(buffer));
+		assertEquals(0, this.factory.getPooledBufferCount());
+	}
+
+	@Test
+	public void releaseOnCloseInputStream() throws Exception {
+		DataBuffer buffer = this.factory.allocateBuffer(1);
+		buffer.write((byte) 'a');
+
+		buffer.asInputStream(true).close();
+		assertEquals(0, this.factory.getAllocatedBufferCount());
+	}
+
+	@Test
+	public void allocationPerformance() {
+		Assume.group(TestGroup.PERFORMANCE);
+
+		int iterations = 200_000;
+		byte[] bytes = new byte[8192];
+
+		DataBufferFactory defaultFactory = new DefaultDataBufferFactory(true);
+		StopWatch defaultWatch = new StopWatch();
+		defaultWatch.start();
+		for (int i = 0; i < iterations; i++) {
+			DataBuffer buffer = defaultFactory.allocateBuffer(bytes.length);
+			buffer.write(bytes);
+			DataBufferUtils.release(buffer);
+		}
+		defaultWatch.stop();
+
+		PooledDataBufferFactory pooledFactory = new PooledDataBufferFactory(true);
+		StopWatch pooledWatch = new StopWatch();
+		pooledWatch.start();
+		for (int i = 0; i < iterations; i++) {
+			DataBuffer buffer = pooledFactory.allocateBuffer(bytes.length);
+			buffer.write(bytes);
+			DataBufferUtils.release(buffer);
+		}
+		pooledWatch.stop();
+
+		assertTrue("Pooled direct allocation took " + pooledWatch.getTotalTimeMillis() +
+				" ms, unpooled took " + defaultWatch.getTotalTimeMillis() + " ms",
+				pooledWatch.getTotalTimeMillis() < defaultWatch.getTotalTimeMillis());
+	}
+
+}
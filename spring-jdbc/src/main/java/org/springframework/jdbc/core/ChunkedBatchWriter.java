@@ -0,0 +1,604 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * Writer for large or unbounded JDBC batch updates, consuming items from an
+ * {@link Iterator}, {@link Iterable} or {@link Stream} and sending them to the
+ * database in chunks of a configurable size via {@code executeBatch}.
+ *
+ * <p>In contrast to {@link JdbcTemplate#batchUpdate(String, java.util.Collection, int,
+ * ParameterizedPreparedStatementSetter)}, only a single chunk of items is held
+ * in memory at any time (or one chunk per concurrent writer, see below), and
+ * the outcome of every chunk is reported to an optional {@link ChunkListener}
+ * as soon as it is known, with a {@link Result} summary returned at the end.
+ *
+ * <p>By default, all chunks are written through a single {@link PreparedStatement}
+ * on the current connection, participating in an existing transaction if any.
+ * Further options:
+ * <ul>
+ * <li>{@link #setCommitPerChunk "commitPerChunk"}: commit after every chunk,
+ * rolling back a failed chunk only. Not supported within a Spring-managed
+ * transaction, since the writer needs to control the connection's commits.
+ * <li>{@link #setTaskExecutor "taskExecutor"}: write chunks in parallel, each
+ * chunk on its own pooled connection, with at most
+ * {@link #setConcurrencyLimit "concurrencyLimit"} chunks in flight. The source
+ * is only read as fast as chunks complete. Not supported within a Spring-managed
+ * transaction either, since chunks are written on separate connections.
+ * <li>{@link #setContinueOnError "continueOnError"}: keep going after a failed
+ * chunk instead of aborting the write operation with that chunk's exception.
+ * </ul>
+ *
+ * <p>A {@code ChunkedBatchWriter} is thread-safe once configured and may be
+ * reused for any number of write operations.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @param <T> the item type
+ * @see ParameterizedPreparedStatementSetter
+ */
+public class ChunkedBatchWriter<T> {
+
+	/** Default number of items per chunk: 1000. */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+	/** Default number of chunks in flight when writing in parallel: 4. */
+	public static final int DEFAULT_CONCURRENCY_LIMIT = 4;
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final String sql;
+
+	private final ParameterizedPreparedStatementSetter<T> pss;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private boolean commitPerChunk = false;
+
+	private boolean continueOnError = false;
+
+	@Nullable
+	private Executor taskExecutor;
+
+	private int concurrencyLimit = DEFAULT_CONCURRENCY_LIMIT;
+
+	@Nullable
+	private ChunkListener<? super T> chunkListener;
+
+
+	/**
+	 * Create a new {@code ChunkedBatchWriter} for the given SQL statement.
+	 * @param jdbcTemplate the JdbcTemplate to obtain connections and
+	 * statement settings from, and to translate exceptions with
+	 * @param sql the SQL statement to execute for every item
+	 * @param pss the callback setting the parameters for each item
+	 */
+	public ChunkedBatchWriter(JdbcTemplate jdbcTemplate, String sql, ParameterizedPreparedStatementSetter<T> pss) {
+		Assert.notNull(jdbcTemplate, "JdbcTemplate must not be null");
+		Assert.hasText(sql, "SQL must not be empty");
+		Assert.notNull(pss, "ParameterizedPreparedStatementSetter must not be null");
+		this.jdbcTemplate = jdbcTemplate;
+		this.sql = sql;
+		this.pss = pss;
+	}
+
+
+	/**
+	 * Set the number of items to send to the database per {@code executeBatch}
+	 * call. Default is {@value #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the number of items to send to the database per chunk.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Set whether to commit after every chunk, rolling back a failed chunk only.
+	 * <p>Default is {@code false}, leaving commit handling to the surrounding
+	 * transaction or to the connection's auto-commit mode.
+	 */
+	public void setCommitPerChunk(boolean commitPerChunk) {
+		this.commitPerChunk = commitPerChunk;
+	}
+
+	/**
+	 * Return whether to commit after every chunk.
+	 */
+	public boolean isCommitPerChunk() {
+		return this.commitPerChunk;
+	}
+
+	/**
+	 * Set whether to continue with subsequent chunks after a chunk failed.
+	 * <p>Default is {@code false}, aborting the write operation with the
+	 * exception of the first failed chunk. If {@code true}, failures are
+	 * only reported to the {@link ChunkListener} and in the {@link Result}.
+	 */
+	public void setContinueOnError(boolean continueOnError) {
+		this.continueOnError = continueOnError;
+	}
+
+	/**
+	 * Return whether to continue with subsequent chunks after a chunk failed.
+	 */
+	public boolean isContinueOnError() {
+		return this.continueOnError;
+	}
+
+	/**
+	 * Set an {@link Executor} for writing chunks in parallel, each on its own
+	 * connection from the JdbcTemplate's DataSource.
+	 * <p>Default is none, writing all chunks sequentially on the calling thread.
+	 * @see #setConcurrencyLimit
+	 * @see org.springframework.core.task.TaskExecutor
+	 */
+	public void setTaskExecutor(@Nullable Executor taskExecutor) {
+		this.taskExecutor = taskExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for writing chunks in parallel, if any.
+	 */
+	@Nullable
+	public Executor getTaskExecutor() {
+		return this.taskExecutor;
+	}
+
+	/**
+	 * Set the maximum number of chunks to write in parallel when a
+	 * {@link #setTaskExecutor task executor} has been specified.
+	 * Default is {@value #DEFAULT_CONCURRENCY_LIMIT}.
+	 * <p>This also bounds the number of chunks held in memory and the
+	 * number of connections used at any time.
+	 */
+	public void setConcurrencyLimit(int concurrencyLimit) {
+		Assert.isTrue(concurrencyLimit > 0, "Concurrency limit must be greater than 0");
+		this.concurrencyLimit = concurrencyLimit;
+	}
+
+	/**
+	 * Return the maximum number of chunks to write in parallel.
+	 */
+	public int getConcurrencyLimit() {
+		return this.concurrencyLimit;
+	}
+
+	/**
+	 * Set a listener to notify of the outcome of every chunk.
+	 * <p>Note that the listener is invoked on the writing thread,
+	 * i.e. on executor threads when writing in parallel.
+	 */
+	public void setChunkListener(@Nullable ChunkListener<? super T> chunkListener) {
+		this.chunkListener = chunkListener;
+	}
+
+	/**
+	 * Return the listener to notify of the outcome of every chunk, if any.
+	 */
+	@Nullable
+	public ChunkListener<? super T> getChunkListener() {
+		return this.chunkListener;
+	}
+
+
+	/**
+	 * Write all items of the given {@link Iterable}.
+	 * @param items the items to write
+	 * @return a summary of the write operation
+	 * @throws DataAccessException if a chunk failed and
+	 * {@link #setContinueOnError "continueOnError"} is not set
+	 */
+	public Result write(Iterable<? extends T> items) throws DataAccessException {
+		return write(items.iterator());
+	}
+
+	/**
+	 * Write all items of the given {@link Stream}.
+	 * <p>The stream is consumed but not closed: this remains the
+	 * responsibility of the caller, e.g. via try-with-resources.
+	 * @param items the items to write
+	 * @return a summary of the write operation
+	 * @throws DataAccessException if a chunk failed and
+	 * {@link #setContinueOnError "continueOnError"} is not set
+	 */
+	public Result write(Stream<? extends T> items) throws DataAccessException {
+		return write(items.iterator());
+	}
+
+	/**
+	 * Write all items of the given {@link Iterator}.
+	 * @param items the items to write
+	 * @return a summary of the write operation
+	 * @throws DataAccessException if a chunk failed and
+	 * {@link #setContinueOnError "continueOnError"} is not set
+	 */
+	public Result write(Iterator<? extends T> items) throws DataAccessException {
+		Assert.notNull(items, "Items must not be null");
+		if ((this.commitPerChunk || this.taskExecutor != null) &&
+				TransactionSynchronizationManager.isActualTransactionActive()) {
+			throw new InvalidDataAccessApiUsageException("Per-chunk commits and parallel chunks are not " +
+					"supported within a managed transaction - cannot write batch for SQL [" + this.sql + "]");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing chunked SQL batch update [" + this.sql + "] with a chunk size of " +
+					this.chunkSize + (this.taskExecutor != null ? " and up to " + this.concurrencyLimit +
+					" chunks in parallel" : ""));
+		}
+		Result result = new Result();
+		if (this.taskExecutor != null) {
+			writeInParallel(items, this.taskExecutor, result);
+		}
+		else {
+			writeSequentially(items, result);
+		}
+		return result;
+	}
+
+	private void writeSequentially(Iterator<? extends T> items, Result result) {
+		this.jdbcTemplate.execute(this.sql, (PreparedStatementCallback<Object>) ps -> {
+			ChunkWriter writer = new ChunkWriter(ps);
+			try {
+				int chunkIndex = 0;
+				while (items.hasNext()) {
+					DataAccessException ex = writer.write(chunkIndex++, nextChunk(items), result);
+					if (ex != null && !this.continueOnError) {
+						throw ex;
+					}
+				}
+				return null;
+			}
+			finally {
+				writer.close();
+				cleanupParameters();
+			}
+		});
+	}
+
+	private void writeInParallel(Iterator<? extends T> items, Executor executor, Result result) {
+		Semaphore permits = new Semaphore(this.concurrencyLimit);
+		AtomicReference<DataAccessException> failure = new AtomicReference<>();
+		int chunkIndex = 0;
+		try {
+			while (items.hasNext() && (failure.get() == null || this.continueOnError)) {
+				// Acquire before pulling the next chunk, bounding the chunks held in memory
+				permits.acquire();
+				if (failure.get() != null && !this.continueOnError) {
+					permits.release();
+					break;
+				}
+				List<T> chunk = nextChunk(items);
+				int index = chunkIndex++;
+				try {
+					executor.execute(() -> {
+						try {
+							DataAccessException ex = writeChunkOnNewConnection(index, chunk, result);
+							if (ex != null) {
+								failure.compareAndSet(null, ex);
+							}
+						}
+						catch (DataAccessException ex) {
+							failure.compareAndSet(null, ex);
+						}
+						finally {
+							permits.release();
+						}
+					});
+				}
+				catch (RejectedExecutionException ex) {
+					permits.release();
+					// Let the chunks in flight complete before propagating the rejection
+					try {
+						awaitChunksInFlight(permits);
+					}
+					catch (InterruptedException ie) {
+						Thread.currentThread().interrupt();
+						ex.addSuppressed(ie);
+					}
+					throw new DataAccessResourceFailureException("Task executor rejected chunk " + index +
+							" of chunked batch update for SQL [" + this.sql + "]", ex);
+				}
+			}
+			awaitChunksInFlight(permits);
+		}
+		catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new DataAccessResourceFailureException(
+					"Interrupted while writing chunked batch update for SQL [" + this.sql + "]", ex);
+		}
+		finally {
+			cleanupParameters();
+		}
+		DataAccessException ex = failure.get();
+		if (ex != null && !this.continueOnError) {
+			throw ex;
+		}
+	}
+
+	private void awaitChunksInFlight(Semaphore permits) throws InterruptedException {
+		permits.acquire(this.concurrencyLimit);
+		permits.release(this.concurrencyLimit);
+	}
+
+	@Nullable
+	private DataAccessException writeChunkOnNewConnection(int chunkIndex, List<T> chunk, Result result) {
+		return this.jdbcTemplate.execute(this.sql, (PreparedStatementCallback<DataAccessException>) ps -> {
+			ChunkWriter writer = new ChunkWriter(ps);
+			try {
+				return writer.write(chunkIndex, chunk, result);
+			}
+			finally {
+				writer.close();
+			}
+		});
+	}
+
+	private List<T> nextChunk(Iterator<? extends T> items) {
+		List<T> chunk = new ArrayList<>(this.chunkSize);
+		while (chunk.size() < this.chunkSize && items.hasNext()) {
+			chunk.add(items.next());
+		}
+		return chunk;
+	}
+
+	private void cleanupParameters() {
+		if (this.pss instanceof ParameterDisposer) {
+			((ParameterDisposer) this.pss).cleanupParameters();
+		}
+	}
+
+
+	/**
+	 * Writes chunks through a given PreparedStatement, handling commits
+	 * per chunk if necessary.
+	 */
+	private class ChunkWriter {
+
+		private final PreparedStatement ps;
+
+		private final Connection con;
+
+		private final boolean batchSupported;
+
+		private final boolean resetAutoCommit;
+
+		ChunkWriter(PreparedStatement ps) throws SQLException {
+			this.ps = ps;
+			this.con = ps.getConnection();
+			this.batchSupported = JdbcUtils.supportsBatchUpdates(this.con);
+			this.resetAutoCommit = (commitPerChunk && this.con.getAutoCommit());
+			if (this.resetAutoCommit) {
+				this.con.setAutoCommit(false);
+			}
+		}
+
+		/**
+		 * Write the given chunk, returning the translated exception if it failed.
+		 */
+		@Nullable
+		DataAccessException write(int chunkIndex, List<T> chunk, Result result) throws SQLException {
+			int[] rowsAffected;
+			try {
+				if (this.batchSupported) {
+					for (T item : chunk) {
+						pss.setValues(this.ps, item);
+						this.ps.addBatch();
+					}
+					if (logger.isTraceEnabled()) {
+						logger.trace("Sending SQL batch update chunk #" + chunkIndex + " with " +
+								chunk.size() + " items");
+					}
+					rowsAffected = this.ps.executeBatch();
+				}
+				else {
+					rowsAffected = new int[chunk.size()];
+					int i = 0;
+					for (T item : chunk) {
+						pss.setValues(this.ps, item);
+						rowsAffected[i++] = this.ps.executeUpdate();
+					}
+				}
+				if (commitPerChunk) {
+					this.con.commit();
+				}
+			}
+			catch (SQLException ex) {
+				if (this.batchSupported) {
+					try {
+						this.ps.clearBatch();
+					}
+					catch (SQLException | RuntimeException cleanupEx) {
+						ex.addSuppressed(cleanupEx);
+					}
+				}
+				if (commitPerChunk) {
+					try {
+						this.con.rollback();
+					}
+					catch (SQLException | RuntimeException rollbackEx) {
+						ex.addSuppressed(rollbackEx);
+					}
+				}
+				DataAccessException dae = jdbcTemplate.translateException("ChunkedBatchWriter", sql, ex);
+				result.chunkFailed(chunk.size());
+				if (chunkListener != null) {
+					chunkListener.chunkFailed(chunkIndex, chunk, dae);
+				}
+				return dae;
+			}
+			result.chunkWritten(chunk.size(), rowsAffected);
+			if (chunkListener != null) {
+				chunkListener.chunkWritten(chunkIndex, chunk, rowsAffected);
+			}
+			return null;
+		}
+
+		void close() throws SQLException {
+			if (this.resetAutoCommit) {
+				this.con.setAutoCommit(true);
+			}
+		}
+	}
+
+
+	/**
+	 * Callback interface for the outcome of individual chunks.
+	 * @param <T> the item type
+	 */
+	public interface ChunkListener<T> {
+
+		/**
+		 * Called after the given chunk has been sent to the database
+		 * (and committed, if {@link #setCommitPerChunk "commitPerChunk"} is set).
+		 * @param chunkIndex the 0-based index of the chunk
+		 * @param items the items in the chunk
+		 * @param rowsAffected the update counts as returned by
+		 * {@link PreparedStatement#executeBatch()}
+		 */
+		default void chunkWritten(int chunkIndex, List<? extends T> items, int[] rowsAffected) {
+		}
+
+		/**
+		 * Called after the given chunk failed
+		 * (and was rolled back, if {@link #setCommitPerChunk "commitPerChunk"} is set).
+		 * @param chunkIndex the 0-based index of the chunk
+		 * @param items the items in the chunk
+		 * @param ex the translated exception
+		 */
+		default void chunkFailed(int chunkIndex, List<? extends T> items, DataAccessException ex) {
+		}
+	}
+
+
+	/**
+	 * Summary of a chunked write operation.
+	 */
+	public static final class Result {
+
+		private final AtomicInteger chunkCount = new AtomicInteger();
+
+		private final AtomicLong itemCount = new AtomicLong();
+
+		private final AtomicLong rowsAffected = new AtomicLong();
+
+		private final AtomicInteger failedChunkCount = new AtomicInteger();
+
+		private final AtomicLong failedItemCount = new AtomicLong();
+
+		Result() {
+		}
+
+		void chunkWritten(int items, int[] rowsAffected) {
+			this.chunkCount.incrementAndGet();
+			this.itemCount.addAndGet(items);
+			long rows = 0;
+			for (int count : rowsAffected) {
+				if (count > 0) {
+					rows += count;
+				}
+			}
+			this.rowsAffected.addAndGet(rows);
+		}
+
+		void chunkFailed(int items) {
+			this.chunkCount.incrementAndGet();
+			this.itemCount.addAndGet(items);
+			this.failedChunkCount.incrementAndGet();
+			this.failedItemCount.addAndGet(items);
+		}
+
+		/**
+		 * Return the number of chunks processed, including failed chunks.
+		 */
+		public int getChunkCount() {
+			return this.chunkCount.get();
+		}
+
+		/**
+		 * Return the number of items processed, including items in failed chunks.
+		 */
+		public long getItemCount() {
+			return this.itemCount.get();
+		}
+
+		/**
+		 * Return the total number of rows affected by successful chunks,
+		 * as far as reported by the driver.
+		 * @see java.sql.Statement#SUCCESS_NO_INFO
+		 */
+		public long getRowsAffected() {
+			return this.rowsAffected.get();
+		}
+
+		/**
+		 * Return the number of failed chunks.
+		 */
+		public int getFailedChunkCount() {
+			return this.failedChunkCount.get();
+		}
+
+		/**
+		 * Return the number of items in failed chunks.
+		 */
+		public long getFailedItemCount() {
+			return this.failedItemCount.get();
+		}
+
+		@Override
+		public String toString() {
+			return "ChunkedBatchWriter.Result: " + getChunkCount() + " chunks with " + getItemCount() +
+					" items, " + getFailedChunkCount() + " failed chunks with " + getFailedItemCount() +
+					" items, " + getRowsAffected() + " rows affected";
+		}
+	}
+
+}
@@ -0,0 +1,555 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.ConstructorProperties;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link RowMapper} implementation that converts a row into a new instance
+ * of the specified mapped target class, with constructor binding for immutable
+ * data classes and setter binding for JavaBeans-style classes.
+ *
+ * <p>Column names are matched against constructor parameter names and bean
+ * properties just like in {@link BeanPropertyRowMapper}: either directly or by
+ * transforming a name separating the parts with underscores to the same name
+ * using "camel" case. In contrast to {@code BeanPropertyRowMapper}, the matching
+ * is performed once per {@link ResultSetMetaData} layout: the resulting plan maps
+ * each column index straight to a constructor argument or to a setter, with all
+ * invocations going through pre-bound {@link MethodHandle MethodHandles} rather
+ * than through a {@link org.springframework.beans.BeanWrapper} per row. Plans
+ * are cached per column layout, so a mapper instance may be shared across
+ * queries and threads.
+ *
+ * <p>The target class is instantiated through its Kotlin primary constructor
+ * if applicable, otherwise through a public no-arg constructor if present,
+ * otherwise through its single (possibly non-public) constructor. Parameter
+ * names of that constructor are derived from a {@link ConstructorProperties}
+ * declaration or from the class file via a {@link ParameterNameDiscoverer}
+ * (requiring compilation with {@code -parameters} or debug information).
+ * Any remaining writable bean properties are populated through their setters.
+ *
+ * <p>Values are extracted via {@link JdbcUtils#getResultSetValue(ResultSet, int, Class)}
+ * and, if necessary, converted through the configured {@link ConversionService}.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class DataClassRowMapper<T> implements RowMapper<T> {
+
+	private static final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+	private static final Map<Class<?>, Object> DEFAULT_VALUES;
+
+	static {
+		Map<Class<?>, Object> values = new HashMap<>(16);
+		values.put(boolean.class, false);
+		values.put(byte.class, (byte) 0);
+		values.put(short.class, (short) 0);
+		values.put(int.class, 0);
+		values.put(long.class, 0L);
+		values.put(float.class, 0F);
+		values.put(double.class, 0D);
+		values.put(char.class, '\0');
+		DEFAULT_VALUES = values;
+	}
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	/** The class we are mapping to. */
+	private final Class<T> mappedClass;
+
+	/** The constructor to instantiate the mapped class with. */
+	private final Constructor<T> mappedConstructor;
+
+	/** Constructor parameter names, in declaration order. */
+	private final String[] constructorParameterNames;
+
+	/** Constructor handle, accepting all arguments as a single Object array. */
+	private final MethodHandle constructorHandle;
+
+	/** Writable bean properties not covered by constructor arguments. */
+	private final Map<String, PropertyDescriptor> mappedProperties = new LinkedHashMap<>();
+
+	/** Whether we're strictly validating. */
+	private boolean checkFullyPopulated = false;
+
+	/** Whether we're defaulting primitives when mapping a null value. */
+	private boolean primitivesDefaultedForNullValue = false;
+
+	/** ConversionService for converting JDBC values to the target types. */
+	@Nullable
+	private ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+	/** Mapping plans per column layout. */
+	private final Map<List<String>, MappingPlan> mappingPlans = new ConcurrentHashMap<>(4);
+
+	/** The plan bound to the most recently mapped ResultSet. */
+	@Nullable
+	private volatile BoundPlan boundPlan;
+
+
+	/**
+	 * Create a new {@code DataClassRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public DataClassRowMapper(Class<T> mappedClass) {
+		Assert.notNull(mappedClass, "Mapped class must not be null");
+		this.mappedClass = mappedClass;
+		this.mappedConstructor = determineConstructor(mappedClass);
+		this.constructorParameterNames = determineParameterNames(this.mappedConstructor);
+		ReflectionUtils.makeAccessible(this.mappedConstructor);
+		try {
+			this.constructorHandle = MethodHandles.lookup().unreflectConstructor(this.mappedConstructor)
+					.asSpreader(Object[].class, this.constructorParameterNames.length)
+					.asType(MethodType.methodType(Object.class, Object[].class));
+		}
+		catch (IllegalAccessException ex) {
+			throw new InvalidDataAccessApiUsageException(
+					"Cannot access constructor of mapped class [" + mappedClass.getName() + "]", ex);
+		}
+		Set<String> constructorBound = new HashSet<>(Arrays.asList(this.constructorParameterNames));
+		for (PropertyDescriptor pd : BeanUtils.getPropertyDescriptors(mappedClass)) {
+			if (pd.getWriteMethod() != null && !constructorBound.contains(pd.getName())) {
+				this.mappedProperties.put(pd.getName(), pd);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the class that we are mapping to.
+	 */
+	public final Class<T> getMappedClass() {
+		return this.mappedClass;
+	}
+
+	/**
+	 * Set whether we're strictly validating that all constructor arguments and
+	 * bean properties have been mapped from corresponding database fields.
+	 * <p>Default is {@code false}, passing {@code null} (or primitive defaults)
+	 * for unmatched constructor arguments and leaving unmatched properties as-is.
+	 */
+	public void setCheckFullyPopulated(boolean checkFullyPopulated) {
+		this.checkFullyPopulated = checkFullyPopulated;
+		this.mappingPlans.clear();
+		this.boundPlan = null;
+	}
+
+	/**
+	 * Return whether we're strictly validating that all constructor arguments
+	 * and bean properties have been mapped from corresponding database fields.
+	 */
+	public boolean isCheckFullyPopulated() {
+		return this.checkFullyPopulated;
+	}
+
+	/**
+	 * Set whether we're defaulting Java primitives in the case of mapping a null value
+	 * from corresponding database fields.
+	 * <p>Default is {@code false}, throwing an exception when nulls are mapped to Java primitives.
+	 */
+	public void setPrimitivesDefaultedForNullValue(boolean primitivesDefaultedForNullValue) {
+		this.primitivesDefaultedForNullValue = primitivesDefaultedForNullValue;
+	}
+
+	/**
+	 * Return whether we're defaulting Java primitives in the case of mapping a null value
+	 * from corresponding database fields.
+	 */
+	public boolean isPrimitivesDefaultedForNullValue() {
+		return this.primitivesDefaultedForNullValue;
+	}
+
+	/**
+	 * Set a {@link ConversionService} for converting JDBC values to constructor
+	 * argument and bean property types, or {@code null} for none.
+	 * <p>Default is a {@link DefaultConversionService}.
+	 */
+	public void setConversionService(@Nullable ConversionService conversionService) {
+		this.conversionService = conversionService;
+	}
+
+	/**
+	 * Return a {@link ConversionService} for converting JDBC values to constructor
+	 * argument and bean property types, or {@code null} if none.
+	 */
+	@Nullable
+	public ConversionService getConversionService() {
+		return this.conversionService;
+	}
+
+
+	/**
+	 * Convert a name in camelCase to an underscored name in lower case.
+	 * Any upper case letters are converted to lower case with a preceding underscore.
+	 * @param name the original name
+	 * @return the converted name
+	 * @see BeanPropertyRowMapper#underscoreName
+	 */
+	protected String underscoreName(String name) {
+		if (!StringUtils.hasLength(name)) {
+			return "";
+		}
+		StringBuilder result = new StringBuilder();
+		result.append(lowerCaseName(name.substring(0, 1)));
+		for (int i = 1; i < name.length(); i++) {
+			String s = name.substring(i, i + 1);
+			String slc = lowerCaseName(s);
+			if (!s.equals(slc)) {
+				result.append("_").append(slc);
+			}
+			else {
+				result.append(s);
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Convert the given name to lower case.
+	 * By default, conversions will happen within the US locale.
+	 * @param name the original name
+	 * @return the converted name
+	 */
+	protected String lowerCaseName(String name) {
+		return name.toLowerCase(Locale.US);
+	}
+
+
+	/**
+	 * Extract the values for all columns in the current row.
+	 * <p>Resolves the mapping plan for the given ResultSet once and
+	 * applies it to every subsequent row of the same ResultSet. Only the most
+	 * recent ResultSet is bound: concurrent queries on a shared mapper instance
+	 * fall back to a lookup of the cached plan for their column layout.
+	 */
+	@Override
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		BoundPlan bound = this.boundPlan;
+		if (bound == null || bound.resultSet.get() != rs) {
+			bound = new BoundPlan(rs, getMappingPlan(rs.getMetaData()));
+			this.boundPlan = bound;
+		}
+		MappingPlan plan = bound.plan;
+
+		Object[] args = new Object[plan.constructorColumns.length];
+		for (int i = 0; i < args.length; i++) {
+			Class<?> type = plan.constructorTypes[i];
+			int index = plan.constructorColumns[i];
+			Object value = (index > 0 ? convertIfNecessary(getColumnValue(rs, index, type), type) : null);
+			if (value == null && type.isPrimitive()) {
+				if (!this.primitivesDefaultedForNullValue && index > 0) {
+					throw new TypeMismatchException((Object) null, type);
+				}
+				value = DEFAULT_VALUES.get(type);
+			}
+			args[i] = value;
+		}
+		T mappedObject = instantiate(args);
+
+		for (int i = 0; i < plan.propertyColumns.length; i++) {
+			Class<?> type = plan.propertyTypes[i];
+			Object value = convertIfNecessary(getColumnValue(rs, plan.propertyColumns[i], type), type);
+			if (value == null && type.isPrimitive()) {
+				if (this.primitivesDefaultedForNullValue) {
+					continue;
+				}
+				throw new TypeMismatchException((Object) null, type);
+			}
+			try {
+				plan.propertySetters[i].invokeExact(mappedObject, value);
+			}
+			catch (RuntimeException | Error ex) {
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new DataRetrievalFailureException("Unable to map column " + plan.propertyColumns[i] +
+						" to property '" + plan.propertyNames[i] + "'", ex);
+			}
+		}
+		return mappedObject;
+	}
+
+	/**
+	 * Retrieve a JDBC object value for the specified column.
+	 * <p>The default implementation calls
+	 * {@link JdbcUtils#getResultSetValue(java.sql.ResultSet, int, Class)}.
+	 * Subclasses may override this to check specific value types upfront,
+	 * or to post-process values return from {@code getResultSetValue}.
+	 * @param rs is the ResultSet holding the data
+	 * @param index is the column index
+	 * @param requiredType the constructor argument or bean property type
+	 * @return the Object value
+	 * @throws SQLException in case of extraction failure
+	 */
+	@Nullable
+	protected Object getColumnValue(ResultSet rs, int index, Class<?> requiredType) throws SQLException {
+		return JdbcUtils.getResultSetValue(rs, index, requiredType);
+	}
+
+	@Nullable
+	private Object convertIfNecessary(@Nullable Object value, Class<?> requiredType) {
+		if (value == null || ClassUtils.isAssignableValue(requiredType, value)) {
+			return value;
+		}
+		ConversionService cs = getConversionService();
+		if (cs != null && cs.canConvert(value.getClass(), requiredType)) {
+			return cs.convert(value, requiredType);
+		}
+		throw new TypeMismatchException(value, requiredType);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T instantiate(Object[] args) {
+		try {
+			return (T) (Object) this.constructorHandle.invokeExact(args);
+		}
+		catch (RuntimeException | Error ex) {
+			throw ex;
+		}
+		catch (Throwable ex) {
+			throw new DataRetrievalFailureException(
+					"Failed to instantiate mapped class [" + this.mappedClass.getName() + "]", ex);
+		}
+	}
+
+
+	private MappingPlan getMappingPlan(ResultSetMetaData rsmd) throws SQLException {
+		int columnCount = rsmd.getColumnCount();
+		String[] columns = new String[columnCount];
+		for (int index = 1; index <= columnCount; index++) {
+			columns[index - 1] = JdbcUtils.lookupColumnName(rsmd, index);
+		}
+		List<String> key = Arrays.asList(columns);
+		MappingPlan plan = this.mappingPlans.get(key);
+		if (plan == null) {
+			plan = buildMappingPlan(columns);
+			this.mappingPlans.put(key, plan);
+		}
+		return plan;
+	}
+
+	private MappingPlan buildMappingPlan(String[] columns) {
+		Map<String, Integer> columnIndexes = new LinkedHashMap<>(columns.length);
+		for (int i = 0; i < columns.length; i++) {
+			columnIndexes.putIfAbsent(lowerCaseName(StringUtils.delete(columns[i], " ")), i + 1);
+		}
+		Set<String> unmapped = new HashSet<>();
+
+		Class<?>[] parameterTypes = this.mappedConstructor.getParameterTypes();
+		int[] constructorColumns = new int[parameterTypes.length];
+		for (int i = 0; i < parameterTypes.length; i++) {
+			String name = this.constructorParameterNames[i];
+			Integer index = findColumn(columnIndexes, name);
+			if (index != null) {
+				constructorColumns[i] = index;
+				logMapping(columns[index - 1], "constructor argument", name, parameterTypes[i]);
+			}
+			else {
+				unmapped.add(name);
+			}
+		}
+
+		int count = 0;
+		int[] propertyColumns = new int[this.mappedProperties.size()];
+		String[] propertyNames = new String[propertyColumns.length];
+		Class<?>[] propertyTypes = new Class<?>[propertyColumns.length];
+		MethodHandle[] propertySetters = new MethodHandle[propertyColumns.length];
+		for (PropertyDescriptor pd : this.mappedProperties.values()) {
+			Integer index = findColumn(columnIndexes, pd.getName());
+			if (index != null) {
+				propertyColumns[count] = index;
+				propertyNames[count] = pd.getName();
+				propertyTypes[count] = pd.getPropertyType();
+				propertySetters[count] = createSetter(pd);
+				logMapping(columns[index - 1], "property", pd.getName(), pd.getPropertyType());
+				count++;
+			}
+			else {
+				unmapped.add(pd.getName());
+			}
+		}
+
+		if (this.checkFullyPopulated && !unmapped.isEmpty()) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + this.mappedClass.getName() + "]: " + unmapped);
+		}
+		return new MappingPlan(constructorColumns, parameterTypes, Arrays.copyOf(propertyColumns, count),
+				Arrays.copyOf(propertyNames, count), Arrays.copyOf(propertyTypes, count),
+				Arrays.copyOf(propertySetters, count));
+	}
+
+	@Nullable
+	private Integer findColumn(Map<String, Integer> columnIndexes, String name) {
+		Integer index = columnIndexes.get(lowerCaseName(name));
+		if (index == null) {
+			index = columnIndexes.get(underscoreName(name));
+		}
+		return index;
+	}
+
+	private MethodHandle createSetter(PropertyDescriptor pd) {
+		Method writeMethod = pd.getWriteMethod();
+		Assert.state(writeMethod != null, "No write method");
+		ReflectionUtils.makeAccessible(writeMethod);
+		try {
+			return MethodHandles.lookup().unreflect(writeMethod)
+					.asType(MethodType.methodType(void.class, Object.class, Object.class));
+		}
+		catch (IllegalAccessException ex) {
+			throw new InvalidDataAccessApiUsageException("Cannot access setter for property '" +
+					pd.getName() + "' of mapped class [" + this.mappedClass.getName() + "]", ex);
+		}
+	}
+
+	private void logMapping(String column, String kind, String name, Class<?> type) {
+		if (logger.isDebugEnabled()) {
+			logger.debug("Mapping column '" + column + "' to " + kind + " '" + name +
+					"' of type '" + ClassUtils.getQualifiedName(type) + "'");
+		}
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code DataClassRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> DataClassRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new DataClassRowMapper<>(mappedClass);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> Constructor<T> determineConstructor(Class<T> mappedClass) {
+		Constructor<T> ctor = BeanUtils.findPrimaryConstructor(mappedClass);
+		if (ctor != null) {
+			return ctor;
+		}
+		try {
+			return mappedClass.getConstructor();
+		}
+		catch (NoSuchMethodException ex) {
+			// no public default constructor - look for a single data class constructor
+		}
+		Constructor<?>[] ctors = mappedClass.getDeclaredConstructors();
+		if (ctors.length != 1) {
+			throw new InvalidDataAccessApiUsageException("Mapped class [" + mappedClass.getName() +
+					"] needs to declare a public no-arg constructor or a single data class constructor");
+		}
+		return (Constructor<T>) ctors[0];
+	}
+
+	private static String[] determineParameterNames(Constructor<?> ctor) {
+		if (ctor.getParameterCount() == 0) {
+			return new String[0];
+		}
+		ConstructorProperties cp = ctor.getAnnotation(ConstructorProperties.class);
+		String[] names = (cp != null ? cp.value() : parameterNameDiscoverer.getParameterNames(ctor));
+		if (names == null || names.length != ctor.getParameterCount()) {
+			throw new InvalidDataAccessApiUsageException("Cannot determine parameter names for constructor " +
+					ctor + " - compile with '-parameters' or declare @ConstructorProperties");
+		}
+		return names;
+	}
+
+
+	/**
+	 * Column index based mapping plan for a specific result set layout.
+	 */
+	private static final class MappingPlan {
+
+		final int[] constructorColumns;
+
+		final Class<?>[] constructorTypes;
+
+		final int[] propertyColumns;
+
+		final String[] propertyNames;
+
+		final Class<?>[] propertyTypes;
+
+		final MethodHandle[] propertySetters;
+
+		MappingPlan(int[] constructorColumns, Class<?>[] constructorTypes, int[] propertyColumns,
+				String[] propertyNames, Class<?>[] propertyTypes, MethodHandle[] propertySetters) {
+
+			this.constructorColumns = constructorColumns;
+			this.constructorTypes = constructorTypes;
+			this.propertyColumns = propertyColumns;
+			this.propertyNames = propertyNames;
+			this.propertyTypes = propertyTypes;
+			this.propertySetters = propertySetters;
+		}
+	}
+
+
+	/**
+	 * A mapping plan bound to a specific ResultSet, without keeping the latter alive.
+	 */
+	private static final class BoundPlan {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final MappingPlan plan;
+
+		BoundPlan(ResultSet resultSet, MappingPlan plan) {
+			this.resultSet = new WeakReference<>(resultSet);
+			this.plan = plan;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -35,13 +35,19 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
+import org.springframework.core.NamedThreadLocal;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.SQLWarningException;
 import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.StatementObservation.StatementType;
 import org.springframework.jdbc.datasource.ConnectionProxy;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.jdbc.support.JdbcAccessor;
@@ -50,6 +56,7 @@ import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedCaseInsensitiveMap;
 import org.springframework.util.StringUtils;
 
@@ -104,6 +111,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 	private static final String RETURN_UPDATE_COUNT_PREFIX = "#update-count-";
 
+	private static final ThreadLocal<ObservationRecorder> currentObservation =
+			new NamedThreadLocal<>("Current JDBC statement observation");
+
 
 	/** If this variable is false, we will throw exceptions on SQL warnings. */
 	private boolean ignoreWarnings = true;
@@ -147,6 +157,12 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private boolean resultsMapCaseInsensitive = false;
 
+	/**
+	 * Listener for statement observations, if any.
+	 */
+	@Nullable
+	private StatementObservationListener statementObservationListener;
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -311,6 +327,32 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return this.resultsMapCaseInsensitive;
 	}
 
+	/**
+	 * Set a listener to be notified of every statement executed through this
+	 * JdbcTemplate, with SQL, execution time, connection acquisition time,
+	 * rows affected or fetched, fetch size and batch size.
+	 * <p>Default is none. Without a listener, no observation state is
+	 * collected at all: in particular, result sets do not get wrapped
+	 * for counting rows. With a listener, result sets are handed to
+	 * {@link ResultSetExtractor ResultSetExtractors} as JDK proxies which
+	 * implement all interfaces of the driver's ResultSet; the driver's
+	 * ResultSet itself remains available through {@link ResultSet#unwrap}.
+	 * @since 5.2
+	 * @see StatementStatisticsCollector
+	 */
+	public void setStatementObservationListener(@Nullable StatementObservationListener listener) {
+		this.statementObservationListener = listener;
+	}
+
+	/**
+	 * Return the listener for statement observations, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public StatementObservationListener getStatementObservationListener() {
+		return this.statementObservationListener;
+	}
+
 
 	//-------------------------------------------------------------------------
 	// Methods dealing with a plain java.sql.Connection
@@ -366,18 +408,43 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	@Override
 	@Nullable
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true);
+	}
+
+	/**
+	 * Execute the given callback against a JDBC Statement.
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the Statement and release the
+	 * Connection once the callback has completed successfully, or to leave that
+	 * to the caller, e.g. when the result is a lazily consumed {@code Stream}
+	 * @return the result of the callback
+	 */
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
+		StatementObservationListener observationListener = this.statementObservationListener;
+		long connectionStartTime = (observationListener != null ? System.nanoTime() : 0);
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		ObservationRecorder observation =
+				startObservation(observationListener, StatementType.STATEMENT, action, connectionStartTime);
 		Statement stmt = null;
+		boolean success = false;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
+			if (observation != null) {
+				observation.fetchSize = stmt.getFetchSize();
+			}
 			T result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			success = true;
 			return result;
 		}
 		catch (SQLException ex) {
+			if (observation != null) {
+				observation.exception = ex;
+			}
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			String sql = getSql(action);
@@ -388,8 +455,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("StatementCallback", sql, ex);
 		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			if (observation != null) {
+				finishObservation(observation, success);
+			}
+			if (closeResources || !success) {
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -437,7 +509,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				ResultSet rs = null;
 				try {
 					rs = stmt.executeQuery(sql);
-					return rse.extractData(rs);
+					return rse.extractData(observeResultSet(rs));
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -462,6 +534,37 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "]");
+		}
+
+		/**
+		 * Callback to execute the query, leaving the resources open for the Stream.
+		 */
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				ResultSet rs = stmt.executeQuery(sql);
+				Connection con = stmt.getConnection();
+				return new ResultSetSpliterator<>(rs, rowMapper, sql).stream().onClose(() -> {
+					JdbcUtils.closeResultSet(rs);
+					JdbcUtils.closeStatement(stmt);
+					DataSourceUtils.releaseConnection(con, getDataSource());
+				});
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+
+		return result(execute(new StreamStatementCallback(), false));
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return result(queryForObject(sql, getColumnMapRowMapper()));
@@ -509,6 +612,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			@Override
 			public Integer doInStatement(Statement stmt) throws SQLException {
 				int rows = stmt.executeUpdate(sql);
+				observeRowsAffected(rows);
 				if (logger.isTraceEnabled()) {
 					logger.trace("SQL update affected " + rows + " rows");
 				}
@@ -573,6 +677,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						}
 					}
 				}
+				observeBatch(sql.length, rowsAffected);
 				return rowsAffected;
 			}
 
@@ -602,6 +707,22 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true);
+	}
+
+	/**
+	 * Execute the given callback against a JDBC PreparedStatement.
+	 * @param psc the callback that creates the PreparedStatement
+	 * @param action the callback to execute
+	 * @param closeResources whether to close the PreparedStatement and release
+	 * the Connection once the callback has completed successfully, or to leave
+	 * that to the caller, e.g. when the result is a lazily consumed {@code Stream}
+	 * @return the result of the callback
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
+			throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -609,16 +730,28 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Executing prepared SQL statement" + (sql != null ? " [" + sql + "]" : ""));
 		}
 
+		StatementObservationListener observationListener = this.statementObservationListener;
+		long connectionStartTime = (observationListener != null ? System.nanoTime() : 0);
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		ObservationRecorder observation =
+				startObservation(observationListener, StatementType.PREPARED_STATEMENT, psc, connectionStartTime);
 		PreparedStatement ps = null;
+		boolean success = false;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
+			if (observation != null) {
+				observation.fetchSize = ps.getFetchSize();
+			}
 			T result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			success = true;
 			return result;
 		}
 		catch (SQLException ex) {
+			if (observation != null) {
+				observation.exception = ex;
+			}
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			if (psc instanceof ParameterDisposer) {
@@ -632,11 +765,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("PreparedStatementCallback", sql, ex);
 		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			if (observation != null) {
+				finishObservation(observation, success);
+			}
+			if (closeResources || !success) {
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -676,7 +814,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						pss.setValues(ps);
 					}
 					rs = ps.executeQuery();
-					return rse.extractData(rs);
+					return rse.extractData(observeResultSet(rs));
 				}
 				finally {
 					JdbcUtils.closeResultSet(rs);
@@ -753,6 +891,58 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, pss, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, and map each row to a result object via a
+	 * RowMapper, returning a Stream that must be closed once processed.
+	 * @param psc the Callback handler that can create a PreparedStatement given a
+	 * Connection
+	 * @param pss object that knows how to set values on the prepared statement.
+	 * If this is null, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.2
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query");
+
+		return result(execute(psc, ps -> {
+			if (pss != null) {
+				pss.setValues(ps);
+			}
+			ResultSet rs = ps.executeQuery();
+			Connection con = ps.getConnection();
+			return new ResultSetSpliterator<>(rs, rowMapper, getSql(psc)).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			});
+		}, false));
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper) throws DataAccessException {
+		return queryForStream(psc, null, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper) throws DataAccessException {
 		return result(query(sql, args, argTypes, new RowMapperResultSetExtractor<>(rowMapper)));
@@ -768,6 +958,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -865,6 +1062,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					pss.setValues(ps);
 				}
 				int rows = ps.executeUpdate();
+				observeRowsAffected(rows);
 				if (logger.isTraceEnabled()) {
 					logger.trace("SQL update affected " + rows + " rows");
 				}
@@ -892,6 +1090,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		return updateCount(execute(psc, ps -> {
 			int rows = ps.executeUpdate();
+			observeRowsAffected(rows);
 			List<Map<String, Object>> generatedKeys = generatedKeyHolder.getKeyList();
 			generatedKeys.clear();
 			ResultSet keys = ps.getGeneratedKeys();
@@ -947,7 +1146,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 						}
 						ps.addBatch();
 					}
-					return ps.executeBatch();
+					int[] rowsAffected = ps.executeBatch();
+					observeBatch(rowsAffected.length, rowsAffected);
+					return rowsAffected;
 				}
 				else {
 					List<Integer> rowsAffected = new ArrayList<>();
@@ -962,6 +1163,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 					for (int i = 0; i < rowsAffectedArray.length; i++) {
 						rowsAffectedArray[i] = rowsAffected.get(i);
 					}
+					observeBatch(rowsAffectedArray.length, rowsAffectedArray);
 					return rowsAffectedArray;
 				}
 			}
@@ -1054,6 +1256,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 				for (int i = 0; i < result1.length; i++) {
 					result1[i] = rowsAffected.get(i);
 				}
+				observeBatch(n, result1);
 				return result1;
 			}
 			finally {
@@ -1084,16 +1287,28 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			logger.debug("Calling stored procedure" + (sql != null ? " [" + sql  + "]" : ""));
 		}
 
+		StatementObservationListener observationListener = this.statementObservationListener;
+		long connectionStartTime = (observationListener != null ? System.nanoTime() : 0);
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
+		ObservationRecorder observation =
+				startObservation(observationListener, StatementType.CALLABLE_STATEMENT, csc, connectionStartTime);
 		CallableStatement cs = null;
+		boolean success = false;
 		try {
 			cs = csc.createCallableStatement(con);
 			applyStatementSettings(cs);
+			if (observation != null) {
+				observation.fetchSize = cs.getFetchSize();
+			}
 			T result = action.doInCallableStatement(cs);
 			handleWarnings(cs);
+			success = true;
 			return result;
 		}
 		catch (SQLException ex) {
+			if (observation != null) {
+				observation.exception = ex;
+			}
 			// Release Connection early, to avoid potential connection pool deadlock
 			// in the case when the exception translator hasn't been initialized yet.
 			if (csc instanceof ParameterDisposer) {
@@ -1107,6 +1322,9 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("CallableStatementCallback", sql, ex);
 		}
 		finally {
+			if (observation != null) {
+				finishObservation(observation, success);
+			}
 			if (csc instanceof ParameterDisposer) {
 				((ParameterDisposer) csc).cleanupParameters();
 			}
@@ -1290,16 +1508,16 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		try {
 			if (param.getRowMapper() != null) {
 				RowMapper<?> rowMapper = param.getRowMapper();
-				Object result = (new RowMapperResultSetExtractor<>(rowMapper)).extractData(rs);
+				Object result = (new RowMapperResultSetExtractor<>(rowMapper)).extractData(observeResultSet(rs));
 				returnedResults.put(param.getName(), result);
 			}
 			else if (param.getRowCallbackHandler() != null) {
 				RowCallbackHandler rch = param.getRowCallbackHandler();
-				(new RowCallbackHandlerResultSetExtractor(rch)).extractData(rs);
+				(new RowCallbackHandlerResultSetExtractor(rch)).extractData(observeResultSet(rs));
 				returnedResults.put(param.getName(), "ResultSet returned from stored procedure was processed");
 			}
 			else if (param.getResultSetExtractor() != null) {
-				Object result = param.getResultSetExtractor().extractData(rs);
+				Object result = param.getResultSetExtractor().extractData(observeResultSet(rs));
 				returnedResults.put(param.getName(), result);
 			}
 		}
@@ -1462,6 +1680,120 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+	/**
+	 * Start an observation for the statement execution about to happen,
+	 * exposing it to statement callbacks on the current thread.
+	 * @param listener the listener to notify (may be {@code null})
+	 * @param statementType the type of JDBC Statement
+	 * @param sqlProvider the object to obtain the SQL from
+	 * @param connectionStartTime the start of Connection acquisition
+	 * @return the observation, or {@code null} if there is no listener
+	 */
+	@Nullable
+	private static ObservationRecorder startObservation(@Nullable StatementObservationListener listener,
+			StatementType statementType, Object sqlProvider, long connectionStartTime) {
+
+		if (listener == null) {
+			return null;
+		}
+		ObservationRecorder observation = new ObservationRecorder(
+				listener, statementType, sqlProvider, connectionStartTime, currentObservation.get());
+		currentObservation.set(observation);
+		return observation;
+	}
+
+	private void finishObservation(ObservationRecorder observation, boolean success) {
+		long executionNanos = System.nanoTime() - observation.startTime;
+		ObservationRecorder previous = observation.previous;
+		if (previous != null) {
+			currentObservation.set(previous);
+		}
+		else {
+			currentObservation.remove();
+		}
+		// SQL resolved late, for batches that track their current statement
+		StatementObservation result = new StatementObservation(observation.statementType,
+				getSql(observation.sqlProvider),
+				observation.startTime - observation.connectionStartTime, executionNanos, observation.fetchSize,
+				observation.rowsAffected, observation.rowsFetched, observation.batchSize,
+				success, observation.exception);
+		try {
+			observation.listener.onStatement(result);
+		}
+		catch (RuntimeException ex) {
+			logger.warn("StatementObservationListener failed for " + result, ex);
+		}
+	}
+
+	/**
+	 * Return the observation for the current statement callback, if any.
+	 */
+	@Nullable
+	private ObservationRecorder currentObservation() {
+		return (this.statementObservationListener != null ? currentObservation.get() : null);
+	}
+
+	/**
+	 * Wrap the given ResultSet for counting fetched rows if the current
+	 * statement is being observed; otherwise return it as-is.
+	 * <p>The wrapper implements all interfaces of the given ResultSet,
+	 * including vendor-specific ones.
+	 */
+	private ResultSet observeResultSet(ResultSet rs) {
+		ObservationRecorder observation = currentObservation();
+		if (observation == null || rs == null) {
+			return rs;
+		}
+		if (observation.rowsFetched < 0) {
+			observation.rowsFetched = 0;
+		}
+		ClassLoader classLoader = rs.getClass().getClassLoader();
+		if (classLoader == null) {
+			classLoader = ResultSet.class.getClassLoader();
+		}
+		return (ResultSet) Proxy.newProxyInstance(classLoader,
+				ClassUtils.getAllInterfacesForClass(rs.getClass(), classLoader),
+				new RowCountingInvocationHandler(rs, observation));
+	}
+
+	private void observeRowsAffected(int rows) {
+		ObservationRecorder observation = currentObservation();
+		if (observation != null) {
+			observation.rowsAffected = rows;
+		}
+	}
+
+	private void observeBatch(int batchSize, int[] rowsAffected) {
+		ObservationRecorder observation = currentObservation();
+		if (observation != null) {
+			observation.batchSize = batchSize;
+			observation.rowsAffected = sumUpdateCounts(rowsAffected);
+		}
+	}
+
+	private void observeBatch(int batchSize, int[][] rowsAffected) {
+		ObservationRecorder observation = currentObservation();
+		if (observation != null) {
+			long rows = 0;
+			for (int[] counts : rowsAffected) {
+				rows += sumUpdateCounts(counts);
+			}
+			observation.batchSize = batchSize;
+			observation.rowsAffected = rows;
+		}
+	}
+
+	private static long sumUpdateCounts(int[] rowsAffected) {
+		long rows = 0;
+		for (int count : rowsAffected) {
+			// Ignore Statement.SUCCESS_NO_INFO and Statement.EXECUTE_FAILED
+			if (count > 0) {
+				rows += count;
+			}
+		}
+		return rows;
+	}
+
 	private static <T> T result(@Nullable T result) {
 		Assert.state(result != null, "No result");
 		return result;
@@ -1611,4 +1943,144 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 	}
 
+
+	/**
+	 * Spliterator for queryForStream adaptation of a ResultSet to a Stream,
+	 * mapping each row through the given RowMapper as the Stream is consumed.
+	 * @since 5.2
+	 */
+	private class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSetSpliterator", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
+	}
+
+
+	/**
+	 * Mutable state of a statement execution being observed.
+	 */
+	private static final class ObservationRecorder {
+
+		final StatementObservationListener listener;
+
+		final StatementType statementType;
+
+		final Object sqlProvider;
+
+		final long connectionStartTime;
+
+		final long startTime;
+
+		@Nullable
+		final ObservationRecorder previous;
+
+		int fetchSize = -1;
+
+		long rowsAffected = -1;
+
+		long rowsFetched = -1;
+
+		int batchSize = -1;
+
+		@Nullable
+		SQLException exception;
+
+		ObservationRecorder(StatementObservationListener listener, StatementType statementType,
+				Object sqlProvider, long connectionStartTime, @Nullable ObservationRecorder previous) {
+
+			this.listener = listener;
+			this.statementType = statementType;
+			this.sqlProvider = sqlProvider;
+			this.connectionStartTime = connectionStartTime;
+			this.startTime = System.nanoTime();
+			this.previous = previous;
+		}
+	}
+
+
+	/**
+	 * Invocation handler that counts the rows fetched from a ResultSet.
+	 * {@code unwrap} and {@code isWrapperFor} calls are passed on to the
+	 * target ResultSet, exposing it without row counting.
+	 */
+	private static class RowCountingInvocationHandler implements InvocationHandler {
+
+		private final ResultSet target;
+
+		private final ObservationRecorder observation;
+
+		public RowCountingInvocationHandler(ResultSet target, ObservationRecorder observation) {
+			this.target = target;
+			this.observation = observation;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch (method.getName()) {
+				case "equals":
+					return (proxy == args[0]);
+				case "hashCode":
+					return System.identityHashCode(proxy);
+			}
+
+			try {
+				Object retVal = method.invoke(this.target, args);
+				if ("next".equals(method.getName()) && Boolean.TRUE.equals(retVal)) {
+					this.observation.rowsFetched++;
+				}
+				return retVal;
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
 }
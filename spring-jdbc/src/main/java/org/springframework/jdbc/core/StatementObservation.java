@@ -0,0 +1,324 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Observation of a single statement execution through {@link JdbcTemplate},
+ * as passed to a {@link StatementObservationListener}.
+ *
+ * <p>Values that are unknown for a specific execution path are exposed as -1:
+ * e.g. rows affected for queries, rows fetched for updates and for lazily
+ * consumed {@code Stream} results, and the batch size for non-batch executions.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see StatementObservationListener
+ */
+public final class StatementObservation {
+
+	/**
+	 * The type of JDBC Statement that an execution has been performed with.
+	 */
+	public enum StatementType {
+
+		/** A plain {@link java.sql.Statement}. */
+		STATEMENT,
+
+		/** A {@link java.sql.PreparedStatement}. */
+		PREPARED_STATEMENT,
+
+		/** A {@link java.sql.CallableStatement}. */
+		CALLABLE_STATEMENT
+	}
+
+
+	private final StatementType statementType;
+
+	@Nullable
+	private final String sql;
+
+	private final long connectionAcquisitionNanos;
+
+	private final long executionNanos;
+
+	private final int fetchSize;
+
+	private final long rowsAffected;
+
+	private final long rowsFetched;
+
+	private final int batchSize;
+
+	private final boolean successful;
+
+	@Nullable
+	private final SQLException exception;
+
+	@Nullable
+	private String normalizedSql;
+
+
+	StatementObservation(StatementType statementType, @Nullable String sql,
+			long connectionAcquisitionNanos, long executionNanos, int fetchSize,
+			long rowsAffected, long rowsFetched, int batchSize,
+			boolean successful, @Nullable SQLException exception) {
+
+		this.statementType = statementType;
+		this.sql = sql;
+		this.connectionAcquisitionNanos = connectionAcquisitionNanos;
+		this.executionNanos = executionNanos;
+		this.fetchSize = fetchSize;
+		this.rowsAffected = rowsAffected;
+		this.rowsFetched = rowsFetched;
+		this.batchSize = batchSize;
+		this.successful = successful;
+		this.exception = exception;
+	}
+
+
+	/**
+	 * Return the type of JDBC Statement used for the execution.
+	 */
+	public StatementType getStatementType() {
+		return this.statementType;
+	}
+
+	/**
+	 * Return the executed SQL, if known.
+	 * <p>Multiple statements in a batch of plain Statements are separated by "; ".
+	 * @see SqlProvider
+	 */
+	@Nullable
+	public String getSql() {
+		return this.sql;
+	}
+
+	/**
+	 * Return the executed SQL in {@link #normalizeSql normalized} form, if known.
+	 */
+	@Nullable
+	public String getNormalizedSql() {
+		String normalizedSql = this.normalizedSql;
+		if (normalizedSql == null && this.sql != null) {
+			normalizedSql = normalizeSql(this.sql);
+			this.normalizedSql = normalizedSql;
+		}
+		return normalizedSql;
+	}
+
+	/**
+	 * Return the time spent obtaining the JDBC Connection, in nanoseconds.
+	 * <p>This is close to zero for Connections already bound to a transaction.
+	 */
+	public long getConnectionAcquisitionNanos() {
+		return this.connectionAcquisitionNanos;
+	}
+
+	/**
+	 * Return the time spent obtaining the JDBC Connection.
+	 */
+	public Duration getConnectionAcquisitionTime() {
+		return Duration.ofNanos(this.connectionAcquisitionNanos);
+	}
+
+	/**
+	 * Return the execution time in nanoseconds, from the creation of the
+	 * JDBC Statement up until the statement callback (including result
+	 * extraction) has completed.
+	 */
+	public long getExecutionNanos() {
+		return this.executionNanos;
+	}
+
+	/**
+	 * Return the execution time, from the creation of the JDBC Statement up until
+	 * the statement callback (including result extraction) has completed.
+	 */
+	public Duration getExecutionTime() {
+		return Duration.ofNanos(this.executionNanos);
+	}
+
+	/**
+	 * Return the fetch size of the JDBC Statement, or -1 if not known.
+	 * @see java.sql.Statement#getFetchSize()
+	 */
+	public int getFetchSize() {
+		return this.fetchSize;
+	}
+
+	/**
+	 * Return the number of rows affected by an update, or the total number
+	 * of rows affected by a batch update (not counting entries without a known
+	 * update count), or -1 if not known.
+	 */
+	public long getRowsAffected() {
+		return this.rowsAffected;
+	}
+
+	/**
+	 * Return the number of rows fetched from result sets, or -1 if not known.
+	 */
+	public long getRowsFetched() {
+		return this.rowsFetched;
+	}
+
+	/**
+	 * Return the number of statements in a batch update,
+	 * or -1 if the execution has not been a batch update.
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Return whether the execution has been a batch update.
+	 */
+	public boolean isBatch() {
+		return (this.batchSize >= 0);
+	}
+
+	/**
+	 * Return whether the statement callback completed successfully.
+	 */
+	public boolean isSuccessful() {
+		return this.successful;
+	}
+
+	/**
+	 * Return the SQLException that the execution failed with, if any.
+	 */
+	@Nullable
+	public SQLException getException() {
+		return this.exception;
+	}
+
+	@Override
+	public String toString() {
+		return "StatementObservation [" + this.statementType + ": " + this.sql + "] in " +
+				this.executionNanos / 1000 + " us" + (this.successful ? "" : " (failed)");
+	}
+
+
+	/**
+	 * Normalize the given SQL for aggregation purposes: collapsing whitespace,
+	 * stripping comments, replacing string and numeric literals with {@code ?}
+	 * and collapsing lists of placeholders (e.g. expanded IN clauses) into a
+	 * single {@code ?}.
+	 * <p>For example, {@code "SELECT *  FROM t WHERE id IN (?, ?, ?) AND name = 'x'"}
+	 * gets normalized to {@code "SELECT * FROM t WHERE id IN (?) AND name = ?"}.
+	 * @param sql the SQL to normalize
+	 * @return the normalized SQL
+	 */
+	public static String normalizeSql(String sql) {
+		int length = sql.length();
+		StringBuilder sb = new StringBuilder(length);
+		boolean pendingSpace = false;
+		int i = 0;
+		while (i < length) {
+			char c = sql.charAt(i);
+			if (Character.isWhitespace(c)) {
+				pendingSpace = (sb.length() > 0);
+				i++;
+			}
+			else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+				// line comment
+				while (i < length && sql.charAt(i) != '\n') {
+					i++;
+				}
+				pendingSpace = (sb.length() > 0);
+			}
+			else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+				// block comment
+				int end = sql.indexOf("*/", i + 2);
+				i = (end != -1 ? end + 2 : length);
+				pendingSpace = (sb.length() > 0);
+			}
+			else if (c == '\'') {
+				// string literal, with '' as escaped quote
+				i++;
+				while (i < length) {
+					if (sql.charAt(i) == '\'') {
+						if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+							i += 2;
+							continue;
+						}
+						break;
+					}
+					i++;
+				}
+				i++;
+				appendPlaceholder(sb, pendingSpace);
+				pendingSpace = false;
+			}
+			else if (Character.isDigit(c) && !isIdentifierEnd(sb, pendingSpace)) {
+				// numeric literal
+				while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+					i++;
+				}
+				appendPlaceholder(sb, pendingSpace);
+				pendingSpace = false;
+			}
+			else if (c == '?') {
+				i++;
+				appendPlaceholder(sb, pendingSpace);
+				pendingSpace = false;
+			}
+			else {
+				if (pendingSpace) {
+					sb.append(' ');
+					pendingSpace = false;
+				}
+				sb.append(c);
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
+	private static boolean isIdentifierEnd(StringBuilder sb, boolean pendingSpace) {
+		if (pendingSpace || sb.length() == 0) {
+			return false;
+		}
+		char last = sb.charAt(sb.length() - 1);
+		return (Character.isLetterOrDigit(last) || last == '_' || last == '$' || last == '"');
+	}
+
+	private static void appendPlaceholder(StringBuilder sb, boolean pendingSpace) {
+		// Collapse "?, ?" sequences into a single placeholder
+		int end = sb.length();
+		if (end > 0 && sb.charAt(end - 1) == ',') {
+			int previous = end - 2;
+			while (previous >= 0 && sb.charAt(previous) == ' ') {
+				previous--;
+			}
+			if (previous >= 0 && sb.charAt(previous) == '?') {
+				sb.setLength(previous + 1);
+				return;
+			}
+		}
+		if (pendingSpace) {
+			sb.append(' ');
+		}
+		sb.append('?');
+	}
+
+}
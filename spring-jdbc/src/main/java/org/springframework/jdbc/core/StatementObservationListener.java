@@ -0,0 +1,42 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+/**
+ * Callback interface for observing the JDBC statements executed by a
+ * {@link JdbcTemplate}: SQL, execution time, row counts, batch size etc.
+ *
+ * <p>Invoked synchronously on the executing thread, after the statement callback
+ * has completed and before the JDBC Statement and Connection have been released.
+ * Implementations should therefore be fast and must be thread-safe. Exceptions
+ * thrown by a listener are logged and otherwise ignored.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see JdbcTemplate#setStatementObservationListener
+ * @see StatementStatisticsCollector
+ */
+@FunctionalInterface
+public interface StatementObservationListener {
+
+	/**
+	 * Receive the observation for a completed (or failed) statement execution.
+	 * @param observation the observed statement execution
+	 */
+	void onStatement(StatementObservation observation);
+
+}
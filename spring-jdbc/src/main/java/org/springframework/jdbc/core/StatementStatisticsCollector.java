@@ -0,0 +1,356 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+
+/**
+ * {@link StatementObservationListener} that aggregates statement statistics in
+ * memory, per {@link StatementObservation#normalizeSql normalized SQL} statement:
+ * execution counts, errors, rows and a latency histogram for percentile queries.
+ *
+ * <p>Latencies are recorded in a log-linear histogram with microsecond resolution
+ * and a relative error of at most 1/16 (in the style of HdrHistogram), in a
+ * fixed-size lock-free structure per statement. The number of distinct statements
+ * is {@link #setMaxStatements limited}, with further statements being aggregated
+ * under {@link #OTHER_STATEMENTS}.
+ *
+ * <pre class="code">
+ * StatementStatisticsCollector collector = new StatementStatisticsCollector();
+ * jdbcTemplate.setStatementObservationListener(collector);
+ * ...
+ * collector.getStatistics().forEach((sql, stats) -&gt;
+ *     System.out.println(sql + ": " + stats.getCount() + " executions, p99 = " + stats.getPercentile(99));</pre>
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see JdbcTemplate#setStatementObservationListener
+ */
+public class StatementStatisticsCollector implements StatementObservationListener {
+
+	/**
+	 * Default maximum number of distinct statements to keep statistics for.
+	 */
+	public static final int DEFAULT_MAX_STATEMENTS = 1000;
+
+	/**
+	 * Key for statistics of statements beyond the maximum number of statements.
+	 */
+	public static final String OTHER_STATEMENTS = "<other>";
+
+	/**
+	 * Key for statistics of statements without known SQL.
+	 */
+	public static final String UNKNOWN_STATEMENTS = "<unknown>";
+
+
+	private final Map<String, Statistics> statistics = new ConcurrentHashMap<>(64);
+
+	private final ConcurrentLruCache<String, String> normalizedSqlCache =
+			new ConcurrentLruCache<>(256, StatementObservation::normalizeSql);
+
+	/** Number of distinct statements tracked, excluding {@link #OTHER_STATEMENTS}. */
+	private final AtomicInteger statementCount = new AtomicInteger();
+
+	private volatile int maxStatements = DEFAULT_MAX_STATEMENTS;
+
+
+	/**
+	 * Set the maximum number of distinct statements to keep statistics for.
+	 * Default is {@link #DEFAULT_MAX_STATEMENTS}.
+	 */
+	public void setMaxStatements(int maxStatements) {
+		Assert.isTrue(maxStatements > 0, "Max statements must be greater than 0");
+		this.maxStatements = maxStatements;
+	}
+
+	/**
+	 * Return the maximum number of distinct statements to keep statistics for.
+	 */
+	public int getMaxStatements() {
+		return this.maxStatements;
+	}
+
+
+	@Override
+	public void onStatement(StatementObservation observation) {
+		String sql = observation.getSql();
+		String key = (sql != null ? this.normalizedSqlCache.get(sql) : UNKNOWN_STATEMENTS);
+		Statistics stats = this.statistics.get(key);
+		if (stats == null) {
+			stats = addStatistics(key);
+		}
+		stats.record(observation);
+	}
+
+	private Statistics addStatistics(String key) {
+		if (!OTHER_STATEMENTS.equals(key)) {
+			// Reserve a slot first, so that concurrent additions cannot exceed the limit
+			if (this.statementCount.incrementAndGet() <= this.maxStatements) {
+				Statistics stats = new Statistics();
+				Statistics existing = this.statistics.putIfAbsent(key, stats);
+				if (existing == null) {
+					return stats;
+				}
+				this.statementCount.decrementAndGet();
+				return existing;
+			}
+			this.statementCount.decrementAndGet();
+		}
+		return this.statistics.computeIfAbsent(OTHER_STATEMENTS, k -> new Statistics());
+	}
+
+	/**
+	 * Return the statistics collected so far, keyed by normalized SQL.
+	 * @return an unmodifiable live view of the statistics
+	 */
+	public Map<String, Statistics> getStatistics() {
+		return Collections.unmodifiableMap(this.statistics);
+	}
+
+	/**
+	 * Return the statistics for the given SQL statement, if any.
+	 * @param sql the SQL statement (in original or normalized form)
+	 * @return the statistics, or {@code null} if the statement has not been observed
+	 */
+	@Nullable
+	public Statistics getStatistics(String sql) {
+		return this.statistics.get(this.normalizedSqlCache.get(sql));
+	}
+
+	/**
+	 * Reset all statistics collected so far.
+	 */
+	public void reset() {
+		this.statistics.clear();
+		this.statementCount.set(0);
+	}
+
+
+	/**
+	 * Statistics for a single normalized SQL statement.
+	 */
+	public static final class Statistics {
+
+		private final LongAdder count = new LongAdder();
+
+		private final LongAdder errorCount = new LongAdder();
+
+		private final LongAdder totalNanos = new LongAdder();
+
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private final LongAdder totalConnectionAcquisitionNanos = new LongAdder();
+
+		private final LongAdder rowsAffected = new LongAdder();
+
+		private final LongAdder rowsFetched = new LongAdder();
+
+		private final LongAdder batchCount = new LongAdder();
+
+		private final LongAdder batchedStatements = new LongAdder();
+
+		private final LatencyHistogram histogram = new LatencyHistogram();
+
+		Statistics() {
+		}
+
+		void record(StatementObservation observation) {
+			long nanos = observation.getExecutionNanos();
+			this.count.increment();
+			if (!observation.isSuccessful()) {
+				this.errorCount.increment();
+			}
+			this.totalNanos.add(nanos);
+			this.maxNanos.accumulateAndGet(nanos, Math::max);
+			this.totalConnectionAcquisitionNanos.add(observation.getConnectionAcquisitionNanos());
+			if (observation.getRowsAffected() > 0) {
+				this.rowsAffected.add(observation.getRowsAffected());
+			}
+			if (observation.getRowsFetched() > 0) {
+				this.rowsFetched.add(observation.getRowsFetched());
+			}
+			if (observation.isBatch()) {
+				this.batchCount.increment();
+				this.batchedStatements.add(observation.getBatchSize());
+			}
+			this.histogram.record(nanos / 1000);
+		}
+
+		/**
+		 * Return the number of executions.
+		 */
+		public long getCount() {
+			return this.count.sum();
+		}
+
+		/**
+		 * Return the number of failed executions.
+		 */
+		public long getErrorCount() {
+			return this.errorCount.sum();
+		}
+
+		/**
+		 * Return the total execution time.
+		 */
+		public Duration getTotalTime() {
+			return Duration.ofNanos(this.totalNanos.sum());
+		}
+
+		/**
+		 * Return the mean execution time.
+		 */
+		public Duration getMeanTime() {
+			long count = getCount();
+			return (count > 0 ? Duration.ofNanos(this.totalNanos.sum() / count) : Duration.ZERO);
+		}
+
+		/**
+		 * Return the maximum execution time.
+		 */
+		public Duration getMaxTime() {
+			return Duration.ofNanos(this.maxNanos.get());
+		}
+
+		/**
+		 * Return the execution time at the given percentile, with microsecond
+		 * resolution and a relative error of at most 1/16.
+		 * @param percentile the percentile (between 0 and 100, e.g. 99.9)
+		 */
+		public Duration getPercentile(double percentile) {
+			Assert.isTrue(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100");
+			long micros = this.histogram.getValueAtPercentile(percentile);
+			return Duration.ofNanos(Math.min(micros * 1000, this.maxNanos.get()));
+		}
+
+		/**
+		 * Return the total time spent obtaining JDBC Connections.
+		 */
+		public Duration getTotalConnectionAcquisitionTime() {
+			return Duration.ofNanos(this.totalConnectionAcquisitionNanos.sum());
+		}
+
+		/**
+		 * Return the total number of rows affected by updates.
+		 */
+		public long getRowsAffected() {
+			return this.rowsAffected.sum();
+		}
+
+		/**
+		 * Return the total number of rows fetched by queries.
+		 */
+		public long getRowsFetched() {
+			return this.rowsFetched.sum();
+		}
+
+		/**
+		 * Return the number of batch executions.
+		 */
+		public long getBatchCount() {
+			return this.batchCount.sum();
+		}
+
+		/**
+		 * Return the total number of statements sent in batches.
+		 */
+		public long getBatchedStatements() {
+			return this.batchedStatements.sum();
+		}
+
+		@Override
+		public String toString() {
+			return "count=" + getCount() + ", errors=" + getErrorCount() + ", mean=" + getMeanTime() +
+					", p50=" + getPercentile(50) + ", p99=" + getPercentile(99) + ", max=" + getMaxTime();
+		}
+	}
+
+
+	/**
+	 * Lock-free log-linear histogram: exact values below 16, then 16 linear
+	 * sub-buckets per power of two, up to 2^41 (about 25 days in microseconds).
+	 */
+	static final class LatencyHistogram {
+
+		private static final int SUB_BUCKET_BITS = 4;
+
+		private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+		private static final int MAX_EXPONENT = 40;
+
+		private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+
+		private final AtomicLongArray counts =
+				new AtomicLongArray(SUB_BUCKET_COUNT + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT);
+
+		private final LongAdder totalCount = new LongAdder();
+
+		void record(long value) {
+			this.counts.incrementAndGet(indexFor(value));
+			this.totalCount.increment();
+		}
+
+		long getValueAtPercentile(double percentile) {
+			long total = this.totalCount.sum();
+			if (total == 0) {
+				return 0;
+			}
+			long target = Math.max((long) Math.ceil(percentile / 100 * total), 1);
+			long cumulative = 0;
+			for (int i = 0; i < this.counts.length(); i++) {
+				cumulative += this.counts.get(i);
+				if (cumulative >= target) {
+					return highestValueFor(i);
+				}
+			}
+			return MAX_VALUE;
+		}
+
+		static int indexFor(long value) {
+			long v = Math.min(Math.max(value, 0), MAX_VALUE);
+			if (v < SUB_BUCKET_COUNT) {
+				return (int) v;
+			}
+			int exponent = 63 - Long.numberOfLeadingZeros(v);
+			int shift = exponent - SUB_BUCKET_BITS;
+			int subBucket = (int) (v >>> shift) - SUB_BUCKET_COUNT;
+			return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+		}
+
+		static long highestValueFor(int index) {
+			if (index < SUB_BUCKET_COUNT) {
+				return index;
+			}
+			int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+			int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+			return ((long) (subBucket + SUB_BUCKET_COUNT + 1) << shift) - 1;
+		}
+	}
+
+}
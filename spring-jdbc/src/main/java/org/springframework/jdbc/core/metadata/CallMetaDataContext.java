@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -98,6 +98,10 @@ public class CallMetaDataContext {
 	@Nullable
 	private CallMetaDataProvider metaDataProvider;
 
+	// Shared cache to obtain the provider from, if any
+	@Nullable
+	private MetaDataProviderCache metaDataProviderCache;
+
 
 	/**
 	 * Specify the name used for the return value of the function.
@@ -244,13 +248,33 @@ public class CallMetaDataContext {
 		return this.namedBinding;
 	}
 
+	/**
+	 * Specify a shared cache to obtain the {@link CallMetaDataProvider} from,
+	 * instead of retrieving the database meta-data for every context.
+	 * @since 5.2
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.metaDataProviderCache = metaDataProviderCache;
+	}
+
+	/**
+	 * Return the shared provider cache, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public MetaDataProviderCache getMetaDataProviderCache() {
+		return this.metaDataProviderCache;
+	}
+
 
 	/**
 	 * Initialize this class with meta-data from the database.
 	 * @param dataSource the DataSource used to retrieve meta-data
 	 */
 	public void initializeMetaData(DataSource dataSource) {
-		this.metaDataProvider = CallMetaDataProviderFactory.createMetaDataProvider(dataSource, this);
+		this.metaDataProvider = (this.metaDataProviderCache != null ?
+				this.metaDataProviderCache.getCallMetaDataProvider(dataSource, this) :
+				CallMetaDataProviderFactory.createMetaDataProvider(dataSource, this));
 	}
 
 	private CallMetaDataProvider obtainMetaDataProvider() {
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.metadata;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Cache for {@link TableMetaDataProvider} and {@link CallMetaDataProvider} instances,
+ * scoped by {@link DataSource}. May be shared between any number of
+ * {@link org.springframework.jdbc.core.simple.SimpleJdbcInsert} and
+ * {@link org.springframework.jdbc.core.simple.SimpleJdbcCall} objects in order to
+ * avoid repeated {@link java.sql.DatabaseMetaData} lookups for the same table or
+ * procedure when such objects are created and compiled on demand.
+ *
+ * <p>Cached providers are keyed by catalog, schema and table/procedure name as well
+ * as the meta-data access options of the requesting context, with identifiers matched
+ * case-insensitively (in line with unquoted SQL identifiers). Concurrent requests for
+ * the same provider retrieve its meta-data only once. Entries may expire
+ * after a configurable {@link #setTimeToLive time to live}, or be evicted explicitly
+ * through {@link #invalidateTable}, {@link #invalidateProcedure}, {@link #invalidate}
+ * and {@link #clear}, e.g. after a schema migration.
+ *
+ * <p>Providers can be loaded ahead of time through {@link #prewarmTables} and
+ * {@link #prewarmCalls}, retrieving the meta-data in parallel on a given
+ * {@link Executor} at application startup.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see TableMetaDataContext#setMetaDataProviderCache
+ * @see CallMetaDataContext#setMetaDataProviderCache
+ */
+public class MetaDataProviderCache {
+
+	private static final Log logger = LogFactory.getLog(MetaDataProviderCache.class);
+
+	private final Map<DataSource, Map<ProviderKey, CacheEntry>> dataSourceCache =
+			new ConcurrentReferenceHashMap<>(16);
+
+	private volatile long timeToLiveNanos = -1;
+
+
+	/**
+	 * Create a new {@code MetaDataProviderCache} with non-expiring entries.
+	 */
+	public MetaDataProviderCache() {
+	}
+
+	/**
+	 * Create a new {@code MetaDataProviderCache} with the given time to live.
+	 * @param timeToLive the time to live for cached providers
+	 * @see #setTimeToLive
+	 */
+	public MetaDataProviderCache(Duration timeToLive) {
+		setTimeToLive(timeToLive);
+	}
+
+
+	/**
+	 * Set the time after which a cached provider expires and its meta-data gets
+	 * retrieved from the database again.
+	 * <p>Default is none, keeping providers until explicitly invalidated.
+	 * @param timeToLive the time to live, or {@code null} for no expiration
+	 */
+	public void setTimeToLive(@Nullable Duration timeToLive) {
+		Assert.isTrue(timeToLive == null || !timeToLive.isNegative(), "Time to live must not be negative");
+		this.timeToLiveNanos = (timeToLive != null ? timeToLive.toNanos() : -1);
+	}
+
+	/**
+	 * Return the time to live for cached providers, or {@code null} if none.
+	 */
+	@Nullable
+	public Duration getTimeToLive() {
+		long ttl = this.timeToLiveNanos;
+		return (ttl >= 0 ? Duration.ofNanos(ttl) : null);
+	}
+
+
+	/**
+	 * Return a {@link TableMetaDataProvider} for the given context,
+	 * creating it from the database meta-data if not cached yet.
+	 * @param dataSource the DataSource to retrieve meta-data from
+	 * @param context the table meta-data context with the configuration options
+	 * @return the cached or newly created provider
+	 * @see TableMetaDataProviderFactory#createMetaDataProvider
+	 */
+	public TableMetaDataProvider getTableMetaDataProvider(DataSource dataSource, TableMetaDataContext context) {
+		ProviderKey key = new ProviderKey(false, context.getCatalogName(), context.getSchemaName(),
+				context.getTableName(), context.isAccessTableColumnMetaData(),
+				context.isOverrideIncludeSynonymsDefault());
+		return (TableMetaDataProvider) getProvider(dataSource, key,
+				() -> TableMetaDataProviderFactory.createMetaDataProvider(dataSource, context));
+	}
+
+	/**
+	 * Return a {@link CallMetaDataProvider} for the given context,
+	 * creating it from the database meta-data if not cached yet.
+	 * @param dataSource the DataSource to retrieve meta-data from
+	 * @param context the call meta-data context with the configuration options
+	 * @return the cached or newly created provider
+	 * @see CallMetaDataProviderFactory#createMetaDataProvider
+	 */
+	public CallMetaDataProvider getCallMetaDataProvider(DataSource dataSource, CallMetaDataContext context) {
+		ProviderKey key = new ProviderKey(true, context.getCatalogName(), context.getSchemaName(),
+				context.getProcedureName(), context.isAccessCallParameterMetaData(), context.isFunction());
+		return (CallMetaDataProvider) getProvider(dataSource, key,
+				() -> CallMetaDataProviderFactory.createMetaDataProvider(dataSource, context));
+	}
+
+	private Object getProvider(DataSource dataSource, ProviderKey key, Supplier<Object> providerFactory) {
+		Map<ProviderKey, CacheEntry> cache =
+				this.dataSourceCache.computeIfAbsent(dataSource, ds -> new ConcurrentHashMap<>(16));
+		CacheEntry entry = cache.get(key);
+		if (entry != null && !entry.isExpired(System.nanoTime(), this.timeToLiveNanos)) {
+			return entry.getProvider();
+		}
+		CacheEntry newEntry = new CacheEntry();
+		entry = cache.compute(key, (k, existing) ->
+				(existing == null || existing.isExpired(System.nanoTime(), this.timeToLiveNanos) ?
+						newEntry : existing));
+		if (entry != newEntry) {
+			// Loaded or being loaded by another caller
+			return entry.getProvider();
+		}
+		// Meta-data retrieval happens outside of any lock, with concurrent
+		// callers for the same key waiting for its outcome.
+		Object provider;
+		try {
+			provider = providerFactory.get();
+		}
+		catch (RuntimeException | Error ex) {
+			cache.remove(key, newEntry);
+			newEntry.fail(ex);
+			throw ex;
+		}
+		newEntry.complete(provider);
+		if (logger.isDebugEnabled()) {
+			logger.debug("Cached meta-data provider for " + key);
+		}
+		return provider;
+	}
+
+
+	/**
+	 * Evict all cached providers for the given table, irrespective of
+	 * their meta-data access options.
+	 * @param dataSource the DataSource that the table belongs to
+	 * @param catalogName the catalog name (may be {@code null})
+	 * @param schemaName the schema name (may be {@code null})
+	 * @param tableName the table name
+	 */
+	public void invalidateTable(DataSource dataSource, @Nullable String catalogName,
+			@Nullable String schemaName, String tableName) {
+
+		invalidate(dataSource, false, catalogName, schemaName, tableName);
+	}
+
+	/**
+	 * Evict all cached providers for the given procedure or function,
+	 * irrespective of their meta-data access options.
+	 * @param dataSource the DataSource that the procedure belongs to
+	 * @param catalogName the catalog name (may be {@code null})
+	 * @param schemaName the schema name (may be {@code null})
+	 * @param procedureName the procedure or function name
+	 */
+	public void invalidateProcedure(DataSource dataSource, @Nullable String catalogName,
+			@Nullable String schemaName, String procedureName) {
+
+		invalidate(dataSource, true, catalogName, schemaName, procedureName);
+	}
+
+	private void invalidate(DataSource dataSource, boolean call, @Nullable String catalogName,
+			@Nullable String schemaName, String name) {
+
+		Map<ProviderKey, CacheEntry> cache = this.dataSourceCache.get(dataSource);
+		if (cache != null) {
+			ProviderKey target = new ProviderKey(call, catalogName, schemaName, name, false, false);
+			cache.keySet().removeIf(key -> key.matches(target));
+		}
+	}
+
+	/**
+	 * Evict all cached providers for the given DataSource.
+	 * @param dataSource the DataSource to evict providers for
+	 */
+	public void invalidate(DataSource dataSource) {
+		this.dataSourceCache.remove(dataSource);
+	}
+
+	/**
+	 * Evict all cached providers for all DataSources.
+	 */
+	public void clear() {
+		this.dataSourceCache.clear();
+	}
+
+
+	/**
+	 * Load the providers for the given table contexts in parallel.
+	 * @param dataSource the DataSource to retrieve meta-data from
+	 * @param contexts the table contexts, configured the same way as the
+	 * {@code SimpleJdbcInsert} objects that are going to use this cache
+	 * @param executor the executor to retrieve the meta-data on
+	 * @return a future that completes once all providers have been loaded,
+	 * or completes exceptionally if any meta-data retrieval failed
+	 */
+	public CompletableFuture<Void> prewarmTables(DataSource dataSource,
+			Collection<TableMetaDataContext> contexts, Executor executor) {
+
+		return CompletableFuture.allOf(contexts.stream()
+				.map(context -> CompletableFuture.runAsync(
+						() -> getTableMetaDataProvider(dataSource, context), executor))
+				.toArray(CompletableFuture[]::new));
+	}
+
+	/**
+	 * Load the providers for the given call contexts in parallel.
+	 * @param dataSource the DataSource to retrieve meta-data from
+	 * @param contexts the call contexts, configured the same way as the
+	 * {@code SimpleJdbcCall} objects that are going to use this cache
+	 * @param executor the executor to retrieve the meta-data on
+	 * @return a future that completes once all providers have been loaded,
+	 * or completes exceptionally if any meta-data retrieval failed
+	 */
+	public CompletableFuture<Void> prewarmCalls(DataSource dataSource,
+			Collection<CallMetaDataContext> contexts, Executor executor) {
+
+		return CompletableFuture.allOf(contexts.stream()
+				.map(context -> CompletableFuture.runAsync(
+						() -> getCallMetaDataProvider(dataSource, context), executor))
+				.toArray(CompletableFuture[]::new));
+	}
+
+
+	/**
+	 * Cache key for a table or call meta-data provider.
+	 */
+	private static final class ProviderKey {
+
+		private final boolean call;
+
+		@Nullable
+		private final String catalogName;
+
+		@Nullable
+		private final String schemaName;
+
+		@Nullable
+		private final String name;
+
+		private final boolean accessMetaData;
+
+		// function flag for calls, synonyms override for tables
+		private final boolean option;
+
+		ProviderKey(boolean call, @Nullable String catalogName, @Nullable String schemaName,
+				@Nullable String name, boolean accessMetaData, boolean option) {
+
+			this.call = call;
+			this.catalogName = normalize(catalogName);
+			this.schemaName = normalize(schemaName);
+			this.name = normalize(name);
+			this.accessMetaData = accessMetaData;
+			this.option = option;
+		}
+
+		/**
+		 * Determine whether this key refers to the same table or procedure as the
+		 * given key, irrespective of the meta-data access options.
+		 */
+		boolean matches(ProviderKey other) {
+			return (this.call == other.call && ObjectUtils.nullSafeEquals(this.catalogName, other.catalogName) &&
+					ObjectUtils.nullSafeEquals(this.schemaName, other.schemaName) &&
+					ObjectUtils.nullSafeEquals(this.name, other.name));
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ProviderKey)) {
+				return false;
+			}
+			ProviderKey otherKey = (ProviderKey) other;
+			return (this.call == otherKey.call && this.accessMetaData == otherKey.accessMetaData &&
+					this.option == otherKey.option &&
+					ObjectUtils.nullSafeEquals(this.catalogName, otherKey.catalogName) &&
+					ObjectUtils.nullSafeEquals(this.schemaName, otherKey.schemaName) &&
+					ObjectUtils.nullSafeEquals(this.name, otherKey.name));
+		}
+
+		@Override
+		public int hashCode() {
+			return ObjectUtils.nullSafeHashCode(this.name) * 29 + (this.call ? 1 : 0);
+		}
+
+		@Nullable
+		private static String normalize(@Nullable String identifier) {
+			return (identifier != null ? identifier.toUpperCase(Locale.ENGLISH) : null);
+		}
+
+		@Override
+		public String toString() {
+			return (this.call ? "procedure [" : "table [") + (this.catalogName != null ? this.catalogName + "." : "") +
+					(this.schemaName != null ? this.schemaName + "." : "") + this.name + "]";
+		}
+	}
+
+
+	/**
+	 * Cached provider, possibly still being loaded, along with its load timestamp.
+	 */
+	private static final class CacheEntry {
+
+		private final CompletableFuture<Object> provider = new CompletableFuture<>();
+
+		private volatile long loadedNanos;
+
+		void complete(Object provider) {
+			this.loadedNanos = System.nanoTime();
+			this.provider.complete(provider);
+		}
+
+		void fail(Throwable ex) {
+			this.provider.completeExceptionally(ex);
+		}
+
+		Object getProvider() {
+			try {
+				return this.provider.join();
+			}
+			catch (CompletionException ex) {
+				Throwable cause = ex.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw ex;
+			}
+		}
+
+		boolean isExpired(long now, long timeToLiveNanos) {
+			return (timeToLiveNanos >= 0 && this.provider.isDone() && now - this.loadedNanos > timeToLiveNanos);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -74,6 +74,10 @@ public class TableMetaDataContext {
 	@Nullable
 	private TableMetaDataProvider metaDataProvider;
 
+	// Shared cache to obtain the provider from, if any
+	@Nullable
+	private MetaDataProviderCache metaDataProviderCache;
+
 	// Are we using generated key columns
 	private boolean generatedKeyColumnsUsed = false;
 
@@ -152,6 +156,24 @@ public class TableMetaDataContext {
 		return this.overrideIncludeSynonymsDefault;
 	}
 
+	/**
+	 * Specify a shared cache to obtain the {@link TableMetaDataProvider} from,
+	 * instead of retrieving the database meta-data for every context.
+	 * @since 5.2
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		this.metaDataProviderCache = metaDataProviderCache;
+	}
+
+	/**
+	 * Return the shared provider cache, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public MetaDataProviderCache getMetaDataProviderCache() {
+		return this.metaDataProviderCache;
+	}
+
 	/**
 	 * Get a List of the table column names.
 	 */
@@ -167,7 +189,9 @@ public class TableMetaDataContext {
 	 * @param generatedKeyNames name of generated keys
 	 */
 	public void processMetaData(DataSource dataSource, List<String> declaredColumns, String[] generatedKeyNames) {
-		this.metaDataProvider = TableMetaDataProviderFactory.createMetaDataProvider(dataSource, this);
+		this.metaDataProvider = (this.metaDataProviderCache != null ?
+				this.metaDataProviderCache.getTableMetaDataProvider(dataSource, this) :
+				TableMetaDataProviderFactory.createMetaDataProvider(dataSource, this));
 		this.tableColumns = reconcileColumnsToUse(declaredColumns, generatedKeyNames);
 	}
 
@@ -270,6 +294,19 @@ public class TableMetaDataContext {
 	 * @return the insert string to be used
 	 */
 	public String createInsertString(String... generatedKeyNames) {
+		return createMultiRowInsertString(1, generatedKeyNames);
+	}
+
+	/**
+	 * Build an insert string for the given number of rows based on configuration
+	 * and meta-data information: {@code INSERT INTO table (columns) VALUES (...), (...)}.
+	 * @param rowCount the number of rows to insert with a single statement
+	 * @return the insert string to be used
+	 * @since 5.2
+	 * @see #isMultiRowInsertSupported()
+	 */
+	public String createMultiRowInsertString(int rowCount, String... generatedKeyNames) {
+		Assert.isTrue(rowCount > 0, "Row count must be greater than 0");
 		Set<String> keys = new LinkedHashSet<>(generatedKeyNames.length);
 		for (String key : generatedKeyNames) {
 			keys.add(key.toUpperCase());
@@ -308,6 +345,9 @@ public class TableMetaDataContext {
 		String params = String.join(", ", Collections.nCopies(columnCount, "?"));
 		insertStatement.append(params);
 		insertStatement.append(")");
+		for (int i = 1; i < rowCount; i++) {
+			insertStatement.append(", (").append(params).append(")");
+		}
 		return insertStatement.toString();
 	}
 
@@ -389,4 +429,21 @@ public class TableMetaDataContext {
 		return obtainMetaDataProvider().isGeneratedKeysColumnNameArraySupported();
 	}
 
+	/**
+	 * Does this database support multi-row insert statements?
+	 * @since 5.2
+	 * @see #createMultiRowInsertString
+	 */
+	public boolean isMultiRowInsertSupported() {
+		return obtainMetaDataProvider().isMultiRowInsertSupported();
+	}
+
+	/**
+	 * Return the maximum number of bind parameters supported per statement.
+	 * @since 5.2
+	 */
+	public int getMaxBindParameterCount() {
+		return obtainMetaDataProvider().getMaxBindParameterCount();
+	}
+
 }
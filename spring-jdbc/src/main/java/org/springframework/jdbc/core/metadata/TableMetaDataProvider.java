@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -123,4 +123,26 @@ public interface TableMetaDataProvider {
 	 */
 	List<TableParameterMetaData> getTableParameterMetaData();
 
+	/**
+	 * Does this database support inserting multiple rows with a single statement:
+	 * {@code INSERT INTO table (columns) VALUES (...), (...)}?
+	 * <p>The default implementation returns {@code true}.
+	 * @since 5.2
+	 */
+	default boolean isMultiRowInsertSupported() {
+		return true;
+	}
+
+	/**
+	 * Return the maximum number of bind parameters supported per statement,
+	 * used for limiting the number of rows in a multi-row insert statement.
+	 * <p>The default implementation returns 2000, a conservative value
+	 * covering common databases (e.g. SQL Server's limit of 2100).
+	 * @since 5.2
+	 * @see #isMultiRowInsertSupported()
+	 */
+	default int getMaxBindParameterCount() {
+		return 2000;
+	}
+
 }
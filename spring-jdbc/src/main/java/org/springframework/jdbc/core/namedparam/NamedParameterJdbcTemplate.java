@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,10 +18,12 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -38,11 +40,13 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
 
 /**
  * Template class with a basic set of JDBC operations, allowing the use
@@ -77,14 +81,12 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
 
 	/** Cache of original SQL String to ParsedSql representation. */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private volatile ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
+
+	/** Cache of expanded statement factories per original SQL String and parameter shape. */
+	private volatile ConcurrentLruCache<ParameterShape, PreparedStatementCreatorFactory> statementFactoryCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT);
 
 
 	/**
@@ -131,10 +133,16 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 
 	/**
 	 * Specify the maximum number of entries for this template's SQL cache.
-	 * Default is 256.
+	 * Default is 256. 0 indicates no caching, always parsing each statement.
+	 * <p>The same limit applies to the cache of expanded statements per
+	 * parameter shape, i.e. per SQL statement and combination of parameter
+	 * types and collection sizes for {@code IN} clause expansion.
 	 */
 	public void setCacheLimit(int cacheLimit) {
 		this.cacheLimit = cacheLimit;
+		int sizeLimit = Math.max(cacheLimit, 0);
+		this.parsedSqlCache = new ConcurrentLruCache<>(sizeLimit, NamedParameterUtils::parseSqlStatement);
+		this.statementFactoryCache = new ConcurrentLruCache<>(sizeLimit);
 	}
 
 	/**
@@ -222,6 +230,20 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, new MapSqlParameterSource(paramMap), rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	public <T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException {
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
@@ -360,7 +382,7 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		}
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, batchArgs[0]);
+		PreparedStatementCreatorFactory pscf = getCachedPreparedStatementCreatorFactory(parsedSql, batchArgs[0]);
 
 		return getJdbcOperations().batchUpdate(
 				pscf.getSql(),
@@ -410,32 +432,29 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			@Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		PreparedStatementCreatorFactory pscf;
 		if (customizer != null) {
+			// Customized factories are specific to the current invocation
+			pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
 			customizer.accept(pscf);
 		}
+		else {
+			pscf = getCachedPreparedStatementCreatorFactory(parsedSql, paramSource);
+		}
 		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses a concurrent LRU cache with an upper limit
+	 * of 256 entries, not requiring any synchronization for cache hits.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
+	 * @see #setCacheLimit
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
-			return NamedParameterUtils.parseSqlStatement(sql);
-		}
-		synchronized (this.parsedSqlCache) {
-			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
-			if (parsedSql == null) {
-				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
-				this.parsedSqlCache.put(sql, parsedSql);
-			}
-			return parsedSql;
-		}
+		return this.parsedSqlCache.get(sql);
 	}
 
 	/**
@@ -455,4 +474,93 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
 	}
 
+	/**
+	 * Obtain a {@link PreparedStatementCreatorFactory} for the given parsed SQL
+	 * statement and the shape of the given parameters, reusing a previously built
+	 * factory for the same SQL statement, parameter types and collection sizes.
+	 * <p>The returned factory is shared and must not be customized further.
+	 * @see #getPreparedStatementCreatorFactory(ParsedSql, SqlParameterSource)
+	 */
+	private PreparedStatementCreatorFactory getCachedPreparedStatementCreatorFactory(
+			ParsedSql parsedSql, SqlParameterSource paramSource) {
+
+		return this.statementFactoryCache.get(new ParameterShape(parsedSql, paramSource),
+				shape -> getPreparedStatementCreatorFactory(parsedSql, paramSource));
+	}
+
+
+	/**
+	 * Cache key for an expanded statement: the original SQL String plus
+	 * the declared type of each parameter and the number of placeholders
+	 * it expands to (for collection values and expression lists).
+	 */
+	private static final class ParameterShape {
+
+		private final String sql;
+
+		private final int[] shape;
+
+		@Nullable
+		private final String[] typeNames;
+
+		private final int hashCode;
+
+		ParameterShape(ParsedSql parsedSql, SqlParameterSource paramSource) {
+			List<String> paramNames = parsedSql.getParameterNames();
+			int[] shape = new int[paramNames.size() * 2];
+			String[] typeNames = null;
+			int pos = 0;
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				String typeName = paramSource.getTypeName(paramName);
+				if (typeName != null) {
+					if (typeNames == null) {
+						typeNames = new String[paramNames.size()];
+					}
+					typeNames[i] = typeName;
+				}
+				Object value = (paramSource.hasValue(paramName) ? paramSource.getValue(paramName) : null);
+				if (value instanceof SqlParameterValue) {
+					value = ((SqlParameterValue) value).getValue();
+				}
+				int required = pos + 2 + (value instanceof Collection ? ((Collection<?>) value).size() : 0);
+				if (required > shape.length) {
+					shape = Arrays.copyOf(shape, Math.max(required, shape.length * 2));
+				}
+				shape[pos++] = paramSource.getSqlType(paramName);
+				if (value instanceof Collection) {
+					shape[pos++] = ((Collection<?>) value).size();
+					for (Object entryItem : (Collection<?>) value) {
+						shape[pos++] = (entryItem instanceof Object[] ? ((Object[]) entryItem).length : -1);
+					}
+				}
+				else {
+					shape[pos++] = -1;
+				}
+			}
+			this.sql = parsedSql.getOriginalSql();
+			this.shape = (pos < shape.length ? Arrays.copyOf(shape, pos) : shape);
+			this.typeNames = typeNames;
+			this.hashCode = this.sql.hashCode() * 31 + Arrays.hashCode(this.shape);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof ParameterShape)) {
+				return false;
+			}
+			ParameterShape otherShape = (ParameterShape) other;
+			return (this.sql.equals(otherShape.sql) && Arrays.equals(this.shape, otherShape.shape) &&
+					Arrays.equals(this.typeNames, otherShape.typeNames));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
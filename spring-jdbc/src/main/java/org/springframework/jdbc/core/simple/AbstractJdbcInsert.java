@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import javax.sql.DataSource;
@@ -32,19 +33,23 @@ import javax.sql.DataSource;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCallback;
 import org.springframework.jdbc.core.SqlTypeValue;
 import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
 import org.springframework.jdbc.core.metadata.TableMetaDataContext;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
@@ -60,6 +65,10 @@ import org.springframework.util.Assert;
  */
 public abstract class AbstractJdbcInsert {
 
+	/** Default maximum number of rows per multi-row insert statement: 1000. */
+	public static final int DEFAULT_MAX_ROWS_PER_INSERT = 1000;
+
+
 	/** Logger available to subclasses. */
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -87,6 +96,22 @@ public abstract class AbstractJdbcInsert {
 	/** The SQL type information for the insert columns. */
 	private int[] insertTypes = new int[0];
 
+	/** Whether to execute batches through multi-row insert statements. */
+	private boolean multiRowInsert = false;
+
+	/** The maximum number of rows per multi-row insert statement. */
+	private int maxRowsPerInsert = DEFAULT_MAX_ROWS_PER_INSERT;
+
+	/** Bulk insert handlers, keyed by database product name. */
+	private final Map<String, BulkInsertHandler> bulkInsertHandlers = new LinkedHashMap<>();
+
+	/** The number of rows per multi-row insert statement, or 0 for JDBC batching. */
+	private int multiRowInsertSize = 0;
+
+	/** The bulk insert handler for the current database, if any. */
+	@Nullable
+	private BulkInsertHandler bulkInsertHandler;
+
 
 	/**
 	 * Constructor to be used when initializing using a {@link DataSource}.
@@ -220,6 +245,89 @@ public abstract class AbstractJdbcInsert {
 		this.tableMetaDataContext.setOverrideIncludeSynonymsDefault(override);
 	}
 
+	/**
+	 * Specify a shared cache for the table meta-data, avoiding repeated
+	 * meta-data lookups when compiling several inserts for the same table.
+	 * <p>Default is none, retrieving the meta-data on every compilation.
+	 * @since 5.2
+	 * @see MetaDataProviderCache
+	 */
+	public void setMetaDataProviderCache(@Nullable MetaDataProviderCache metaDataProviderCache) {
+		checkIfConfigurationModificationIsAllowed();
+		this.tableMetaDataContext.setMetaDataProviderCache(metaDataProviderCache);
+	}
+
+	/**
+	 * Specify whether batches should be inserted through multi-row insert
+	 * statements ({@code INSERT INTO table (columns) VALUES (...), (...)})
+	 * rather than through JDBC batching of single-row insert statements.
+	 * <p>The rows of a batch are split into as many statements as necessary
+	 * to stay within the {@link #setMaxRowsPerInsert row limit} and the
+	 * bind parameter limit of the database. Falls back to JDBC batching if
+	 * the database does not support multi-row inserts. Default is {@code false}.
+	 * @since 5.2
+	 * @see org.springframework.jdbc.core.metadata.TableMetaDataProvider#isMultiRowInsertSupported()
+	 * @see org.springframework.jdbc.core.metadata.TableMetaDataProvider#getMaxBindParameterCount()
+	 */
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		checkIfConfigurationModificationIsAllowed();
+		this.multiRowInsert = multiRowInsert;
+	}
+
+	/**
+	 * Return whether batches should be inserted through multi-row insert statements.
+	 * @since 5.2
+	 */
+	public boolean isMultiRowInsert() {
+		return this.multiRowInsert;
+	}
+
+	/**
+	 * Specify the maximum number of rows per multi-row insert statement.
+	 * Default is {@value #DEFAULT_MAX_ROWS_PER_INSERT}.
+	 * @since 5.2
+	 * @see #setMultiRowInsert
+	 */
+	public void setMaxRowsPerInsert(int maxRowsPerInsert) {
+		checkIfConfigurationModificationIsAllowed();
+		Assert.isTrue(maxRowsPerInsert > 0, "Max rows per insert must be greater than 0");
+		this.maxRowsPerInsert = maxRowsPerInsert;
+	}
+
+	/**
+	 * Return the maximum number of rows per multi-row insert statement.
+	 * @since 5.2
+	 */
+	public int getMaxRowsPerInsert() {
+		return this.maxRowsPerInsert;
+	}
+
+	/**
+	 * Register a {@link BulkInsertHandler} to use for batch inserts when
+	 * running against the given database product, taking precedence over
+	 * JDBC batching as well as multi-row insert statements.
+	 * @param databaseProductName the database product name as returned by
+	 * {@link java.sql.DatabaseMetaData#getDatabaseProductName()}, in its common
+	 * form as determined by {@link JdbcUtils#commonDatabaseName} (e.g. "PostgreSQL")
+	 * @param bulkInsertHandler the handler to use for that database
+	 * @since 5.2
+	 */
+	public void addBulkInsertHandler(String databaseProductName, BulkInsertHandler bulkInsertHandler) {
+		checkIfConfigurationModificationIsAllowed();
+		Assert.hasText(databaseProductName, "Database product name must not be empty");
+		Assert.notNull(bulkInsertHandler, "BulkInsertHandler must not be null");
+		this.bulkInsertHandlers.put(databaseProductName, bulkInsertHandler);
+	}
+
+	/**
+	 * Return the registered {@link BulkInsertHandler BulkInsertHandlers},
+	 * keyed by database product name.
+	 * @since 5.2
+	 */
+	public Map<String, BulkInsertHandler> getBulkInsertHandlers() {
+		return Collections.unmodifiableMap(this.bulkInsertHandlers);
+	}
+
 	/**
 	 * Get the insert string to be used.
 	 */
@@ -279,9 +387,36 @@ public abstract class AbstractJdbcInsert {
 		if (logger.isDebugEnabled()) {
 			logger.debug("Compiled insert object: insert string is [" + this.insertString + "]");
 		}
+		if (!this.bulkInsertHandlers.isEmpty()) {
+			this.bulkInsertHandler = determineBulkInsertHandler(dataSource);
+		}
+		if (this.multiRowInsert && this.tableMetaDataContext.isMultiRowInsertSupported()) {
+			int maxRows = this.tableMetaDataContext.getMaxBindParameterCount() / Math.max(this.insertTypes.length, 1);
+			this.multiRowInsertSize = Math.max(Math.min(maxRows, this.maxRowsPerInsert), 1);
+			if (logger.isDebugEnabled()) {
+				logger.debug("Using multi-row insert statements with up to " + this.multiRowInsertSize + " rows");
+			}
+		}
 		onCompileInternal();
 	}
 
+	@Nullable
+	private BulkInsertHandler determineBulkInsertHandler(DataSource dataSource) {
+		try {
+			String databaseProductName = JdbcUtils.commonDatabaseName(
+					JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName"));
+			BulkInsertHandler handler = (databaseProductName != null ?
+					this.bulkInsertHandlers.get(databaseProductName) : null);
+			if (handler != null && logger.isDebugEnabled()) {
+				logger.debug("Using bulk insert handler [" + handler + "] for " + databaseProductName);
+			}
+			return handler;
+		}
+		catch (MetaDataAccessException ex) {
+			throw new DataAccessResourceFailureException("Error retrieving database meta-data", ex);
+		}
+	}
+
 	/**
 	 * Hook method that subclasses may override to react to compilation.
 	 * <p>This implementation is empty.
@@ -565,6 +700,19 @@ public abstract class AbstractJdbcInsert {
 	 * Delegate method to execute the batch insert.
 	 */
 	private int[] executeBatchInternal(final List<List<Object>> batchValues) {
+		BulkInsertHandler handler = this.bulkInsertHandler;
+		if (handler != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Executing bulk insert into " + getTableName() + " with batch of size: " + batchValues.size());
+			}
+			int[] result = getJdbcTemplate().execute((ConnectionCallback<int[]>) con ->
+					handler.insertBatch(con, this.tableMetaDataContext, batchValues));
+			Assert.state(result != null, "No result array");
+			return result;
+		}
+		if (this.multiRowInsertSize > 0 && batchValues.size() > 1) {
+			return executeMultiRowInsertInternal(batchValues);
+		}
 		if (logger.isDebugEnabled()) {
 			logger.debug("Executing statement " + getInsertString() + " with batch of size: " + batchValues.size());
 		}
@@ -581,6 +729,51 @@ public abstract class AbstractJdbcInsert {
 				});
 	}
 
+	/**
+	 * Delegate method to execute the batch insert through multi-row insert statements.
+	 */
+	private int[] executeMultiRowInsertInternal(List<List<Object>> batchValues) {
+		int[] rowsAffected = new int[batchValues.size()];
+		int chunkSize = this.multiRowInsertSize;
+		int fullChunks = batchValues.size() / chunkSize;
+		if (fullChunks > 0) {
+			executeMultiRowInsert(batchValues, 0, fullChunks, chunkSize, rowsAffected);
+		}
+		int remainder = batchValues.size() % chunkSize;
+		if (remainder > 0) {
+			executeMultiRowInsert(batchValues, fullChunks * chunkSize, 1, remainder, rowsAffected);
+		}
+		return rowsAffected;
+	}
+
+	/**
+	 * Execute the given number of multi-row insert statements with the given
+	 * number of rows each, starting at the given offset in the batch.
+	 */
+	private void executeMultiRowInsert(List<List<Object>> batchValues, int offset, int statementCount,
+			int rowsPerStatement, int[] rowsAffected) {
+
+		String sql = this.tableMetaDataContext.createMultiRowInsertString(rowsPerStatement, getGeneratedKeyNames());
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing multi-row insert for " + statementCount + " x " + rowsPerStatement +
+					" rows: " + sql);
+		}
+		getJdbcTemplate().execute(sql, (PreparedStatementCallback<Object>) ps -> {
+			int start = offset;
+			for (int i = 0; i < statementCount; i++) {
+				int colIndex = 0;
+				for (int row = start; row < start + rowsPerStatement; row++) {
+					colIndex = setParameterValues(ps, colIndex, batchValues.get(row), getInsertTypes());
+				}
+				int count = ps.executeUpdate();
+				Arrays.fill(rowsAffected, start, start + rowsPerStatement,
+						(count == rowsPerStatement ? 1 : Statement.SUCCESS_NO_INFO));
+				start += rowsPerStatement;
+			}
+			return null;
+		});
+	}
+
 	/**
 	 * Internal implementation for setting parameter values.
 	 * @param preparedStatement the PreparedStatement
@@ -589,16 +782,29 @@ public abstract class AbstractJdbcInsert {
 	private void setParameterValues(PreparedStatement preparedStatement, List<?> values, @Nullable int... columnTypes)
 			throws SQLException {
 
+		setParameterValues(preparedStatement, 0, values, columnTypes);
+	}
+
+	/**
+	 * Internal implementation for setting parameter values, starting after the given
+	 * parameter index and returning the index of the last parameter set.
+	 */
+	private int setParameterValues(PreparedStatement preparedStatement, int offset, List<?> values,
+			@Nullable int... columnTypes) throws SQLException {
+
+		int paramIndex = offset;
 		int colIndex = 0;
 		for (Object value : values) {
+			paramIndex++;
 			colIndex++;
 			if (columnTypes == null || colIndex > columnTypes.length) {
-				StatementCreatorUtils.setParameterValue(preparedStatement, colIndex, SqlTypeValue.TYPE_UNKNOWN, value);
+				StatementCreatorUtils.setParameterValue(preparedStatement, paramIndex, SqlTypeValue.TYPE_UNKNOWN, value);
 			}
 			else {
-				StatementCreatorUtils.setParameterValue(preparedStatement, colIndex, columnTypes[colIndex - 1], value);
+				StatementCreatorUtils.setParameterValue(preparedStatement, paramIndex, columnTypes[colIndex - 1], value);
 			}
 		}
+		return paramIndex;
 	}
 
 	/**
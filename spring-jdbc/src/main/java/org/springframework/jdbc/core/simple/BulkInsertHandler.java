@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.springframework.jdbc.core.metadata.TableMetaDataContext;
+
+/**
+ * Strategy interface for database-specific bulk loading of rows, used by
+ * {@link AbstractJdbcInsert#doExecuteBatch} instead of JDBC statement batching
+ * when registered for the current database product, e.g. to use PostgreSQL's
+ * {@code COPY} support through the driver's native API.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see SimpleJdbcInsert#usingBulkInsertHandler(String, BulkInsertHandler)
+ * @see java.sql.DatabaseMetaData#getDatabaseProductName()
+ */
+@FunctionalInterface
+public interface BulkInsertHandler {
+
+	/**
+	 * Insert the given rows into the table described by the given context.
+	 * @param con the JDBC Connection to use (participating in a current
+	 * transaction, if any)
+	 * @param context the table meta-data, exposing the table name as well as
+	 * the columns (and their SQL types) that the row values correspond to
+	 * @param batchValues the column values for each row, in the order of
+	 * {@link TableMetaDataContext#getTableColumns()}
+	 * @return the number of rows affected per row, as for a JDBC batch
+	 * (possibly {@link java.sql.Statement#SUCCESS_NO_INFO})
+	 * @throws SQLException if thrown by JDBC methods
+	 */
+	int[] insertBatch(Connection con, TableMetaDataContext context, List<List<Object>> batchValues)
+			throws SQLException;
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.jdbc.core.simple;
 
 import java.util.Map;
 
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
 import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.support.KeyHolder;
 
@@ -80,6 +81,32 @@ public interface SimpleJdbcInsertOperations {
 	 */
 	SimpleJdbcInsertOperations includeSynonymsForTableColumnMetaData();
 
+	/**
+	 * Execute batch inserts through multi-row insert statements, split into
+	 * as many statements as necessary for the database's bind parameter limit.
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.2
+	 */
+	SimpleJdbcInsertOperations usingMultiRowInserts();
+
+	/**
+	 * Execute batch inserts through the given {@link BulkInsertHandler}
+	 * when running against the given database product.
+	 * @param databaseProductName the common database product name (e.g. "PostgreSQL")
+	 * @param bulkInsertHandler the handler to use for that database
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.2
+	 */
+	SimpleJdbcInsertOperations usingBulkInsertHandler(String databaseProductName, BulkInsertHandler bulkInsertHandler);
+
+	/**
+	 * Obtain the table meta-data from the given shared cache.
+	 * @param metaDataProviderCache the cache to use
+	 * @return the instance of this SimpleJdbcInsert
+	 * @since 5.2
+	 */
+	SimpleJdbcInsertOperations withMetaDataProviderCache(MetaDataProviderCache metaDataProviderCache);
+
 
 	/**
 	 * Execute the insert using the values passed in.
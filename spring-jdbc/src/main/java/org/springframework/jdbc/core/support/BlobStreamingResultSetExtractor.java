@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.support;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.LobRetrievalFailureException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.support.lob.LobHandler;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * ResultSetExtractor that streams the content of a BLOB column straight to an
+ * {@link OutputStream} or {@link WritableByteChannel}, in chunks rather than
+ * materializing the entire content in memory. Returns the number of bytes written.
+ *
+ * <p>Expects exactly one row by default, analogous to
+ * {@link AbstractLobStreamingResultSetExtractor}. Switch
+ * {@link #setMultipleRowsAllowed "multipleRowsAllowed"} on in order to write
+ * the content of all rows to the target, one after the other.
+ *
+ * <p>A usage example with JdbcTemplate:
+ *
+ * <pre class="code">
+ * try (OutputStream out = Files.newOutputStream(file)) {
+ *   long bytes = jdbcTemplate.query("SELECT content FROM documents WHERE id = ?",
+ *       new BlobStreamingResultSetExtractor(lobHandler, "content", out), id);
+ * }</pre>
+ *
+ * <p>For processing LOB content as an {@code InputStream} or {@code Reader},
+ * use {@link LobHandler#getBlobAsBinaryStream} or
+ * {@link LobHandler#getClobAsCharacterStream} within a custom ResultSetExtractor
+ * or RowCallbackHandler: such streams are only valid while the JDBC Statement
+ * is open and the ResultSet is positioned on the corresponding row.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see LobHandler#copyBlobTo(ResultSet, int, OutputStream)
+ * @see LobHandler#copyBlobTo(ResultSet, int, WritableByteChannel)
+ */
+public class BlobStreamingResultSetExtractor implements ResultSetExtractor<Long> {
+
+	private final LobHandler lobHandler;
+
+	private final int columnIndex;
+
+	@Nullable
+	private final String columnName;
+
+	@Nullable
+	private final OutputStream outputStream;
+
+	@Nullable
+	private final WritableByteChannel channel;
+
+	private boolean multipleRowsAllowed = false;
+
+
+	/**
+	 * Create a new BlobStreamingResultSetExtractor for the given column.
+	 * @param lobHandler the LobHandler to retrieve the content through
+	 * @param columnIndex the index of the BLOB column
+	 * @param outputStream the OutputStream to write the content to
+	 * (flushed but not closed)
+	 */
+	public BlobStreamingResultSetExtractor(LobHandler lobHandler, int columnIndex, OutputStream outputStream) {
+		this(lobHandler, columnIndex, null, outputStream, null);
+	}
+
+	/**
+	 * Create a new BlobStreamingResultSetExtractor for the given column.
+	 * @param lobHandler the LobHandler to retrieve the content through
+	 * @param columnName the name of the BLOB column
+	 * @param outputStream the OutputStream to write the content to
+	 * (flushed but not closed)
+	 */
+	public BlobStreamingResultSetExtractor(LobHandler lobHandler, String columnName, OutputStream outputStream) {
+		this(lobHandler, -1, columnName, outputStream, null);
+	}
+
+	/**
+	 * Create a new BlobStreamingResultSetExtractor for the given column.
+	 * @param lobHandler the LobHandler to retrieve the content through
+	 * @param columnIndex the index of the BLOB column
+	 * @param channel the channel to write the content to (not closed)
+	 */
+	public BlobStreamingResultSetExtractor(LobHandler lobHandler, int columnIndex, WritableByteChannel channel) {
+		this(lobHandler, columnIndex, null, null, channel);
+	}
+
+	/**
+	 * Create a new BlobStreamingResultSetExtractor for the given column.
+	 * @param lobHandler the LobHandler to retrieve the content through
+	 * @param columnName the name of the BLOB column
+	 * @param channel the channel to write the content to (not closed)
+	 */
+	public BlobStreamingResultSetExtractor(LobHandler lobHandler, String columnName, WritableByteChannel channel) {
+		this(lobHandler, -1, columnName, null, channel);
+	}
+
+	private BlobStreamingResultSetExtractor(LobHandler lobHandler, int columnIndex, @Nullable String columnName,
+			@Nullable OutputStream outputStream, @Nullable WritableByteChannel channel) {
+
+		Assert.notNull(lobHandler, "LobHandler must not be null");
+		Assert.isTrue(columnName != null || columnIndex > 0, "Column index must be greater than 0");
+		Assert.isTrue(outputStream != null || channel != null, "Target must not be null");
+		this.lobHandler = lobHandler;
+		this.columnIndex = columnIndex;
+		this.columnName = columnName;
+		this.outputStream = outputStream;
+		this.channel = channel;
+	}
+
+
+	/**
+	 * Specify whether the content of multiple rows may be written to the target,
+	 * one after the other. Default is "false", expecting exactly one row.
+	 */
+	public void setMultipleRowsAllowed(boolean multipleRowsAllowed) {
+		this.multipleRowsAllowed = multipleRowsAllowed;
+	}
+
+
+	/**
+	 * Stream the BLOB content of the current row(s) to the target.
+	 * Converts an IOException to a LobRetrievalFailureException.
+	 * @return the total number of bytes written
+	 * @see #handleNoRowFound()
+	 * @see #handleMultipleRowsFound()
+	 */
+	@Override
+	public Long extractData(ResultSet rs) throws SQLException, DataAccessException {
+		if (!rs.next()) {
+			handleNoRowFound();
+			return 0L;
+		}
+		int index = (this.columnName != null ? rs.findColumn(this.columnName) : this.columnIndex);
+		long total = 0;
+		try {
+			do {
+				long bytes = (this.outputStream != null ?
+						this.lobHandler.copyBlobTo(rs, index, this.outputStream) :
+						this.lobHandler.copyBlobTo(rs, index, obtainChannel()));
+				if (bytes > 0) {
+					total += bytes;
+				}
+				if (!this.multipleRowsAllowed) {
+					if (rs.next()) {
+						handleMultipleRowsFound();
+					}
+					break;
+				}
+			}
+			while (rs.next());
+		}
+		catch (IOException ex) {
+			throw new LobRetrievalFailureException("Couldn't stream BLOB content", ex);
+		}
+		return total;
+	}
+
+	private WritableByteChannel obtainChannel() {
+		Assert.state(this.channel != null, "No channel");
+		return this.channel;
+	}
+
+	/**
+	 * Handle the case where the ResultSet does not contain a row.
+	 * @throws DataAccessException a corresponding exception,
+	 * by default an EmptyResultDataAccessException
+	 */
+	protected void handleNoRowFound() throws DataAccessException {
+		throw new EmptyResultDataAccessException(
+				"BlobStreamingResultSetExtractor did not find row in database", 1);
+	}
+
+	/**
+	 * Handle the case where the ResultSet contains multiple rows
+	 * but {@link #setMultipleRowsAllowed "multipleRowsAllowed"} is off.
+	 * @throws DataAccessException a corresponding exception,
+	 * by default an IncorrectResultSizeDataAccessException
+	 */
+	protected void handleMultipleRowsFound() throws DataAccessException {
+		throw new IncorrectResultSizeDataAccessException(
+				"BlobStreamingResultSetExtractor found multiple rows in database", 1);
+	}
+
+}
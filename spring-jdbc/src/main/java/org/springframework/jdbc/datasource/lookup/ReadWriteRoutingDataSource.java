@@ -0,0 +1,450 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * DataSource that routes read-only transactions to a pool of replica DataSources
+ * and everything else to a primary (write) DataSource.
+ *
+ * <p>Like its {@link LazyConnectionDataSourceProxy} superclass, this DataSource
+ * hands out Connection handles that fetch an actual JDBC Connection on first
+ * creation of a Statement. At that point, a transaction manager such as
+ * {@link org.springframework.jdbc.datasource.DataSourceTransactionManager} has
+ * exposed the read-only flag of the current transaction through
+ * {@link TransactionSynchronizationManager#isCurrentTransactionReadOnly()},
+ * which this DataSource evaluates in order to pick the target. No further
+ * configuration is necessary on the transaction management side: simply use
+ * this DataSource as the transaction manager's DataSource, and declare
+ * read-only transactions (e.g. {@code @Transactional(readOnly = true)}).
+ *
+ * <p>Replicas are selected according to the {@link #setLoadBalancingStrategy
+ * load balancing strategy}: round-robin by default, or the replica with the
+ * least outstanding Connections. A replica that fails to provide a Connection
+ * is skipped for a {@link #setReplicaRecoveryInterval recovery interval}, with
+ * the next available replica being tried instead. If no replica is available,
+ * the primary DataSource serves read-only transactions as well, unless
+ * {@link #setFailoverToWriteDataSource failover} has been turned off.
+ *
+ * <p>The configuration can for example look like this:
+ *
+ * <pre class="code">
+ * &lt;bean id="dataSource" class="org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource"&gt;
+ *   &lt;property name="writeDataSource" ref="myPrimaryDataSource"/&gt;
+ *   &lt;property name="readDataSources"&gt;
+ *     &lt;list&gt;
+ *       &lt;ref bean="myReplicaDataSource1"/&gt;
+ *       &lt;ref bean="myReplicaDataSource2"/&gt;
+ *     &lt;/list&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * <p><b>NOTE:</b> Replication lag applies: data written by one transaction is
+ * not necessarily visible to a subsequent read-only transaction right away.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see #isReadOnlyRoute()
+ * @see IsolationLevelDataSourceRouter
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+	/**
+	 * Strategy for selecting a replica DataSource for a read-only Connection.
+	 */
+	public enum LoadBalancingStrategy {
+
+		/**
+		 * Use the replicas in turn.
+		 */
+		ROUND_ROBIN,
+
+		/**
+		 * Use the replica with the least Connections currently in use
+		 * (as obtained from this DataSource), in turn in case of ties.
+		 */
+		LEAST_OUTSTANDING
+	}
+
+
+	private static final Log logger = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+	@Nullable
+	private DataSource writeDataSource;
+
+	private volatile List<Replica> replicas = new ArrayList<>();
+
+	private LoadBalancingStrategy loadBalancingStrategy = LoadBalancingStrategy.ROUND_ROBIN;
+
+	private boolean failoverToWriteDataSource = true;
+
+	private long replicaRecoveryInterval = 10000;
+
+	private final AtomicInteger replicaCounter = new AtomicInteger();
+
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @see #setWriteDataSource
+	 * @see #setReadDataSources
+	 */
+	public ReadWriteRoutingDataSource() {
+		super.setTargetDataSource(new RoutingTargetDataSource());
+	}
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @param writeDataSource the primary DataSource for read-write access
+	 * @param readDataSources the replica DataSources for read-only access
+	 */
+	public ReadWriteRoutingDataSource(DataSource writeDataSource, List<DataSource> readDataSources) {
+		this();
+		setWriteDataSource(writeDataSource);
+		setReadDataSources(readDataSources);
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Set the primary DataSource, serving all Connections except for read-only ones.
+	 */
+	public void setWriteDataSource(DataSource writeDataSource) {
+		this.writeDataSource = writeDataSource;
+	}
+
+	/**
+	 * Return the primary DataSource.
+	 */
+	@Nullable
+	public DataSource getWriteDataSource() {
+		return this.writeDataSource;
+	}
+
+	/**
+	 * Set the replica DataSources, serving Connections for read-only transactions.
+	 */
+	public void setReadDataSources(List<DataSource> readDataSources) {
+		List<Replica> replicas = new ArrayList<>(readDataSources.size());
+		for (DataSource dataSource : readDataSources) {
+			replicas.add(new Replica(dataSource));
+		}
+		this.replicas = replicas;
+	}
+
+	/**
+	 * Return the replica DataSources.
+	 */
+	public List<DataSource> getReadDataSources() {
+		List<DataSource> dataSources = new ArrayList<>(this.replicas.size());
+		for (Replica replica : this.replicas) {
+			dataSources.add(replica.dataSource);
+		}
+		return dataSources;
+	}
+
+	/**
+	 * Set the strategy for selecting a replica.
+	 * Default is {@link LoadBalancingStrategy#ROUND_ROBIN}.
+	 */
+	public void setLoadBalancingStrategy(LoadBalancingStrategy loadBalancingStrategy) {
+		Assert.notNull(loadBalancingStrategy, "LoadBalancingStrategy must not be null");
+		this.loadBalancingStrategy = loadBalancingStrategy;
+	}
+
+	/**
+	 * Return the strategy for selecting a replica.
+	 */
+	public LoadBalancingStrategy getLoadBalancingStrategy() {
+		return this.loadBalancingStrategy;
+	}
+
+	/**
+	 * Specify whether read-only Connections should be obtained from the primary
+	 * DataSource if no replica is able to provide one. Default is {@code true}.
+	 * <p>Switch this to {@code false} to propagate the replica failure instead.
+	 */
+	public void setFailoverToWriteDataSource(boolean failoverToWriteDataSource) {
+		this.failoverToWriteDataSource = failoverToWriteDataSource;
+	}
+
+	/**
+	 * Return whether read-only Connections may fail over to the primary DataSource.
+	 */
+	public boolean isFailoverToWriteDataSource() {
+		return this.failoverToWriteDataSource;
+	}
+
+	/**
+	 * Set the interval for which a replica that failed to provide a Connection
+	 * is skipped, before trying it again. Default is 10 seconds.
+	 */
+	public void setReplicaRecoveryInterval(Duration replicaRecoveryInterval) {
+		Assert.isTrue(!replicaRecoveryInterval.isNegative(), "Replica recovery interval must not be negative");
+		this.replicaRecoveryInterval = replicaRecoveryInterval.toMillis();
+	}
+
+	/**
+	 * Return the interval for which a failed replica is skipped.
+	 */
+	public Duration getReplicaRecoveryInterval() {
+		return Duration.ofMillis(this.replicaRecoveryInterval);
+	}
+
+	/**
+	 * Not supported: the target DataSource is the internal router between
+	 * the {@link #setWriteDataSource primary} and the {@link #setReadDataSources replicas}.
+	 */
+	@Override
+	public void setTargetDataSource(@Nullable DataSource targetDataSource) {
+		throw new UnsupportedOperationException(
+				"Specify 'writeDataSource' and 'readDataSources' instead of 'targetDataSource'");
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		Assert.state(this.writeDataSource != null, "Property 'writeDataSource' is required");
+		super.afterPropertiesSet();
+	}
+
+
+	/**
+	 * Determine whether the Connection that is about to be fetched should come
+	 * from a replica. The default implementation checks the read-only flag of
+	 * the current transaction.
+	 * <p>Invoked on first creation of a Statement, i.e. within the scope of
+	 * the transaction that the Connection handle has been obtained for.
+	 * @see TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+	 */
+	protected boolean isReadOnlyRoute() {
+		return TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+	}
+
+	private DataSource obtainWriteDataSource() {
+		DataSource dataSource = this.writeDataSource;
+		Assert.state(dataSource != null, "No 'writeDataSource' set");
+		return dataSource;
+	}
+
+	private Connection getReadConnection(@Nullable String username, @Nullable String password)
+			throws SQLException {
+
+		List<Replica> replicas = this.replicas;
+		int count = replicas.size();
+		SQLException failure = null;
+		if (count > 0) {
+			long now = System.currentTimeMillis();
+			int start = Math.floorMod(this.replicaCounter.getAndIncrement(), count);
+			boolean trackOutstanding = (this.loadBalancingStrategy == LoadBalancingStrategy.LEAST_OUTSTANDING);
+			// At most one attempt per replica, in order of preference
+			boolean[] tried = new boolean[count];
+			for (int attempt = 0; attempt < count; attempt++) {
+				int index = selectReplica(replicas, start, tried, now, trackOutstanding);
+				if (index < 0) {
+					break;
+				}
+				tried[index] = true;
+				Replica replica = replicas.get(index);
+				try {
+					Connection con = (username != null ?
+							replica.dataSource.getConnection(username, password) :
+							replica.dataSource.getConnection());
+					replica.unavailableUntil = 0;
+					return (trackOutstanding ? replica.track(con) : con);
+				}
+				catch (SQLException ex) {
+					replica.unavailableUntil = System.currentTimeMillis() + this.replicaRecoveryInterval;
+					if (logger.isWarnEnabled()) {
+						logger.warn("Failed to obtain Connection from replica DataSource [" + replica.dataSource +
+								"] - skipping it for " + this.replicaRecoveryInterval + " ms", ex);
+					}
+					if (failure != null) {
+						ex.addSuppressed(failure);
+					}
+					failure = ex;
+				}
+			}
+		}
+		if (failure != null && !this.failoverToWriteDataSource) {
+			throw failure;
+		}
+		if (count > 0 && logger.isDebugEnabled()) {
+			logger.debug("No replica DataSource available - using write DataSource for read-only Connection");
+		}
+		return (username != null ? obtainWriteDataSource().getConnection(username, password) :
+				obtainWriteDataSource().getConnection());
+	}
+
+	private int selectReplica(List<Replica> replicas, int start, boolean[] tried, long now,
+			boolean leastOutstanding) {
+
+		int selected = selectReplica(replicas, start, tried, now, leastOutstanding, false);
+		if (selected < 0 && !this.failoverToWriteDataSource) {
+			// No failover: rather try replicas within their recovery interval than fail right away.
+			selected = selectReplica(replicas, start, tried, now, leastOutstanding, true);
+		}
+		return selected;
+	}
+
+	private int selectReplica(List<Replica> replicas, int start, boolean[] tried, long now,
+			boolean leastOutstanding, boolean includeUnavailable) {
+
+		int count = replicas.size();
+		int selected = -1;
+		int selectedOutstanding = Integer.MAX_VALUE;
+		for (int i = 0; i < count; i++) {
+			int index = (start + i) % count;
+			Replica replica = replicas.get(index);
+			if (tried[index] || (!includeUnavailable && replica.unavailableUntil > now)) {
+				continue;
+			}
+			if (!leastOutstanding) {
+				return index;
+			}
+			int outstanding = replica.outstanding.get();
+			if (outstanding < selectedOutstanding) {
+				selected = index;
+				selectedOutstanding = outstanding;
+			}
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Internal target DataSource, routing to the primary or a replica
+	 * when the lazy Connection handle fetches its actual Connection.
+	 */
+	private class RoutingTargetDataSource extends AbstractDataSource {
+
+		@Override
+		public Connection getConnection() throws SQLException {
+			return (isReadOnlyRoute() ? getReadConnection(null, null) : obtainWriteDataSource().getConnection());
+		}
+
+		@Override
+		public Connection getConnection(String username, String password) throws SQLException {
+			return (isReadOnlyRoute() ? getReadConnection(username, password) :
+					obtainWriteDataSource().getConnection(username, password));
+		}
+	}
+
+
+	/**
+	 * Holder for a replica DataSource and its runtime state.
+	 */
+	private static class Replica {
+
+		final DataSource dataSource;
+
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		volatile long unavailableUntil;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		Connection track(Connection con) {
+			this.outstanding.incrementAndGet();
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionProxy.class.getClassLoader(),
+					new Class<?>[] {ConnectionProxy.class},
+					new OutstandingConnectionInvocationHandler(con, this.outstanding));
+		}
+	}
+
+
+	/**
+	 * Invocation handler that decrements the outstanding Connection count
+	 * of a replica when the Connection gets closed.
+	 */
+	private static class OutstandingConnectionInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final AtomicInteger outstanding;
+
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		OutstandingConnectionInvocationHandler(Connection target, AtomicInteger outstanding) {
+			this.target = target;
+			this.outstanding = outstanding;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			switch (method.getName()) {
+				case "equals":
+					// Only consider equal when proxies are identical.
+					return (proxy == args[0]);
+				case "hashCode":
+					// Use hashCode of Connection proxy.
+					return System.identityHashCode(proxy);
+				case "getTargetConnection":
+					return this.target;
+				case "unwrap":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+					break;
+				case "isWrapperFor":
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+					break;
+				case "close":
+					if (this.closed.compareAndSet(false, true)) {
+						this.outstanding.decrementAndGet();
+					}
+					break;
+			}
+
+			try {
+				return method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,12 +16,20 @@
 
 package org.springframework.jdbc.support.lob;
 
+import java.io.FilterWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 
 import org.springframework.lang.Nullable;
+import org.springframework.util.FileCopyUtils;
+import org.springframework.util.StreamUtils;
 
 /**
  * Abstraction for handling large binary fields and large text fields in
@@ -203,6 +211,91 @@ public interface LobHandler {
 	 */
 	Reader getClobAsCharacterStream(ResultSet rs, int columnIndex) throws SQLException;
 
+	/**
+	 * Copy the given BLOB column to the given OutputStream, in chunks rather
+	 * than materializing the entire content in memory.
+	 * <p>The content is read from {@link #getBlobAsBinaryStream}, i.e. while the
+	 * ResultSet is positioned on the current row; the OutputStream is flushed
+	 * but not closed.
+	 * @param rs the ResultSet to retrieve the content from
+	 * @param columnIndex the column index to use
+	 * @param out the OutputStream to copy the content to
+	 * @return the number of bytes copied, or -1 in case of SQL NULL
+	 * @throws SQLException if thrown by JDBC methods
+	 * @throws IOException if thrown by stream access methods
+	 * @since 5.2
+	 */
+	default long copyBlobTo(ResultSet rs, int columnIndex, OutputStream out) throws SQLException, IOException {
+		InputStream in = getBlobAsBinaryStream(rs, columnIndex);
+		if (in == null) {
+			return -1;
+		}
+		try {
+			// copyRange rather than copy: LOB content may exceed Integer.MAX_VALUE bytes
+			long count = StreamUtils.copyRange(in, out, 0, Long.MAX_VALUE - 1);
+			out.flush();
+			return count;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Copy the given BLOB column to the given channel, in chunks rather
+	 * than materializing the entire content in memory.
+	 * <p>The content is read from {@link #getBlobAsBinaryStream}, i.e. while the
+	 * ResultSet is positioned on the current row; the channel is not closed.
+	 * @param rs the ResultSet to retrieve the content from
+	 * @param columnIndex the column index to use
+	 * @param channel the channel to copy the content to
+	 * @return the number of bytes copied, or -1 in case of SQL NULL
+	 * @throws SQLException if thrown by JDBC methods
+	 * @throws IOException if thrown by stream or channel access methods
+	 * @since 5.2
+	 */
+	default long copyBlobTo(ResultSet rs, int columnIndex, WritableByteChannel channel)
+			throws SQLException, IOException {
+
+		InputStream in = getBlobAsBinaryStream(rs, columnIndex);
+		if (in == null) {
+			return -1;
+		}
+		try {
+			return StreamUtils.copyRange(in, Channels.newOutputStream(channel), 0, Long.MAX_VALUE - 1);
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Copy the given CLOB column to the given Writer, in chunks rather
+	 * than materializing the entire content in memory.
+	 * <p>The content is read from {@link #getClobAsCharacterStream}, i.e. while the
+	 * ResultSet is positioned on the current row; the Writer is flushed but not closed.
+	 * @param rs the ResultSet to retrieve the content from
+	 * @param columnIndex the column index to use
+	 * @param out the Writer to copy the content to
+	 * @return the number of characters copied, or -1 in case of SQL NULL
+	 * @throws SQLException if thrown by JDBC methods
+	 * @throws IOException if thrown by stream access methods
+	 * @since 5.2
+	 */
+	default long copyClobTo(ResultSet rs, int columnIndex, Writer out) throws SQLException, IOException {
+		Reader in = getClobAsCharacterStream(rs, columnIndex);
+		if (in == null) {
+			return -1;
+		}
+		// FileCopyUtils closes both sides: only flush the given Writer
+		return FileCopyUtils.copy(in, new FilterWriter(out) {
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		});
+	}
+
 	/**
 	 * Create a new {@link LobCreator} instance, i.e. a session for creating BLOBs
 	 * and CLOBs. Needs to be closed after the created LOBs are not needed anymore -
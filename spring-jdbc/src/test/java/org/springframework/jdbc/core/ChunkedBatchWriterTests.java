@@ -0,0 +1,312 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Mock object based tests for {@link ChunkedBatchWriter}.
+ *
+ * @author agent (agent@local)
+ */
+public class ChunkedBatchWriterTests {
+
+	private static final String SQL = "UPDATE NOSUCHTABLE SET DATE_DISPATCHED = SYSDATE WHERE ID = ?";
+
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	private Connection connection;
+
+	private DataSource dataSource;
+
+	private PreparedStatement preparedStatement;
+
+	private JdbcTemplate template;
+
+	private final List<String> events = new ArrayList<>();
+
+	private ChunkedBatchWriter<Integer> writer;
+
+
+	@Before
+	public void setup() throws Exception {
+		this.connection = mock(Connection.class);
+		this.dataSource = mock(DataSource.class);
+		this.preparedStatement = mock(PreparedStatement.class);
+		DatabaseMetaData databaseMetaData = mock(DatabaseMetaData.class);
+		given(databaseMetaData.supportsBatchUpdates()).willReturn(true);
+		given(this.dataSource.getConnection()).willReturn(this.connection);
+		given(this.connection.prepareStatement(anyString())).willReturn(this.preparedStatement);
+		given(this.connection.getMetaData()).willReturn(databaseMetaData);
+		given(this.connection.getAutoCommit()).willReturn(true);
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+
+		this.template = new JdbcTemplate(this.dataSource);
+		this.template.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+		this.writer = new ChunkedBatchWriter<>(this.template, SQL, (ps, id) -> ps.setInt(1, id));
+		this.writer.setChunkSize(2);
+		this.writer.setChunkListener(new ChunkedBatchWriter.ChunkListener<Integer>() {
+			@Override
+			public void chunkWritten(int chunkIndex, List<? extends Integer> items, int[] rowsAffected) {
+				events.add("written " + chunkIndex + " " + items);
+			}
+			@Override
+			public void chunkFailed(int chunkIndex, List<? extends Integer> items, DataAccessException ex) {
+				events.add("failed " + chunkIndex + " " + items);
+			}
+		});
+	}
+
+
+	@Test
+	public void writeChunksSequentially() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1, 1}, new int[] {1});
+
+		ChunkedBatchWriter.Result result = this.writer.write(IntStream.rangeClosed(1, 5).boxed());
+
+		assertEquals(3, result.getChunkCount());
+		assertEquals(5, result.getItemCount());
+		assertEquals(5, result.getRowsAffected());
+		assertEquals(0, result.getFailedChunkCount());
+		assertEquals(Arrays.asList("written 0 [1, 2]", "written 1 [3, 4]", "written 2 [5]"), this.events);
+		verify(this.connection, times(1)).prepareStatement(SQL);
+		verify(this.preparedStatement, times(5)).addBatch();
+		verify(this.preparedStatement, times(3)).executeBatch();
+		verify(this.connection, never()).commit();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void writeChunksWithCommitPerChunk() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1});
+		this.writer.setCommitPerChunk(true);
+
+		ChunkedBatchWriter.Result result = this.writer.write(Arrays.asList(1, 2, 3));
+
+		assertEquals(2, result.getChunkCount());
+		assertEquals(3, result.getRowsAffected());
+		verify(this.connection).setAutoCommit(false);
+		verify(this.connection, times(2)).commit();
+		verify(this.connection).setAutoCommit(true);
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void writeChunksWithFailedChunk() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1})
+				.willThrow(new SQLException("Bad chunk", "42000"));
+		this.writer.setCommitPerChunk(true);
+
+		try {
+			this.writer.write(Arrays.asList(1, 2, 3, 4, 5));
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			assertEquals("Bad chunk", ex.getCause().getMessage());
+		}
+		assertEquals(Arrays.asList("written 0 [1, 2]", "failed 1 [3, 4]"), this.events);
+		verify(this.preparedStatement, times(2)).executeBatch();
+		verify(this.preparedStatement).clearBatch();
+		verify(this.connection).commit();
+		verify(this.connection).rollback();
+		verify(this.connection).setAutoCommit(true);
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void writeChunksWithFailedChunkAndFailedRollback() throws Exception {
+		SQLException rollbackEx = new SQLException("Rollback failed");
+		given(this.preparedStatement.executeBatch()).willThrow(new SQLException("Bad chunk", "42000"));
+		willThrow(rollbackEx).given(this.connection).rollback();
+		this.writer.setCommitPerChunk(true);
+
+		try {
+			this.writer.write(Arrays.asList(1, 2, 3));
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			assertEquals("Bad chunk", ex.getCause().getMessage());
+			assertSame(rollbackEx, ex.getCause().getSuppressed()[0]);
+		}
+		assertEquals(Arrays.asList("failed 0 [1, 2]"), this.events);
+		verify(this.connection).setAutoCommit(true);
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void writeChunksWithFailedChunkAndContinueOnError() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1})
+				.willThrow(new SQLException("Bad chunk", "42000")).willReturn(new int[] {1});
+		this.writer.setContinueOnError(true);
+
+		ChunkedBatchWriter.Result result = this.writer.write(Arrays.asList(1, 2, 3, 4, 5).iterator());
+
+		assertEquals(3, result.getChunkCount());
+		assertEquals(5, result.getItemCount());
+		assertEquals(3, result.getRowsAffected());
+		assertEquals(1, result.getFailedChunkCount());
+		assertEquals(2, result.getFailedItemCount());
+		assertEquals(Arrays.asList("written 0 [1, 2]", "failed 1 [3, 4]", "written 2 [5]"), this.events);
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void writeChunksInParallel() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1}, new int[] {1, 1}, new int[] {1});
+		this.writer.setTaskExecutor(Runnable::run);
+		this.writer.setConcurrencyLimit(2);
+
+		ChunkedBatchWriter.Result result = this.writer.write(Arrays.asList(1, 2, 3, 4, 5));
+
+		assertEquals(3, result.getChunkCount());
+		assertEquals(5, result.getRowsAffected());
+		assertEquals(Arrays.asList("written 0 [1, 2]", "written 1 [3, 4]", "written 2 [5]"), this.events);
+		verify(this.connection, times(3)).prepareStatement(SQL);
+		verify(this.preparedStatement, times(3)).close();
+		verify(this.connection, times(3)).close();
+	}
+
+	@Test
+	public void writeChunksInParallelWithFailedChunk() throws Exception {
+		given(this.preparedStatement.executeBatch()).willThrow(new SQLException("Bad chunk", "99999"));
+		this.writer.setTaskExecutor(Runnable::run);
+
+		this.thrown.expect(UncategorizedSQLException.class);
+		try {
+			this.writer.write(Arrays.asList(1, 2, 3, 4, 5));
+		}
+		finally {
+			assertEquals(Arrays.asList("failed 0 [1, 2]"), this.events);
+		}
+	}
+
+	@Test
+	public void writeChunksInParallelWithRejectedChunk() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1});
+		CountDownLatch rejected = new CountDownLatch(1);
+		AtomicInteger submitted = new AtomicInteger();
+		this.writer.setTaskExecutor(task -> {
+			if (submitted.getAndIncrement() > 0) {
+				rejected.countDown();
+				throw new RejectedExecutionException("Executor saturated");
+			}
+			new Thread(() -> {
+				try {
+					rejected.await();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+				task.run();
+			}).start();
+		});
+
+		try {
+			this.writer.write(Arrays.asList(1, 2, 3, 4));
+			fail("Should have thrown DataAccessResourceFailureException");
+		}
+		catch (DataAccessResourceFailureException ex) {
+			assertTrue(ex.getCause() instanceof RejectedExecutionException);
+			// The chunk in flight completes before the rejection propagates
+			assertEquals(Arrays.asList("written 0 [1, 2]"), this.events);
+		}
+	}
+
+	@Test
+	public void writeChunksInParallelWithinConcurrencyLimit() throws Exception {
+		given(this.preparedStatement.executeBatch()).willReturn(new int[] {1, 1});
+		AtomicInteger chunksInFlight = new AtomicInteger();
+		AtomicInteger maxChunksInFlightWhilePulling = new AtomicInteger();
+		this.writer.setTaskExecutor(task -> {
+			chunksInFlight.incrementAndGet();
+			new Thread(task).start();
+		});
+		this.writer.setConcurrencyLimit(2);
+		this.writer.setChunkListener(new ChunkedBatchWriter.ChunkListener<Integer>() {
+			@Override
+			public void chunkWritten(int chunkIndex, List<? extends Integer> items, int[] rowsAffected) {
+				chunksInFlight.decrementAndGet();
+			}
+			@Override
+			public void chunkFailed(int chunkIndex, List<? extends Integer> items, DataAccessException ex) {
+				chunksInFlight.decrementAndGet();
+			}
+		});
+		Iterator<Integer> items = new Iterator<Integer>() {
+			private int next = 1;
+			@Override
+			public boolean hasNext() {
+				return (this.next <= 40);
+			}
+			@Override
+			public Integer next() {
+				maxChunksInFlightWhilePulling.accumulateAndGet(chunksInFlight.get(), Math::max);
+				return this.next++;
+			}
+		};
+
+		ChunkedBatchWriter.Result result = this.writer.write(items);
+
+		assertEquals(20, result.getChunkCount());
+		// The chunk being pulled is held in memory as well
+		assertTrue(maxChunksInFlightWhilePulling.get() < 2);
+	}
+
+	@Test
+	public void writeChunksWithCommitPerChunkWithinTransaction() {
+		this.writer.setCommitPerChunk(true);
+		TransactionSynchronizationManager.setActualTransactionActive(true);
+		try {
+			this.thrown.expect(InvalidDataAccessApiUsageException.class);
+			this.writer.write(Arrays.asList(1, 2, 3));
+		}
+		finally {
+			TransactionSynchronizationManager.setActualTransactionActive(false);
+		}
+	}
+
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.ConstructorPerson;
+import org.springframework.jdbc.core.test.DatePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class DataClassRowMapperTests extends AbstractRowMapperTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+
+	@Test
+	public void testStaticQueryWithBeanClass() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new DataClassRowMapper<>(Person.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testStaticQueryWithDataClass() throws Exception {
+		Mock mock = new Mock();
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new DataClassRowMapper<>(ConstructorPerson.class));
+		assertEquals(1, result.size());
+		ConstructorPerson person = result.get(0);
+		assertEquals("Bubba", person.name());
+		assertEquals(22L, person.age());
+		assertEquals(new java.util.Date(1221222L), person.birthDate());
+		assertEquals(new BigDecimal("1234.56"), person.balance());
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new DataClassRowMapper<>(ConcretePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		DataClassRowMapper<ExtendedPerson> mapper = new DataClassRowMapper<>(ExtendedPerson.class);
+		mapper.setCheckFullyPopulated(true);
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		mock.getJdbcTemplate().query("select name, age, birth_date, balance from people", mapper);
+	}
+
+	@Test
+	public void testMappingNullValue() throws Exception {
+		Mock mock = new Mock(MockType.TWO);
+		thrown.expect(TypeMismatchException.class);
+		mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people",
+				new DataClassRowMapper<>(ConstructorPerson.class));
+	}
+
+	@Test
+	public void testMappingNullValueWithPrimitivesDefaulted() throws Exception {
+		Mock mock = new Mock(MockType.TWO);
+		DataClassRowMapper<ConstructorPerson> mapper = new DataClassRowMapper<>(ConstructorPerson.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		List<ConstructorPerson> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals(0L, result.get(0).age());
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new DataClassRowMapper<>(SpacePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testQueryWithSpaceInColumnNameAndLocalDate() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<DatePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new DataClassRowMapper<>(DatePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void testMappingPlanResolvedOncePerResultSet() throws Exception {
+		AtomicInteger metaDataCalls1 = new AtomicInteger();
+		AtomicInteger metaDataCalls2 = new AtomicInteger();
+		ResultSet rs1 = createResultSet(metaDataCalls1);
+		ResultSet rs2 = createResultSet(metaDataCalls2);
+		DataClassRowMapper<ConstructorPerson> mapper = new DataClassRowMapper<>(ConstructorPerson.class);
+
+		assertEquals("Bubba", mapper.mapRow(rs1, 0).name());
+		assertEquals("Bubba", mapper.mapRow(rs1, 1).name());
+		assertEquals(1, metaDataCalls1.get());
+
+		assertEquals("Bubba", mapper.mapRow(rs2, 0).name());
+		assertEquals("Bubba", mapper.mapRow(rs2, 1).name());
+		assertEquals(1, metaDataCalls2.get());
+
+		// Interleaved ResultSets share the cached plan for their column layout
+		assertEquals("Bubba", mapper.mapRow(rs1, 2).name());
+		assertEquals(2, metaDataCalls1.get());
+	}
+
+	@Test
+	public void testMappingIsFasterThanBeanPropertyRowMapper() throws Exception {
+		Assume.group(TestGroup.PERFORMANCE);
+		int rows = 200000;
+		ResultSet rs = createResultSet();
+		StopWatch sw = new StopWatch();
+
+		BeanPropertyRowMapper<Person> beanPropertyRowMapper = new BeanPropertyRowMapper<>(Person.class);
+		sw.start("BeanPropertyRowMapper");
+		for (int i = 0; i < rows; i++) {
+			assertNotNull(beanPropertyRowMapper.mapRow(rs, i));
+		}
+		sw.stop();
+
+		DataClassRowMapper<Person> dataClassRowMapper = new DataClassRowMapper<>(Person.class);
+		sw.start("DataClassRowMapper (setters)");
+		for (int i = 0; i < rows; i++) {
+			assertNotNull(dataClassRowMapper.mapRow(rs, i));
+		}
+		sw.stop();
+
+		DataClassRowMapper<ConstructorPerson> constructorRowMapper = new DataClassRowMapper<>(ConstructorPerson.class);
+		sw.start("DataClassRowMapper (constructor)");
+		for (int i = 0; i < rows; i++) {
+			assertNotNull(constructorRowMapper.mapRow(rs, i));
+		}
+		sw.stop();
+
+		System.out.println(sw.prettyPrint());
+		long reference = sw.getTaskInfo()[0].getTimeMillis();
+		assertTrue("Setter-based mapping took " + sw.getTaskInfo()[1].getTimeMillis() + " ms vs " + reference,
+				sw.getTaskInfo()[1].getTimeMillis() < reference);
+		assertTrue("Constructor-based mapping took " + sw.getTaskInfo()[2].getTimeMillis() + " ms vs " + reference,
+				sw.getTaskInfo()[2].getTimeMillis() < reference);
+	}
+
+
+	/**
+	 * Lightweight ResultSet stub, avoiding mock invocation overhead in timings.
+	 */
+	private static ResultSet createResultSet() {
+		return createResultSet(new AtomicInteger());
+	}
+
+	private static ResultSet createResultSet(AtomicInteger metaDataCalls) {
+		String[] labels = {"name", "age", "birth_date", "balance"};
+		ResultSetMetaData rsmd = (ResultSetMetaData) Proxy.newProxyInstance(getClassLoader(),
+				new Class<?>[] {ResultSetMetaData.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getColumnCount": return labels.length;
+						case "getColumnLabel":
+						case "getColumnName": return labels[(Integer) args[0] - 1];
+						default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+		Timestamp timestamp = new Timestamp(1221222L);
+		BigDecimal balance = new BigDecimal("1234.56");
+		return (ResultSet) Proxy.newProxyInstance(getClassLoader(),
+				new Class<?>[] {ResultSet.class}, (proxy, method, args) -> {
+					switch (method.getName()) {
+						case "getMetaData":
+							metaDataCalls.incrementAndGet();
+							return rsmd;
+						case "getString": return "Bubba";
+						case "getLong": return 22L;
+						case "getTimestamp": return timestamp;
+						case "getBigDecimal": return balance;
+						case "wasNull": return false;
+						case "hashCode": return System.identityHashCode(proxy);
+						case "equals": return proxy == args[0];
+						default: throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+
+	private static ClassLoader getClassLoader() {
+		return DataClassRowMapperTests.class.getClassLoader();
+	}
+
+}
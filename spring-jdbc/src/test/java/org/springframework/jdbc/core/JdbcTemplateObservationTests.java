@@ -0,0 +1,169 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.StatementObservation.StatementType;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.util.ClassUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link JdbcTemplate#setStatementObservationListener} against an
+ * embedded database.
+ *
+ * @author agent (agent@local)
+ */
+public class JdbcTemplateObservationTests {
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+	private final List<StatementObservation> observations = new ArrayList<>();
+
+
+	@Before
+	public void setUp() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("CREATE TABLE person (id INTEGER, name VARCHAR(50))");
+		this.jdbcTemplate.setStatementObservationListener(this.observations::add);
+	}
+
+	@After
+	public void shutDown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void observeUpdateAndQuery() {
+		jdbcTemplate.update("INSERT INTO person VALUES (?, ?)", 1, "Juergen");
+		jdbcTemplate.update("INSERT INTO person VALUES (2, 'Sam')");
+		List<String> names = jdbcTemplate.queryForList("SELECT name FROM person ORDER BY id", String.class);
+		assertEquals(Arrays.asList("Juergen", "Sam"), names);
+
+		assertEquals(3, observations.size());
+		StatementObservation insert1 = observations.get(0);
+		assertEquals(StatementType.PREPARED_STATEMENT, insert1.getStatementType());
+		assertEquals("INSERT INTO person VALUES (?, ?)", insert1.getSql());
+		assertEquals("INSERT INTO person VALUES (?)", insert1.getNormalizedSql());
+		assertEquals(1, insert1.getRowsAffected());
+		assertEquals(-1, insert1.getRowsFetched());
+		assertFalse(insert1.isBatch());
+		assertTrue(insert1.isSuccessful());
+
+		StatementObservation insert2 = observations.get(1);
+		assertEquals(StatementType.STATEMENT, insert2.getStatementType());
+		assertEquals(1, insert2.getRowsAffected());
+
+		StatementObservation query = observations.get(2);
+		assertEquals(StatementType.STATEMENT, query.getStatementType());
+		assertEquals(2, query.getRowsFetched());
+		assertEquals(-1, query.getRowsAffected());
+		assertTrue(query.getExecutionNanos() > 0);
+	}
+
+	@Test
+	public void observeBatchUpdate() {
+		jdbcTemplate.batchUpdate("INSERT INTO person VALUES (?, ?)",
+				Arrays.asList(new Object[] {1, "a"}, new Object[] {2, "b"}, new Object[] {3, "c"}));
+
+		assertEquals(1, observations.size());
+		StatementObservation batch = observations.get(0);
+		assertTrue(batch.isBatch());
+		assertEquals(3, batch.getBatchSize());
+	}
+
+	@Test
+	public void observeFailure() {
+		try {
+			jdbcTemplate.queryForList("SELECT * FROM no_such_table");
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			// expected
+		}
+
+		assertEquals(1, observations.size());
+		assertFalse(observations.get(0).isSuccessful());
+		assertNotNull(observations.get(0).getException());
+	}
+
+	@Test
+	public void observeNestedStatements() {
+		jdbcTemplate.update("INSERT INTO person VALUES (1, 'a')");
+		jdbcTemplate.update("INSERT INTO person VALUES (2, 'b')");
+		observations.clear();
+
+		jdbcTemplate.query("SELECT id FROM person", rs -> {
+			jdbcTemplate.queryForObject("SELECT name FROM person WHERE id = ?", String.class, rs.getInt(1));
+		});
+
+		assertEquals(3, observations.size());
+		assertEquals(1, observations.get(0).getRowsFetched());
+		assertEquals(1, observations.get(1).getRowsFetched());
+		assertEquals("SELECT id FROM person", observations.get(2).getSql());
+		assertEquals(2, observations.get(2).getRowsFetched());
+	}
+
+	@Test
+	public void observedResultSetExposesDriverResultSet() {
+		jdbcTemplate.update("INSERT INTO person VALUES (1, 'a')");
+
+		jdbcTemplate.query("SELECT id FROM person", (ResultSetExtractor<Object>) rs -> {
+			ResultSet target = rs.unwrap(ResultSet.class);
+			assertNotSame(rs, target);
+			assertFalse(Proxy.isProxyClass(target.getClass()));
+			assertTrue(rs.isWrapperFor(target.getClass()));
+			for (Class<?> ifc : ClassUtils.getAllInterfaces(target)) {
+				assertTrue(ifc.isInstance(rs));
+			}
+			return null;
+		});
+	}
+
+	@Test
+	public void statisticsCollector() {
+		StatementStatisticsCollector collector = new StatementStatisticsCollector();
+		jdbcTemplate.setStatementObservationListener(collector);
+		for (int i = 0; i < 10; i++) {
+			jdbcTemplate.update("INSERT INTO person VALUES (" + i + ", 'name" + i + "')");
+		}
+
+		StatementStatisticsCollector.Statistics stats =
+				collector.getStatistics("INSERT INTO person VALUES (?, ?)");
+		assertNotNull(stats);
+		assertEquals(10, stats.getCount());
+		assertEquals(10, stats.getRowsAffected());
+		assertTrue(stats.getPercentile(99).compareTo(stats.getMaxTime()) <= 0);
+	}
+
+}
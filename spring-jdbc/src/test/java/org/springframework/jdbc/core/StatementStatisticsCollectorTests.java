@@ -0,0 +1,136 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.SQLException;
+import java.time.Duration;
+
+import org.junit.Test;
+
+import org.springframework.jdbc.core.StatementObservation.StatementType;
+import org.springframework.jdbc.core.StatementStatisticsCollector.LatencyHistogram;
+import org.springframework.jdbc.core.StatementStatisticsCollector.Statistics;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author agent (agent@local)
+ */
+public class StatementStatisticsCollectorTests {
+
+	@Test
+	public void normalizeSql() {
+		assertEquals("SELECT * FROM t WHERE id IN (?) AND name = ?",
+				StatementObservation.normalizeSql("SELECT *  FROM t\n WHERE id IN (?, ?,?) AND name = 'it''s'"));
+		assertEquals("SELECT col1 FROM t2 WHERE a = ? AND b > ?",
+				StatementObservation.normalizeSql("SELECT col1 FROM t2 /* hint */ WHERE a = 42 AND b > 1.5 -- tail"));
+		assertEquals("INSERT INTO t (a, b) VALUES (?)",
+				StatementObservation.normalizeSql("INSERT INTO t (a, b) VALUES (?, ?)"));
+	}
+
+	@Test
+	public void histogramBuckets() {
+		for (long value = 0; value < 100000; value += 7) {
+			int index = LatencyHistogram.indexFor(value);
+			long highest = LatencyHistogram.highestValueFor(index);
+			assertTrue(highest >= value);
+			assertTrue(highest - value <= Math.max(value / 16, 0) + 1);
+			if (index > 0) {
+				assertTrue(LatencyHistogram.highestValueFor(index - 1) < value);
+			}
+		}
+		assertEquals(LatencyHistogram.indexFor(Long.MAX_VALUE), LatencyHistogram.indexFor(1L << 50));
+	}
+
+	@Test
+	public void aggregatesPerNormalizedStatement() {
+		StatementStatisticsCollector collector = new StatementStatisticsCollector();
+		for (int i = 1; i <= 100; i++) {
+			collector.onStatement(observation("SELECT * FROM t WHERE id = " + i, i * 1000, 1, null));
+		}
+		collector.onStatement(observation("SELECT * FROM t WHERE id = 0", 200_000, 0, new SQLException()));
+
+		assertEquals(1, collector.getStatistics().size());
+		Statistics stats = collector.getStatistics("SELECT * FROM t WHERE id = ?");
+		assertNotNull(stats);
+		assertEquals(101, stats.getCount());
+		assertEquals(1, stats.getErrorCount());
+		assertEquals(100, stats.getRowsFetched());
+		assertEquals(Duration.ofNanos(200_000), stats.getMaxTime());
+		assertEquals(Duration.ofNanos(200_000), stats.getPercentile(100));
+		assertPercentile(50, stats.getPercentile(50));
+		assertPercentile(99, stats.getPercentile(99));
+
+		collector.reset();
+		assertTrue(collector.getStatistics().isEmpty());
+	}
+
+	@Test
+	public void maxStatements() {
+		StatementStatisticsCollector collector = new StatementStatisticsCollector();
+		collector.setMaxStatements(2);
+		collector.onStatement(observation("SELECT a FROM t", 1000, 1, null));
+		collector.onStatement(observation("SELECT b FROM t", 1000, 1, null));
+		collector.onStatement(observation("SELECT c FROM t", 1000, 1, null));
+		collector.onStatement(observation("SELECT a FROM t", 1000, 1, null));
+
+		assertEquals(3, collector.getStatistics().size());
+		assertEquals(2, collector.getStatistics("SELECT a FROM t").getCount());
+		assertEquals(1, collector.getStatistics().get(StatementStatisticsCollector.OTHER_STATEMENTS).getCount());
+	}
+
+	@Test
+	public void maxStatementsWithConcurrentStatements() throws Exception {
+		StatementStatisticsCollector collector = new StatementStatisticsCollector();
+		collector.setMaxStatements(10);
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			String table = "t" + i;
+			threads[i] = new Thread(() -> {
+				for (int j = 0; j < 100; j++) {
+					collector.onStatement(observation("SELECT c" + j + " FROM " + table, 1000, 1, null));
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertEquals(11, collector.getStatistics().size());
+		long count = 0;
+		for (StatementStatisticsCollector.Statistics stats : collector.getStatistics().values()) {
+			count += stats.getCount();
+		}
+		assertEquals(400, count);
+	}
+
+
+	private static StatementObservation observation(String sql, long nanos, long rowsFetched,
+			SQLException ex) {
+
+		return new StatementObservation(StatementType.PREPARED_STATEMENT, sql, 0, nanos, 0,
+				-1, rowsFetched, -1, ex == null, ex);
+	}
+
+	private static void assertPercentile(int expectedMicros, Duration actual) {
+		long micros = actual.toNanos() / 1000;
+		assertTrue("Expected ~" + expectedMicros + " but got " + micros,
+				micros >= expectedMicros && micros <= expectedMicros + expectedMicros / 16 + 1);
+	}
+
+}
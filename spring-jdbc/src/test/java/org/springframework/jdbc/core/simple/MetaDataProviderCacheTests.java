@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.jdbc.core.metadata.MetaDataProviderCache;
+import org.springframework.jdbc.core.metadata.TableMetaDataContext;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Mock object based tests for {@link MetaDataProviderCache}.
+ *
+ * @author agent (agent@local)
+ */
+public class MetaDataProviderCacheTests {
+
+	private Connection connection;
+
+	private DatabaseMetaData databaseMetaData;
+
+	private DataSource dataSource;
+
+	private final MetaDataProviderCache cache = new MetaDataProviderCache();
+
+
+	@Before
+	public void setUp() throws Exception {
+		connection = mock(Connection.class);
+		databaseMetaData = mock(DatabaseMetaData.class);
+		dataSource = mock(DataSource.class);
+		given(connection.getMetaData()).willReturn(databaseMetaData);
+		given(dataSource.getConnection()).willReturn(connection);
+		given(databaseMetaData.getDatabaseProductName()).willReturn("MyDB");
+		given(databaseMetaData.getUserName()).willReturn("me");
+	}
+
+
+	@Test
+	public void tableMetaDataRetrievedOnce() throws Exception {
+		SimpleJdbcInsert insert1 = createInsert("t_test");
+		SimpleJdbcInsert insert2 = createInsert("t_test");
+		insert1.compile();
+		insert2.compile();
+
+		assertEquals(insert1.getInsertString(), insert2.getInsertString());
+		verify(dataSource, times(1)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedPerTable() throws Exception {
+		createInsert("t_test").compile();
+		createInsert("t_other").compile();
+
+		verify(dataSource, times(2)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedOnceIgnoringCase() throws Exception {
+		createInsert("t_test").compile();
+		createInsert("T_TEST").compile();
+
+		verify(dataSource, times(1)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedOnceForConcurrentRequests() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1);
+		CountDownLatch proceed = new CountDownLatch(1);
+		given(dataSource.getConnection()).willAnswer(invocation -> {
+			loading.countDown();
+			proceed.await();
+			return connection;
+		});
+		Thread loader = new Thread(() -> createInsert("t_test").compile());
+		loader.start();
+		assertTrue(loading.await(1, TimeUnit.SECONDS));
+		Thread waiter = new Thread(() -> createInsert("t_test").compile());
+		waiter.start();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+		while (waiter.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+			Thread.yield();
+		}
+		proceed.countDown();
+		loader.join();
+		waiter.join();
+
+		verify(dataSource, times(1)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedAgainAfterInvalidation() throws Exception {
+		createInsert("t_test").compile();
+		cache.invalidateTable(dataSource, null, null, "T_TEST");
+		createInsert("t_test").compile();
+		createInsert("t_test").compile();
+
+		verify(dataSource, times(2)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedAgainAfterDataSourceInvalidation() throws Exception {
+		createInsert("t_test").compile();
+		cache.invalidate(dataSource);
+		createInsert("t_test").compile();
+
+		verify(dataSource, times(2)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataRetrievedAgainAfterExpiration() throws Exception {
+		cache.setTimeToLive(Duration.ZERO);
+		createInsert("t_test").compile();
+		Thread.sleep(1);
+		createInsert("t_test").compile();
+
+		verify(dataSource, times(2)).getConnection();
+	}
+
+	@Test
+	public void tableMetaDataPrewarmed() throws Exception {
+		TableMetaDataContext context1 = new TableMetaDataContext();
+		context1.setTableName("t_test");
+		context1.setAccessTableColumnMetaData(false);
+		TableMetaDataContext context2 = new TableMetaDataContext();
+		context2.setTableName("t_other");
+		context2.setAccessTableColumnMetaData(false);
+		cache.prewarmTables(dataSource, Arrays.asList(context1, context2), new SimpleAsyncTaskExecutor()).join();
+		verify(dataSource, times(2)).getConnection();
+
+		createInsert("t_test").compile();
+		createInsert("t_other").compile();
+		verify(dataSource, times(2)).getConnection();
+	}
+
+	@Test
+	public void callMetaDataRetrievedOnce() throws Exception {
+		SimpleJdbcCall call1 = new SimpleJdbcCall(dataSource).withProcedureName("add_invoice")
+				.withoutProcedureColumnMetaDataAccess().withMetaDataProviderCache(cache);
+		SimpleJdbcCall call2 = new SimpleJdbcCall(dataSource).withProcedureName("add_invoice")
+				.withoutProcedureColumnMetaDataAccess().withMetaDataProviderCache(cache);
+		call1.compile();
+		call2.compile();
+
+		assertEquals(call1.getCallString(), call2.getCallString());
+		verify(dataSource, times(1)).getConnection();
+	}
+
+	private SimpleJdbcInsert createInsert(String tableName) {
+		SimpleJdbcInsert insert = new SimpleJdbcInsert(dataSource).withTableName(tableName);
+		insert.withoutTableColumnMetaDataAccess().usingColumns("id", "name");
+		insert.setMetaDataProviderCache(cache);
+		return insert;
+	}
+
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.simple;
+
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import static org.junit.Assert.*;
+
+/**
+ * Integration tests for {@link SimpleJdbcInsert} batch inserts
+ * against the supported embedded databases.
+ *
+ * @author agent (agent@local)
+ */
+@RunWith(Parameterized.class)
+public class SimpleJdbcInsertIntegrationTests {
+
+	@Parameters(name = "{0}")
+	public static EmbeddedDatabaseType[] databaseTypes() {
+		return EmbeddedDatabaseType.values();
+	}
+
+	@Parameter
+	public EmbeddedDatabaseType databaseType;
+
+	private EmbeddedDatabase db;
+
+	private JdbcTemplate jdbcTemplate;
+
+
+	@Before
+	public void setUp() {
+		this.db = new EmbeddedDatabaseBuilder().generateUniqueName(true).setType(this.databaseType).build();
+		this.jdbcTemplate = new JdbcTemplate(this.db);
+		this.jdbcTemplate.execute("CREATE TABLE customer (id INTEGER NOT NULL, name VARCHAR(50))");
+	}
+
+	@After
+	public void shutDown() {
+		this.db.shutdown();
+	}
+
+
+	@Test
+	public void executeBatchWithJdbcBatching() {
+		SimpleJdbcInsert insert = new SimpleJdbcInsert(this.jdbcTemplate).withTableName("customer");
+
+		int[] rowsAffected = insert.executeBatch(customers(5));
+
+		assertArrayEquals(new int[] {1, 1, 1, 1, 1}, rowsAffected);
+		assertCustomers(5);
+	}
+
+	@Test
+	public void executeBatchWithMultiRowInserts() {
+		SimpleJdbcInsert insert = new SimpleJdbcInsert(this.jdbcTemplate).withTableName("customer");
+		insert.usingMultiRowInserts();
+		insert.setMaxRowsPerInsert(2);
+
+		int[] rowsAffected = insert.executeBatch(customers(5));
+
+		assertArrayEquals(new int[] {1, 1, 1, 1, 1}, rowsAffected);
+		assertCustomers(5);
+	}
+
+	@Test
+	public void executeBatchWithMultiRowInsertsInSingleStatement() {
+		SimpleJdbcInsert insert = new SimpleJdbcInsert(this.jdbcTemplate)
+				.withTableName("customer").usingColumns("id", "name");
+		insert.usingMultiRowInserts();
+
+		int[] rowsAffected = insert.executeBatch(customers(3));
+
+		assertArrayEquals(new int[] {1, 1, 1}, rowsAffected);
+		assertCustomers(3);
+	}
+
+	@Test
+	public void executeBatchWithBulkInsertHandler() {
+		AtomicInteger invocations = new AtomicInteger();
+		BulkInsertHandler handler = (con, context, batchValues) -> {
+			invocations.incrementAndGet();
+			assertEquals("customer", context.getTableName().toLowerCase());
+			int[] rowsAffected = new int[batchValues.size()];
+			try (PreparedStatement ps = con.prepareStatement(context.createInsertString())) {
+				for (int i = 0; i < batchValues.size(); i++) {
+					List<Object> values = batchValues.get(i);
+					for (int j = 0; j < values.size(); j++) {
+						ps.setObject(j + 1, values.get(j));
+					}
+					rowsAffected[i] = ps.executeUpdate();
+				}
+			}
+			return rowsAffected;
+		};
+		SimpleJdbcInsert insert = new SimpleJdbcInsert(this.jdbcTemplate).withTableName("customer");
+		insert.usingBulkInsertHandler("Other DB", (con, context, batchValues) -> {
+			throw new IllegalStateException("Should not be used");
+		});
+		insert.usingBulkInsertHandler("HSQL Database Engine", handler);
+		insert.usingBulkInsertHandler("H2", handler);
+		insert.usingBulkInsertHandler("Apache Derby", handler);
+
+		int[] rowsAffected = insert.executeBatch(customers(4));
+
+		assertEquals(1, invocations.get());
+		assertArrayEquals(new int[] {1, 1, 1, 1}, rowsAffected);
+		assertCustomers(4);
+	}
+
+
+	private static SqlParameterSource[] customers(int count) {
+		SqlParameterSource[] batch = new SqlParameterSource[count];
+		for (int i = 0; i < count; i++) {
+			batch[i] = new MapSqlParameterSource("id", i + 1).addValue("name", "Customer " + (i + 1));
+		}
+		return batch;
+	}
+
+	private void assertCustomers(int count) {
+		List<String> names = this.jdbcTemplate.queryForList(
+				"SELECT name FROM customer ORDER BY id", String.class);
+		assertEquals(count, names.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals("Customer " + (i + 1), names.get(i));
+		}
+	}
+
+}
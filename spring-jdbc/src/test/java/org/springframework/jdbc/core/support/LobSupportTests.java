@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.jdbc.core.support;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -26,8 +28,10 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
 import org.springframework.jdbc.LobRetrievalFailureException;
+import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobCreator;
 import org.springframework.jdbc.support.lob.LobHandler;
 
@@ -120,6 +124,52 @@ public class LobSupportTests {
 		lobRse.extractData(rset);
 	}
 
+	@Test
+	public void testBlobStreamingResultSetExtractor() throws SQLException {
+		ResultSet rset = mock(ResultSet.class);
+		given(rset.next()).willReturn(true, false);
+		given(rset.findColumn("content")).willReturn(2);
+		given(rset.getBinaryStream(2)).willReturn(new ByteArrayInputStream("content".getBytes()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BlobStreamingResultSetExtractor rse =
+				new BlobStreamingResultSetExtractor(new DefaultLobHandler(), "content", out);
+		assertEquals(Long.valueOf(7), rse.extractData(rset));
+		assertEquals("content", out.toString());
+	}
+
+	@Test
+	public void testBlobStreamingResultSetExtractorMultipleRows() throws SQLException {
+		ResultSet rset = mock(ResultSet.class);
+		given(rset.next()).willReturn(true, true, false);
+		given(rset.getBinaryStream(1)).willReturn(
+				new ByteArrayInputStream("con".getBytes()), new ByteArrayInputStream("tent".getBytes()));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BlobStreamingResultSetExtractor rse = new BlobStreamingResultSetExtractor(new DefaultLobHandler(), 1, out);
+		rse.setMultipleRowsAllowed(true);
+		assertEquals(Long.valueOf(7), rse.extractData(rset));
+		assertEquals("content", out.toString());
+	}
+
+	@Test
+	public void testBlobStreamingResultSetExtractorMultipleRowsNotAllowed() throws SQLException {
+		ResultSet rset = mock(ResultSet.class);
+		given(rset.next()).willReturn(true, true, false);
+		given(rset.getBinaryStream(1)).willReturn(new ByteArrayInputStream("content".getBytes()));
+		BlobStreamingResultSetExtractor rse =
+				new BlobStreamingResultSetExtractor(new DefaultLobHandler(), 1, new ByteArrayOutputStream());
+		thrown.expect(IncorrectResultSizeDataAccessException.class);
+		rse.extractData(rset);
+	}
+
+	@Test
+	public void testBlobStreamingResultSetExtractorNoRow() throws SQLException {
+		ResultSet rset = mock(ResultSet.class);
+		BlobStreamingResultSetExtractor rse =
+				new BlobStreamingResultSetExtractor(new DefaultLobHandler(), 1, new ByteArrayOutputStream());
+		thrown.expect(EmptyResultDataAccessException.class);
+		rse.extractData(rset);
+	}
+
 	private AbstractLobStreamingResultSetExtractor<Void> getResultSetExtractor(final boolean ex) {
 		AbstractLobStreamingResultSetExtractor<Void> lobRse = new AbstractLobStreamingResultSetExtractor<Void>() {
 
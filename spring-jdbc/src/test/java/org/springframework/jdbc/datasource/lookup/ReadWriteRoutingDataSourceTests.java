@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource.LoadBalancingStrategy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * @author agent (agent@local)
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private final DataSource primary = mock(DataSource.class);
+
+	private final DataSource replica1 = mock(DataSource.class);
+
+	private final DataSource replica2 = mock(DataSource.class);
+
+	private final Connection primaryCon = mock(Connection.class);
+
+	private final Connection replicaCon1 = mock(Connection.class);
+
+	private final Connection replicaCon2 = mock(Connection.class);
+
+	private boolean readOnly = true;
+
+	private final ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource() {
+		@Override
+		protected boolean isReadOnlyRoute() {
+			return readOnly;
+		}
+	};
+
+
+	@Before
+	public void setup() throws SQLException {
+		given(primary.getConnection()).willReturn(primaryCon);
+		given(replica1.getConnection()).willReturn(replicaCon1);
+		given(replica2.getConnection()).willReturn(replicaCon2);
+		dataSource.setWriteDataSource(primary);
+		dataSource.setReadDataSources(Arrays.asList(replica1, replica2));
+		dataSource.setDefaultAutoCommit(true);
+		dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		dataSource.afterPropertiesSet();
+	}
+
+
+	@Test
+	public void connectionFetchedLazily() throws SQLException {
+		Connection con = dataSource.getConnection();
+		con.close();
+		verifyNoMoreInteractions(primary, replica1, replica2);
+	}
+
+	@Test
+	public void writeConnectionFromPrimary() throws SQLException {
+		readOnly = false;
+		assertSame(primaryCon, targetOf(dataSource.getConnection()));
+		verifyNoMoreInteractions(replica1, replica2);
+	}
+
+	@Test
+	public void readConnectionsRoundRobin() throws SQLException {
+		assertSame(replicaCon1, targetOf(dataSource.getConnection()));
+		assertSame(replicaCon2, targetOf(dataSource.getConnection()));
+		assertSame(replicaCon1, targetOf(dataSource.getConnection()));
+		verifyNoMoreInteractions(primary);
+	}
+
+	@Test
+	public void readConnectionsLeastOutstanding() throws SQLException {
+		dataSource.setLoadBalancingStrategy(LoadBalancingStrategy.LEAST_OUTSTANDING);
+		Connection con1 = dataSource.getConnection();
+		assertSame(replicaCon1, targetOf(con1));
+		Connection con2 = dataSource.getConnection();
+		assertSame(replicaCon2, targetOf(con2));
+		con1.close();
+		verify(replicaCon1).close();
+		// replica1 has no outstanding Connection anymore, replica2 still has one
+		assertSame(replicaCon1, targetOf(dataSource.getConnection()));
+		// one outstanding Connection each: tie broken in round-robin order
+		assertSame(replicaCon2, targetOf(dataSource.getConnection()));
+		// replica1 has one outstanding Connection, replica2 has two
+		assertSame(replicaCon1, targetOf(dataSource.getConnection()));
+	}
+
+	@Test
+	public void failoverToNextReplica() throws SQLException {
+		given(replica1.getConnection()).willThrow(new SQLException("down"));
+		assertSame(replicaCon2, targetOf(dataSource.getConnection()));
+		// replica1 skipped within its recovery interval
+		assertSame(replicaCon2, targetOf(dataSource.getConnection()));
+		verify(replica1, times(1)).getConnection();
+		verifyNoMoreInteractions(primary);
+	}
+
+	@Test
+	public void failoverToPrimary() throws SQLException {
+		given(replica1.getConnection()).willThrow(new SQLException("down"));
+		given(replica2.getConnection()).willThrow(new SQLException("down"));
+		assertSame(primaryCon, targetOf(dataSource.getConnection()));
+	}
+
+	@Test(expected = SQLException.class)
+	public void failoverToPrimaryDisabled() throws SQLException {
+		dataSource.setFailoverToWriteDataSource(false);
+		given(replica1.getConnection()).willThrow(new SQLException("down"));
+		given(replica2.getConnection()).willThrow(new SQLException("down"));
+		dataSource.getConnection().createStatement();
+	}
+
+	@Test
+	public void withDataSourceTransactionManager() throws SQLException {
+		ReadWriteRoutingDataSource dataSource = new ReadWriteRoutingDataSource();
+		dataSource.setWriteDataSource(primary);
+		dataSource.setReadDataSources(Arrays.asList(replica1, replica2));
+		dataSource.setDefaultAutoCommit(true);
+		dataSource.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+		dataSource.afterPropertiesSet();
+		given(primaryCon.getAutoCommit()).willReturn(true);
+		given(replicaCon1.getAutoCommit()).willReturn(true);
+
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+		tt.setReadOnly(true);
+		tt.execute(status -> {
+			assertSame(replicaCon1, targetOf(DataSourceUtils.getConnection(dataSource)));
+			return null;
+		});
+		verify(replicaCon1).setReadOnly(true);
+		verify(replicaCon1).setAutoCommit(false);
+		verify(replicaCon1).commit();
+		verify(replicaCon1).close();
+
+		tt.setReadOnly(false);
+		tt.execute(status -> {
+			assertSame(primaryCon, targetOf(DataSourceUtils.getConnection(dataSource)));
+			return null;
+		});
+		verify(primaryCon).setAutoCommit(false);
+		verify(primaryCon).commit();
+		verify(primaryCon).close();
+	}
+
+
+	private static Connection targetOf(Connection con) {
+		try {
+			// Fetch the actual Connection, unwrapping any outstanding Connection tracking
+			con.createStatement();
+			Connection target = ((ConnectionProxy) con).getTargetConnection();
+			return (target instanceof ConnectionProxy ? ((ConnectionProxy) target).getTargetConnection() : target);
+		}
+		catch (SQLException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+
+}
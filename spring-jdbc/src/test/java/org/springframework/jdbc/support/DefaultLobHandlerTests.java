@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2014 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,17 @@
 package org.springframework.jdbc.support;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Arrays;
 
 import org.junit.Test;
 
@@ -31,6 +35,7 @@ import org.springframework.jdbc.support.lob.DefaultLobHandler;
 import org.springframework.jdbc.support.lob.LobCreator;
 import org.springframework.jdbc.support.lob.LobHandler;
 
+import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
 
 /**
@@ -78,6 +83,41 @@ public class DefaultLobHandlerTests {
 		verify(rs).getCharacterStream(1);
 	}
 
+	@Test
+	public void testCopyBlobToOutputStream() throws SQLException, IOException {
+		byte[] content = new byte[100000];
+		Arrays.fill(content, (byte) 7);
+		given(rs.getBinaryStream(1)).willReturn(new ByteArrayInputStream(content));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(content.length, lobHandler.copyBlobTo(rs, 1, out));
+		assertArrayEquals(content, out.toByteArray());
+	}
+
+	@Test
+	public void testCopyBlobToChannel() throws SQLException, IOException {
+		byte[] content = new byte[100000];
+		Arrays.fill(content, (byte) 7);
+		given(rs.getBinaryStream(1)).willReturn(new ByteArrayInputStream(content));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(content.length, lobHandler.copyBlobTo(rs, 1, Channels.newChannel(out)));
+		assertArrayEquals(content, out.toByteArray());
+	}
+
+	@Test
+	public void testCopyNullBlob() throws SQLException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(-1, lobHandler.copyBlobTo(rs, 1, out));
+		assertEquals(0, out.size());
+	}
+
+	@Test
+	public void testCopyClobToWriter() throws SQLException, IOException {
+		given(rs.getCharacterStream(1)).willReturn(new StringReader("content"));
+		StringWriter out = new StringWriter();
+		assertEquals(7, lobHandler.copyClobTo(rs, 1, out));
+		assertEquals("content", out.toString());
+	}
+
 	@Test
 	public void testSetBlobAsBytes() throws SQLException {
 		byte[] content = "testContent".getBytes();
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -319,14 +319,13 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
+			// Scan for the null octet first, then copy the payload in bulk
+			for (int i = byteBuffer.position(); i < byteBuffer.limit(); i++) {
+				if (byteBuffer.get(i) == 0) {
+					byte[] payload = new byte[i - byteBuffer.position()];
+					byteBuffer.get(payload);
+					byteBuffer.get();
+					return payload;
 				}
 			}
 		}
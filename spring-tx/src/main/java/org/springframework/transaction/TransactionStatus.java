@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,6 +25,9 @@ import java.io.Flushable;
  * and to programmatically request a rollback (instead of throwing
  * an exception that causes an implicit rollback).
  *
+ * <p>Extends the generic {@link TransactionExecution} interface with
+ * flushing and savepoint information for thread-bound transactions.
+ *
  * <p>Includes the {@link SavepointManager} interface to provide access
  * to savepoint management facilities. Note that savepoint management
  * is only available if supported by the underlying transaction manager.
@@ -32,18 +35,12 @@ import java.io.Flushable;
  * @author Juergen Hoeller
  * @since 27.03.2003
  * @see #setRollbackOnly()
+ * @see TransactionExecution
  * @see PlatformTransactionManager#getTransaction
  * @see org.springframework.transaction.support.TransactionCallback#doInTransaction
  * @see org.springframework.transaction.interceptor.TransactionInterceptor#currentTransactionStatus()
  */
-public interface TransactionStatus extends SavepointManager, Flushable {
-
-	/**
-	 * Return whether the present transaction is new; otherwise participating
-	 * in an existing transaction, or potentially not running in an actual
-	 * transaction in the first place.
-	 */
-	boolean isNewTransaction();
+public interface TransactionStatus extends TransactionExecution, SavepointManager, Flushable {
 
 	/**
 	 * Return whether this transaction internally carries a savepoint,
@@ -58,25 +55,6 @@ public interface TransactionStatus extends SavepointManager, Flushable {
 	 */
 	boolean hasSavepoint();
 
-	/**
-	 * Set the transaction rollback-only. This instructs the transaction manager
-	 * that the only possible outcome of the transaction may be a rollback, as
-	 * alternative to throwing an exception which would in turn trigger a rollback.
-	 * <p>This is mainly intended for transactions managed by
-	 * {@link org.springframework.transaction.support.TransactionTemplate} or
-	 * {@link org.springframework.transaction.interceptor.TransactionInterceptor},
-	 * where the actual commit/rollback decision is made by the container.
-	 * @see org.springframework.transaction.support.TransactionCallback#doInTransaction
-	 * @see org.springframework.transaction.interceptor.TransactionAttribute#rollbackOn
-	 */
-	void setRollbackOnly();
-
-	/**
-	 * Return whether the transaction has been marked as rollback-only
-	 * (either by the application or by the transaction infrastructure).
-	 */
-	boolean isRollbackOnly();
-
 	/**
 	 * Flush the underlying session to the datastore, if applicable:
 	 * for example, all affected Hibernate/JPA sessions.
@@ -88,12 +66,4 @@ public interface TransactionStatus extends SavepointManager, Flushable {
 	@Override
 	void flush();
 
-	/**
-	 * Return whether this transaction is completed, that is,
-	 * whether it has already been committed or rolled back.
-	 * @see PlatformTransactionManager#commit
-	 * @see PlatformTransactionManager#rollback
-	 */
-	boolean isCompleted();
-
 }
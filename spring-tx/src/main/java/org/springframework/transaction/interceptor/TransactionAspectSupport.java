@@ -17,23 +17,36 @@
 package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
+import java.util.Optional;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentMap;
 
 import io.vavr.control.Try;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanNotOfRequiredTypeException;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
+import org.springframework.core.MethodClassKey;
 import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.reactive.TransactionContext;
+import org.springframework.transaction.reactive.TransactionContextManager;
 import org.springframework.transaction.support.CallbackPreferringPlatformTransactionManager;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
@@ -54,8 +67,18 @@ import org.springframework.util.StringUtils;
  * (by default).
  *
  * <p>Uses the <b>Strategy</b> design pattern. A {@code PlatformTransactionManager}
- * implementation will perform the actual transaction management, and a
- * {@code TransactionAttributeSource} is used for determining transaction definitions.
+ * or {@code ReactiveTransactionManager} implementation will perform the actual
+ * transaction management, and a {@code TransactionAttributeSource} (e.g.
+ * annotation-based) is used for determining transaction definitions.
+ *
+ * <p>Methods with a reactive return type (as determined through the
+ * {@link ReactiveAdapterRegistry}, e.g. {@code Mono} or {@code Flux}) are handled
+ * in a non-blocking fashion when a {@code ReactiveTransactionManager} is available
+ * for them: the transaction gets started on subscription and completed once the
+ * returned publisher terminates, with transaction state kept in the Reactor
+ * subscriber context rather than in thread-bound state. All other methods are
+ * driven by a {@code PlatformTransactionManager}, so an application context may
+ * well contain one transaction manager of each kind.
  *
  * <p>A transaction aspect is serializable if its {@code PlatformTransactionManager}
  * and {@code TransactionAttributeSource} are serializable.
@@ -80,12 +103,23 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	private static final Object DEFAULT_TRANSACTION_MANAGER_KEY = new Object();
 
+	/**
+	 * Key to use to store the default reactive transaction manager.
+	 */
+	private static final Object DEFAULT_REACTIVE_TRANSACTION_MANAGER_KEY = new Object();
+
 	/**
 	 * Vavr library present on the classpath?
 	 */
 	private static final boolean vavrPresent = ClassUtils.isPresent(
 			"io.vavr.control.Try", TransactionAspectSupport.class.getClassLoader());
 
+	/**
+	 * Reactive Streams API present on the classpath?
+	 */
+	private static final boolean reactiveStreamsPresent = ClassUtils.isPresent(
+			"org.reactivestreams.Publisher", TransactionAspectSupport.class.getClassLoader());
+
 	/**
 	 * Holder to support the {@code currentTransactionStatus()} method,
 	 * and to support communication between different cooperating advices
@@ -142,15 +176,35 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	@Nullable
 	private PlatformTransactionManager transactionManager;
 
+	@Nullable
+	private ReactiveTransactionManager reactiveTransactionManager;
+
 	@Nullable
 	private TransactionAttributeSource transactionAttributeSource;
 
 	@Nullable
 	private BeanFactory beanFactory;
 
+	@Nullable
+	private final ReactiveAdapterRegistry reactiveAdapterRegistry;
+
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentReferenceHashMap<>(4);
 
+	private final ConcurrentMap<Object, Optional<ReactiveTransactionManager>> reactiveTransactionManagerCache =
+			new ConcurrentReferenceHashMap<>(4);
+
+	private final ConcurrentMap<MethodClassKey, JoinpointAttribute> joinpointAttributeCache =
+			new ConcurrentReferenceHashMap<>(1024);
+
+	private final ConcurrentMap<Method, ReactiveTransactionSupport> transactionSupportCache =
+			new ConcurrentReferenceHashMap<>(1024);
+
+
+	protected TransactionAspectSupport() {
+		this.reactiveAdapterRegistry = (reactiveStreamsPresent ? ReactiveAdapterRegistry.getSharedInstance() : null);
+	}
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
@@ -186,6 +240,28 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return this.transactionManager;
 	}
 
+	/**
+	 * Specify the <em>default</em> reactive transaction manager to use to drive
+	 * transactions for methods with a reactive return type.
+	 * <p>If not specified, a {@link ReactiveTransactionManager} bean will be
+	 * looked up in the {@link BeanFactory} for such methods, unless a default
+	 * {@link #setTransactionManager PlatformTransactionManager} has been set.
+	 * @since 5.2
+	 * @see #setTransactionManager
+	 */
+	public void setReactiveTransactionManager(@Nullable ReactiveTransactionManager reactiveTransactionManager) {
+		this.reactiveTransactionManager = reactiveTransactionManager;
+	}
+
+	/**
+	 * Return the default reactive transaction manager, or {@code null} if unknown.
+	 * @since 5.2
+	 */
+	@Nullable
+	public ReactiveTransactionManager getReactiveTransactionManager() {
+		return this.reactiveTransactionManager;
+	}
+
 	/**
 	 * Set properties with method names as keys and transaction attribute
 	 * descriptors (parsed via TransactionAttributeEditor) as values:
@@ -238,7 +314,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 	/**
-	 * Set the BeanFactory to use for retrieving PlatformTransactionManager beans.
+	 * Set the BeanFactory to use for retrieving TransactionManager beans.
 	 */
 	@Override
 	public void setBeanFactory(@Nullable BeanFactory beanFactory) {
@@ -246,7 +322,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 	/**
-	 * Return the BeanFactory to use for retrieving PlatformTransactionManager beans.
+	 * Return the BeanFactory to use for retrieving TransactionManager beans.
 	 */
 	@Nullable
 	protected final BeanFactory getBeanFactory() {
@@ -258,10 +334,10 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	@Override
 	public void afterPropertiesSet() {
-		if (getTransactionManager() == null && this.beanFactory == null) {
+		if (getTransactionManager() == null && getReactiveTransactionManager() == null && this.beanFactory == null) {
 			throw new IllegalStateException(
 					"Set the 'transactionManager' property or make sure to run within a BeanFactory " +
-					"containing a PlatformTransactionManager bean!");
+					"containing a TransactionManager bean!");
 		}
 		if (getTransactionAttributeSource() == null) {
 			throw new IllegalStateException(
@@ -274,7 +350,8 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	/**
 	 * General delegate for around-advice-based subclasses, delegating to several other template
 	 * methods on this class. Able to handle {@link CallbackPreferringPlatformTransactionManager}
-	 * as well as regular {@link PlatformTransactionManager} implementations.
+	 * as well as regular {@link PlatformTransactionManager} implementations and
+	 * {@link ReactiveTransactionManager} implementations for reactive return types.
 	 * @param method the Method being invoked
 	 * @param targetClass the target class that we're invoking the method on
 	 * @param invocation the callback to use for proceeding with the target invocation
@@ -288,12 +365,30 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		// If the transaction attribute is null, the method is non-transactional.
 		TransactionAttributeSource tas = getTransactionAttributeSource();
 		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
-		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
-		final String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
 
-		if (txAttr == null || !(tm instanceof CallbackPreferringPlatformTransactionManager)) {
+		if (this.reactiveAdapterRegistry != null && txAttr != null) {
+			ReactiveTransactionSupport txSupport = this.transactionSupportCache.computeIfAbsent(method,
+					key -> new ReactiveTransactionSupport(this.reactiveAdapterRegistry.getAdapter(method.getReturnType())));
+			if (txSupport.isReactive()) {
+				ReactiveTransactionManager rtm = determineReactiveTransactionManager(txAttr);
+				if (rtm != null) {
+					return txSupport.invokeWithinTransaction(method, targetClass, invocation, txAttr, rtm);
+				}
+			}
+		}
+
+		final PlatformTransactionManager ptm = determineTransactionManager(txAttr);
+		if (txAttr != null && ptm == null && getReactiveTransactionManager() != null) {
+			throw new IllegalStateException("Cannot apply reactive transaction to non-reactive return type: " +
+					method.getReturnType());
+		}
+		final JoinpointAttribute joinpoint = getJoinpointAttribute(method, targetClass, txAttr);
+		final String joinpointIdentification = joinpoint.identification;
+
+		if (txAttr == null || !(ptm instanceof CallbackPreferringPlatformTransactionManager)) {
 			// Standard transaction demarcation with getTransaction and commit/rollback calls.
-			TransactionInfo txInfo = createTransactionIfNecessary(tm, txAttr, joinpointIdentification);
+			TransactionInfo txInfo = createTransactionIfNecessary(
+					ptm, joinpoint.namedTransactionAttribute, joinpointIdentification);
 
 			Object retVal;
 			try {
@@ -327,8 +422,8 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 
 			// It's a CallbackPreferringPlatformTransactionManager: pass a TransactionCallback in.
 			try {
-				Object result = ((CallbackPreferringPlatformTransactionManager) tm).execute(txAttr, status -> {
-					TransactionInfo txInfo = prepareTransactionInfo(tm, txAttr, joinpointIdentification, status);
+				Object result = ((CallbackPreferringPlatformTransactionManager) ptm).execute(txAttr, status -> {
+					TransactionInfo txInfo = prepareTransactionInfo(ptm, txAttr, joinpointIdentification, status);
 					try {
 						Object retVal = invocation.proceedWithInvocation();
 						if (vavrPresent && VavrDelegate.isVavrTry(retVal)) {
@@ -388,6 +483,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.reactiveTransactionManagerCache.clear();
 		this.beanFactory = null;
 	}
 
@@ -432,6 +528,83 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return txManager;
 	}
 
+	/**
+	 * Determine the specific reactive transaction manager to use for the given
+	 * transaction on a method with a reactive return type.
+	 * <p>Returns {@code null} if no {@link ReactiveTransactionManager} applies,
+	 * in which case the invocation is driven by the
+	 * {@link #determineTransactionManager PlatformTransactionManager} instead.
+	 * @since 5.2
+	 */
+	@Nullable
+	protected ReactiveTransactionManager determineReactiveTransactionManager(@Nullable TransactionAttribute txAttr) {
+		// Do not attempt to lookup tx manager if no tx attributes are set
+		if (txAttr == null || this.beanFactory == null) {
+			return getReactiveTransactionManager();
+		}
+
+		String qualifier = txAttr.getQualifier();
+		if (StringUtils.hasText(qualifier)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, qualifier);
+		}
+		else if (StringUtils.hasText(this.transactionManagerBeanName)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, this.transactionManagerBeanName);
+		}
+		else {
+			ReactiveTransactionManager defaultTransactionManager = getReactiveTransactionManager();
+			if (defaultTransactionManager == null && getTransactionManager() == null) {
+				Optional<ReactiveTransactionManager> cached =
+						this.reactiveTransactionManagerCache.get(DEFAULT_REACTIVE_TRANSACTION_MANAGER_KEY);
+				if (cached == null) {
+					cached = Optional.ofNullable(
+							this.beanFactory.getBeanProvider(ReactiveTransactionManager.class).getIfAvailable());
+					this.reactiveTransactionManagerCache.putIfAbsent(DEFAULT_REACTIVE_TRANSACTION_MANAGER_KEY, cached);
+				}
+				defaultTransactionManager = cached.orElse(null);
+			}
+			return defaultTransactionManager;
+		}
+	}
+
+	@Nullable
+	private ReactiveTransactionManager determineQualifiedReactiveTransactionManager(
+			BeanFactory beanFactory, String qualifier) {
+
+		Optional<ReactiveTransactionManager> txManager = this.reactiveTransactionManagerCache.get(qualifier);
+		if (txManager == null) {
+			try {
+				txManager = Optional.of(BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+						beanFactory, ReactiveTransactionManager.class, qualifier));
+			}
+			catch (NoSuchBeanDefinitionException | BeanNotOfRequiredTypeException ex) {
+				// Presumably qualifying a PlatformTransactionManager instead.
+				txManager = Optional.empty();
+			}
+			this.reactiveTransactionManagerCache.putIfAbsent(qualifier, txManager);
+		}
+		return txManager.orElse(null);
+	}
+
+	/**
+	 * Obtain the joinpoint identification and the correspondingly named transaction
+	 * attribute for the given method and target class, caching both for subsequent
+	 * invocations in order to avoid repeated String concatenation and attribute wrapping.
+	 */
+	private JoinpointAttribute getJoinpointAttribute(Method method, @Nullable Class<?> targetClass,
+			@Nullable TransactionAttribute txAttr) {
+
+		MethodClassKey cacheKey = new MethodClassKey(method, targetClass);
+		JoinpointAttribute joinpoint = this.joinpointAttributeCache.get(cacheKey);
+		if (joinpoint == null || !joinpoint.matches(txAttr)) {
+			String identification = methodIdentification(method, targetClass, txAttr);
+			joinpoint = new JoinpointAttribute(txAttr, identification,
+					(txAttr != null && txAttr.getName() == null ?
+							new NamedTransactionAttribute(txAttr, identification) : txAttr));
+			this.joinpointAttributeCache.put(cacheKey, joinpoint);
+		}
+		return joinpoint;
+	}
+
 	private String methodIdentification(Method method, @Nullable Class<?> targetClass,
 			@Nullable TransactionAttribute txAttr) {
 
@@ -454,6 +627,9 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 * <p>The default implementation returns {@code null}, indicating the
 	 * use of {@link DefaultTransactionAttribute#getDescriptor()} instead,
 	 * ending up as {@link ClassUtils#getQualifiedMethodName(Method, Class)}.
+	 * <p>As of 5.2, the result is cached per method and target class, as long
+	 * as the transaction attribute stays the same: implementations are expected
+	 * to return the same identification for repeated invocations.
 	 * @param method the method we're interested in
 	 * @param targetClass the class that the method is being invoked on
 	 * @return a String representation identifying this method
@@ -707,6 +883,172 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Delegate for Reactor-based management of transactional methods with a
+	 * reactive return type, completing the transaction when the returned
+	 * publisher terminates.
+	 */
+	private class ReactiveTransactionSupport {
+
+		@Nullable
+		private final ReactiveAdapter adapter;
+
+		public ReactiveTransactionSupport(@Nullable ReactiveAdapter adapter) {
+			this.adapter = adapter;
+		}
+
+		public boolean isReactive() {
+			return (this.adapter != null);
+		}
+
+		public Object invokeWithinTransaction(Method method, @Nullable Class<?> targetClass,
+				InvocationCallback invocation, TransactionAttribute txAttr, ReactiveTransactionManager rtm) {
+
+			JoinpointAttribute joinpoint = getJoinpointAttribute(method, targetClass, txAttr);
+			TransactionAttribute namedAttr = joinpoint.namedTransactionAttribute;
+			String joinpointIdentification = joinpoint.identification;
+
+			// Optimize for Mono
+			if (Mono.class.isAssignableFrom(method.getReturnType())) {
+				return TransactionContextManager.currentContext().flatMap(context ->
+						rtm.getReactiveTransaction(namedAttr).flatMap(status ->
+								Mono.from(proceed(invocation, joinpointIdentification))
+										.onErrorResume(ex -> completeTransactionAfterThrowing(
+												rtm, status, txAttr, joinpointIdentification, ex).then(Mono.error(ex)))
+										.flatMap(result -> commitTransactionAfterReturning(
+												rtm, status, joinpointIdentification).thenReturn(result))
+										.switchIfEmpty(Mono.defer(() -> commitTransactionAfterReturning(
+												rtm, status, joinpointIdentification).then(Mono.empty())))
+										.doOnCancel(() -> rollbackOnCancel(rtm, context, status))))
+						.subscriberContext(TransactionContextManager.getOrCreateContext());
+			}
+
+			// Any other reactive type, typically a Flux
+			return this.adapter.fromPublisher(TransactionContextManager.currentContext().flatMapMany(context ->
+					rtm.getReactiveTransaction(namedAttr).flatMapMany(status ->
+							Flux.from(proceed(invocation, joinpointIdentification))
+									.onErrorResume(ex -> completeTransactionAfterThrowing(
+											rtm, status, txAttr, joinpointIdentification, ex).then(Mono.error(ex)))
+									.concatWith(Mono.defer(() -> commitTransactionAfterReturning(
+											rtm, status, joinpointIdentification)).then(Mono.empty()))
+									.doOnCancel(() -> rollbackOnCancel(rtm, context, status))))
+					.subscriberContext(TransactionContextManager.getOrCreateContext()));
+		}
+
+		private Publisher<Object> proceed(InvocationCallback invocation, String joinpointIdentification) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Getting transaction for [" + joinpointIdentification + "]");
+			}
+			try {
+				Object retVal = invocation.proceedWithInvocation();
+				return (retVal != null ? this.adapter.toPublisher(retVal) : Mono.empty());
+			}
+			catch (Throwable ex) {
+				return Mono.error(ex);
+			}
+		}
+
+		private Mono<Void> commitTransactionAfterReturning(ReactiveTransactionManager rtm,
+				ReactiveTransaction status, String joinpointIdentification) {
+
+			if (logger.isTraceEnabled()) {
+				logger.trace("Completing transaction for [" + joinpointIdentification + "]");
+			}
+			return rtm.commit(status);
+		}
+
+		private Mono<Void> completeTransactionAfterThrowing(ReactiveTransactionManager rtm,
+				ReactiveTransaction status, TransactionAttribute txAttr, String joinpointIdentification, Throwable ex) {
+
+			if (logger.isTraceEnabled()) {
+				logger.trace("Completing transaction for [" + joinpointIdentification + "] after exception: " + ex);
+			}
+			if (txAttr.rollbackOn(ex)) {
+				return rtm.rollback(status).onErrorMap(ex2 -> {
+					logger.error("Application exception overridden by rollback exception", ex);
+					if (ex2 instanceof TransactionSystemException) {
+						((TransactionSystemException) ex2).initApplicationException(ex);
+					}
+					return ex2;
+				});
+			}
+			else {
+				// We don't roll back on this exception.
+				// Will still roll back if ReactiveTransaction.isRollbackOnly() is true.
+				return rtm.commit(status).onErrorMap(ex2 -> {
+					logger.error("Application exception overridden by commit exception", ex);
+					if (ex2 instanceof TransactionSystemException) {
+						((TransactionSystemException) ex2).initApplicationException(ex);
+					}
+					return ex2;
+				});
+			}
+		}
+
+		private void rollbackOnCancel(ReactiveTransactionManager rtm, TransactionContext context,
+				ReactiveTransaction status) {
+
+			if (!status.isCompleted()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Rolling back transaction after cancellation of reactive method invocation");
+				}
+				rtm.rollback(status)
+						.subscriberContext(ctx -> ctx.put(TransactionContext.class, context))
+						.subscribe(null, ex -> logger.error("Transaction rollback after cancellation failed", ex));
+			}
+		}
+	}
+
+
+	/**
+	 * Cached joinpoint identification and named transaction attribute for a method
+	 * and target class, valid as long as the source attribute remains the same.
+	 */
+	private static final class JoinpointAttribute {
+
+		@Nullable
+		private final TransactionAttribute sourceTransactionAttribute;
+
+		private final String identification;
+
+		@Nullable
+		private final TransactionAttribute namedTransactionAttribute;
+
+		public JoinpointAttribute(@Nullable TransactionAttribute sourceTransactionAttribute, String identification,
+				@Nullable TransactionAttribute namedTransactionAttribute) {
+
+			this.sourceTransactionAttribute = sourceTransactionAttribute;
+			this.identification = identification;
+			this.namedTransactionAttribute = namedTransactionAttribute;
+		}
+
+		public boolean matches(@Nullable TransactionAttribute txAttr) {
+			return (this.sourceTransactionAttribute == txAttr);
+		}
+	}
+
+
+	/**
+	 * TransactionAttribute decorator exposing the joinpoint identification
+	 * as transaction name.
+	 */
+	@SuppressWarnings("serial")
+	private static final class NamedTransactionAttribute extends DelegatingTransactionAttribute {
+
+		private final String name;
+
+		public NamedTransactionAttribute(TransactionAttribute targetAttribute, String name) {
+			super(targetAttribute);
+			this.name = name;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+	}
+
+
 	/**
 	 * Internal holder class for a Throwable in a callback transaction model.
 	 */
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -29,11 +29,14 @@ import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionManager;
 
 /**
  * AOP Alliance MethodInterceptor for declarative transaction
  * management using the common Spring transaction infrastructure
- * ({@link org.springframework.transaction.PlatformTransactionManager}).
+ * ({@link org.springframework.transaction.PlatformTransactionManager}/
+ * {@link org.springframework.transaction.ReactiveTransactionManager}).
  *
  * <p>Derives from the {@link TransactionAspectSupport} class which
  * contains the integration with Spring's underlying transaction API.
@@ -85,6 +88,26 @@ public class TransactionInterceptor extends TransactionAspectSupport implements
 		setTransactionAttributeSource(tas);
 	}
 
+	/**
+	 * Create a new TransactionInterceptor.
+	 * @param tm the default transaction manager to perform the actual transaction management,
+	 * either a {@code PlatformTransactionManager} or a {@code ReactiveTransactionManager}
+	 * @param tas the attribute source to be used to find transaction attributes
+	 * @since 5.2
+	 * @see #setTransactionManager
+	 * @see #setReactiveTransactionManager
+	 * @see #setTransactionAttributeSource(TransactionAttributeSource)
+	 */
+	public TransactionInterceptor(TransactionManager tm, TransactionAttributeSource tas) {
+		if (tm instanceof ReactiveTransactionManager) {
+			setReactiveTransactionManager((ReactiveTransactionManager) tm);
+		}
+		if (tm instanceof PlatformTransactionManager) {
+			setTransactionManager((PlatformTransactionManager) tm);
+		}
+		setTransactionAttributeSource(tas);
+	}
+
 
 	@Override
 	@Nullable
@@ -112,6 +135,7 @@ public class TransactionInterceptor extends TransactionAspectSupport implements
 		oos.writeObject(getTransactionManager());
 		oos.writeObject(getTransactionAttributeSource());
 		oos.writeObject(getBeanFactory());
+		oos.writeObject(getReactiveTransactionManager());
 	}
 
 	private void readObject(ObjectInputStream ois) throws IOException, ClassNotFoundException {
@@ -125,6 +149,7 @@ public class TransactionInterceptor extends TransactionAspectSupport implements
 		setTransactionManager((PlatformTransactionManager) ois.readObject());
 		setTransactionAttributeSource((TransactionAttributeSource) ois.readObject());
 		setBeanFactory((BeanFactory) ois.readObject());
+		setReactiveTransactionManager((ReactiveTransactionManager) ois.readObject());
 	}
 
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import java.util.function.Function;
+
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+import org.springframework.transaction.NoTransactionException;
+
+/**
+ * Delegate to register and obtain transactional contexts.
+ *
+ * <p>Typically used by components that intercept or orchestrate transactional flows
+ * such as AOP interceptors or transactional operators. A {@link TransactionContext}
+ * is bound to the Reactor {@link Context} of a subscription and shared with all
+ * transactional components participating in the same subscription.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see TransactionSynchronizationManager
+ */
+public abstract class TransactionContextManager {
+
+	private TransactionContextManager() {
+	}
+
+
+	/**
+	 * Obtain the current {@link TransactionContext} from the subscriber context.
+	 * @return the current {@link TransactionContext}
+	 * @throws NoTransactionException if no TransactionContext was found in the subscriber context
+	 * @see #getOrCreateContext()
+	 */
+	public static Mono<TransactionContext> currentContext() throws NoTransactionException {
+		return Mono.subscriberContext().handle((ctx, sink) -> {
+			if (ctx.hasKey(TransactionContext.class)) {
+				sink.next(ctx.<TransactionContext>get(TransactionContext.class));
+			}
+			else {
+				sink.error(new NoTransactionException("No TransactionContext found in subscriber context"));
+			}
+		});
+	}
+
+	/**
+	 * Create a new {@link TransactionContext}, replacing any existing one
+	 * in the subscriber context.
+	 * @return a function to enrich the subscriber context
+	 */
+	public static Function<Context, Context> createTransactionContext() {
+		return context -> context.put(TransactionContext.class, new TransactionContext());
+	}
+
+	/**
+	 * Return a {@link Function} to create or associate a {@link TransactionContext},
+	 * keeping an existing one so that nested transactional components share it.
+	 * @return a function to enrich the subscriber context
+	 */
+	public static Function<Context, Context> getOrCreateContext() {
+		return context -> (context.hasKey(TransactionContext.class) ? context :
+				context.put(TransactionContext.class, new TransactionContext()));
+	}
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.util.Assert;
+
+/**
+ * Operator implementation that simplifies programmatic transaction demarcation
+ * and transaction exception handling.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ * @see #execute
+ * @see ReactiveTransactionManager
+ */
+final class TransactionalOperatorImpl implements TransactionalOperator {
+
+	private static final Log logger = LogFactory.getLog(TransactionalOperatorImpl.class);
+
+	private final ReactiveTransactionManager transactionManager;
+
+	private final TransactionDefinition transactionDefinition;
+
+
+	/**
+	 * Create a new TransactionalOperatorImpl using the given transaction manager,
+	 * applying the given transaction definition to every transactional sequence.
+	 * @param transactionManager the transaction management strategy to be used
+	 * @param transactionDefinition the transaction definition to apply
+	 */
+	TransactionalOperatorImpl(ReactiveTransactionManager transactionManager, TransactionDefinition transactionDefinition) {
+		Assert.notNull(transactionManager, "ReactiveTransactionManager is required");
+		Assert.notNull(transactionDefinition, "TransactionDefinition is required");
+		this.transactionManager = transactionManager;
+		this.transactionDefinition = transactionDefinition;
+	}
+
+
+	/**
+	 * Return the transaction management strategy to be used.
+	 */
+	public ReactiveTransactionManager getTransactionManager() {
+		return this.transactionManager;
+	}
+
+	@Override
+	public <T> Mono<T> transactional(Mono<T> mono) {
+		return TransactionContextManager.currentContext().flatMap(context ->
+				this.transactionManager.getReactiveTransaction(this.transactionDefinition).flatMap(status ->
+						mono.onErrorResume(ex -> rollbackOnException(status, ex).then(Mono.error(ex)))
+								.flatMap(result -> this.transactionManager.commit(status).thenReturn(result))
+								.switchIfEmpty(Mono.defer(() -> this.transactionManager.commit(status).then(Mono.empty())))
+								.doOnCancel(() -> rollbackOnCancel(context, status))))
+				.subscriberContext(TransactionContextManager.getOrCreateContext());
+	}
+
+	@Override
+	public <T> Flux<T> execute(TransactionCallback<T> action) throws TransactionException {
+		return TransactionContextManager.currentContext().flatMapMany(context ->
+				this.transactionManager.getReactiveTransaction(this.transactionDefinition).flatMapMany(status ->
+						Flux.defer(() -> action.doInTransaction(status))
+								.onErrorResume(ex -> rollbackOnException(status, ex).then(Mono.error(ex)))
+								.concatWith(Mono.defer(() -> this.transactionManager.commit(status)).then(Mono.empty()))
+								.doOnCancel(() -> rollbackOnCancel(context, status))))
+				.subscriberContext(TransactionContextManager.getOrCreateContext());
+	}
+
+	/**
+	 * Perform a rollback, handling rollback exceptions properly.
+	 * @param status object representing the transaction
+	 * @param ex the thrown application exception or error
+	 * @throws TransactionException in case of a rollback error
+	 */
+	private Mono<Void> rollbackOnException(ReactiveTransaction status, Throwable ex) throws TransactionException {
+		logger.debug("Initiating transaction rollback on application exception", ex);
+		return this.transactionManager.rollback(status).onErrorMap(ex2 -> {
+			logger.error("Application exception overridden by rollback exception", ex);
+			if (ex2 instanceof TransactionSystemException) {
+				((TransactionSystemException) ex2).initApplicationException(ex);
+			}
+			return ex2;
+		});
+	}
+
+	/**
+	 * Roll back a transaction that is still in progress when its subscription
+	 * has been cancelled, within the transaction context of that subscription.
+	 * @param context the transaction context of the cancelled subscription
+	 * @param status object representing the transaction
+	 */
+	private void rollbackOnCancel(TransactionContext context, ReactiveTransaction status) {
+		if (!status.isCompleted()) {
+			logger.debug("Initiating transaction rollback on cancellation");
+			this.transactionManager.rollback(status)
+					.subscriberContext(ctx -> ctx.put(TransactionContext.class, context))
+					.subscribe(null, ex -> logger.error("Transaction rollback on cancellation failed", ex));
+		}
+	}
+
+}
@@ -0,0 +1,12 @@
+/**
+ * Support classes for reactive transaction management.
+ * Provides an abstract base class for reactive transaction manager implementations,
+ * a Reactor {@code Context}-bound synchronization manager, and a transactional
+ * operator for programmatic transaction demarcation.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.transaction.reactive;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -711,9 +711,60 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
 			return;
 		}
 
+		if (isPlainParticipation(defStatus)) {
+			processParticipatingCommit(defStatus);
+			return;
+		}
+
 		processCommit(defStatus);
 	}
 
+	/**
+	 * Determine whether the given status merely participates in an outer transaction,
+	 * with no savepoint, no synchronization and no suspended resources of its own.
+	 */
+	private boolean isPlainParticipation(DefaultTransactionStatus status) {
+		return (!status.isNewTransaction() && !status.isNewSynchronization() &&
+				!status.hasSavepoint() && status.getSuspendedResources() == null);
+	}
+
+	/**
+	 * Process a commit for a plain participating status: there is no actual commit
+	 * to perform and no synchronization to trigger, so this is a lightweight variant
+	 * of {@link #processCommit} which just checks for early rollback-only failure.
+	 * @param status object representing the participating transaction
+	 * @throws TransactionException in case of an unexpected global rollback
+	 * @see #isFailEarlyOnGlobalRollbackOnly()
+	 */
+	private void processParticipatingCommit(DefaultTransactionStatus status) throws TransactionException {
+		try {
+			try {
+				prepareForCommit(status);
+			}
+			catch (TransactionException ex) {
+				// same handling as for a failed commit in processCommit
+				if (isRollbackOnCommitFailure()) {
+					doRollbackOnCommitException(status, ex);
+				}
+				else {
+					triggerAfterCompletion(status, TransactionSynchronization.STATUS_UNKNOWN);
+				}
+				throw ex;
+			}
+			catch (RuntimeException | Error ex) {
+				doRollbackOnCommitException(status, ex);
+				throw ex;
+			}
+			if (isFailEarlyOnGlobalRollbackOnly() && status.isGlobalRollbackOnly()) {
+				throw new UnexpectedRollbackException(
+						"Transaction silently rolled back because it has been marked as rollback-only");
+			}
+		}
+		finally {
+			status.setCompleted();
+		}
+	}
+
 	/**
 	 * Process an actual commit.
 	 * Rollback-only flags have already been checked and applied.
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -152,6 +152,80 @@ public class TransactionSupportTests {
 		assertTrue("triggered rollbackOnly", tm.rollbackOnly);
 	}
 
+	@Test
+	public void commitWithExistingTransactionCompletesStatus() {
+		TestTransactionManager tm = new TestTransactionManager(true, true);
+		TransactionStatus status = tm.getTransaction(null);
+		tm.commit(status);
+		assertTrue("completed", status.isCompleted());
+
+		try {
+			tm.commit(status);
+			fail("Should have thrown IllegalTransactionStateException");
+		}
+		catch (IllegalTransactionStateException ex) {
+			// expected
+		}
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void commitFailureWithExistingTransaction() {
+		TestTransactionManager tm = new TestTransactionManager(true, true) {
+			@Override
+			protected void prepareForCommit(DefaultTransactionStatus status) {
+				throw new IllegalStateException("Cannot prepare for commit");
+			}
+		};
+		TransactionStatus status = tm.getTransaction(null);
+		try {
+			tm.commit(status);
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			// expected
+		}
+
+		assertTrue("completed", status.isCompleted());
+		assertTrue("no begin", !tm.begin);
+		assertTrue("no commit", !tm.commit);
+		assertTrue("no rollback", !tm.rollback);
+		assertTrue("triggered rollbackOnly", tm.rollbackOnly);
+	}
+
+	@Test
+	@SuppressWarnings("serial")
+	public void commitFailureWithExistingTransactionAndTransactionException() {
+		TestTransactionManager tm = new TestTransactionManager(true, true) {
+			@Override
+			protected void prepareForCommit(DefaultTransactionStatus status) {
+				throw new TransactionSystemException("Cannot prepare for commit");
+			}
+		};
+		TransactionStatus status = tm.getTransaction(null);
+		try {
+			tm.commit(status);
+			fail("Should have thrown TransactionSystemException");
+		}
+		catch (TransactionSystemException ex) {
+			// expected
+		}
+		assertTrue("completed", status.isCompleted());
+		assertTrue("no rollback", !tm.rollback);
+		assertTrue("no rollbackOnly", !tm.rollbackOnly);
+
+		tm.setRollbackOnCommitFailure(true);
+		status = tm.getTransaction(null);
+		try {
+			tm.commit(status);
+			fail("Should have thrown TransactionSystemException");
+		}
+		catch (TransactionSystemException ex) {
+			// expected
+		}
+		assertTrue("triggered rollbackOnly", tm.rollbackOnly);
+	}
+
 	@Test
 	public void transactionTemplate() {
 		TestTransactionManager tm = new TestTransactionManager(false, true);
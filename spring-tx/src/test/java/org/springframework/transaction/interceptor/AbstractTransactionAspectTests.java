@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.lang.reflect.Method;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.tests.sample.beans.ITestBean;
@@ -190,6 +191,64 @@ public abstract class AbstractTransactionAspectTests {
 		verify(ptm, times(2)).commit(status);
 	}
 
+	/**
+	 * Check that repeated invocations expose the same named transaction attribute.
+	 */
+	@Test
+	public void transactionNameShouldBeReusedForRepeatedInvocations() throws Exception {
+		TransactionAttribute txatt = new DefaultTransactionAttribute();
+
+		MapTransactionAttributeSource tas = new MapTransactionAttributeSource();
+		tas.register(getNameMethod, txatt);
+
+		TransactionStatus status = mock(TransactionStatus.class);
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		given(ptm.getTransaction(txatt)).willReturn(status);
+
+		TestBean tb = new TestBean();
+		ITestBean itb = (ITestBean) advised(tb, ptm, tas);
+
+		itb.getName();
+		itb.getName();
+
+		ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+		verify(ptm, times(2)).getTransaction(definitions.capture());
+		TransactionDefinition first = definitions.getAllValues().get(0);
+		assertTrue(first.getName().endsWith(".getName"));
+		assertSame(first, definitions.getAllValues().get(1));
+		verify(ptm, times(2)).commit(status);
+	}
+
+	/**
+	 * Check that the named transaction attribute is cached per target class.
+	 */
+	@Test
+	public void transactionNameShouldBeCachedPerTargetClass() throws Exception {
+		TransactionAttribute txatt = new DefaultTransactionAttribute();
+
+		MapTransactionAttributeSource tas = new MapTransactionAttributeSource();
+		tas.register(getNameMethod, txatt);
+
+		TransactionStatus status = mock(TransactionStatus.class);
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		given(ptm.getTransaction(txatt)).willReturn(status);
+
+		ITestBean itb1 = (ITestBean) advised(new TestBean(), ptm, tas);
+		ITestBean itb2 = (ITestBean) advised(new TestBean() {}, ptm, tas);
+
+		itb1.getName();
+		itb2.getName();
+		itb1.getName();
+
+		ArgumentCaptor<TransactionDefinition> definitions = ArgumentCaptor.forClass(TransactionDefinition.class);
+		verify(ptm, times(3)).getTransaction(definitions.capture());
+		TransactionDefinition first = definitions.getAllValues().get(0);
+		TransactionDefinition second = definitions.getAllValues().get(1);
+		assertEquals(TestBean.class.getName() + ".getName", first.getName());
+		assertNotEquals(first.getName(), second.getName());
+		assertSame(first, definitions.getAllValues().get(2));
+	}
+
 	/**
 	 * Check that a transaction is created and committed.
 	 */
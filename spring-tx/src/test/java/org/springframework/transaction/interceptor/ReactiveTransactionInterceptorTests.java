@@ -0,0 +1,210 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.interceptor;
+
+import java.lang.reflect.Method;
+
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link TransactionInterceptor} driven by a {@link ReactiveTransactionManager}.
+ *
+ * @author agent (agent@local)
+ */
+public class ReactiveTransactionInterceptorTests {
+
+	private final ReactiveTransactionManager rtm = mock(ReactiveTransactionManager.class);
+
+	private final ReactiveTransaction status = mock(ReactiveTransaction.class);
+
+	private final MapTransactionAttributeSource tas = new MapTransactionAttributeSource();
+
+
+	@Before
+	public void setup() throws Exception {
+		given(this.rtm.getReactiveTransaction(any())).willReturn(Mono.just(this.status));
+		given(this.rtm.commit(this.status)).willReturn(Mono.empty());
+		given(this.rtm.rollback(this.status)).willReturn(Mono.empty());
+
+		this.tas.register(ReactiveService.class.getMethod("findOne", boolean.class), new DefaultTransactionAttribute());
+		this.tas.register(ReactiveService.class.getMethod("findAll", boolean.class), new DefaultTransactionAttribute());
+		this.tas.register(ReactiveService.class.getMethod("blocking"), new DefaultTransactionAttribute());
+	}
+
+
+	@Test
+	public void monoCommitsAfterCompletion() {
+		StepVerifier.create(advised().findOne(false)).expectNext("one").verifyComplete();
+
+		verify(this.rtm).getReactiveTransaction(any(TransactionDefinition.class));
+		verify(this.rtm).commit(this.status);
+		verify(this.rtm, never()).rollback(this.status);
+	}
+
+	@Test
+	public void monoRollsBackOnError() {
+		StepVerifier.create(advised().findOne(true)).verifyError(IllegalStateException.class);
+
+		verify(this.rtm).rollback(this.status);
+		verify(this.rtm, never()).commit(this.status);
+	}
+
+	@Test
+	public void fluxCommitsAfterCompletion() {
+		StepVerifier.create(advised().findAll(false)).expectNext("one", "two").verifyComplete();
+
+		verify(this.rtm).commit(this.status);
+		verify(this.rtm, never()).rollback(this.status);
+	}
+
+	@Test
+	public void fluxRollsBackOnError() {
+		StepVerifier.create(advised().findAll(true)).expectNext("one").verifyError(IllegalStateException.class);
+
+		verify(this.rtm).rollback(this.status);
+		verify(this.rtm, never()).commit(this.status);
+	}
+
+	@Test
+	public void transactionStartsOnSubscription() {
+		Mono<String> result = advised().findOne(false);
+		verifyZeroInteractions(this.rtm);
+
+		StepVerifier.create(result).expectNext("one").verifyComplete();
+		verify(this.rtm).commit(this.status);
+	}
+
+	@Test
+	public void nonReactiveReturnTypeRejected() {
+		try {
+			advised().blocking();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getMessage().contains("non-reactive return type"));
+		}
+	}
+
+	@Test
+	public void reactiveTransactionManagerNotUsedForPlatformTransactionManager() throws Exception {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionInterceptor ti = new TransactionInterceptor(ptm, this.tas);
+		Method method = ReactiveService.class.getMethod("findOne", boolean.class);
+		assertSame(ptm, ti.determineTransactionManager(this.tas.getTransactionAttribute(method, null)));
+		assertNull(ti.determineReactiveTransactionManager(this.tas.getTransactionAttribute(method, null)));
+	}
+
+	@Test
+	public void transactionManagerResolvedByReturnTypeFromBeanFactory() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionStatus ptmStatus = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any())).willReturn(ptmStatus);
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("transactionManager", ptm);
+		beanFactory.registerSingleton("reactiveTransactionManager", this.rtm);
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionAttributeSource(this.tas);
+		ti.setBeanFactory(beanFactory);
+		ReactiveService service = advised(ti);
+
+		StepVerifier.create(service.findOne(false)).expectNext("one").verifyComplete();
+		verify(this.rtm).commit(this.status);
+		verifyZeroInteractions(ptm);
+
+		assertEquals("blocking", service.blocking());
+		verify(ptm).commit(ptmStatus);
+	}
+
+	@Test
+	public void qualifiedTransactionManagerResolvedByReturnType() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionStatus ptmStatus = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any())).willReturn(ptmStatus);
+		DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+		beanFactory.registerSingleton("transactionManager", ptm);
+		beanFactory.registerSingleton("reactiveTransactionManager", this.rtm);
+
+		TransactionInterceptor ti = new TransactionInterceptor();
+		ti.setTransactionAttributeSource(this.tas);
+		ti.setTransactionManagerBeanName("transactionManager");
+		ti.setBeanFactory(beanFactory);
+		ReactiveService service = advised(ti);
+
+		// A reactive method qualified with a PlatformTransactionManager gets driven by it
+		StepVerifier.create(service.findOne(false)).expectNext("one").verifyComplete();
+		verify(ptm).commit(ptmStatus);
+		verifyZeroInteractions(this.rtm);
+	}
+
+
+	private ReactiveService advised() {
+		return advised(new TransactionInterceptor(this.rtm, this.tas));
+	}
+
+	private ReactiveService advised(TransactionInterceptor ti) {
+		ProxyFactory pf = new ProxyFactory(new DefaultReactiveService());
+		pf.addAdvice(ti);
+		return (ReactiveService) pf.getProxy();
+	}
+
+
+	public interface ReactiveService {
+
+		Mono<String> findOne(boolean fail);
+
+		Flux<String> findAll(boolean fail);
+
+		String blocking();
+	}
+
+
+	private static class DefaultReactiveService implements ReactiveService {
+
+		@Override
+		public Mono<String> findOne(boolean fail) {
+			return (fail ? Mono.error(new IllegalStateException()) : Mono.just("one"));
+		}
+
+		@Override
+		public Flux<String> findAll(boolean fail) {
+			return (fail ? Flux.concat(Flux.just("one"), Flux.error(new IllegalStateException())) :
+					Flux.just("one", "two"));
+		}
+
+		@Override
+		public String blocking() {
+			return "blocking";
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.interceptor;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.tests.Assume;
+import org.springframework.tests.TestGroup;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StopWatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * Performance tests for {@link TransactionInterceptor} invocations which
+ * participate in an existing transaction with PROPAGATION_REQUIRED or
+ * PROPAGATION_SUPPORTS, measuring elapsed time and allocated bytes per call.
+ *
+ * @author agent (agent@local)
+ * @since 5.2
+ */
+public class TransactionInterceptorPerformanceTests {
+
+	private static final int ITERATIONS = 1000000;
+
+
+	private ResourceBindingTransactionManager tm;
+
+	private ParticipatingService service;
+
+
+	@BeforeClass
+	public static void commonAssumptions() {
+		Assume.group(TestGroup.PERFORMANCE);
+	}
+
+	@Before
+	public void setup() {
+		this.tm = new ResourceBindingTransactionManager();
+		ProxyFactory pf = new ProxyFactory(new DefaultParticipatingService());
+		pf.addAdvice(new TransactionInterceptor(this.tm, new AnnotationTransactionAttributeSource()));
+		this.service = (ParticipatingService) pf.getProxy();
+	}
+
+
+	@Test
+	public void nestedRequiredInvocationsAreFastEnough() {
+		long bytesPerCall = measure("required", () -> this.service.required());
+		assertEquals(ITERATIONS, this.tm.participations);
+		assertTrue("Too many bytes allocated per call: " + bytesPerCall, bytesPerCall < 1024);
+	}
+
+	@Test
+	public void nestedSupportsInvocationsAreFastEnough() {
+		long bytesPerCall = measure("supports", () -> this.service.supports());
+		assertEquals(ITERATIONS, this.tm.participations);
+		assertTrue("Too many bytes allocated per call: " + bytesPerCall, bytesPerCall < 1024);
+	}
+
+	@Test
+	public void nestedReadOnlyInvocationsAreFastEnough() {
+		TransactionTemplate template = new TransactionTemplate(this.tm);
+		template.setReadOnly(true);
+		StopWatch sw = new StopWatch();
+		sw.start("readOnly");
+		template.execute(status -> {
+			for (int i = 0; i < ITERATIONS; i++) {
+				this.service.readOnly();
+			}
+			return null;
+		});
+		sw.stop();
+		assertEquals(ITERATIONS, this.tm.participations);
+		assertTrue("Nested read-only invocations took too long: " + sw.getTotalTimeMillis(),
+				sw.getTotalTimeMillis() < 4000);
+	}
+
+
+	private long measure(String name, Runnable call) {
+		TransactionTemplate template = new TransactionTemplate(this.tm);
+		// Warm up: let the attribute caches fill and the JIT kick in
+		template.execute(status -> {
+			for (int i = 0; i < ITERATIONS / 10; i++) {
+				call.run();
+			}
+			return null;
+		});
+		this.tm.participations = 0;
+
+		long startBytes = allocatedBytes();
+		StopWatch sw = new StopWatch();
+		sw.start(name);
+		template.execute(status -> {
+			for (int i = 0; i < ITERATIONS; i++) {
+				call.run();
+			}
+			return null;
+		});
+		sw.stop();
+		long endBytes = allocatedBytes();
+
+		assertTrue("Nested " + name + " invocations took too long: " + sw.getTotalTimeMillis(),
+				sw.getTotalTimeMillis() < 4000);
+		return (startBytes >= 0 && endBytes >= 0 ? (endBytes - startBytes) / ITERATIONS : 0);
+	}
+
+	private static long allocatedBytes() {
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (threadBean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+			if (sunThreadBean.isThreadAllocatedMemorySupported() && sunThreadBean.isThreadAllocatedMemoryEnabled()) {
+				return sunThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+
+
+	public interface ParticipatingService {
+
+		void required();
+
+		void supports();
+
+		void readOnly();
+	}
+
+
+	public static class DefaultParticipatingService implements ParticipatingService {
+
+		@Override
+		@Transactional
+		public void required() {
+		}
+
+		@Override
+		@Transactional(propagation = Propagation.SUPPORTS)
+		public void supports() {
+		}
+
+		@Override
+		@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+		public void readOnly() {
+		}
+	}
+
+
+	/**
+	 * Minimal resource-binding transaction manager, similar in nature to
+	 * DataSourceTransactionManager but without any actual resource.
+	 */
+	@SuppressWarnings("serial")
+	private static class ResourceBindingTransactionManager extends AbstractPlatformTransactionManager {
+
+		int participations;
+
+		@Override
+		protected Object doGetTransaction() {
+			ResourceTransaction existing = (ResourceTransaction) TransactionSynchronizationManager.getResource(this);
+			return (existing != null ? existing : new ResourceTransaction());
+		}
+
+		@Override
+		protected boolean isExistingTransaction(Object transaction) {
+			boolean existing = ((ResourceTransaction) transaction).active;
+			if (existing) {
+				this.participations++;
+			}
+			return existing;
+		}
+
+		@Override
+		protected void doBegin(Object transaction, TransactionDefinition definition) {
+			((ResourceTransaction) transaction).active = true;
+			TransactionSynchronizationManager.bindResource(this, transaction);
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus status) {
+		}
+
+		@Override
+		protected void doSetRollbackOnly(DefaultTransactionStatus status) {
+			((ResourceTransaction) status.getTransaction()).rollbackOnly = true;
+		}
+
+		@Override
+		protected void doCleanupAfterCompletion(Object transaction) {
+			TransactionSynchronizationManager.unbindResource(this);
+			((ResourceTransaction) transaction).active = false;
+		}
+	}
+
+
+	private static class ResourceTransaction {
+
+		boolean active;
+
+		boolean rollbackOnly;
+	}
+
+}
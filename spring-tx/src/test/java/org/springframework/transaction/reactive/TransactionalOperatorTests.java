@@ -0,0 +1,180 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link TransactionalOperator} and {@link AbstractReactiveTransactionManager}.
+ *
+ * @author agent (agent@local)
+ */
+public class TransactionalOperatorTests {
+
+	@Test
+	public void commitWithMono() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Mono.just(true))).expectNext(true).verifyComplete();
+
+		assertTrue(tm.begin);
+		assertTrue(tm.commit);
+		assertFalse(tm.rollback);
+	}
+
+	@Test
+	public void commitWithEmptyMono() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Mono.empty())).verifyComplete();
+
+		assertTrue(tm.begin);
+		assertTrue(tm.commit);
+		assertFalse(tm.rollback);
+	}
+
+	@Test
+	public void rollbackWithMonoError() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Mono.error(new IllegalStateException())))
+				.verifyError(IllegalStateException.class);
+
+		assertTrue(tm.begin);
+		assertFalse(tm.commit);
+		assertTrue(tm.rollback);
+	}
+
+	@Test
+	public void commitWithFlux() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Flux.just(1, 2, 3))).expectNext(1, 2, 3).verifyComplete();
+
+		assertTrue(tm.begin);
+		assertTrue(tm.commit);
+		assertFalse(tm.rollback);
+	}
+
+	@Test
+	public void rollbackWithFluxError() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Flux.concat(Flux.just(1), Flux.error(new IllegalStateException()))))
+				.expectNext(1).verifyError(IllegalStateException.class);
+
+		assertTrue(tm.begin);
+		assertFalse(tm.commit);
+		assertTrue(tm.rollback);
+	}
+
+	@Test
+	public void rollbackOnlyViaStatus() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.execute(status -> {
+			status.setRollbackOnly();
+			return Mono.just(true);
+		})).expectNext(true).verifyComplete();
+
+		assertTrue(tm.begin);
+		assertFalse(tm.commit);
+		assertTrue(tm.rollback);
+	}
+
+	@Test
+	public void rollbackOnCancel() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Flux.just(1, 2, 3)), 1)
+				.expectNext(1).thenCancel().verify();
+
+		assertTrue(tm.begin);
+		assertFalse(tm.commit);
+		assertTrue(tm.rollback);
+	}
+
+	@Test
+	public void participateInExistingTransaction() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(true, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+
+		StepVerifier.create(operator.transactional(Mono.error(new IllegalStateException())))
+				.verifyError(IllegalStateException.class);
+
+		assertFalse(tm.begin);
+		assertFalse(tm.commit);
+		assertFalse(tm.rollback);
+		assertTrue(tm.rollbackOnly);
+	}
+
+	@Test
+	public void mandatoryWithoutExistingTransaction() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		DefaultTransactionDefinition definition = new DefaultTransactionDefinition();
+		definition.setPropagationBehavior(TransactionDefinition.PROPAGATION_MANDATORY);
+		TransactionalOperator operator = TransactionalOperator.create(tm, definition);
+
+		StepVerifier.create(operator.transactional(Mono.just(true)))
+				.verifyError(IllegalTransactionStateException.class);
+
+		assertFalse(tm.begin);
+		assertFalse(tm.commit);
+		assertFalse(tm.rollback);
+	}
+
+	@Test
+	public void synchronizationBoundToTransactionContext() {
+		ReactiveTestTransactionManager tm = new ReactiveTestTransactionManager(false, true);
+		TransactionalOperator operator = TransactionalOperator.create(tm);
+		AtomicBoolean afterCommit = new AtomicBoolean();
+
+		Mono<Boolean> registration = TransactionSynchronizationManager.forCurrentTransaction()
+				.doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(
+						new TransactionSynchronization() {
+							@Override
+							public Mono<Void> afterCommit() {
+								return Mono.fromRunnable(() -> afterCommit.set(true));
+							}
+						}))
+				.map(TransactionSynchronizationManager::isSynchronizationActive);
+
+		StepVerifier.create(operator.transactional(registration)).expectNext(true).verifyComplete();
+
+		assertTrue(tm.commit);
+		assertTrue(afterCommit.get());
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -170,8 +170,8 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 				File file = resource.getFile();
 				long pos = region != null ? region.getPosition() : 0;
 				long count = region != null ? region.getCount() : file.length();
-				if (logger.isDebugEnabled()) {
-					String formatted = region != null ? "region " + pos + "-" + (count) + " of " : "";
+				if (logger.isDebugEnabled() && !Hints.isLoggingSuppressed(hints)) {
+					String formatted = region != null ? "region " + pos + "-" + (pos + count - 1) + " of " : "";
 					logger.debug(Hints.getLogPrefix(hints) + "Zero-copy " + formatted + "[" + resource + "]");
 				}
 				return Optional.of(((ZeroCopyHttpOutputMessage) message).writeWith(file, pos, count));
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,11 +27,14 @@ import java.util.List;
 import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
@@ -128,6 +131,10 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 					.map(mediaType -> {
 						byte[] separator =
 								STREAM_SEPARATORS.getOrDefault(mediaType, NEWLINE_SEPARATOR);
+						if (JsonFactory.FORMAT_NAME_JSON.equals(getObjectMapper().getFactory().getFormatName())) {
+							return encodeStreamingValues(inputStream, mimeType, bufferFactory,
+									elementType, hints, encoding, separator);
+						}
 						return Flux.from(inputStream).map(value -> {
 							DataBuffer buffer =
 									encodeValue(value, mimeType, bufferFactory, elementType, hints,
@@ -151,23 +158,8 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 	private DataBuffer encodeValue(Object value, @Nullable MimeType mimeType, DataBufferFactory bufferFactory,
 			ResolvableType elementType, @Nullable Map<String, Object> hints, JsonEncoding encoding) {
 
-		if (!Hints.isLoggingSuppressed(hints)) {
-			LogFormatUtils.traceDebug(logger, traceOn -> {
-				String formatted = LogFormatUtils.formatValue(value, !traceOn);
-				return Hints.getLogPrefix(hints) + "Encoding [" + formatted + "]";
-			});
-		}
-
-		JavaType javaType = getJavaType(elementType.getType(), null);
-		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
-		ObjectWriter writer = (jsonView != null ?
-				getObjectMapper().writerWithView(jsonView) : getObjectMapper().writer());
-
-		if (javaType.isContainerType()) {
-			writer = writer.forType(javaType);
-		}
-
-		writer = customizeWriter(writer, mimeType, elementType, hints);
+		logValue(value, hints);
+		ObjectWriter writer = createObjectWriter(elementType, mimeType, hints);
 
 		DataBuffer buffer = bufferFactory.allocateBuffer();
 		boolean release = true;
@@ -179,15 +171,8 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 			writer.writeValue(generator, value);
 			release = false;
 		}
-		catch (InvalidDefinitionException ex) {
-			throw new CodecException("Type definition error: " + ex.getType(), ex);
-		}
-		catch (JsonProcessingException ex) {
-			throw new EncodingException("JSON encoding error: " + ex.getOriginalMessage(), ex);
-		}
 		catch (IOException ex) {
-			throw new IllegalStateException("Unexpected I/O error while writing to data buffer",
-					ex);
+			throw translateException(ex);
 		}
 		finally {
 			if (release) {
@@ -198,6 +183,112 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		return buffer;
 	}
 
+	/**
+	 * Encode a stream of JSON values with a single {@link ObjectWriter} and
+	 * {@link JsonGenerator} per subscription, writing into a recycled
+	 * {@link ByteArrayBuilder} and copying each value into a buffer of the
+	 * exact size from the given {@link DataBufferFactory}.
+	 */
+	private Flux<DataBuffer> encodeStreamingValues(Publisher<?> inputStream, @Nullable MimeType mimeType,
+			DataBufferFactory bufferFactory, ResolvableType elementType, @Nullable Map<String, Object> hints,
+			JsonEncoding encoding, byte[] separator) {
+
+		return Flux.defer(() -> {
+			// No root value separator: values are delimited by the given separator instead
+			ObjectWriter writer = createObjectWriter(elementType, mimeType, hints)
+					.withRootValueSeparator("");
+			ByteArrayBuilder byteBuilder = new ByteArrayBuilder(writer.getFactory()._getBufferRecycler());
+			JsonGenerator generator;
+			SequenceWriter sequenceWriter;
+			try {
+				generator = getObjectMapper().getFactory().createGenerator(byteBuilder, encoding);
+				sequenceWriter = writer.writeValues(generator);
+			}
+			catch (IOException ex) {
+				return Flux.error(translateException(ex));
+			}
+			return Flux.from(inputStream)
+					.map(value -> encodeStreamingValue(value, bufferFactory, hints,
+							sequenceWriter, byteBuilder, separator))
+					.doFinally(signalType -> {
+						try {
+							generator.close();
+						}
+						catch (IOException ex) {
+							logger.error("Could not close Encoder resources", ex);
+						}
+						finally {
+							byteBuilder.release();
+						}
+					});
+		});
+	}
+
+	private DataBuffer encodeStreamingValue(Object value, DataBufferFactory bufferFactory,
+			@Nullable Map<String, Object> hints, SequenceWriter sequenceWriter, ByteArrayBuilder byteBuilder,
+			byte[] separator) {
+
+		logValue(value, hints);
+
+		try {
+			sequenceWriter.write(value);
+			sequenceWriter.flush();
+		}
+		catch (IOException ex) {
+			byteBuilder.reset();
+			throw translateException(ex);
+		}
+
+		int length = byteBuilder.size();
+		DataBuffer buffer = bufferFactory.allocateBuffer(length + separator.length);
+		if (length == byteBuilder.getCurrentSegmentLength()) {
+			// Common case: the value fits into the current segment, no need to coalesce
+			buffer.write(byteBuilder.getCurrentSegment(), 0, length);
+		}
+		else {
+			buffer.write(byteBuilder.toByteArray());
+		}
+		byteBuilder.reset();
+		buffer.write(separator);
+		return buffer;
+	}
+
+	private void logValue(Object value, @Nullable Map<String, Object> hints) {
+		if (!Hints.isLoggingSuppressed(hints)) {
+			LogFormatUtils.traceDebug(logger, traceOn -> {
+				String formatted = LogFormatUtils.formatValue(value, !traceOn);
+				return Hints.getLogPrefix(hints) + "Encoding [" + formatted + "]";
+			});
+		}
+	}
+
+	private ObjectWriter createObjectWriter(ResolvableType elementType, @Nullable MimeType mimeType,
+			@Nullable Map<String, Object> hints) {
+
+		JavaType javaType = getJavaType(elementType.getType(), null);
+		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
+		ObjectWriter writer = (jsonView != null ?
+				getObjectMapper().writerWithView(jsonView) : getObjectMapper().writer());
+
+		if (javaType.isContainerType()) {
+			writer = writer.forType(javaType);
+		}
+
+		return customizeWriter(writer, mimeType, elementType, hints);
+	}
+
+	private RuntimeException translateException(IOException ex) {
+		if (ex instanceof InvalidDefinitionException) {
+			return new CodecException("Type definition error: " + ((InvalidDefinitionException) ex).getType(), ex);
+		}
+		else if (ex instanceof JsonProcessingException) {
+			return new EncodingException("JSON encoding error: " + ((JsonProcessingException) ex).getOriginalMessage(), ex);
+		}
+		else {
+			return new IllegalStateException("Unexpected I/O error while writing to data buffer", ex);
+		}
+	}
+
 	protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
 			ResolvableType elementType, @Nullable Map<String, Object> hints) {
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.springframework.core.codec.AbstractDataBufferDecoder;
 import org.springframework.core.codec.ByteArrayDecoder;
 import org.springframework.core.codec.ByteArrayEncoder;
 import org.springframework.core.codec.ByteBufferDecoder;
@@ -38,6 +39,8 @@ import org.springframework.http.codec.FormHttpMessageReader;
 import org.springframework.http.codec.HttpMessageReader;
 import org.springframework.http.codec.HttpMessageWriter;
 import org.springframework.http.codec.ResourceHttpMessageWriter;
+import org.springframework.http.codec.ServerSentEventHttpMessageReader;
+import org.springframework.http.codec.json.AbstractJackson2Decoder;
 import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
 import org.springframework.http.codec.json.Jackson2SmileDecoder;
@@ -95,6 +98,9 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 	@Nullable
 	private Encoder<?> jaxb2Encoder;
 
+	@Nullable
+	private Integer maxInMemorySize;
+
 	private boolean enableLoggingRequestDetails = false;
 
 	private boolean registerDefaults = true;
@@ -130,6 +136,16 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 		this.jaxb2Encoder = encoder;
 	}
 
+	@Override
+	public void maxInMemorySize(int byteCount) {
+		this.maxInMemorySize = byteCount;
+	}
+
+	@Nullable
+	protected Integer maxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
 	@Override
 	public void enableLoggingRequestDetails(boolean enable) {
 		this.enableLoggingRequestDetails = enable;
@@ -170,6 +186,7 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 		readers.add(formReader);
 
 		extendTypedReaders(readers);
+		readers.forEach(this::initReader);
 
 		return readers;
 	}
@@ -199,6 +216,7 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 			readers.add(new DecoderHttpMessageReader<>(decoder));
 		}
 		extendObjectReaders(readers);
+		readers.forEach(this::initReader);
 		return readers;
 	}
 
@@ -217,6 +235,7 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 		}
 		List<HttpMessageReader<?>> result = new ArrayList<>();
 		result.add(new DecoderHttpMessageReader<>(StringDecoder.allMimeTypes()));
+		result.forEach(this::initReader);
 		return result;
 	}
 
@@ -301,6 +320,46 @@ class BaseDefaultCodecs implements CodecConfigurer.DefaultCodecs {
 	}
 
 
+	/**
+	 * Apply the {@link #maxInMemorySize(int) maxInMemorySize} limit, if set,
+	 * to the given reader or to the decoder it delegates to.
+	 */
+	private void initReader(HttpMessageReader<?> reader) {
+		if (reader instanceof DecoderHttpMessageReader) {
+			initCodec(((DecoderHttpMessageReader<?>) reader).getDecoder());
+		}
+		else {
+			initCodec(reader);
+		}
+	}
+
+	private void initCodec(@Nullable Object codec) {
+		Integer size = this.maxInMemorySize;
+		if (size == null || codec == null) {
+			return;
+		}
+		if (codec instanceof AbstractDataBufferDecoder) {
+			((AbstractDataBufferDecoder<?>) codec).setMaxInMemorySize(size);
+		}
+		if (protobufPresent && codec instanceof ProtobufDecoder) {
+			((ProtobufDecoder) codec).setMaxMessageSize(size);
+		}
+		if (jackson2Present && codec instanceof AbstractJackson2Decoder) {
+			((AbstractJackson2Decoder) codec).setMaxInMemorySize(size);
+		}
+		if (jaxb2Present && codec instanceof Jaxb2XmlDecoder) {
+			((Jaxb2XmlDecoder) codec).setMaxInMemorySize(size);
+		}
+		if (codec instanceof FormHttpMessageReader) {
+			((FormHttpMessageReader) codec).setMaxInMemorySize(size);
+		}
+		if (codec instanceof ServerSentEventHttpMessageReader) {
+			((ServerSentEventHttpMessageReader) codec).setMaxInMemorySize(size);
+			initCodec(((ServerSentEventHttpMessageReader) codec).getDecoder());
+		}
+	}
+
+
 	// Accessors for use in subclasses...
 
 	protected Decoder<?> getJackson2JsonDecoder() {
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 
 package org.springframework.http.server.reactive;
 
+import java.nio.file.Path;
 import java.util.function.BiFunction;
 
 import org.reactivestreams.Publisher;
@@ -24,14 +25,19 @@ import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
 
 /**
  * {@link ServerHttpResponse} decorator for HTTP HEAD requests.
  *
+ * <p>Also implements {@link ZeroCopyHttpOutputMessage} so that file content,
+ * e.g. a file-system {@code Resource}, is never read just to be discarded.
+ *
  * @author Rossen Stoyanchev
  * @since 5.0
  */
-public class HttpHeadResponseDecorator extends ServerHttpResponseDecorator {
+public class HttpHeadResponseDecorator extends ServerHttpResponseDecorator
+		implements ZeroCopyHttpOutputMessage {
 
 
 	public HttpHeadResponseDecorator(ServerHttpResponse delegate) {
@@ -68,4 +74,14 @@ public class HttpHeadResponseDecorator extends ServerHttpResponseDecorator {
 		return setComplete();
 	}
 
+	/**
+	 * Set the {@literal Content-Length} header to the given count without
+	 * reading or writing the file.
+	 * @since 5.2
+	 */
+	@Override
+	public final Mono<Void> writeWith(Path file, long position, long count) {
+		return Mono.fromRunnable(() -> getHeaders().setContentLength(count));
+	}
+
 }
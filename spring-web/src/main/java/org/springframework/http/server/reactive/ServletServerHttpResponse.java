@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.http.server.reactive;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
@@ -54,6 +55,9 @@ class ServletServerHttpResponse extends AbstractListenerServerHttpResponse {
 
 	private final int bufferSize;
 
+	@Nullable
+	private byte[] writeBuffer;
+
 	@Nullable
 	private volatile ResponseBodyFlushProcessor bodyFlushProcessor;
 
@@ -164,9 +168,21 @@ class ServletServerHttpResponse extends AbstractListenerServerHttpResponse {
 	 */
 	protected int writeToOutputStream(DataBuffer dataBuffer) throws IOException {
 		ServletOutputStream outputStream = this.outputStream;
+		ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+		if (byteBuffer.hasArray()) {
+			// Write heap-based buffers directly, without an intermediate copy
+			int length = byteBuffer.remaining();
+			outputStream.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), length);
+			dataBuffer.readPosition(dataBuffer.readPosition() + length);
+			return length;
+		}
 		InputStream input = dataBuffer.asInputStream();
 		int bytesWritten = 0;
-		byte[] buffer = new byte[this.bufferSize];
+		byte[] buffer = this.writeBuffer;
+		if (buffer == null) {
+			buffer = new byte[this.bufferSize];
+			this.writeBuffer = buffer;
+		}
 		int bytesRead;
 		while (outputStream.isReady() && (bytesRead = input.read(buffer)) != -1) {
 			outputStream.write(buffer, 0, bytesRead);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -54,6 +54,13 @@ public class UndertowHttpHandlerAdapter implements io.undertow.server.HttpHandle
 	}
 
 
+	/**
+	 * Configure the {@link DataBufferFactory} to use for request and response
+	 * body buffers.
+	 * <p>By default this is a {@link DefaultDataBufferFactory} for heap buffers.
+	 * Use a {@link org.springframework.core.io.buffer.PooledDataBufferFactory}
+	 * to recycle buffers once they have been released.
+	 */
 	public void setDataBufferFactory(DataBufferFactory bufferFactory) {
 		Assert.notNull(bufferFactory, "DataBufferFactory must not be null");
 		this.bufferFactory = bufferFactory;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -25,10 +25,12 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.HttpHeadResponseDecorator;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpResponse;
 import org.springframework.util.MimeTypeUtils;
@@ -38,6 +40,7 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.mock.http.server.reactive.test.MockServerHttpRequest.get;
@@ -140,6 +143,19 @@ public class ResourceHttpMessageWriterTests {
 		assertThat(this.response.getStatusCode(), is(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE));
 	}
 
+	@Test
+	public void writeFileResourceForHeadRequest() throws Exception {
+		Resource resource = new ClassPathResource("org/springframework/http/server/reactive/spring.png");
+		HttpHeadResponseDecorator headResponse = new HttpHeadResponseDecorator(this.response);
+
+		Mono<Void> mono = this.writer.write(Mono.just(resource), null, null, null,
+				MockServerHttpRequest.head("/").build(), headResponse, HINTS);
+		StepVerifier.create(mono).expectComplete().verify();
+
+		assertThat(this.response.getHeaders().getContentLength(), is(resource.contentLength()));
+		assertFalse("File content should not have been written", this.response.isCommitted());
+	}
+
 
 	private void testWrite(MockServerHttpRequest request) {
 		Mono<Void> mono = this.writer.write(this.input, null, null, TEXT_PLAIN, request, this.response, HINTS);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -27,9 +27,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Test;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import org.springframework.core.ResolvableType;
 import org.springframework.core.codec.AbstractEncoderTestCase;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.Pojo;
@@ -164,6 +166,36 @@ public class Jackson2JsonEncoderTests extends AbstractEncoderTestCase<Jackson2Js
 				barMediaType, null);
 	}
 
+	@Test
+	public void encodeAsStreamResubscribe() {
+		Flux<Pojo> input = Flux.just(new Pojo("foo", "bar"), new Pojo("foofoo", "barbar"));
+		Flux<DataBuffer> output = this.encoder.encode(input, this.bufferFactory,
+				ResolvableType.forClass(Pojo.class), APPLICATION_STREAM_JSON, null);
+
+		for (int i = 0; i < 2; i++) {
+			StepVerifier.create(output)
+					.consumeNextWith(expectString("{\"foo\":\"foo\",\"bar\":\"bar\"}\n")
+							.andThen(DataBufferUtils::release))
+					.consumeNextWith(expectString("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}\n")
+							.andThen(DataBufferUtils::release))
+					.verifyComplete();
+		}
+	}
+
+	@Test
+	public void encodeAsStreamWithLargeValue() {
+		String large = String.join("", Collections.nCopies(20000, "x"));
+		Flux<Pojo> input = Flux.just(new Pojo(large, "bar"), new Pojo("foofoo", "barbar"));
+
+		testEncode(input, ResolvableType.forClass(Pojo.class), step -> step
+				.consumeNextWith(expectString("{\"foo\":\"" + large + "\",\"bar\":\"bar\"}\n")
+						.andThen(DataBufferUtils::release))
+				.consumeNextWith(expectString("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}\n")
+						.andThen(DataBufferUtils::release))
+				.verifyComplete(),
+				APPLICATION_STREAM_JSON, null);
+	}
+
 	@Test
 	public void fieldLevelJsonView() {
 		JacksonViewBean bean = new JacksonViewBean();
@@ -36,6 +36,7 @@ import reactor.test.StepVerifier;
 import org.springframework.core.codec.DecodingException;
 import org.springframework.core.io.buffer.AbstractLeakCheckingTestCase;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
@@ -185,7 +186,7 @@ public class Jackson2TokenizerTests extends AbstractLeakCheckingTestCase {
 		Flux<DataBuffer> source = Flux.just(buffer)
 				.concatWith(Flux.error(new RuntimeException()));
 
-		Flux<TokenBuffer> result = Jackson2Tokenizer.tokenize(source, this.jsonFactory, true);
+		Flux<TokenBuffer> result = Jackson2Tokenizer.tokenize(source, this.jsonFactory, true, -1);
 
 		StepVerifier.create(result)
 				.expectError(RuntimeException.class)
@@ -195,20 +196,42 @@ public class Jackson2TokenizerTests extends AbstractLeakCheckingTestCase {
 	@Test // SPR-16521
 	public void jsonEOFExceptionIsWrappedAsDecodingError() {
 		Flux<DataBuffer> source = Flux.just(stringBuffer("{\"status\": \"noClosingQuote}"));
-		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(source, this.jsonFactory, false);
+		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(source, this.jsonFactory, false, -1);
 
 		StepVerifier.create(tokens)
 				.expectError(DecodingException.class)
 				.verify();
 	}
 
+	@Test
+	public void tokenizeExceedsLimit() {
+		Flux<DataBuffer> source = Flux.just(stringBuffer("{\"id\":1,"), stringBuffer("\"name\":\"Robert\","));
+		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(source, this.jsonFactory, false, 16);
+
+		StepVerifier.create(tokens)
+				.expectError(DataBufferLimitException.class)
+				.verify();
+	}
+
+	@Test
+	public void tokenizeArrayElementsWithinLimit() {
+		Flux<DataBuffer> source = Flux.just(
+				stringBuffer("[{\"id\":1},"), stringBuffer("{\"id\":2},"), stringBuffer("{\"id\":3}]"));
+		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(source, this.jsonFactory, true, 16);
+
+		StepVerifier.create(tokens)
+				.expectNextCount(3)
+				.verifyComplete();
+	}
+
 
 	private void testTokenize(List<String> source, List<String> expected, boolean tokenizeArrayElements) {
 
 		Flux<TokenBuffer> tokenBufferFlux = Jackson2Tokenizer.tokenize(
 				Flux.fromIterable(source).map(this::stringBuffer),
 				this.jsonFactory,
-				tokenizeArrayElements);
+				tokenizeArrayElements,
+				-1);
 
 		Flux<String> result = tokenBufferFlux
 				.map(tokenBuffer -> {